@@ -0,0 +1,624 @@
+/*
+ * =================================================================================================
+ *                             Copyright (C) 2017 Universum Studios
+ * =================================================================================================
+ *         Licensed under the Apache License, Version 2.0 or later (further "License" only).
+ * -------------------------------------------------------------------------------------------------
+ * You may use this file only in compliance with the License. More details and copy of this License
+ * you may obtain at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * You can redistribute, modify or publish any part of the code written within this file but as it
+ * is described in the License, the software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES or CONDITIONS OF ANY KIND.
+ *
+ * See the License for the specific language governing permissions and limitations under the License.
+ * =================================================================================================
+ */
+package universum.studios.android.util;
+
+import android.support.annotation.IntDef;
+import android.support.annotation.IntRange;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.Log;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A {@link Logger} implementation which does not write log records on the caller's thread but
+ * publishes them into a preallocated ring buffer from which they are drained by a single background
+ * thread into a delegate logger.
+ * <p>
+ * Publishing of a log record does not take any locks and does not allocate any objects. The ring
+ * buffer is a bounded multi-producer queue where each slot carries its own sequence number, so
+ * producers only need to claim a slot via compare-and-set and then mark it as published.
+ * <p>
+ * What happens when the buffer is full is determined by the {@link Backpressure} policy specified
+ * via {@link #setBackpressure(int)}. By default, the publishing thread waits until the consumer
+ * frees a slot ({@link #BACKPRESSURE_BLOCK}). All other policies drop records in order to keep the
+ * caller's thread going. Count of the dropped records may be obtained via {@link #getDroppedCount(int)}.
+ * <p>
+ * As any {@link DelegatingLogger}, the async logger delegates its level checks to its delegate, so
+ * calls that would be rejected by the delegate are not even published.
+ * <p>
+ * Call {@link #flush()} to wait until all so far published records are written or {@link #shutdown()}
+ * to drain the buffer and stop the background thread, for example when the application is exiting.
+ * Records logged after shutdown are delivered to the delegate logger synchronously.
+ *
+ * @author Martin Albedinsky
+ */
+public class AsyncLogger extends DelegatingLogger {
+
+	/**
+	 * Constants ===================================================================================
+	 */
+
+	/**
+	 * Log TAG.
+	 */
+	// private static final String TAG = "AsyncLogger";
+
+	/**
+	 * Default capacity of the ring buffer.
+	 */
+	public static final int DEFAULT_CAPACITY = 1024;
+
+	/**
+	 * Backpressure policy which blocks the publishing thread until there is a free slot in the
+	 * ring buffer.
+	 */
+	public static final int BACKPRESSURE_BLOCK = 0x00;
+
+	/**
+	 * Backpressure policy which drops the record being published when the ring buffer is full.
+	 */
+	public static final int BACKPRESSURE_DROP_NEWEST = 0x01;
+
+	/**
+	 * Backpressure policy which drops the oldest buffered record in order to make room for the
+	 * record being published when the ring buffer is full.
+	 */
+	public static final int BACKPRESSURE_DROP_OLDEST = 0x02;
+
+	/**
+	 * Backpressure policy which drops the record being published when the ring buffer is full and
+	 * level of the record is below the threshold specified via {@link #setBackpressureLevel(int)}.
+	 * Records at or above the threshold block the publishing thread as with {@link #BACKPRESSURE_BLOCK}.
+	 */
+	public static final int BACKPRESSURE_DROP_BELOW_LEVEL = 0x03;
+
+	/**
+	 * Name of the background thread that drains the ring buffer.
+	 */
+	private static final String THREAD_NAME = "AsyncLogger";
+
+	/**
+	 * Maximum time for which the consumer thread parks while waiting for new records.
+	 */
+	private static final long CONSUMER_PARK_NANOS = 100 * 1000 * 1000;
+
+	/**
+	 * Time for which a thread parks while waiting for the buffer to make progress.
+	 */
+	private static final long WAIT_PARK_NANOS = 50 * 1000;
+
+	/**
+	 * Interface ===================================================================================
+	 */
+
+	/**
+	 * Defines an annotation for determining set of allowed backpressure policies for AsyncLogger.
+	 */
+	@IntDef({
+			BACKPRESSURE_BLOCK,
+			BACKPRESSURE_DROP_NEWEST,
+			BACKPRESSURE_DROP_OLDEST,
+			BACKPRESSURE_DROP_BELOW_LEVEL
+	})
+	@Retention(RetentionPolicy.SOURCE)
+	public @interface Backpressure {
+	}
+
+	/**
+	 * Static members ==============================================================================
+	 */
+
+	/**
+	 * Members =====================================================================================
+	 */
+
+	/**
+	 * Capacity of the ring buffer. Always a power of two.
+	 */
+	private final int mCapacity;
+
+	/**
+	 * Mask used to translate a position into an index of a slot within the ring buffer.
+	 */
+	private final int mMask;
+
+	/**
+	 * Slot sequences. A slot is free for a producer at position {@code p} when its sequence equals
+	 * to {@code p} and is published for the consumer when its sequence equals to {@code p + 1}.
+	 */
+	private final AtomicLongArray mSequences;
+
+	/**
+	 * Levels of the records stored in the ring buffer slots.
+	 */
+	private final int[] mLevels;
+
+	/**
+	 * Tags of the records stored in the ring buffer slots.
+	 */
+	private final String[] mTags;
+
+	/**
+	 * Messages of the records stored in the ring buffer slots.
+	 */
+	private final String[] mMessages;
+
+	/**
+	 * Throwables of the records stored in the ring buffer slots.
+	 */
+	private final Throwable[] mThrowables;
+
+	/**
+	 * Flags indicating whether the records stored in the ring buffer slots have been logged via
+	 * {@link #forceLog(int, String, String)}.
+	 */
+	private final boolean[] mForced;
+
+	/**
+	 * Position at which will be published the next record.
+	 */
+	private final AtomicLong mProducerPosition = new AtomicLong();
+
+	/**
+	 * Position from which will be consumed the next record.
+	 */
+	private final AtomicLong mConsumerPosition = new AtomicLong();
+
+	/**
+	 * Position up to which have been all records written into the delegate logger.
+	 */
+	private volatile long mCompletedPosition;
+
+	/**
+	 * Policy determining how to handle records published into a full ring buffer.
+	 */
+	@Backpressure
+	private volatile int mBackpressure = BACKPRESSURE_BLOCK;
+
+	/**
+	 * Level below which are records dropped when {@link #BACKPRESSURE_DROP_BELOW_LEVEL} policy is
+	 * used.
+	 */
+	@Level
+	private volatile int mBackpressureLevel = Log.WARN;
+
+	/**
+	 * Counts of dropped records indexed by their level.
+	 */
+	private final AtomicLongArray mDroppedCounts = new AtomicLongArray(Log.ASSERT + 1);
+
+	/**
+	 * Metrics into which are recorded dropped records. May be {@code null}.
+	 */
+	private volatile LoggerMetrics mMetrics;
+
+	/**
+	 * Flag indicating whether the consumer thread is parked and should be unparked by producers.
+	 */
+	private volatile boolean mConsumerParked;
+
+	/**
+	 * Flag indicating whether {@link #shutdown()} has been requested.
+	 */
+	private volatile boolean mShutdown;
+
+	/**
+	 * Background thread that drains the ring buffer into the delegate logger.
+	 */
+	private final Thread mConsumerThread;
+
+	/**
+	 * Constructors ================================================================================
+	 */
+
+	/**
+	 * Same as {@link #AsyncLogger(Logger, int)} with {@link #DEFAULT_CAPACITY}.
+	 */
+	public AsyncLogger(@NonNull Logger delegate) {
+		this(delegate, DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Same as {@link #AsyncLogger(Logger, int, int)} with {@link #BACKPRESSURE_BLOCK} policy.
+	 */
+	public AsyncLogger(@NonNull Logger delegate, @IntRange(from = 1) int capacity) {
+		this(delegate, capacity, BACKPRESSURE_BLOCK);
+	}
+
+	/**
+	 * Creates a new instance of AsyncLogger which will asynchronously write all its log records into
+	 * the given <var>delegate</var> logger.
+	 *
+	 * @param delegate     The logger into which to write the log records.
+	 * @param capacity     Capacity of the ring buffer. Must be a power of two.
+	 * @param backpressure The policy determining how to handle records when the buffer is full.
+	 * @throws IllegalArgumentException If the specified capacity is not a power of two.
+	 * @see #setBackpressure(int)
+	 */
+	public AsyncLogger(@NonNull Logger delegate, @IntRange(from = 1) int capacity, @Backpressure int backpressure) {
+		super(delegate);
+		if (capacity <= 0 || (capacity & (capacity - 1)) != 0) {
+			throw new IllegalArgumentException("Capacity must be a power of two but is(" + capacity + ").");
+		}
+		this.mCapacity = capacity;
+		this.mMask = capacity - 1;
+		this.mSequences = new AtomicLongArray(capacity);
+		for (int i = 0; i < capacity; i++) {
+			mSequences.set(i, i);
+		}
+		this.mLevels = new int[capacity];
+		this.mTags = new String[capacity];
+		this.mMessages = new String[capacity];
+		this.mThrowables = new Throwable[capacity];
+		this.mForced = new boolean[capacity];
+		this.mBackpressure = backpressure;
+		this.mConsumerThread = new Thread(new Runnable() {
+
+			/**
+			 */
+			@Override
+			public void run() {
+				consume();
+			}
+		}, THREAD_NAME);
+		mConsumerThread.setDaemon(true);
+		mConsumerThread.start();
+	}
+
+	/**
+	 * Methods =====================================================================================
+	 */
+
+	/**
+	 * Returns the capacity of the ring buffer of this logger.
+	 *
+	 * @return Maximum count of records that may be buffered at a time.
+	 */
+	public final int getCapacity() {
+		return mCapacity;
+	}
+
+	/**
+	 * Sets a policy determining how to handle records that are logged while the ring buffer is full.
+	 *
+	 * @param backpressure The desired backpressure policy. One of {@link #BACKPRESSURE_BLOCK},
+	 *                     {@link #BACKPRESSURE_DROP_NEWEST}, {@link #BACKPRESSURE_DROP_OLDEST} or
+	 *                     {@link #BACKPRESSURE_DROP_BELOW_LEVEL}.
+	 * @see #getBackpressure()
+	 * @see #setBackpressureLevel(int)
+	 */
+	public void setBackpressure(@Backpressure int backpressure) {
+		this.mBackpressure = backpressure;
+	}
+
+	/**
+	 * Returns the backpressure policy of this logger.
+	 *
+	 * @return This logger's backpressure policy. {@link #BACKPRESSURE_BLOCK} by default.
+	 * @see #setBackpressure(int)
+	 */
+	@Backpressure
+	public int getBackpressure() {
+		return mBackpressure;
+	}
+
+	/**
+	 * Sets a level threshold for the {@link #BACKPRESSURE_DROP_BELOW_LEVEL} policy. Records with level
+	 * below this threshold are dropped when the buffer is full.
+	 *
+	 * @param level The desired threshold level. {@link Log#WARN} by default.
+	 * @see #getBackpressureLevel()
+	 */
+	public void setBackpressureLevel(@Level int level) {
+		this.mBackpressureLevel = level;
+	}
+
+	/**
+	 * Returns the level threshold for the {@link #BACKPRESSURE_DROP_BELOW_LEVEL} policy.
+	 *
+	 * @return Threshold level.
+	 * @see #setBackpressureLevel(int)
+	 */
+	@Level
+	public int getBackpressureLevel() {
+		return mBackpressureLevel;
+	}
+
+	/**
+	 * Specifies metrics into which should this logger record records dropped due to its backpressure
+	 * policy.
+	 *
+	 * @param metrics The desired metrics. May be {@code null} to not record dropped records.
+	 * @see LoggerMetrics#recordDropped(int)
+	 */
+	public void setMetrics(@Nullable LoggerMetrics metrics) {
+		this.mMetrics = metrics;
+	}
+
+	/**
+	 * Returns the count of records with the specified <var>level</var> that have been dropped due
+	 * to the backpressure policy of this logger.
+	 *
+	 * @param level The level for which to return the dropped count.
+	 * @return Count of dropped records.
+	 * @see #getDroppedCount()
+	 */
+	public long getDroppedCount(@Level int level) {
+		return level >= 0 && level < mDroppedCounts.length() ? mDroppedCounts.get(level) : 0;
+	}
+
+	/**
+	 * Returns the total count of records that have been dropped due to the backpressure policy of
+	 * this logger.
+	 *
+	 * @return Count of dropped records of all levels.
+	 * @see #getDroppedCount(int)
+	 */
+	public long getDroppedCount() {
+		long count = 0;
+		for (int i = 0; i < mDroppedCounts.length(); i++) {
+			count += mDroppedCounts.get(i);
+		}
+		return count;
+	}
+
+	/**
+	 */
+	@Override
+	protected void onLog(@Level int level, @NonNull String tag, @Nullable String msg, @Nullable Throwable tr, boolean forced) {
+		if (mShutdown) {
+			dispatch(getDelegate(), level, tag, msg, tr, forced);
+			return;
+		}
+		while (!offer(level, tag, msg, tr, forced)) {
+			if (mShutdown) {
+				dispatch(getDelegate(), level, tag, msg, tr, forced);
+				return;
+			}
+			if (!mConsumerThread.isAlive()) {
+				// The consumer thread has died, so make room in the buffer on this thread.
+				while (drainNext()) {
+					// Keep draining until there are no more published records.
+				}
+				continue;
+			}
+			switch (mBackpressure) {
+				case BACKPRESSURE_DROP_NEWEST:
+					onRecordDropped(level);
+					return;
+				case BACKPRESSURE_DROP_OLDEST:
+					// The oldest record may be still being published, in such case wait for it.
+					if (discardNext()) continue;
+					break;
+				case BACKPRESSURE_DROP_BELOW_LEVEL:
+					if (level < mBackpressureLevel) {
+						onRecordDropped(level);
+						return;
+					}
+					break;
+				case BACKPRESSURE_BLOCK:
+				default:
+					break;
+			}
+			unparkConsumer();
+			LockSupport.parkNanos(this, WAIT_PARK_NANOS);
+		}
+		if (mConsumerParked) {
+			unparkConsumer();
+		} else if (mShutdown && !mConsumerThread.isAlive()) {
+			// Shutdown has been requested while this record was being published and the consumer
+			// thread may have already finished, so drain whatever is left on this thread.
+			while (drainNext()) {
+				// Keep draining until there are no more published records.
+			}
+		}
+	}
+
+	/**
+	 * Tries to publish the given record into the ring buffer.
+	 *
+	 * @return {@code True} if the record has been published, {@code false} if the buffer is full.
+	 */
+	private boolean offer(int level, String tag, String msg, Throwable tr, boolean forced) {
+		long position = mProducerPosition.get();
+		int index;
+		for (;;) {
+			index = (int) (position & mMask);
+			final long difference = mSequences.get(index) - position;
+			if (difference == 0) {
+				if (mProducerPosition.compareAndSet(position, position + 1)) break;
+			} else if (difference < 0) {
+				return false;
+			} else {
+				position = mProducerPosition.get();
+			}
+		}
+		mLevels[index] = level;
+		mTags[index] = tag;
+		mMessages[index] = msg;
+		mThrowables[index] = tr;
+		mForced[index] = forced;
+		mSequences.set(index, position + 1);
+		return true;
+	}
+
+	/**
+	 * Unparks the consumer thread so it may continue draining the ring buffer.
+	 */
+	private void unparkConsumer() {
+		LockSupport.unpark(mConsumerThread);
+	}
+
+	/**
+	 * Drains the ring buffer into the delegate logger until shutdown is requested and there are no
+	 * more records to be drained.
+	 */
+	private void consume() {
+		for (;;) {
+			if (drainNext()) continue;
+			final long position = mConsumerPosition.get();
+			if (mShutdown && mProducerPosition.get() == position) {
+				return;
+			}
+			this.mConsumerParked = true;
+			if (mSequences.get((int) (position & mMask)) != position + 1 && !mShutdown) {
+				LockSupport.parkNanos(this, CONSUMER_PARK_NANOS);
+			}
+			this.mConsumerParked = false;
+		}
+	}
+
+	/**
+	 * Removes the next published record from the ring buffer (if any) and writes it into the
+	 * delegate logger.
+	 *
+	 * @return {@code True} if a record has been written, {@code false} if there is no published
+	 * record to be written at this time.
+	 */
+	private boolean drainNext() {
+		final long position = claimNext();
+		if (position < 0) {
+			return false;
+		}
+		final int index = (int) (position & mMask);
+		final int level = mLevels[index];
+		final String tag = mTags[index];
+		final String msg = mMessages[index];
+		final Throwable tr = mThrowables[index];
+		final boolean forced = mForced[index];
+		mTags[index] = null;
+		mMessages[index] = null;
+		mThrowables[index] = null;
+		mSequences.set(index, position + mCapacity);
+		try {
+			dispatch(getDelegate(), level, tag, msg, tr, forced);
+		} catch (Throwable e) {
+			// Failure of a single record, even an error, must not stop draining of the other ones.
+		}
+		if (mCompletedPosition < position + 1) this.mCompletedPosition = position + 1;
+		return true;
+	}
+
+	/**
+	 * Removes the next published record from the ring buffer (if any) without writing it into the
+	 * delegate logger.
+	 *
+	 * @return {@code True} if a record has been dropped, {@code false} if there is no published
+	 * record to be dropped at this time.
+	 */
+	private boolean discardNext() {
+		final long position = claimNext();
+		if (position < 0) {
+			return false;
+		}
+		final int index = (int) (position & mMask);
+		final int level = mLevels[index];
+		mTags[index] = null;
+		mMessages[index] = null;
+		mThrowables[index] = null;
+		mSequences.set(index, position + mCapacity);
+		onRecordDropped(level);
+		return true;
+	}
+
+	/**
+	 * Claims the next published record in the ring buffer for reading. The claimed slot must be
+	 * released by setting its sequence to {@code position + capacity}.
+	 *
+	 * @return Position of the claimed record or {@code -1} if there is no published record to be
+	 * claimed at this time.
+	 */
+	private long claimNext() {
+		long position = mConsumerPosition.get();
+		for (;;) {
+			final long difference = mSequences.get((int) (position & mMask)) - (position + 1);
+			if (difference == 0) {
+				if (mConsumerPosition.compareAndSet(position, position + 1)) return position;
+			} else if (difference < 0) {
+				return -1;
+			} else {
+				position = mConsumerPosition.get();
+			}
+		}
+	}
+
+	/**
+	 * Invoked whenever a record with the specified <var>level</var> has been dropped.
+	 */
+	private void onRecordDropped(int level) {
+		if (level >= 0 && level < mDroppedCounts.length()) mDroppedCounts.incrementAndGet(level);
+		final LoggerMetrics metrics = mMetrics;
+		if (metrics != null) metrics.recordDropped(level);
+	}
+
+	/**
+	 * Blocks the current thread until all records published into the ring buffer before this call
+	 * are written into the delegate logger.
+	 */
+	public void flush() {
+		final long target = mProducerPosition.get();
+		while (mCompletedPosition < target && mConsumerThread.isAlive()) {
+			unparkConsumer();
+			LockSupport.parkNanos(this, WAIT_PARK_NANOS);
+		}
+	}
+
+	/**
+	 * Drains all records remaining in the ring buffer into the delegate logger and stops the
+	 * background thread. Blocks the current thread until the background thread finishes.
+	 * <p>
+	 * After shutdown, all records logged via this logger are written into the delegate logger
+	 * synchronously on the caller's thread.
+	 */
+	public void shutdown() {
+		this.mShutdown = true;
+		unparkConsumer();
+		if (Thread.currentThread() == mConsumerThread) {
+			return;
+		}
+		boolean interrupted = false;
+		while (mConsumerThread.isAlive()) {
+			try {
+				mConsumerThread.join();
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		if (interrupted) Thread.currentThread().interrupt();
+	}
+
+	/**
+	 * Checks whether {@link #shutdown()} has been already requested for this logger.
+	 *
+	 * @return {@code True} if this logger has been shut down, {@code false} otherwise.
+	 */
+	public boolean isShutdown() {
+		return mShutdown;
+	}
+
+	/**
+	 * Inner classes ===============================================================================
+	 */
+}
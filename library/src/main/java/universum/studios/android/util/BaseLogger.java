@@ -0,0 +1,910 @@
+/*
+ * =================================================================================================
+ *                             Copyright (C) 2017 Universum Studios
+ * =================================================================================================
+ *         Licensed under the Apache License, Version 2.0 or later (further "License" only).
+ * -------------------------------------------------------------------------------------------------
+ * You may use this file only in compliance with the License. More details and copy of this License
+ * you may obtain at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * You can redistribute, modify or publish any part of the code written within this file but as it
+ * is described in the License, the software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES or CONDITIONS OF ANY KIND.
+ *
+ * See the License for the specific language governing permissions and limitations under the License.
+ * =================================================================================================
+ */
+package universum.studios.android.util;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.Log;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A base implementation of {@link Logger} which funnels all logging calls that pass the level check
+ * into a single {@link #onLog(int, String, String, Throwable)} callback. Inheritance hierarchies
+ * need to implement only that callback in order to provide a fully functional logger.
+ * <p>
+ * Log calls made via {@code wtf(...)} methods are not subject to the level check and are passed to
+ * {@link #onLog(int, String, String, Throwable)} with {@link Log#ASSERT} level. Records logged via
+ * {@link #forceLog(int, String, String)} are passed to {@link #onLog(int, String, String, Throwable, boolean)},
+ * so decorating loggers may deliver them to their delegates again as forced records.
+ *
+ * <h3>Tag log levels</h3>
+ * Besides the global logging level, a specific level may be specified for a particular tag via
+ * {@link #setTagLogLevel(String, int)}. Such overrides are stored in a copy-on-write table, so
+ * reconfiguration does not block loggers in use and the level check does not perform any lookup
+ * at all while there are no overrides specified. Components that log a lot should obtain a
+ * {@link Tag} handle via {@link #tag(String)} and log through it. Each handle caches its effective
+ * level, which is updated whenever the levels are reconfigured, so its level check is only a single
+ * field read and compare without any map lookup or string hashing.
+ *
+ * @author Martin Albedinsky
+ */
+public abstract class BaseLogger implements Logger {
+
+	/**
+	 * Constants ===================================================================================
+	 */
+
+	/**
+	 * Interface ===================================================================================
+	 */
+
+	/**
+	 * Static members ==============================================================================
+	 */
+
+	/**
+	 * Members =====================================================================================
+	 */
+
+	/**
+	 * Logging level for this logger.
+	 */
+	@Level
+	private volatile int mLogLevel;
+
+	/**
+	 * Copy-on-write table with log levels specified for particular tags.
+	 */
+	private volatile Map<String, Integer> mTagLogLevels = Collections.emptyMap();
+
+	/**
+	 * Tag handles created for this logger mapped to their names.
+	 */
+	private final Map<String, Tag> mTags = new ConcurrentHashMap<>();
+
+	/**
+	 * Lock used to synchronize reconfiguration of log levels.
+	 */
+	private final Object mLevelsLock = new Object();
+
+	/**
+	 * Renderer used to render stack traces.
+	 */
+	private volatile StackTraceRenderer mStackTraceRenderer = StackTraceRenderer.DEFAULT;
+
+	/**
+	 * Cache used to obtain rendered stack traces. May be {@code null}.
+	 */
+	private volatile StackTraceCache mStackTraceCache;
+
+	/**
+	 * Constructors ================================================================================
+	 */
+
+	/**
+	 * Creates a new instance of BaseLogger with the specified log level.
+	 *
+	 * @param level The initial logging level for the logger.
+	 * @see #setLogLevel(int)
+	 * @see #getLogLevel()
+	 */
+	public BaseLogger(@Level int level) {
+		this.mLogLevel = level;
+	}
+
+	/**
+	 * Methods =====================================================================================
+	 */
+
+	/**
+	 * Delivers the given log data to the specified <var>logger</var> via its method that corresponds
+	 * to the specified <var>level</var>. Records with {@link Log#ASSERT} level are delivered via
+	 * {@code wtf(...)} methods.
+	 *
+	 * @param logger The logger to which to deliver the log data.
+	 * @param level  Level of the log data.
+	 * @param tag    Tag of the log data.
+	 * @param msg    Message of the log data. May be {@code null} if only throwable should be logged.
+	 * @param tr     Throwable of the log data. May be {@code null}.
+	 */
+	protected static void dispatch(@NonNull Logger logger, @Level int level, @NonNull String tag, @Nullable String msg, @Nullable Throwable tr) {
+		dispatch(logger, level, tag, msg, tr, false);
+	}
+
+	/**
+	 * Same as {@link #dispatch(Logger, int, String, String, Throwable)} but if the log data are
+	 * <var>forced</var>, delivers them via {@link Logger#forceLog(int, String, String)}, with the
+	 * stack trace of the throwable (if any) appended to the message, so they are not subject to the
+	 * level check of the specified <var>logger</var>. Forced records with {@link Log#ASSERT} level
+	 * are still delivered via {@code wtf(...)} methods, which do not check the level either.
+	 *
+	 * @param logger The logger to which to deliver the log data.
+	 * @param level  Level of the log data.
+	 * @param tag    Tag of the log data.
+	 * @param msg    Message of the log data. May be {@code null} if only throwable should be logged.
+	 * @param tr     Throwable of the log data. May be {@code null}.
+	 * @param forced {@code True} to deliver the log data regardless the level of the logger.
+	 */
+	protected static void dispatch(@NonNull Logger logger, @Level int level, @NonNull String tag, @Nullable String msg, @Nullable Throwable tr, boolean forced) {
+		if (forced && level != Log.ASSERT) {
+			final String stackTrace = tr == null ? null : logger.getStackTraceString(tr);
+			if (stackTrace == null) {
+				logger.forceLog(level, tag, msg == null ? "" : msg);
+			} else {
+				logger.forceLog(level, tag, msg == null ? stackTrace : msg + "\n" + stackTrace);
+			}
+			return;
+		}
+		switch (level) {
+			case Log.VERBOSE:
+				if (tr == null) logger.v(tag, msg == null ? "" : msg);
+				else logger.v(tag, msg == null ? "" : msg, tr);
+				break;
+			case Log.DEBUG:
+				if (tr == null) logger.d(tag, msg == null ? "" : msg);
+				else logger.d(tag, msg == null ? "" : msg, tr);
+				break;
+			case Log.INFO:
+				if (tr == null) logger.i(tag, msg == null ? "" : msg);
+				else logger.i(tag, msg == null ? "" : msg, tr);
+				break;
+			case Log.WARN:
+				if (tr == null) logger.w(tag, msg == null ? "" : msg);
+				else if (msg == null) logger.w(tag, tr);
+				else logger.w(tag, msg, tr);
+				break;
+			case Log.ERROR:
+				if (tr == null) logger.e(tag, msg == null ? "" : msg);
+				else logger.e(tag, msg == null ? "" : msg, tr);
+				break;
+			case Log.ASSERT:
+				if (tr == null) logger.wtf(tag, msg == null ? "" : msg);
+				else if (msg == null) logger.wtf(tag, tr);
+				else logger.wtf(tag, msg, tr);
+				break;
+			default:
+				logger.log(level, tag, msg == null ? "" : msg);
+		}
+	}
+
+	/**
+	 */
+	@Override
+	public void setLogLevel(@Level int level) {
+		synchronized (mLevelsLock) {
+			this.mLogLevel = level;
+			updateTags();
+		}
+	}
+
+	/**
+	 */
+	@Level
+	@Override
+	public int getLogLevel() {
+		return mLogLevel;
+	}
+
+	/**
+	 */
+	@Override
+	public boolean isLoggable(@NonNull String tag, @Level int level) {
+		return resolveLogLevel(tag) <= level;
+	}
+
+	/**
+	 * Specifies a logging level for the specified <var>tag</var> which will be used instead of the
+	 * logging level of this logger for all log calls with that tag.
+	 *
+	 * @param tag   The tag for which to specify the level.
+	 * @param level The desired log level for the tag.
+	 * @see #getTagLogLevel(String)
+	 * @see #clearTagLogLevel(String)
+	 */
+	public void setTagLogLevel(@NonNull String tag, @Level int level) {
+		synchronized (mLevelsLock) {
+			final Map<String, Integer> levels = new HashMap<>(mTagLogLevels);
+			levels.put(tag, level);
+			this.mTagLogLevels = levels;
+			updateTags();
+		}
+	}
+
+	/**
+	 * Clears the logging level specified for the specified <var>tag</var> (if any), so the logging
+	 * level of this logger will be again used for log calls with that tag.
+	 *
+	 * @param tag The tag for which to clear the level.
+	 * @see #setTagLogLevel(String, int)
+	 */
+	public void clearTagLogLevel(@NonNull String tag) {
+		synchronized (mLevelsLock) {
+			if (!mTagLogLevels.containsKey(tag)) return;
+			final Map<String, Integer> levels = new HashMap<>(mTagLogLevels);
+			levels.remove(tag);
+			this.mTagLogLevels = levels.isEmpty() ? Collections.<String, Integer>emptyMap() : levels;
+			updateTags();
+		}
+	}
+
+	/**
+	 * Returns the logging level that is effective for the specified <var>tag</var>.
+	 *
+	 * @param tag The tag for which to return the level.
+	 * @return Level specified for the tag or logging level of this logger if there is no level
+	 * specified for the tag.
+	 * @see #setTagLogLevel(String, int)
+	 */
+	@Level
+	public int getTagLogLevel(@NonNull String tag) {
+		return resolveLogLevel(tag);
+	}
+
+	/**
+	 * Resolves the logging level that is effective for the specified <var>tag</var>.
+	 */
+	private int resolveLogLevel(String tag) {
+		final Map<String, Integer> levels = mTagLogLevels;
+		if (levels.isEmpty()) {
+			return getLogLevel();
+		}
+		final Integer level = levels.get(tag);
+		return level == null ? getLogLevel() : level;
+	}
+
+	/**
+	 * Returns a handle for the specified <var>tag</var> which may be used to log through this logger
+	 * with the lowest possible overhead of the level check. Handles are interned, so the same handle
+	 * is returned for the same tag name.
+	 *
+	 * @param name Name of the desired tag.
+	 * @return Tag handle bound to this logger.
+	 */
+	@NonNull
+	public Tag tag(@NonNull String name) {
+		Tag tag = mTags.get(name);
+		if (tag == null) {
+			synchronized (mLevelsLock) {
+				tag = mTags.get(name);
+				if (tag == null) {
+					tag = new Tag(this, name);
+					tag.level = resolveLogLevel(name);
+					mTags.put(name, tag);
+				}
+			}
+		}
+		return tag;
+	}
+
+	/**
+	 * Updates effective levels cached by all tag handles of this logger. Must be called while
+	 * holding the levels lock.
+	 */
+	private void updateTags() {
+		for (final Tag tag : mTags.values()) {
+			tag.level = resolveLogLevel(tag.name);
+		}
+	}
+
+	/**
+	 * Re-resolves effective levels cached by all tag handles of this logger. Inheritance hierarchies
+	 * that resolve the logging level from another source than this base class should call this method
+	 * whenever that level changes.
+	 */
+	protected final void invalidateTags() {
+		synchronized (mLevelsLock) {
+			updateTags();
+		}
+	}
+
+	/**
+	 */
+	@Override
+	public void d(@NonNull String tag, @NonNull String msg) {
+		if (isLoggable(tag, Log.DEBUG)) onLog(Log.DEBUG, tag, msg, null);
+	}
+
+	/**
+	 */
+	@Override
+	public void d(@NonNull String tag, @NonNull String msg, @Nullable Throwable tr) {
+		if (isLoggable(tag, Log.DEBUG)) onLog(Log.DEBUG, tag, msg, tr);
+	}
+
+	/**
+	 */
+	@Override
+	public void v(@NonNull String tag, @NonNull String msg) {
+		if (isLoggable(tag, Log.VERBOSE)) onLog(Log.VERBOSE, tag, msg, null);
+	}
+
+	/**
+	 */
+	@Override
+	public void v(@NonNull String tag, @NonNull String msg, @Nullable Throwable tr) {
+		if (isLoggable(tag, Log.VERBOSE)) onLog(Log.VERBOSE, tag, msg, tr);
+	}
+
+	/**
+	 */
+	@Override
+	public void i(@NonNull String tag, @NonNull String msg) {
+		if (isLoggable(tag, Log.INFO)) onLog(Log.INFO, tag, msg, null);
+	}
+
+	/**
+	 */
+	@Override
+	public void i(@NonNull String tag, @NonNull String msg, @Nullable Throwable tr) {
+		if (isLoggable(tag, Log.INFO)) onLog(Log.INFO, tag, msg, tr);
+	}
+
+	/**
+	 */
+	@Override
+	public void w(@NonNull String tag, @NonNull String msg) {
+		if (isLoggable(tag, Log.WARN)) onLog(Log.WARN, tag, msg, null);
+	}
+
+	/**
+	 */
+	@Override
+	public void w(@NonNull String tag, @Nullable Throwable tr) {
+		if (isLoggable(tag, Log.WARN)) onLog(Log.WARN, tag, null, tr);
+	}
+
+	/**
+	 */
+	@Override
+	public void w(@NonNull String tag, @NonNull String msg, @Nullable Throwable tr) {
+		if (isLoggable(tag, Log.WARN)) onLog(Log.WARN, tag, msg, tr);
+	}
+
+	/**
+	 */
+	@Override
+	public void e(@NonNull String tag, @NonNull String msg) {
+		if (isLoggable(tag, Log.ERROR)) onLog(Log.ERROR, tag, msg, null);
+	}
+
+	/**
+	 */
+	@Override
+	public void e(@NonNull String tag, @NonNull String msg, @Nullable Throwable tr) {
+		if (isLoggable(tag, Log.ERROR)) onLog(Log.ERROR, tag, msg, tr);
+	}
+
+	/**
+	 */
+	@Override
+	public void v(@NonNull String tag, @NonNull String template, @Nullable Object arg) {
+		if (isLoggable(tag, Log.VERBOSE)) onLog(Log.VERBOSE, tag, MessageFormatter.format(template, arg), null);
+	}
+
+	/**
+	 */
+	@Override
+	public void v(@NonNull String tag, @NonNull String template, @Nullable Object arg1, @Nullable Object arg2) {
+		if (isLoggable(tag, Log.VERBOSE)) onLog(Log.VERBOSE, tag, MessageFormatter.format(template, arg1, arg2), null);
+	}
+
+	/**
+	 */
+	@Override
+	public void v(@NonNull String tag, @NonNull String template, int arg) {
+		if (isLoggable(tag, Log.VERBOSE)) onLog(Log.VERBOSE, tag, MessageFormatter.format(template, arg), null);
+	}
+
+	/**
+	 */
+	@Override
+	public void v(@NonNull String tag, @NonNull String template, long arg) {
+		if (isLoggable(tag, Log.VERBOSE)) onLog(Log.VERBOSE, tag, MessageFormatter.format(template, arg), null);
+	}
+
+	/**
+	 */
+	@Override
+	public void v(@NonNull String tag, @NonNull String template, double arg) {
+		if (isLoggable(tag, Log.VERBOSE)) onLog(Log.VERBOSE, tag, MessageFormatter.format(template, arg), null);
+	}
+
+	/**
+	 */
+	@Override
+	public void d(@NonNull String tag, @NonNull String template, @Nullable Object arg) {
+		if (isLoggable(tag, Log.DEBUG)) onLog(Log.DEBUG, tag, MessageFormatter.format(template, arg), null);
+	}
+
+	/**
+	 */
+	@Override
+	public void d(@NonNull String tag, @NonNull String template, @Nullable Object arg1, @Nullable Object arg2) {
+		if (isLoggable(tag, Log.DEBUG)) onLog(Log.DEBUG, tag, MessageFormatter.format(template, arg1, arg2), null);
+	}
+
+	/**
+	 */
+	@Override
+	public void d(@NonNull String tag, @NonNull String template, int arg) {
+		if (isLoggable(tag, Log.DEBUG)) onLog(Log.DEBUG, tag, MessageFormatter.format(template, arg), null);
+	}
+
+	/**
+	 */
+	@Override
+	public void d(@NonNull String tag, @NonNull String template, long arg) {
+		if (isLoggable(tag, Log.DEBUG)) onLog(Log.DEBUG, tag, MessageFormatter.format(template, arg), null);
+	}
+
+	/**
+	 */
+	@Override
+	public void d(@NonNull String tag, @NonNull String template, double arg) {
+		if (isLoggable(tag, Log.DEBUG)) onLog(Log.DEBUG, tag, MessageFormatter.format(template, arg), null);
+	}
+
+	/**
+	 */
+	@Override
+	public void i(@NonNull String tag, @NonNull String template, @Nullable Object arg) {
+		if (isLoggable(tag, Log.INFO)) onLog(Log.INFO, tag, MessageFormatter.format(template, arg), null);
+	}
+
+	/**
+	 */
+	@Override
+	public void i(@NonNull String tag, @NonNull String template, @Nullable Object arg1, @Nullable Object arg2) {
+		if (isLoggable(tag, Log.INFO)) onLog(Log.INFO, tag, MessageFormatter.format(template, arg1, arg2), null);
+	}
+
+	/**
+	 */
+	@Override
+	public void i(@NonNull String tag, @NonNull String template, int arg) {
+		if (isLoggable(tag, Log.INFO)) onLog(Log.INFO, tag, MessageFormatter.format(template, arg), null);
+	}
+
+	/**
+	 */
+	@Override
+	public void i(@NonNull String tag, @NonNull String template, long arg) {
+		if (isLoggable(tag, Log.INFO)) onLog(Log.INFO, tag, MessageFormatter.format(template, arg), null);
+	}
+
+	/**
+	 */
+	@Override
+	public void i(@NonNull String tag, @NonNull String template, double arg) {
+		if (isLoggable(tag, Log.INFO)) onLog(Log.INFO, tag, MessageFormatter.format(template, arg), null);
+	}
+
+	/**
+	 */
+	@Override
+	public void w(@NonNull String tag, @NonNull String template, @Nullable Object arg) {
+		if (isLoggable(tag, Log.WARN)) onLog(Log.WARN, tag, MessageFormatter.format(template, arg), null);
+	}
+
+	/**
+	 */
+	@Override
+	public void w(@NonNull String tag, @NonNull String template, @Nullable Object arg1, @Nullable Object arg2) {
+		if (isLoggable(tag, Log.WARN)) onLog(Log.WARN, tag, MessageFormatter.format(template, arg1, arg2), null);
+	}
+
+	/**
+	 */
+	@Override
+	public void w(@NonNull String tag, @NonNull String template, int arg) {
+		if (isLoggable(tag, Log.WARN)) onLog(Log.WARN, tag, MessageFormatter.format(template, arg), null);
+	}
+
+	/**
+	 */
+	@Override
+	public void w(@NonNull String tag, @NonNull String template, long arg) {
+		if (isLoggable(tag, Log.WARN)) onLog(Log.WARN, tag, MessageFormatter.format(template, arg), null);
+	}
+
+	/**
+	 */
+	@Override
+	public void w(@NonNull String tag, @NonNull String template, double arg) {
+		if (isLoggable(tag, Log.WARN)) onLog(Log.WARN, tag, MessageFormatter.format(template, arg), null);
+	}
+
+	/**
+	 */
+	@Override
+	public void e(@NonNull String tag, @NonNull String template, @Nullable Object arg) {
+		if (isLoggable(tag, Log.ERROR)) onLog(Log.ERROR, tag, MessageFormatter.format(template, arg), null);
+	}
+
+	/**
+	 */
+	@Override
+	public void e(@NonNull String tag, @NonNull String template, @Nullable Object arg1, @Nullable Object arg2) {
+		if (isLoggable(tag, Log.ERROR)) onLog(Log.ERROR, tag, MessageFormatter.format(template, arg1, arg2), null);
+	}
+
+	/**
+	 */
+	@Override
+	public void e(@NonNull String tag, @NonNull String template, int arg) {
+		if (isLoggable(tag, Log.ERROR)) onLog(Log.ERROR, tag, MessageFormatter.format(template, arg), null);
+	}
+
+	/**
+	 */
+	@Override
+	public void e(@NonNull String tag, @NonNull String template, long arg) {
+		if (isLoggable(tag, Log.ERROR)) onLog(Log.ERROR, tag, MessageFormatter.format(template, arg), null);
+	}
+
+	/**
+	 */
+	@Override
+	public void e(@NonNull String tag, @NonNull String template, double arg) {
+		if (isLoggable(tag, Log.ERROR)) onLog(Log.ERROR, tag, MessageFormatter.format(template, arg), null);
+	}
+
+	/**
+	 */
+	@Override
+	public void v(@NonNull String tag, @NonNull MessageSupplier supplier) {
+		if (isLoggable(tag, Log.VERBOSE)) onLog(Log.VERBOSE, tag, supplier.get(), null);
+	}
+
+	/**
+	 */
+	@Override
+	public void d(@NonNull String tag, @NonNull MessageSupplier supplier) {
+		if (isLoggable(tag, Log.DEBUG)) onLog(Log.DEBUG, tag, supplier.get(), null);
+	}
+
+	/**
+	 */
+	@Override
+	public void i(@NonNull String tag, @NonNull MessageSupplier supplier) {
+		if (isLoggable(tag, Log.INFO)) onLog(Log.INFO, tag, supplier.get(), null);
+	}
+
+	/**
+	 */
+	@Override
+	public void w(@NonNull String tag, @NonNull MessageSupplier supplier) {
+		if (isLoggable(tag, Log.WARN)) onLog(Log.WARN, tag, supplier.get(), null);
+	}
+
+	/**
+	 */
+	@Override
+	public void e(@NonNull String tag, @NonNull MessageSupplier supplier) {
+		if (isLoggable(tag, Log.ERROR)) onLog(Log.ERROR, tag, supplier.get(), null);
+	}
+
+	/**
+	 */
+	@Override
+	public void wtf(@NonNull String tag, @NonNull String msg) {
+		onLog(Log.ASSERT, tag, msg, null);
+	}
+
+	/**
+	 */
+	@Override
+	public void wtf(@NonNull String tag, @Nullable Throwable tr) {
+		onLog(Log.ASSERT, tag, null, tr);
+	}
+
+	/**
+	 */
+	@Override
+	public void wtf(@NonNull String tag, @NonNull String msg, @Nullable Throwable tr) {
+		onLog(Log.ASSERT, tag, msg, tr);
+	}
+
+	/**
+	 */
+	@Override
+	public void wtf(@NonNull String tag, @NonNull MessageSupplier supplier) {
+		onLog(Log.ASSERT, tag, supplier.get(), null);
+	}
+
+	/**
+	 */
+	@Override
+	public void log(@Level int level, @NonNull String tag, @NonNull String msg) {
+		if (isLoggable(tag, level)) forceLog(level, tag, msg);
+	}
+
+	/**
+	 */
+	@Override
+	public void forceLog(@Level int level, @NonNull String tag, @NonNull String msg) {
+		onLog(level, tag, msg, null, true);
+	}
+
+	/**
+	 * Specifies a renderer that should be used by this logger to render stack traces of the logged
+	 * throwables. Default renderer is {@link StackTraceRenderer#DEFAULT} which does not limit the
+	 * rendered frames nor causes.
+	 *
+	 * @param renderer The desired renderer.
+	 * @see #getStackTraceRenderer()
+	 */
+	public void setStackTraceRenderer(@NonNull StackTraceRenderer renderer) {
+		this.mStackTraceRenderer = renderer;
+	}
+
+	/**
+	 * Returns the renderer used by this logger to render stack traces.
+	 *
+	 * @return The stack trace renderer.
+	 * @see #setStackTraceRenderer(StackTraceRenderer)
+	 */
+	@NonNull
+	public StackTraceRenderer getStackTraceRenderer() {
+		return mStackTraceRenderer;
+	}
+
+	/**
+	 * Specifies a cache that should be used by this logger to obtain rendered stack traces, so the
+	 * stack trace of the same throwable thrown repeatedly is rendered only once. Stack traces
+	 * obtained from the cache are rendered by the renderer of that cache.
+	 *
+	 * @param cache The desired cache. May be {@code null} to render each stack trace anew.
+	 * @see #getStackTraceCache()
+	 */
+	public void setStackTraceCache(@Nullable StackTraceCache cache) {
+		this.mStackTraceCache = cache;
+	}
+
+	/**
+	 * Returns the cache used by this logger to obtain rendered stack traces.
+	 *
+	 * @return The stack trace cache or {@code null} if there is no cache specified.
+	 * @see #setStackTraceCache(StackTraceCache)
+	 */
+	@Nullable
+	public StackTraceCache getStackTraceCache() {
+		return mStackTraceCache;
+	}
+
+	/**
+	 * The stack trace is rendered by the {@link StackTraceRenderer} of this logger or obtained from
+	 * its {@link StackTraceCache} if there is one specified.
+	 */
+	@Override
+	@Nullable
+	public String getStackTraceString(@Nullable Throwable tr) {
+		final StackTraceCache cache = mStackTraceCache;
+		return cache == null ? mStackTraceRenderer.render(tr) : cache.get(tr);
+	}
+
+	/**
+	 * Appends stack trace of the given throwable at the end of the specified <var>output</var>
+	 * builder. Unlike {@link #getStackTraceString(Throwable)}, the stack trace is rendered directly
+	 * into the builder, without creating an intermediate string, unless it is obtained from the
+	 * stack trace cache.
+	 *
+	 * @param output The builder where to append the stack trace.
+	 * @param tr     The throwable of which stack trace to append.
+	 */
+	protected final void appendStackTrace(@NonNull StringBuilder output, @NonNull Throwable tr) {
+		final StackTraceCache cache = mStackTraceCache;
+		if (cache == null) mStackTraceRenderer.render(tr, output);
+		else output.append(cache.get(tr));
+	}
+
+	/**
+	 * Invoked whenever a structured record obtained for this logger is logged. The record has
+	 * already passed the level check of this logger. Default implementation passes the record
+	 * rendered as {@code key=value} text into {@link #onLog(int, String, String, Throwable)}.
+	 *
+	 * @param record The record to be written. Must not be accessed after this method returns.
+	 */
+	void onLogStructured(@NonNull StructuredRecord record) {
+		onLog(record.getLevel(), record.getTag(), record.render().toString(), null);
+	}
+
+	/**
+	 * Invoked whenever a log call has passed the level check of this logger (if any) and the log
+	 * data should be written.
+	 *
+	 * @param level The level at which to log.
+	 * @param tag   Tag of the log data.
+	 * @param msg   Message of the log data. Will be {@code null} if only the throwable has been
+	 *              requested to be logged.
+	 * @param tr    Throwable of the log data. May be {@code null}.
+	 */
+	protected abstract void onLog(@Level int level, @NonNull String tag, @Nullable String msg, @Nullable Throwable tr);
+
+	/**
+	 * Same as {@link #onLog(int, String, String, Throwable)} but also indicates whether the log data
+	 * have been logged via {@link #forceLog(int, String, String)}. Loggers which deliver the log data
+	 * to other loggers should override this method and deliver forced log data via
+	 * {@link #dispatch(Logger, int, String, String, Throwable, boolean)}, so they are not rejected by
+	 * the level check of the other loggers.
+	 *
+	 * @param level  The level at which to log.
+	 * @param tag    Tag of the log data.
+	 * @param msg    Message of the log data. May be {@code null}.
+	 * @param tr     Throwable of the log data. May be {@code null}.
+	 * @param forced {@code True} if the log data should not be subject to any level check,
+	 *               {@code false} otherwise.
+	 */
+	protected void onLog(@Level int level, @NonNull String tag, @Nullable String msg, @Nullable Throwable tr, boolean forced) {
+		onLog(level, tag, msg, tr);
+	}
+
+	/**
+	 * Inner classes ===============================================================================
+	 */
+
+	/**
+	 * A handle for a specific log tag bound to a {@link BaseLogger}. The handle caches level that is
+	 * effective for its tag, so its level checks are cheaper than the checks performed by the logger
+	 * itself. Tag handles may be obtained via {@link BaseLogger#tag(String)}.
+	 * <p>
+	 * Log calls made through a tag handle that pass its level check are passed directly to
+	 * {@link BaseLogger#onLog(int, String, String, Throwable)} of the associated logger.
+	 *
+	 * @author Martin Albedinsky
+	 */
+	public static final class Tag {
+
+		/**
+		 * Logger to which is this tag bound.
+		 */
+		final BaseLogger logger;
+
+		/**
+		 * Name of this tag.
+		 */
+		final String name;
+
+		/**
+		 * Cached level that is effective for this tag.
+		 */
+		volatile int level;
+
+		/**
+		 * Creates a new instance of Tag with the specified <var>name</var>.
+		 *
+		 * @param logger The logger to which is the new tag bound.
+		 * @param name   Name of the new tag.
+		 */
+		Tag(BaseLogger logger, String name) {
+			this.logger = logger;
+			this.name = name;
+		}
+
+		/**
+		 * Returns the name of this tag.
+		 *
+		 * @return Tag name.
+		 */
+		@NonNull
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * Returns the logging level that is currently effective for this tag.
+		 *
+		 * @return Effective level.
+		 */
+		@Level
+		public int getLogLevel() {
+			return level;
+		}
+
+		/**
+		 * Checks whether a log output for the specified <var>level</var> may be logged with this tag.
+		 *
+		 * @return {@code True} if the specified level is loggable, {@code false} otherwise.
+		 */
+		public boolean isLoggable(@Level int level) {
+			return this.level <= level;
+		}
+
+		/**
+		 * Logs the given message with {@link Log#VERBOSE} level if such level is loggable.
+		 */
+		public void v(@NonNull String msg) {
+			if (level <= Log.VERBOSE) logger.onLog(Log.VERBOSE, name, msg, null);
+		}
+
+		/**
+		 * Logs the given message and throwable with {@link Log#VERBOSE} level if such level is loggable.
+		 */
+		public void v(@NonNull String msg, @Nullable Throwable tr) {
+			if (level <= Log.VERBOSE) logger.onLog(Log.VERBOSE, name, msg, tr);
+		}
+
+		/**
+		 * Logs the given message with {@link Log#DEBUG} level if such level is loggable.
+		 */
+		public void d(@NonNull String msg) {
+			if (level <= Log.DEBUG) logger.onLog(Log.DEBUG, name, msg, null);
+		}
+
+		/**
+		 * Logs the given message and throwable with {@link Log#DEBUG} level if such level is loggable.
+		 */
+		public void d(@NonNull String msg, @Nullable Throwable tr) {
+			if (level <= Log.DEBUG) logger.onLog(Log.DEBUG, name, msg, tr);
+		}
+
+		/**
+		 * Logs the given message with {@link Log#INFO} level if such level is loggable.
+		 */
+		public void i(@NonNull String msg) {
+			if (level <= Log.INFO) logger.onLog(Log.INFO, name, msg, null);
+		}
+
+		/**
+		 * Logs the given message and throwable with {@link Log#INFO} level if such level is loggable.
+		 */
+		public void i(@NonNull String msg, @Nullable Throwable tr) {
+			if (level <= Log.INFO) logger.onLog(Log.INFO, name, msg, tr);
+		}
+
+		/**
+		 * Logs the given message with {@link Log#WARN} level if such level is loggable.
+		 */
+		public void w(@NonNull String msg) {
+			if (level <= Log.WARN) logger.onLog(Log.WARN, name, msg, null);
+		}
+
+		/**
+		 * Logs the given message and throwable with {@link Log#WARN} level if such level is loggable.
+		 */
+		public void w(@NonNull String msg, @Nullable Throwable tr) {
+			if (level <= Log.WARN) logger.onLog(Log.WARN, name, msg, tr);
+		}
+
+		/**
+		 * Logs the given message with {@link Log#ERROR} level if such level is loggable.
+		 */
+		public void e(@NonNull String msg) {
+			if (level <= Log.ERROR) logger.onLog(Log.ERROR, name, msg, null);
+		}
+
+		/**
+		 * Logs the given message and throwable with {@link Log#ERROR} level if such level is loggable.
+		 */
+		public void e(@NonNull String msg, @Nullable Throwable tr) {
+			if (level <= Log.ERROR) logger.onLog(Log.ERROR, name, msg, tr);
+		}
+
+		/**
+		 */
+		@Override
+		public String toString() {
+			return name;
+		}
+	}
+}
@@ -0,0 +1,455 @@
+/*
+ * =================================================================================================
+ *                             Copyright (C) 2017 Universum Studios
+ * =================================================================================================
+ *         Licensed under the Apache License, Version 2.0 or later (further "License" only).
+ * -------------------------------------------------------------------------------------------------
+ * You may use this file only in compliance with the License. More details and copy of this License
+ * you may obtain at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * You can redistribute, modify or publish any part of the code written within this file but as it
+ * is described in the License, the software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES or CONDITIONS OF ANY KIND.
+ *
+ * See the License for the specific language governing permissions and limitations under the License.
+ * =================================================================================================
+ */
+package universum.studios.android.util;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.text.DateFormat;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Reader that decodes log records written by {@link BinaryLogWriter}. Multiple binary log streams
+ * may be concatenated one after another, as it happens when a log file is appended by multiple
+ * writers over time.
+ * <p>
+ * The reader uses only plain Java APIs, so it may be used also outside of Android, like on a host
+ * machine where the log files pulled from a device are inspected. For that purpose the reader may
+ * be run also as a command line tool which renders the given binary log files as text into the
+ * standard output:
+ * <pre>
+ * java -cp utils.jar universum.studios.android.util.BinaryLogReader file.blog [file.blog ...]
+ * </pre>
+ *
+ * @author Martin Albedinsky
+ */
+public class BinaryLogReader implements Closeable {
+
+	/**
+	 * Constants ===================================================================================
+	 */
+
+	/**
+	 * Log TAG.
+	 */
+	// private static final String TAG = "BinaryLogReader";
+
+	/**
+	 * Characters identifying log levels within rendered records indexed by the level.
+	 */
+	private static final char[] LEVEL_CHARS = {'?', '?', 'V', 'D', 'I', 'W', 'E', 'A'};
+
+	/**
+	 * Pattern used to render time of records.
+	 */
+	private static final String TIME_PATTERN = "yyyy-MM-dd HH:mm:ss.SSS";
+
+	/**
+	 * Interface ===================================================================================
+	 */
+
+	/**
+	 * Static members ==============================================================================
+	 */
+
+	/**
+	 * Per thread formats used to render time of records.
+	 */
+	private static final ThreadLocal<DateFormat> TIME_FORMAT = new ThreadLocal<DateFormat>() {
+
+		/**
+		 */
+		@Override
+		protected DateFormat initialValue() {
+			return new SimpleDateFormat(TIME_PATTERN, Locale.US);
+		}
+	};
+
+	/**
+	 * Members =====================================================================================
+	 */
+
+	/**
+	 * Stream from which are read the encoded entries.
+	 */
+	private final InputStream mInput;
+
+	/**
+	 * Names of the tags defined so far within the stream indexed by their ids.
+	 */
+	private final List<String> mTags = new ArrayList<>();
+
+	/**
+	 * Buffer used to read UTF-8 bytes of strings.
+	 */
+	private byte[] mBuffer = new byte[256];
+
+	/**
+	 * Builder used to render fields of structured records.
+	 */
+	private final StringBuilder mFieldsBuilder = new StringBuilder(128);
+
+	/**
+	 * Time of the last read record.
+	 */
+	private long mLastTime;
+
+	/**
+	 * Flag indicating whether the stream header has been already read.
+	 */
+	private boolean mHeaderRead;
+
+	/**
+	 * Constructors ================================================================================
+	 */
+
+	/**
+	 * Creates a new instance of BinaryLogReader which will decode records from the given
+	 * <var>input</var> stream. The stream should be buffered.
+	 *
+	 * @param input The stream from which to read.
+	 */
+	public BinaryLogReader(@NonNull InputStream input) {
+		this.mInput = input;
+	}
+
+	/**
+	 * Methods =====================================================================================
+	 */
+
+	/**
+	 * Renders all records from the binary log files specified as arguments into the standard output.
+	 *
+	 * @param args Paths to the binary log files.
+	 * @throws IOException If some of the files cannot be read or is not a valid binary log.
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length == 0) {
+			System.err.println("Usage: BinaryLogReader <file> [<file> ...]");
+			System.exit(1);
+		}
+		for (final String path : args) {
+			final InputStream input = new BufferedInputStream(new FileInputStream(path));
+			try {
+				render(input, System.out);
+			} finally {
+				input.close();
+			}
+		}
+	}
+
+	/**
+	 * Renders all records from the given <var>input</var> stream into the specified print stream.
+	 *
+	 * @param input  The stream with binary log.
+	 * @param output The stream where to print the rendered records.
+	 * @throws IOException If the input cannot be read or is not a valid binary log.
+	 */
+	public static void render(@NonNull InputStream input, @NonNull PrintStream output) throws IOException {
+		final BinaryLogReader reader = new BinaryLogReader(input);
+		final Record record = new Record();
+		final StringBuilder builder = new StringBuilder(256);
+		while (reader.read(record)) {
+			builder.setLength(0);
+			render(record, builder);
+			output.println(builder);
+		}
+	}
+
+	/**
+	 * Renders the given <var>record</var> as text into the specified <var>output</var> builder in
+	 * the following format:
+	 * <pre>
+	 * {yyyy-MM-dd HH:mm:ss.SSS} {level}/{tag}: {message}
+	 * </pre>
+	 *
+	 * @param record The record to be rendered.
+	 * @param output The builder where to append the rendered record.
+	 */
+	public static void render(@NonNull Record record, @NonNull StringBuilder output) {
+		final int level = record.level;
+		output.append(TIME_FORMAT.get().format(new Date(record.time)));
+		output.append(' ');
+		output.append(level >= 0 && level < LEVEL_CHARS.length ? LEVEL_CHARS[level] : '?');
+		output.append('/');
+		output.append(record.tag);
+		output.append(": ");
+		output.append(record.message);
+	}
+
+	/**
+	 * Reads the next record from the input stream into the given <var>record</var> holder.
+	 *
+	 * @param record The holder into which to read the record data.
+	 * @return {@code True} if a record has been read, {@code false} if the end of the stream has been
+	 * reached.
+	 * @throws IOException If the stream cannot be read or is not a valid binary log.
+	 */
+	public boolean read(@NonNull Record record) throws IOException {
+		if (!mHeaderRead) {
+			final int first = mInput.read();
+			if (first == -1) return false;
+			readHeader(first);
+			this.mHeaderRead = true;
+		}
+		for (;;) {
+			final int header = mInput.read();
+			if (header == -1) {
+				return false;
+			}
+			if (header == BinaryLogWriter.MAGIC[0]) {
+				// Another stream has been appended to the previous one.
+				readHeader(header);
+				mTags.clear();
+				this.mLastTime = 0;
+				continue;
+			}
+			switch (header >>> 4) {
+				case BinaryLogWriter.ENTRY_TAG:
+					final int tagId = (int) readVarint();
+					if (tagId != mTags.size()) {
+						throw new IOException("Unexpected tag id(" + tagId + ").");
+					}
+					mTags.add(readString());
+					break;
+				case BinaryLogWriter.ENTRY_RECORD:
+					final int recordTagId = (int) readVarint();
+					if (recordTagId < 0 || recordTagId >= mTags.size()) {
+						throw new IOException("Undefined tag id(" + recordTagId + ").");
+					}
+					final long zigZagDelta = readVarint();
+					this.mLastTime += (zigZagDelta >>> 1) ^ -(zigZagDelta & 1);
+					record.time = mLastTime;
+					record.level = header & 0x0F;
+					record.tag = mTags.get(recordTagId);
+					record.message = readString();
+					return true;
+				case BinaryLogWriter.ENTRY_FIELDS:
+					final int fieldsTagId = (int) readVarint();
+					if (fieldsTagId < 0 || fieldsTagId >= mTags.size()) {
+						throw new IOException("Undefined tag id(" + fieldsTagId + ").");
+					}
+					final long fieldsZigZagDelta = readVarint();
+					this.mLastTime += (fieldsZigZagDelta >>> 1) ^ -(fieldsZigZagDelta & 1);
+					record.time = mLastTime;
+					record.level = header & 0x0F;
+					record.tag = mTags.get(fieldsTagId);
+					record.message = readFields();
+					return true;
+				default:
+					throw new IOException("Unknown entry type(" + (header >>> 4) + ").");
+			}
+		}
+	}
+
+	/**
+	 * Reads fields of a structured record and renders them as {@code key=value} text in the same
+	 * format as {@link StructuredRecord} does.
+	 */
+	private String readFields() throws IOException {
+		final long fieldCount = readVarint();
+		final StringBuilder text = mFieldsBuilder;
+		text.setLength(0);
+		for (long i = 0; i < fieldCount; i++) {
+			if (i > 0) text.append(' ');
+			text.append(readString()).append('=');
+			final int type = mInput.read();
+			switch (type) {
+				case StructuredRecord.TYPE_LONG:
+					final long value = readVarint();
+					text.append((value >>> 1) ^ -(value & 1));
+					break;
+				case StructuredRecord.TYPE_DOUBLE:
+					long bits = 0;
+					for (int j = 0; j < 8; j++) {
+						final int b = mInput.read();
+						if (b == -1) throw new EOFException("Truncated double.");
+						bits = (bits << 8) | b;
+					}
+					text.append(Double.longBitsToDouble(bits));
+					break;
+				case StructuredRecord.TYPE_BOOLEAN:
+					final int b = mInput.read();
+					if (b == -1) throw new EOFException("Truncated boolean.");
+					text.append(b != 0);
+					break;
+				case StructuredRecord.TYPE_TEXT:
+					StructuredRecord.appendText(text, readString());
+					break;
+				case StructuredRecord.TYPE_NULL:
+					text.append("null");
+					break;
+				case -1:
+					throw new EOFException("Truncated field.");
+				default:
+					throw new IOException("Unknown field type(" + type + ").");
+			}
+		}
+		return text.toString();
+	}
+
+	/**
+	 * Reads and verifies header of a stream.
+	 *
+	 * @param first The first byte of the header that has been already read.
+	 * @throws IOException If the stream does not contain a valid header.
+	 */
+	private void readHeader(int first) throws IOException {
+		int value = first;
+		for (int i = 0; i < BinaryLogWriter.MAGIC.length; i++) {
+			if (i > 0) value = mInput.read();
+			if (value != BinaryLogWriter.MAGIC[i]) {
+				throw new IOException("Not a binary log.");
+			}
+		}
+		final int version = mInput.read();
+		if (version != BinaryLogWriter.VERSION) {
+			throw new IOException("Unsupported version(" + version + ").");
+		}
+	}
+
+	/**
+	 * Reads an unsigned varint from the input stream.
+	 */
+	private long readVarint() throws IOException {
+		long value = 0;
+		for (int shift = 0; shift < 64; shift += 7) {
+			final int b = mInput.read();
+			if (b == -1) {
+				throw new EOFException("Truncated varint.");
+			}
+			value |= (long) (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+		}
+		throw new IOException("Malformed varint.");
+	}
+
+	/**
+	 * Reads a string prefixed by varint count of its UTF-8 bytes from the input stream.
+	 */
+	private String readString() throws IOException {
+		final long length = readVarint();
+		if (length < 0 || length > Integer.MAX_VALUE) {
+			throw new IOException("Invalid string length(" + length + ").");
+		}
+		if (mBuffer.length < length) {
+			this.mBuffer = new byte[(int) Math.max(length, mBuffer.length * 2L)];
+		}
+		int offset = 0;
+		while (offset < length) {
+			final int count = mInput.read(mBuffer, offset, (int) length - offset);
+			if (count == -1) {
+				throw new EOFException("Truncated string.");
+			}
+			offset += count;
+		}
+		return new String(mBuffer, 0, (int) length, "UTF-8");
+	}
+
+	/**
+	 */
+	@Override
+	public void close() throws IOException {
+		mInput.close();
+	}
+
+	/**
+	 * Inner classes ===============================================================================
+	 */
+
+	/**
+	 * Holder for data of a single decoded log record.
+	 *
+	 * @author Martin Albedinsky
+	 */
+	public static final class Record {
+
+		/**
+		 * Time of the record in milliseconds.
+		 */
+		long time;
+
+		/**
+		 * Log level of the record.
+		 */
+		int level;
+
+		/**
+		 * Tag of the record.
+		 */
+		String tag;
+
+		/**
+		 * Message of the record.
+		 */
+		String message;
+
+		/**
+		 * Returns the time of this record.
+		 *
+		 * @return Time in milliseconds.
+		 */
+		public long getTime() {
+			return time;
+		}
+
+		/**
+		 * Returns the log level of this record.
+		 *
+		 * @return Record's level.
+		 */
+		@Logger.Level
+		public int getLevel() {
+			return level;
+		}
+
+		/**
+		 * Returns the tag of this record.
+		 *
+		 * @return Record's tag.
+		 */
+		@Nullable
+		public String getTag() {
+			return tag;
+		}
+
+		/**
+		 * Returns the message of this record.
+		 *
+		 * @return Record's message.
+		 */
+		@Nullable
+		public String getMessage() {
+			return message;
+		}
+	}
+}
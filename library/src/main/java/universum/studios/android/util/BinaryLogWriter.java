@@ -0,0 +1,320 @@
+/*
+ * =================================================================================================
+ *                             Copyright (C) 2017 Universum Studios
+ * =================================================================================================
+ *         Licensed under the Apache License, Version 2.0 or later (further "License" only).
+ * -------------------------------------------------------------------------------------------------
+ * You may use this file only in compliance with the License. More details and copy of this License
+ * you may obtain at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * You can redistribute, modify or publish any part of the code written within this file but as it
+ * is described in the License, the software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES or CONDITIONS OF ANY KIND.
+ *
+ * See the License for the specific language governing permissions and limitations under the License.
+ * =================================================================================================
+ */
+package universum.studios.android.util;
+
+import android.support.annotation.NonNull;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Writer that encodes log records into a compact binary format which may be decoded back via
+ * {@link BinaryLogReader}.
+ *
+ * <h3>Format</h3>
+ * A stream starts with the {@link #MAGIC} bytes followed by a single {@link #VERSION} byte. Then
+ * follow entries where each one starts with a header byte which holds type of the entry in its high
+ * nibble and, for records, log level in its low nibble:
+ * <ul>
+ * <li>
+ * {@link #ENTRY_TAG}: defines a tag that is referenced by the subsequent records. Followed by
+ * varint id of the tag, varint count of bytes and UTF-8 bytes of the tag name. Tags are defined
+ * only once per stream, when first used, and identified by consecutive ids starting from {@code 0}.
+ * </li>
+ * <li>
+ * {@link #ENTRY_RECORD}: a single log record. Followed by varint id of the record's tag, zig-zag
+ * varint difference in milliseconds between time of the record and time of the previous record
+ * (the first record holds its absolute time), varint count of bytes and UTF-8 bytes of the message.
+ * </li>
+ * <li>
+ * {@link #ENTRY_FIELDS}: a single {@link StructuredRecord}. Same as a record entry, but instead
+ * of the message followed by varint count of fields, where each field consists of varint count of
+ * bytes and UTF-8 bytes of its key, a type byte and its value: zig-zag varint for longs, 8 bytes
+ * of IEEE 754 bits for doubles, a single byte for booleans, varint count of bytes and UTF-8 bytes
+ * for texts and nothing for nulls.
+ * </li>
+ * </ul>
+ * Varints use the common little endian base 128 encoding, so a typical record occupies only a few
+ * bytes besides its message. Entry types never collide with the first magic byte, so a new stream
+ * may be appended right after the end of another one.
+ * <p>
+ * Writer encodes each entry into an internal buffer that is reused between records and writes the
+ * whole entry into the output stream at once. The writer is not thread safe.
+ *
+ * @author Martin Albedinsky
+ */
+public class BinaryLogWriter implements Closeable, Flushable {
+
+	/**
+	 * Constants ===================================================================================
+	 */
+
+	/**
+	 * Log TAG.
+	 */
+	// private static final String TAG = "BinaryLogWriter";
+
+	/**
+	 * Magic bytes that start each binary log stream.
+	 */
+	public static final byte[] MAGIC = {'U', 'L', 'O', 'G'};
+
+	/**
+	 * Version of the binary format.
+	 */
+	public static final int VERSION = 1;
+
+	/**
+	 * Type of entry defining a tag.
+	 */
+	static final int ENTRY_TAG = 0x01;
+
+	/**
+	 * Type of entry holding a log record.
+	 */
+	static final int ENTRY_RECORD = 0x02;
+
+	/**
+	 * Type of entry holding a structured log record.
+	 */
+	static final int ENTRY_FIELDS = 0x03;
+
+	/**
+	 * Maximum count of bytes occupied by a single varint.
+	 */
+	static final int MAX_VARINT_LENGTH = 10;
+
+	/**
+	 * Initial capacity of the entry buffer.
+	 */
+	private static final int BUFFER_CAPACITY = 512;
+
+	/**
+	 * Interface ===================================================================================
+	 */
+
+	/**
+	 * Static members ==============================================================================
+	 */
+
+	/**
+	 * Members =====================================================================================
+	 */
+
+	/**
+	 * Stream into which are written the encoded entries.
+	 */
+	private final OutputStream mOutput;
+
+	/**
+	 * Ids of the tags that have been already defined within the stream mapped to the tag names.
+	 */
+	private final Map<String, Integer> mTagIds = new HashMap<>();
+
+	/**
+	 * Buffer into which is encoded a single entry.
+	 */
+	private ByteBuffer mBuffer = ByteBuffer.allocate(BUFFER_CAPACITY);
+
+	/**
+	 * Time of the last written record.
+	 */
+	private long mLastTime;
+
+	/**
+	 * Flag indicating whether the stream header has been already written.
+	 */
+	private boolean mHeaderWritten;
+
+	/**
+	 * Constructors ================================================================================
+	 */
+
+	/**
+	 * Creates a new instance of BinaryLogWriter which will write the encoded records into the given
+	 * <var>output</var> stream. The stream should be buffered.
+	 *
+	 * @param output The stream into which to write.
+	 */
+	public BinaryLogWriter(@NonNull OutputStream output) {
+		this.mOutput = output;
+	}
+
+	/**
+	 * Methods =====================================================================================
+	 */
+
+	/**
+	 * Encodes a record with the specified data and writes it into the output stream.
+	 *
+	 * @param time  Time of the record in milliseconds.
+	 * @param level Log level of the record.
+	 * @param tag   Tag of the record.
+	 * @param msg   Message of the record.
+	 * @throws IOException If writing into the stream fails.
+	 */
+	public void write(long time, @Logger.Level int level, @NonNull String tag, @NonNull CharSequence msg) throws IOException {
+		final int tagId = obtainTagId(tag);
+		final int messageLength = Utf8.encodedLength(msg, 0, msg.length());
+		final ByteBuffer buffer = obtainBuffer(1 + 3 * MAX_VARINT_LENGTH + messageLength);
+		buffer.put((byte) ((ENTRY_RECORD << 4) | (level & 0x0F)));
+		putVarint(buffer, tagId);
+		final long timeDelta = time - mLastTime;
+		putVarint(buffer, (timeDelta << 1) ^ (timeDelta >> 63));
+		putVarint(buffer, messageLength);
+		Utf8.encode(msg, 0, msg.length(), buffer);
+		mOutput.write(buffer.array(), 0, buffer.position());
+		this.mLastTime = time;
+	}
+
+	/**
+	 * Encodes a structured record with the specified data and writes it into the output stream.
+	 * Fields of the record are written as typed values.
+	 *
+	 * @param time   Time of the record in milliseconds.
+	 * @param level  Log level of the record.
+	 * @param tag    Tag of the record.
+	 * @param record The record of which fields to write.
+	 * @throws IOException If writing into the stream fails.
+	 */
+	public void write(long time, @Logger.Level int level, @NonNull String tag, @NonNull StructuredRecord record) throws IOException {
+		final int tagId = obtainTagId(tag);
+		final int fieldCount = record.getFieldCount();
+		int capacity = 1 + 3 * MAX_VARINT_LENGTH;
+		for (int i = 0; i < fieldCount; i++) {
+			final String key = record.getKey(i);
+			capacity += MAX_VARINT_LENGTH + Utf8.encodedLength(key, 0, key.length()) + 1 + MAX_VARINT_LENGTH;
+			if (record.getType(i) == StructuredRecord.TYPE_TEXT) {
+				final CharSequence text = record.getText(i);
+				capacity += Utf8.encodedLength(text, 0, text.length());
+			}
+		}
+		final ByteBuffer buffer = obtainBuffer(capacity);
+		buffer.put((byte) ((ENTRY_FIELDS << 4) | (level & 0x0F)));
+		putVarint(buffer, tagId);
+		final long timeDelta = time - mLastTime;
+		putVarint(buffer, (timeDelta << 1) ^ (timeDelta >> 63));
+		putVarint(buffer, fieldCount);
+		for (int i = 0; i < fieldCount; i++) {
+			final String key = record.getKey(i);
+			putVarint(buffer, Utf8.encodedLength(key, 0, key.length()));
+			Utf8.encode(key, 0, key.length(), buffer);
+			final int type = record.getType(i);
+			buffer.put((byte) type);
+			switch (type) {
+				case StructuredRecord.TYPE_LONG:
+					final long value = record.getPrimitive(i);
+					putVarint(buffer, (value << 1) ^ (value >> 63));
+					break;
+				case StructuredRecord.TYPE_DOUBLE:
+					buffer.putLong(record.getPrimitive(i));
+					break;
+				case StructuredRecord.TYPE_BOOLEAN:
+					buffer.put((byte) record.getPrimitive(i));
+					break;
+				case StructuredRecord.TYPE_TEXT:
+					final CharSequence text = record.getText(i);
+					putVarint(buffer, Utf8.encodedLength(text, 0, text.length()));
+					Utf8.encode(text, 0, text.length(), buffer);
+					break;
+				default:
+					break;
+			}
+		}
+		mOutput.write(buffer.array(), 0, buffer.position());
+		this.mLastTime = time;
+	}
+
+	/**
+	 * Returns id of the specified tag, writing the stream header and the tag definition if they
+	 * have not been written yet.
+	 */
+	private int obtainTagId(String tag) throws IOException {
+		if (!mHeaderWritten) {
+			mOutput.write(MAGIC);
+			mOutput.write(VERSION);
+			this.mHeaderWritten = true;
+		}
+		Integer tagId = mTagIds.get(tag);
+		if (tagId == null) {
+			tagId = mTagIds.size();
+			writeTag(tagId, tag);
+			mTagIds.put(tag, tagId);
+		}
+		return tagId;
+	}
+
+	/**
+	 * Encodes definition of the specified tag and writes it into the output stream.
+	 */
+	private void writeTag(int tagId, String tag) throws IOException {
+		final int tagLength = Utf8.encodedLength(tag, 0, tag.length());
+		final ByteBuffer buffer = obtainBuffer(1 + 2 * MAX_VARINT_LENGTH + tagLength);
+		buffer.put((byte) (ENTRY_TAG << 4));
+		putVarint(buffer, tagId);
+		putVarint(buffer, tagLength);
+		Utf8.encode(tag, 0, tag.length(), buffer);
+		mOutput.write(buffer.array(), 0, buffer.position());
+	}
+
+	/**
+	 * Obtains the entry buffer ensuring that it has at least the specified capacity.
+	 */
+	private ByteBuffer obtainBuffer(int capacity) {
+		if (mBuffer.capacity() < capacity) {
+			this.mBuffer = ByteBuffer.allocate(Math.max(capacity, mBuffer.capacity() * 2));
+		}
+		mBuffer.clear();
+		return mBuffer;
+	}
+
+	/**
+	 * Puts the specified <var>value</var> encoded as unsigned varint into the given <var>buffer</var>.
+	 */
+	static void putVarint(ByteBuffer buffer, long value) {
+		while ((value & ~0x7FL) != 0) {
+			buffer.put((byte) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		buffer.put((byte) value);
+	}
+
+	/**
+	 */
+	@Override
+	public void flush() throws IOException {
+		mOutput.flush();
+	}
+
+	/**
+	 */
+	@Override
+	public void close() throws IOException {
+		mOutput.close();
+	}
+
+	/**
+	 * Inner classes ===============================================================================
+	 */
+}
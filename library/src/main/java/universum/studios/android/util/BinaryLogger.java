@@ -0,0 +1,195 @@
+/*
+ * =================================================================================================
+ *                             Copyright (C) 2017 Universum Studios
+ * =================================================================================================
+ *         Licensed under the Apache License, Version 2.0 or later (further "License" only).
+ * -------------------------------------------------------------------------------------------------
+ * You may use this file only in compliance with the License. More details and copy of this License
+ * you may obtain at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * You can redistribute, modify or publish any part of the code written within this file but as it
+ * is described in the License, the software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES or CONDITIONS OF ANY KIND.
+ *
+ * See the License for the specific language governing permissions and limitations under the License.
+ * =================================================================================================
+ */
+package universum.studios.android.util;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * A {@link Logger} implementation which writes log records in the compact binary format described
+ * by {@link BinaryLogWriter}. Written logs may be decoded back into text via {@link BinaryLogReader}.
+ * <p>
+ * When logging into a file, new records are appended to the existing content of the file. If
+ * writing of a record fails, the logger closes itself and ignores all subsequent records.
+ *
+ * @author Martin Albedinsky
+ */
+public class BinaryLogger extends BaseLogger implements Closeable, Flushable {
+
+	/**
+	 * Constants ===================================================================================
+	 */
+
+	/**
+	 * Log TAG.
+	 */
+	// private static final String TAG = "BinaryLogger";
+
+	/**
+	 * Size of the buffer used when logging into a file.
+	 */
+	private static final int FILE_BUFFER_SIZE = 8 * 1024;
+
+	/**
+	 * Interface ===================================================================================
+	 */
+
+	/**
+	 * Static members ==============================================================================
+	 */
+
+	/**
+	 * Members =====================================================================================
+	 */
+
+	/**
+	 * Writer used to encode the log records.
+	 */
+	private final BinaryLogWriter mWriter;
+
+	/**
+	 * Builder used to compose messages with stack traces.
+	 */
+	private final StringBuilder mMessageBuilder = new StringBuilder(256);
+
+	/**
+	 * Flag indicating whether this logger has been closed.
+	 */
+	private boolean mClosed;
+
+	/**
+	 * Constructors ================================================================================
+	 */
+
+	/**
+	 * Creates a new instance of BinaryLogger which will append log records to the specified
+	 * <var>file</var>.
+	 *
+	 * @param level The initial logging level for the logger.
+	 * @param file  The file where to write the log records.
+	 * @throws IOException If the file cannot be opened.
+	 */
+	public BinaryLogger(@Level int level, @NonNull File file) throws IOException {
+		this(level, new BufferedOutputStream(new FileOutputStream(file, true), FILE_BUFFER_SIZE));
+	}
+
+	/**
+	 * Creates a new instance of BinaryLogger which will write log records into the given
+	 * <var>output</var> stream.
+	 *
+	 * @param level  The initial logging level for the logger.
+	 * @param output The stream where to write the log records. Should be buffered.
+	 */
+	public BinaryLogger(@Level int level, @NonNull OutputStream output) {
+		super(level);
+		this.mWriter = new BinaryLogWriter(output);
+	}
+
+	/**
+	 * Methods =====================================================================================
+	 */
+
+	/**
+	 * Writes fields of the record as typed values, see {@link BinaryLogWriter#write(long, int, String, StructuredRecord)}.
+	 */
+	@Override
+	void onLogStructured(@NonNull StructuredRecord record) {
+		synchronized (mWriter) {
+			if (mClosed) return;
+			try {
+				mWriter.write(System.currentTimeMillis(), record.getLevel(), record.getTag(), record);
+			} catch (IOException e) {
+				closeOnFailure();
+			}
+		}
+	}
+
+	/**
+	 */
+	@Override
+	protected void onLog(@Level int level, @NonNull String tag, @Nullable String msg, @Nullable Throwable tr) {
+		synchronized (mWriter) {
+			if (mClosed) return;
+			final CharSequence message;
+			if (tr == null) {
+				message = msg == null ? "" : msg;
+			} else {
+				mMessageBuilder.setLength(0);
+				if (msg != null) mMessageBuilder.append(msg).append('\n');
+				appendStackTrace(mMessageBuilder, tr);
+				message = mMessageBuilder;
+			}
+			try {
+				mWriter.write(System.currentTimeMillis(), level, tag, message);
+			} catch (IOException e) {
+				closeOnFailure();
+			}
+		}
+	}
+
+	/**
+	 * Closes this logger after an I/O failure, so no more records are written.
+	 */
+	private void closeOnFailure() {
+		this.mClosed = true;
+		try {
+			mWriter.close();
+		} catch (IOException ignored) {
+			// Logger is already in failed state.
+		}
+	}
+
+	/**
+	 * Flushes the records written so far into the underlying stream.
+	 *
+	 * @throws IOException If flushing fails.
+	 */
+	@Override
+	public void flush() throws IOException {
+		synchronized (mWriter) {
+			if (!mClosed) mWriter.flush();
+		}
+	}
+
+	/**
+	 * Closes the underlying stream of this logger. All records logged after this call are ignored.
+	 *
+	 * @throws IOException If closing fails.
+	 */
+	@Override
+	public void close() throws IOException {
+		synchronized (mWriter) {
+			if (mClosed) return;
+			this.mClosed = true;
+			mWriter.close();
+		}
+	}
+
+	/**
+	 * Inner classes ===============================================================================
+	 */
+}
@@ -0,0 +1,314 @@
+/*
+ * =================================================================================================
+ *                             Copyright (C) 2017 Universum Studios
+ * =================================================================================================
+ *         Licensed under the Apache License, Version 2.0 or later (further "License" only).
+ * -------------------------------------------------------------------------------------------------
+ * You may use this file only in compliance with the License. More details and copy of this License
+ * you may obtain at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * You can redistribute, modify or publish any part of the code written within this file but as it
+ * is described in the License, the software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES or CONDITIONS OF ANY KIND.
+ *
+ * See the License for the specific language governing permissions and limitations under the License.
+ * =================================================================================================
+ */
+package universum.studios.android.util;
+
+import android.support.annotation.IntRange;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.Log;
+
+/**
+ * A {@link DelegatingLogger} implementation which collapses consecutive identical log records into
+ * a single one. The first record of a run of identical records is passed to the delegate right
+ * away, while its repetitions are only counted. When the run ends, either because a different
+ * record is logged or because the run exceeds the specified timeout, a single summary record
+ * <b>Last message repeated N times.</b> is logged with the tag and level of the repeated record.
+ * Summary of the current run may be also logged on demand via {@link #flush()}.
+ * <p>
+ * Records are considered identical when they have the same level, tag and message. Messages are
+ * compared by their hash codes first, which are cached by strings, and only then by their content,
+ * so no new strings are built in order to detect a repetition. Records with a throwable or with
+ * {@link Log#ASSERT} level are never collapsed. If a run does not end, its summary is logged once
+ * the timeout expires, either by the next repetition or, when no more records are logged, like when
+ * a polling loop stops, by a shared timer thread. The delegate is never called while the lock of
+ * the current run is held, however records and summaries are passed to it under a separate lock,
+ * so a summary of a run is always passed to the delegate before any record logged after the run.
+ *
+ * @author Martin Albedinsky
+ */
+public class CoalescingLogger extends DelegatingLogger {
+
+	/**
+	 * Constants ===================================================================================
+	 */
+
+	/**
+	 * Log TAG.
+	 */
+	// private static final String TAG = "CoalescingLogger";
+
+	/**
+	 * Default timeout in milliseconds after which is a run of repeated records summarized.
+	 */
+	public static final long DEFAULT_TIMEOUT = 5000;
+
+	/**
+	 * Interface ===================================================================================
+	 */
+
+	/**
+	 * Static members ==============================================================================
+	 */
+
+	/**
+	 * Members =====================================================================================
+	 */
+
+	/**
+	 * Lock used to synchronize access to the current run.
+	 */
+	private final Object mLock = new Object();
+
+	/**
+	 * Lock used to keep the order in which are the records and summaries passed to the delegate.
+	 * Always acquired before {@link #mLock}.
+	 */
+	private final Object mEmitLock = new Object();
+
+	/**
+	 * Timeout in nanoseconds after which is the current run summarized.
+	 */
+	private volatile long mTimeoutNanos = DEFAULT_TIMEOUT * 1000000L;
+
+	/**
+	 * Level of the record of the current run.
+	 */
+	private int mLastLevel;
+
+	/**
+	 * Tag of the record of the current run.
+	 */
+	private String mLastTag;
+
+	/**
+	 * Message of the record of the current run.
+	 */
+	private String mLastMessage;
+
+	/**
+	 * Hash code of the message of the current run.
+	 */
+	private int mLastHash;
+
+	/**
+	 * Count of repetitions of the record within the current run.
+	 */
+	private int mRepeatCount;
+
+	/**
+	 * Time in nanoseconds when the current run has started.
+	 */
+	private long mRunStartTime;
+
+	/**
+	 * Flag indicating whether a check of the timeout of the current run has been scheduled.
+	 */
+	private boolean mTimeoutCheckScheduled;
+
+	/**
+	 * Task checking the timeout of the current run, run by {@link LogTimer}.
+	 */
+	private final Runnable mTimeoutCheck = new Runnable() {
+
+		/**
+		 */
+		@Override
+		public void run() {
+			checkTimeout();
+		}
+	};
+
+	/**
+	 * Constructors ================================================================================
+	 */
+
+	/**
+	 * Creates a new instance of CoalescingLogger for the given <var>delegate</var> logger.
+	 *
+	 * @param delegate The logger to which to pass the collapsed records.
+	 */
+	public CoalescingLogger(@NonNull Logger delegate) {
+		super(delegate);
+	}
+
+	/**
+	 * Methods =====================================================================================
+	 */
+
+	/**
+	 * Specifies a timeout after which should be a run of repeated records summarized even if it
+	 * does not end. Default timeout is {@link #DEFAULT_TIMEOUT}.
+	 *
+	 * @param timeout The desired timeout in milliseconds.
+	 * @see #getTimeout()
+	 */
+	public void setTimeout(@IntRange(from = 0) long timeout) {
+		this.mTimeoutNanos = timeout * 1000000L;
+	}
+
+	/**
+	 * Returns the timeout after which is a run of repeated records summarized.
+	 *
+	 * @return Timeout in milliseconds.
+	 * @see #setTimeout(long)
+	 */
+	public long getTimeout() {
+		return mTimeoutNanos / 1000000L;
+	}
+
+	/**
+	 * Logs summary of the current run if there are some repetitions not summarized yet.
+	 */
+	public void flush() {
+		synchronized (mEmitLock) {
+			final int level;
+			final String tag;
+			final int count;
+			synchronized (mLock) {
+				level = mLastLevel;
+				tag = mLastTag;
+				count = takeRepetitions();
+			}
+			logRepetitions(level, tag, count);
+		}
+	}
+
+	/**
+	 * Logs summary of the current run if it has some repetitions and its timeout has expired.
+	 * Otherwise schedules a next check if the run still has some repetitions.
+	 */
+	void checkTimeout() {
+		synchronized (mEmitLock) {
+			final int level;
+			final String tag;
+			final int count;
+			synchronized (mLock) {
+				this.mTimeoutCheckScheduled = false;
+				if (mRepeatCount == 0) {
+					return;
+				}
+				final long remaining = mRunStartTime + mTimeoutNanos - nanoTime();
+				if (remaining > 0) {
+					scheduleTimeoutCheck(remaining);
+					return;
+				}
+				level = mLastLevel;
+				tag = mLastTag;
+				count = takeRepetitions();
+			}
+			logRepetitions(level, tag, count);
+		}
+	}
+
+	/**
+	 * Schedules a check of the timeout of the current run after the specified delay, unless such
+	 * check is already scheduled. Must be called while holding the lock.
+	 */
+	private void scheduleTimeoutCheck(long delayNanos) {
+		if (!mTimeoutCheckScheduled) {
+			this.mTimeoutCheckScheduled = true;
+			schedule(mTimeoutCheck, delayNanos);
+		}
+	}
+
+	/**
+	 * Schedules the given <var>task</var> to be run after the specified delay via {@link LogTimer}.
+	 */
+	void schedule(Runnable task, long delayNanos) {
+		LogTimer.schedule(task, delayNanos);
+	}
+
+	/**
+	 * Returns the current time in nanoseconds used to measure runs.
+	 *
+	 * @return Monotonic time in nanoseconds.
+	 */
+	long nanoTime() {
+		return System.nanoTime();
+	}
+
+	/**
+	 */
+	@Override
+	protected void onLog(@Level int level, @NonNull String tag, @Nullable String msg, @Nullable Throwable tr, boolean forced) {
+		synchronized (mEmitLock) {
+			final int lastLevel;
+			final String lastTag;
+			final int count;
+			boolean repetition = false;
+			synchronized (mLock) {
+				lastLevel = mLastLevel;
+				lastTag = mLastTag;
+				if (forced || tr != null || msg == null || level == Log.ASSERT) {
+					count = takeRepetitions();
+					this.mLastTag = null;
+					this.mLastMessage = null;
+				} else {
+					final int hash = msg.hashCode();
+					if (hash == mLastHash && level == mLastLevel && tag.equals(mLastTag) && msg.equals(mLastMessage)) {
+						this.mRepeatCount++;
+						repetition = true;
+						final long remaining = mRunStartTime + mTimeoutNanos - nanoTime();
+						if (remaining > 0) {
+							if (mRepeatCount == 1) scheduleTimeoutCheck(remaining);
+							return;
+						}
+						count = takeRepetitions();
+					} else {
+						count = takeRepetitions();
+						this.mLastLevel = level;
+						this.mLastTag = tag;
+						this.mLastMessage = msg;
+						this.mLastHash = hash;
+						this.mRunStartTime = nanoTime();
+					}
+				}
+			}
+			logRepetitions(lastLevel, lastTag, count);
+			if (!repetition) super.onLog(level, tag, msg, tr, forced);
+		}
+	}
+
+	/**
+	 * Takes count of repetitions of the current run not summarized yet and restarts counting of
+	 * them. Must be called while holding the lock.
+	 */
+	private int takeRepetitions() {
+		final int count = mRepeatCount;
+		if (count > 0) {
+			this.mRepeatCount = 0;
+			this.mRunStartTime = nanoTime();
+		}
+		return count;
+	}
+
+	/**
+	 * Logs summary of the specified count of repetitions of a record with the specified level and
+	 * tag, if there are any.
+	 */
+	private void logRepetitions(int level, String tag, int count) {
+		if (count > 0) {
+			super.onLog(level, tag, "Last message repeated " + count + " times.", null, false);
+		}
+	}
+
+	/**
+	 * Inner classes ===============================================================================
+	 */
+}
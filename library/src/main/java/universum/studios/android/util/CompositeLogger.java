@@ -0,0 +1,242 @@
+/*
+ * =================================================================================================
+ *                             Copyright (C) 2017 Universum Studios
+ * =================================================================================================
+ *         Licensed under the Apache License, Version 2.0 or later (further "License" only).
+ * -------------------------------------------------------------------------------------------------
+ * You may use this file only in compliance with the License. More details and copy of this License
+ * you may obtain at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * You can redistribute, modify or publish any part of the code written within this file but as it
+ * is described in the License, the software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES or CONDITIONS OF ANY KIND.
+ *
+ * See the License for the specific language governing permissions and limitations under the License.
+ * =================================================================================================
+ */
+package universum.studios.android.util;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.Log;
+
+/**
+ * A {@link Logger} implementation which dispatches each log record to multiple sink loggers, like
+ * logcat, a file and an in-memory buffer at the same time. Each sink is registered with its own
+ * level threshold and receives only records at or above that threshold.
+ * <p>
+ * A log call is rejected already by the level check of the composite logger if there is no sink that
+ * would accept the requested level, so no message template is formatted for such call. Otherwise
+ * the message is formatted, including a stack trace of the logged throwable (if any), only once and
+ * the resulting text is shared by all sinks that accept it. Sinks receive the records via
+ * {@link Logger#forceLog(int, String, String)}, so they do not repeat the level check. Records with
+ * {@link Log#ASSERT} level are delivered via {@code wtf(...)} methods of the sinks.
+ * <p>
+ * Sinks may be added and removed at any time. The set of sinks is copy-on-write, so dispatching
+ * of records does not take any locks.
+ *
+ * @author Martin Albedinsky
+ */
+public class CompositeLogger extends BaseLogger {
+
+	/**
+	 * Constants ===================================================================================
+	 */
+
+	/**
+	 * Log TAG.
+	 */
+	// private static final String TAG = "CompositeLogger";
+
+	/**
+	 * Threshold used when there are no sinks, so all levels are rejected.
+	 */
+	private static final int NO_THRESHOLD = Log.ASSERT + 1;
+
+	/**
+	 * Interface ===================================================================================
+	 */
+
+	/**
+	 * Static members ==============================================================================
+	 */
+
+	/**
+	 * Members =====================================================================================
+	 */
+
+	/**
+	 * Lock used to synchronize modification of sinks.
+	 */
+	private final Object mSinksLock = new Object();
+
+	/**
+	 * Copy-on-write array with registered sinks.
+	 */
+	private volatile Sink[] mSinks = new Sink[0];
+
+	/**
+	 * The lowest threshold of all registered sinks.
+	 */
+	private volatile int mMinThreshold = NO_THRESHOLD;
+
+	/**
+	 * Constructors ================================================================================
+	 */
+
+	/**
+	 * Creates a new instance of CompositeLogger with the specified log level. The log level is
+	 * applied to all records before sink thresholds are checked.
+	 *
+	 * @param level The initial logging level for the logger.
+	 */
+	public CompositeLogger(@Level int level) {
+		super(level);
+	}
+
+	/**
+	 * Methods =====================================================================================
+	 */
+
+	/**
+	 * Registers the given <var>sink</var> logger with the specified level <var>threshold</var>. If
+	 * the sink is already registered, only its threshold is updated.
+	 *
+	 * @param sink      The logger to which to dispatch log records.
+	 * @param threshold The lowest level of records to be dispatched to the sink.
+	 * @see #removeSink(Logger)
+	 */
+	public void addSink(@NonNull Logger sink, @Level int threshold) {
+		synchronized (mSinksLock) {
+			final Sink[] sinks = mSinks;
+			for (int i = 0; i < sinks.length; i++) {
+				if (sinks[i].logger == sink) {
+					final Sink[] updated = sinks.clone();
+					updated[i] = new Sink(sink, threshold);
+					setSinks(updated);
+					return;
+				}
+			}
+			final Sink[] updated = new Sink[sinks.length + 1];
+			System.arraycopy(sinks, 0, updated, 0, sinks.length);
+			updated[sinks.length] = new Sink(sink, threshold);
+			setSinks(updated);
+		}
+	}
+
+	/**
+	 * Unregisters the given <var>sink</var> logger.
+	 *
+	 * @param sink The logger to be removed.
+	 * @return {@code True} if the sink has been removed, {@code false} if it was not registered.
+	 * @see #addSink(Logger, int)
+	 */
+	public boolean removeSink(@NonNull Logger sink) {
+		synchronized (mSinksLock) {
+			final Sink[] sinks = mSinks;
+			for (int i = 0; i < sinks.length; i++) {
+				if (sinks[i].logger == sink) {
+					final Sink[] updated = new Sink[sinks.length - 1];
+					System.arraycopy(sinks, 0, updated, 0, i);
+					System.arraycopy(sinks, i + 1, updated, i, sinks.length - i - 1);
+					setSinks(updated);
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+
+	/**
+	 * Returns the count of sinks registered in this logger.
+	 *
+	 * @return Sinks count.
+	 */
+	public int getSinkCount() {
+		return mSinks.length;
+	}
+
+	/**
+	 * Publishes the given <var>sinks</var> and updates the lowest threshold accordingly.
+	 */
+	private void setSinks(Sink[] sinks) {
+		int minThreshold = NO_THRESHOLD;
+		for (final Sink sink : sinks) {
+			if (sink.threshold < minThreshold) minThreshold = sink.threshold;
+		}
+		this.mSinks = sinks;
+		this.mMinThreshold = minThreshold;
+	}
+
+	/**
+	 * Returns {@code true} only if the specified level passes the level check of this logger and
+	 * there is at least one sink that accepts it.
+	 */
+	@Override
+	public boolean isLoggable(@NonNull String tag, @Level int level) {
+		return level >= mMinThreshold && super.isLoggable(tag, level);
+	}
+
+	/**
+	 */
+	@Override
+	protected void onLog(@Level int level, @NonNull String tag, @Nullable String msg, @Nullable Throwable tr) {
+		final Sink[] sinks = mSinks;
+		if (level == Log.ASSERT) {
+			for (final Sink sink : sinks) {
+				if (sink.threshold <= level) dispatch(sink.logger, level, tag, msg, tr);
+			}
+			return;
+		}
+		String message = null;
+		for (final Sink sink : sinks) {
+			if (sink.threshold <= level) {
+				if (message == null) message = composeMessage(msg, tr);
+				sink.logger.forceLog(level, tag, message);
+			}
+		}
+	}
+
+	/**
+	 * Composes the text to be logged from the given message and throwable.
+	 */
+	private String composeMessage(String msg, Throwable tr) {
+		if (tr == null) {
+			return msg == null ? "" : msg;
+		}
+		final StringBuilder message = new StringBuilder(msg == null ? 256 : msg.length() + 256);
+		if (msg != null) message.append(msg).append('\n');
+		appendStackTrace(message, tr);
+		return message.toString();
+	}
+
+	/**
+	 * Inner classes ===============================================================================
+	 */
+
+	/**
+	 * Holds a sink logger along with its threshold.
+	 */
+	private static final class Sink {
+
+		/**
+		 * Logger to which are dispatched the records.
+		 */
+		final Logger logger;
+
+		/**
+		 * The lowest level of records dispatched to the logger.
+		 */
+		final int threshold;
+
+		/**
+		 * Creates a new instance of Sink for the given <var>logger</var> and <var>threshold</var>.
+		 */
+		Sink(Logger logger, int threshold) {
+			this.logger = logger;
+			this.threshold = threshold;
+		}
+	}
+}
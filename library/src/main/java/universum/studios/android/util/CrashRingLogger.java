@@ -0,0 +1,510 @@
+/*
+ * =================================================================================================
+ *                             Copyright (C) 2017 Universum Studios
+ * =================================================================================================
+ *         Licensed under the Apache License, Version 2.0 or later (further "License" only).
+ * -------------------------------------------------------------------------------------------------
+ * You may use this file only in compliance with the License. More details and copy of this License
+ * you may obtain at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * You can redistribute, modify or publish any part of the code written within this file but as it
+ * is described in the License, the software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES or CONDITIONS OF ANY KIND.
+ *
+ * See the License for the specific language governing permissions and limitations under the License.
+ * =================================================================================================
+ */
+package universum.studios.android.util;
+
+import android.support.annotation.IntRange;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+
+/**
+ * A {@link DelegatingLogger} implementation which keeps the most recent log records in a fixed size
+ * in-memory ring, so they may be written into a file when the application crashes, even if those
+ * records have not been logged by the delegate due to its log level.
+ * <p>
+ * Each record that passes the <b>capture level</b> of this logger is encoded as a text line
+ * {@code <millis> <level>/<tag>: <message>} directly into a byte array that is allocated only once,
+ * so capturing of records does not allocate any objects. For the same reason a logged throwable is
+ * captured only as its class name and message, without its stack trace. When the ring becomes full,
+ * the oldest records are overwritten. Only records that pass also the level check of the delegate
+ * are passed to it, so verbose records may be captured while the delegate, like {@link SimpleLogger}
+ * used in release builds, logs only warnings and errors. The effective log level of this logger,
+ * which is used also by tag handles, is the lower one of the capture level and the level of the
+ * delegate.
+ * <p>
+ * Captured records may be written via {@link #dump(OutputStream)} at any time. To have the records
+ * written when the application crashes, install a crash handler via {@link #installCrashHandler(File)}.
+ * The handler opens the specified file in advance, so it does not allocate any objects while writing
+ * the records when an uncaught exception occurs. After the records are written, the uncaught
+ * exception is passed to the previously installed handler or, if there has been none, to the
+ * thread group of the crashed thread, which reports it as if no handler has been installed.
+ *
+ * @author Martin Albedinsky
+ */
+public class CrashRingLogger extends DelegatingLogger {
+
+	/**
+	 * Constants ===================================================================================
+	 */
+
+	/**
+	 * Log TAG.
+	 */
+	// private static final String TAG = "CrashRingLogger";
+
+	/**
+	 * Default capacity of the ring in bytes.
+	 */
+	public static final int DEFAULT_CAPACITY = 256 * 1024;
+
+	/**
+	 * Tag of the record captured for an uncaught exception.
+	 */
+	private static final String CRASH_TAG = "AndroidRuntime";
+
+	/**
+	 * Characters identifying log levels within the captured records indexed by the level.
+	 */
+	private static final byte[] LEVEL_CHARS = {'?', '?', 'V', 'D', 'I', 'W', 'E', 'A'};
+
+	/**
+	 * Byte which terminates each captured record.
+	 */
+	private static final byte NEW_LINE = '\n';
+
+	/**
+	 * Interface ===================================================================================
+	 */
+
+	/**
+	 * Static members ==============================================================================
+	 */
+
+	/**
+	 * Members =====================================================================================
+	 */
+
+	/**
+	 * Lock used to synchronize access to the ring.
+	 */
+	private final Object mLock = new Object();
+
+	/**
+	 * Array with bytes of the captured records.
+	 */
+	private final byte[] mRing;
+
+	/**
+	 * Maximum count of bytes of a single captured record.
+	 */
+	private final int mMaxRecordLength;
+
+	/**
+	 * Position within the ring where will be written the next byte.
+	 */
+	private int mPosition;
+
+	/**
+	 * Flag indicating whether the ring has been already filled at least once, so its oldest records
+	 * are being overwritten.
+	 */
+	private boolean mWrapped;
+
+	/**
+	 * The lowest level of records that are captured.
+	 */
+	private volatile int mCaptureLevel = Log.VERBOSE;
+
+	/**
+	 * Currently installed crash handler. May be {@code null}.
+	 */
+	private CrashHandler mCrashHandler;
+
+	/**
+	 * Constructors ================================================================================
+	 */
+
+	/**
+	 * Same as {@link #CrashRingLogger(Logger, int)} with {@link #DEFAULT_CAPACITY}.
+	 */
+	public CrashRingLogger(@NonNull Logger delegate) {
+		this(delegate, DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Creates a new instance of CrashRingLogger for the given <var>delegate</var> logger.
+	 *
+	 * @param delegate The logger to which to pass records that pass its level check.
+	 * @param capacity Capacity of the ring in bytes. Records longer than a quarter of the capacity
+	 *                 are truncated.
+	 * @throws IllegalArgumentException If the capacity is less than 64 bytes.
+	 */
+	public CrashRingLogger(@NonNull Logger delegate, @IntRange(from = 64) int capacity) {
+		super(delegate);
+		if (capacity < 64) {
+			throw new IllegalArgumentException("Capacity must be at least 64 bytes, got(" + capacity + ").");
+		}
+		this.mRing = new byte[capacity];
+		this.mMaxRecordLength = capacity / 4;
+	}
+
+	/**
+	 * Methods =====================================================================================
+	 */
+
+	/**
+	 * Specifies the lowest level of records that should be captured into the ring. Default level
+	 * is {@link Log#VERBOSE}.
+	 *
+	 * @param level The desired capture level.
+	 * @see #getCaptureLevel()
+	 */
+	public void setCaptureLevel(@Level int level) {
+		this.mCaptureLevel = level;
+		invalidateTags();
+	}
+
+	/**
+	 * Returns the lowest level of records that are captured into the ring.
+	 *
+	 * @return Capture level.
+	 * @see #setCaptureLevel(int)
+	 */
+	@Level
+	public int getCaptureLevel() {
+		return mCaptureLevel;
+	}
+
+	/**
+	 * Returns the capacity of the ring.
+	 *
+	 * @return Capacity in bytes.
+	 */
+	public int getCapacity() {
+		return mRing.length;
+	}
+
+	/**
+	 * Returns the lower one of the capture level and the level of the delegate logger.
+	 */
+	@Level
+	@Override
+	public int getLogLevel() {
+		return Math.min(mCaptureLevel, super.getLogLevel());
+	}
+
+	/**
+	 * Returns {@code true} if the specified level passes the capture level or the level check of
+	 * the delegate logger.
+	 */
+	@Override
+	public boolean isLoggable(@NonNull String tag, @Level int level) {
+		return level >= mCaptureLevel || super.isLoggable(tag, level);
+	}
+
+	/**
+	 */
+	@Override
+	protected void onLog(@Level int level, @NonNull String tag, @Nullable String msg, @Nullable Throwable tr, boolean forced) {
+		if (level >= mCaptureLevel) {
+			capture(System.currentTimeMillis(), level, tag, msg, tr);
+		}
+		if (forced || super.isLoggable(tag, level)) {
+			super.onLog(level, tag, msg, tr, forced);
+		}
+	}
+
+	/**
+	 * Encodes a record with the specified data into the ring.
+	 */
+	private void capture(long time, int level, String tag, String msg, Throwable tr) {
+		synchronized (mLock) {
+			int remaining = mMaxRecordLength - 1;
+			remaining = putDecimal(time, remaining);
+			remaining = putByte((byte) ' ', remaining);
+			remaining = putByte(level >= 0 && level < LEVEL_CHARS.length ? LEVEL_CHARS[level] : (byte) '?', remaining);
+			remaining = putByte((byte) '/', remaining);
+			remaining = putChars(tag, remaining);
+			remaining = putByte((byte) ':', remaining);
+			remaining = putByte((byte) ' ', remaining);
+			if (msg != null) {
+				remaining = putChars(msg, remaining);
+			}
+			if (tr != null) {
+				remaining = putChars(msg == null ? "[" : " [", remaining);
+				remaining = putChars(tr.getClass().getName(), remaining);
+				final String trMessage = tr.getMessage();
+				if (trMessage != null) {
+					remaining = putChars(": ", remaining);
+					remaining = putChars(trMessage, remaining);
+				}
+				putChars("]", remaining);
+			}
+			put(NEW_LINE);
+		}
+	}
+
+	/**
+	 * Puts the given byte into the ring if there is remaining space for the current record.
+	 */
+	private int putByte(byte b, int remaining) {
+		if (remaining < 1) return remaining;
+		put(b);
+		return remaining - 1;
+	}
+
+	/**
+	 * Puts decimal representation of the specified non-negative <var>value</var> into the ring.
+	 */
+	private int putDecimal(long value, int remaining) {
+		long divisor = 1;
+		while (value / divisor >= 10) {
+			divisor *= 10;
+		}
+		for (; divisor > 0; divisor /= 10) {
+			remaining = putByte((byte) ('0' + (value / divisor) % 10), remaining);
+		}
+		return remaining;
+	}
+
+	/**
+	 * Puts UTF-8 bytes of the given characters into the ring while there is remaining space for
+	 * the current record. New line characters are replaced by spaces, so each record occupies a
+	 * single line, and unpaired surrogates by {@code '?'}.
+	 */
+	private int putChars(String chars, int remaining) {
+		final int length = chars.length();
+		for (int i = 0; i < length; i++) {
+			final char c = chars.charAt(i);
+			if (c < 0x80) {
+				if (remaining < 1) break;
+				put(c == NEW_LINE ? (byte) ' ' : (byte) c);
+				remaining--;
+			} else if (c < 0x800) {
+				if (remaining < 2) break;
+				put((byte) (0xC0 | (c >> 6)));
+				put((byte) (0x80 | (c & 0x3F)));
+				remaining -= 2;
+			} else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(chars.charAt(i + 1))) {
+				if (remaining < 4) break;
+				final int codePoint = Character.toCodePoint(c, chars.charAt(++i));
+				put((byte) (0xF0 | (codePoint >> 18)));
+				put((byte) (0x80 | ((codePoint >> 12) & 0x3F)));
+				put((byte) (0x80 | ((codePoint >> 6) & 0x3F)));
+				put((byte) (0x80 | (codePoint & 0x3F)));
+				remaining -= 4;
+			} else if (c >= Character.MIN_SURROGATE && c <= Character.MAX_SURROGATE) {
+				if (remaining < 1) break;
+				put((byte) '?');
+				remaining--;
+			} else {
+				if (remaining < 3) break;
+				put((byte) (0xE0 | (c >> 12)));
+				put((byte) (0x80 | ((c >> 6) & 0x3F)));
+				put((byte) (0x80 | (c & 0x3F)));
+				remaining -= 3;
+			}
+		}
+		return remaining;
+	}
+
+	/**
+	 * Puts the given byte into the ring at the current position.
+	 */
+	private void put(byte b) {
+		mRing[mPosition++] = b;
+		if (mPosition == mRing.length) {
+			this.mPosition = 0;
+			this.mWrapped = true;
+		}
+	}
+
+	/**
+	 * Writes all records currently captured in the ring, from the oldest one, into the given
+	 * <var>output</var> stream.
+	 *
+	 * @param output The stream where to write the records.
+	 * @throws IOException If writing into the stream fails.
+	 */
+	public void dump(@NonNull OutputStream output) throws IOException {
+		synchronized (mLock) {
+			final int start = findOldestRecord();
+			if (start > mPosition) {
+				output.write(mRing, start, mRing.length - start);
+				output.write(mRing, 0, mPosition);
+			} else {
+				output.write(mRing, start, mPosition - start);
+			}
+		}
+	}
+
+	/**
+	 * Writes all records currently captured in the ring into the given file without allocating any
+	 * objects. Does not synchronize access to the ring, so it may be called also from a crashing
+	 * thread that holds the ring lock.
+	 */
+	private void dump(RandomAccessFile file) throws IOException {
+		final int position = mPosition;
+		final int start = findOldestRecord();
+		file.seek(0);
+		if (start > position) {
+			file.write(mRing, start, mRing.length - start);
+			file.write(mRing, 0, position);
+		} else {
+			file.write(mRing, start, position - start);
+		}
+		file.setLength(file.getFilePointer());
+		file.getFD().sync();
+	}
+
+	/**
+	 * Finds position of the oldest complete record within the ring.
+	 */
+	private int findOldestRecord() {
+		if (!mWrapped) {
+			return 0;
+		}
+		// The oldest record may be partially overwritten, so skip to the start of the next one.
+		final int length = mRing.length;
+		for (int i = 0; i < length; i++) {
+			final int index = (mPosition + i) % length;
+			if (mRing[index] == NEW_LINE) {
+				return (index + 1) % length;
+			}
+		}
+		return mPosition;
+	}
+
+	/**
+	 * Installs a default uncaught exception handler which captures the uncaught exception and writes
+	 * all captured records into the specified <var>file</var>. The file is opened right away and
+	 * stays open until the handler is uninstalled.
+	 *
+	 * @param file The file where to write the captured records when the application crashes.
+	 * @throws IOException If the file cannot be opened.
+	 * @see #uninstallCrashHandler()
+	 */
+	public void installCrashHandler(@NonNull File file) throws IOException {
+		final RandomAccessFile access = new RandomAccessFile(file, "rw");
+		synchronized (mLock) {
+			uninstallCrashHandler();
+			this.mCrashHandler = new CrashHandler(this, access, Thread.getDefaultUncaughtExceptionHandler());
+			Thread.setDefaultUncaughtExceptionHandler(mCrashHandler);
+		}
+	}
+
+	/**
+	 * Uninstalls the crash handler installed via {@link #installCrashHandler(File)} and closes its
+	 * file. The previous handler is restored only if the crash handler of this logger is still the
+	 * default one.
+	 */
+	public void uninstallCrashHandler() {
+		synchronized (mLock) {
+			final CrashHandler handler = mCrashHandler;
+			if (handler == null) {
+				return;
+			}
+			this.mCrashHandler = null;
+			if (Thread.getDefaultUncaughtExceptionHandler() == handler) {
+				Thread.setDefaultUncaughtExceptionHandler(handler.previous);
+			}
+			try {
+				handler.file.close();
+			} catch (IOException e) {
+				// Ignored, the file is no longer used.
+			}
+		}
+	}
+
+	/**
+	 * Inner classes ===============================================================================
+	 */
+
+	/**
+	 * Uncaught exception handler which writes the captured records into a pre-opened file.
+	 */
+	private static final class CrashHandler implements Thread.UncaughtExceptionHandler {
+
+		/**
+		 * Logger of which records to write.
+		 */
+		final CrashRingLogger logger;
+
+		/**
+		 * File where to write the records.
+		 */
+		final RandomAccessFile file;
+
+		/**
+		 * Handler that has been installed before this one. May be {@code null}.
+		 */
+		final Thread.UncaughtExceptionHandler previous;
+
+		/**
+		 * Flag set for a thread of which uncaught exception is being passed to its thread group. The
+		 * root thread group passes the exception back to the default handler, that is this one.
+		 */
+		final ThreadLocal<Boolean> dispatchingToGroup = new ThreadLocal<>();
+
+		/**
+		 * Creates a new instance of CrashHandler with the given data.
+		 */
+		CrashHandler(CrashRingLogger logger, RandomAccessFile file, Thread.UncaughtExceptionHandler previous) {
+			this.logger = logger;
+			this.file = file;
+			this.previous = previous;
+		}
+
+		/**
+		 */
+		@Override
+		public void uncaughtException(Thread thread, Throwable throwable) {
+			if (dispatchingToGroup.get() != null) {
+				// Passed back by the root thread group, so report it as the group does without handler.
+				System.err.print("Exception in thread \"" + thread.getName() + "\" ");
+				throwable.printStackTrace(System.err);
+				return;
+			}
+			try {
+				logger.capture(System.currentTimeMillis(), Log.ASSERT, CRASH_TAG, thread.getName(), throwable);
+				logger.dump(file);
+			} catch (Throwable ignored) {
+				// The crash must be passed to the previous handler no matter what.
+			} finally {
+				if (previous == null) {
+					dispatchToGroup(thread, throwable);
+				} else {
+					previous.uncaughtException(thread, throwable);
+				}
+			}
+		}
+
+		/**
+		 * Passes the given uncaught <var>throwable</var> to the thread group of the given <var>thread</var>.
+		 */
+		private void dispatchToGroup(Thread thread, Throwable throwable) {
+			final ThreadGroup group = thread.getThreadGroup();
+			dispatchingToGroup.set(Boolean.TRUE);
+			try {
+				if (group == null) {
+					uncaughtException(thread, throwable);
+				} else {
+					group.uncaughtException(thread, throwable);
+				}
+			} finally {
+				dispatchingToGroup.remove();
+			}
+		}
+	}
+}
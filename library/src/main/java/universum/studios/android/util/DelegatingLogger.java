@@ -0,0 +1,157 @@
+/*
+ * =================================================================================================
+ *                             Copyright (C) 2017 Universum Studios
+ * =================================================================================================
+ *         Licensed under the Apache License, Version 2.0 or later (further "License" only).
+ * -------------------------------------------------------------------------------------------------
+ * You may use this file only in compliance with the License. More details and copy of this License
+ * you may obtain at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * You can redistribute, modify or publish any part of the code written within this file but as it
+ * is described in the License, the software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES or CONDITIONS OF ANY KIND.
+ *
+ * See the License for the specific language governing permissions and limitations under the License.
+ * =================================================================================================
+ */
+package universum.studios.android.util;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+/**
+ * A {@link BaseLogger} implementation which decorates another logger. Level of the delegating logger
+ * is the level of its delegate and also the level checks are delegated to it, so calls that would
+ * be rejected by the delegate do not even reach {@link #onLog(int, String, String, Throwable)}.
+ * <p>
+ * By default, all log records are passed to the delegate logger unchanged. Inheritance hierarchies
+ * may override {@link #onLog(int, String, String, Throwable, boolean)} in order to buffer, filter or
+ * modify the records before they are passed to the delegate via {@link #dispatch(Logger, int, String, String, Throwable, boolean)}.
+ * Records logged via {@link #forceLog(int, String, String)} are passed to the delegate as forced, so
+ * they are not rejected by its level check.
+ *
+ * @author Martin Albedinsky
+ */
+public abstract class DelegatingLogger extends BaseLogger {
+
+	/**
+	 * Constants ===================================================================================
+	 */
+
+	/**
+	 * Interface ===================================================================================
+	 */
+
+	/**
+	 * Static members ==============================================================================
+	 */
+
+	/**
+	 * Members =====================================================================================
+	 */
+
+	/**
+	 * Logger to which are passed all log records of this logger.
+	 */
+	private final Logger mDelegate;
+
+	/**
+	 * Constructors ================================================================================
+	 */
+
+	/**
+	 * Creates a new instance of DelegatingLogger for the given <var>delegate</var> logger.
+	 *
+	 * @param delegate The logger to be decorated.
+	 */
+	public DelegatingLogger(@NonNull Logger delegate) {
+		super(delegate.getLogLevel());
+		this.mDelegate = delegate;
+	}
+
+	/**
+	 * Methods =====================================================================================
+	 */
+
+	/**
+	 * Returns the logger to which are passed all log records of this logger.
+	 *
+	 * @return The delegate logger.
+	 */
+	@NonNull
+	public final Logger getDelegate() {
+		return mDelegate;
+	}
+
+	/**
+	 */
+	@Override
+	public void setLogLevel(@Level int level) {
+		mDelegate.setLogLevel(level);
+		invalidateTags();
+	}
+
+	/**
+	 */
+	@Level
+	@Override
+	public int getLogLevel() {
+		return mDelegate.getLogLevel();
+	}
+
+	/**
+	 */
+	@Override
+	public boolean isLoggable(@NonNull String tag, @Level int level) {
+		return mDelegate.isLoggable(tag, level);
+	}
+
+	/**
+	 * If the delegate logger is also a {@link BaseLogger}, the tag level is specified also for it,
+	 * so the level checks of this logger, which are delegated, stay consistent with its tag handles.
+	 */
+	@Override
+	public void setTagLogLevel(@NonNull String tag, @Level int level) {
+		if (mDelegate instanceof BaseLogger) ((BaseLogger) mDelegate).setTagLogLevel(tag, level);
+		super.setTagLogLevel(tag, level);
+	}
+
+	/**
+	 * If the delegate logger is also a {@link BaseLogger}, the tag level is cleared also for it.
+	 */
+	@Override
+	public void clearTagLogLevel(@NonNull String tag) {
+		if (mDelegate instanceof BaseLogger) ((BaseLogger) mDelegate).clearTagLogLevel(tag);
+		super.clearTagLogLevel(tag);
+	}
+
+	/**
+	 * Stack traces are rendered by the delegate logger, unless there is a {@link StackTraceCache}
+	 * specified for this logger.
+	 */
+	@Override
+	@Nullable
+	public String getStackTraceString(@Nullable Throwable tr) {
+		return getStackTraceCache() == null ? mDelegate.getStackTraceString(tr) : super.getStackTraceString(tr);
+	}
+
+	/**
+	 */
+	@Override
+	protected void onLog(@Level int level, @NonNull String tag, @Nullable String msg, @Nullable Throwable tr) {
+		onLog(level, tag, msg, tr, false);
+	}
+
+	/**
+	 */
+	@Override
+	protected void onLog(@Level int level, @NonNull String tag, @Nullable String msg, @Nullable Throwable tr, boolean forced) {
+		dispatch(mDelegate, level, tag, msg, tr, forced);
+	}
+
+	/**
+	 * Inner classes ===============================================================================
+	 */
+}
@@ -0,0 +1,985 @@
+/*
+ * =================================================================================================
+ *                             Copyright (C) 2017 Universum Studios
+ * =================================================================================================
+ *         Licensed under the Apache License, Version 2.0 or later (further "License" only).
+ * -------------------------------------------------------------------------------------------------
+ * You may use this file only in compliance with the License. More details and copy of this License
+ * you may obtain at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * You can redistribute, modify or publish any part of the code written within this file but as it
+ * is described in the License, the software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES or CONDITIONS OF ANY KIND.
+ *
+ * See the License for the specific language governing permissions and limitations under the License.
+ * =================================================================================================
+ */
+package universum.studios.android.util;
+
+import android.support.annotation.IntRange;
+import android.support.annotation.NonNull;
+import android.util.Log;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileFilter;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.Locale;
+import java.util.Set;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * A {@link LogSink} implementation which ships log records to a remote collector via HTTP. The sink
+ * may be used with {@link SimpleLogger#SimpleLogger(int, LogSink)}.
+ * <p>
+ * Records are encoded as UTF-8 text lines in the following format:
+ * <pre>
+ * {timeInMillis} {level}/{tag}: {message}
+ * </pre>
+ * and collected into batches. A batch is sealed once it reaches the maximum batch size or once its
+ * oldest record reaches the {@link #setMaxBatchAge(long) maximum age}. Sealed batches are compressed
+ * via GZIP and posted to the collector on a background thread with {@code Content-Encoding: gzip},
+ * one request per batch. Batches are encoded into a fixed pool of reusable buffers and compressed
+ * by a reused {@link Deflater}, so shipping does not allocate per record nor per batch. If all
+ * buffers are in use, because the background thread does not keep up, new records are dropped,
+ * see {@link #getDroppedRecordCount()}.
+ * <p>
+ * If posting of a batch fails, the compressed batch is spooled into the spool directory and
+ * subsequent attempts are delayed by an exponential backoff. While backing off, sealed batches are
+ * spooled without any attempt. Once the backoff elapses, the spooled batches are posted again from
+ * the oldest one. The spool is limited by the {@link #setMaxSpoolSize(long) maximum size} and the
+ * oldest spooled batches are deleted when exceeded. Batches rejected by the collector with a client
+ * error, other than {@code 408} and {@code 429}, are not retried.
+ *
+ * @author Martin Albedinsky
+ */
+public class HttpLogSink implements LogSink, Closeable, Flushable {
+
+	/**
+	 * Constants ===================================================================================
+	 */
+
+	/**
+	 * Log TAG.
+	 */
+	private static final String TAG = "HttpLogSink";
+
+	/**
+	 * Default maximum size of a single batch in bytes.
+	 */
+	public static final int DEFAULT_MAX_BATCH_SIZE = 64 * 1024;
+
+	/**
+	 * Default maximum age of a batch in milliseconds.
+	 */
+	public static final long DEFAULT_MAX_BATCH_AGE = 10000;
+
+	/**
+	 * Default delay before the first retry in milliseconds.
+	 */
+	public static final long DEFAULT_INITIAL_BACKOFF = 1000;
+
+	/**
+	 * Default maximum delay between retries in milliseconds.
+	 */
+	public static final long DEFAULT_MAX_BACKOFF = 5 * 60 * 1000;
+
+	/**
+	 * Default maximum size of the spool directory in bytes.
+	 */
+	public static final long DEFAULT_MAX_SPOOL_SIZE = 1024 * 1024;
+
+	/**
+	 * Count of reusable batch buffers.
+	 */
+	private static final int BUFFER_COUNT = 4;
+
+	/**
+	 * Prefix of spooled batch files.
+	 */
+	private static final String SPOOL_PREFIX = "batch-";
+
+	/**
+	 * Extension of spooled batch files.
+	 */
+	private static final String SPOOL_EXTENSION = ".gz";
+
+	/**
+	 * Timeout for connecting to and reading from the collector in milliseconds.
+	 */
+	private static final int TIMEOUT = 15000;
+
+	/**
+	 * Header of the GZIP format with no optional fields.
+	 */
+	private static final byte[] GZIP_HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+
+	/**
+	 * Characters identifying log levels within records indexed by the level.
+	 */
+	private static final byte[] LEVEL_CHARS = {'?', '?', 'V', 'D', 'I', 'W', 'E', 'A'};
+
+	/**
+	 * Results of posting a batch.
+	 */
+	private static final int RESULT_SUCCESS = 0, RESULT_RETRY = 1, RESULT_REJECTED = 2;
+
+	/**
+	 * Interface ===================================================================================
+	 */
+
+	/**
+	 * Static members ==============================================================================
+	 */
+
+	/**
+	 * Comparator ordering spooled files from the oldest to the newest one.
+	 */
+	private static final Comparator<File> SPOOL_ORDER = new Comparator<File>() {
+
+		/**
+		 */
+		@Override
+		public int compare(File first, File second) {
+			return first.getName().compareTo(second.getName());
+		}
+	};
+
+	/**
+	 * Members =====================================================================================
+	 */
+
+	/**
+	 * Lock used to synchronize access to the batches.
+	 */
+	private final Object mLock = new Object();
+
+	/**
+	 * URL of the collector.
+	 */
+	private final URL mUrl;
+
+	/**
+	 * Directory where are spooled batches that could not be posted.
+	 */
+	private final File mSpoolDirectory;
+
+	/**
+	 * Maximum size of a single batch in bytes.
+	 */
+	private final int mMaxBatchSize;
+
+	/**
+	 * Batches with free buffers.
+	 */
+	private final LinkedList<Batch> mFreeBatches = new LinkedList<>();
+
+	/**
+	 * Sealed batches waiting to be posted.
+	 */
+	private final LinkedList<Batch> mSealedBatches = new LinkedList<>();
+
+	/**
+	 * Thread on which are compressed and posted the batches.
+	 */
+	private final Thread mThread;
+
+	/**
+	 * Deflater used to compress the batches. Accessed only by the shipping thread.
+	 */
+	private final Deflater mDeflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+
+	/**
+	 * Checksum of the compressed batches. Accessed only by the shipping thread.
+	 */
+	private final CRC32 mChecksum = new CRC32();
+
+	/**
+	 * Buffer holding the compressed batch. Accessed only by the shipping thread.
+	 */
+	private byte[] mCompressed;
+
+	/**
+	 * Count of valid bytes in the compressed buffer.
+	 */
+	private int mCompressedLength;
+
+	/**
+	 * Batch into which are currently encoded new records. May be {@code null}.
+	 */
+	private Batch mCurrentBatch;
+
+	/**
+	 * Maximum age of a batch in milliseconds.
+	 */
+	private long mMaxBatchAge = DEFAULT_MAX_BATCH_AGE;
+
+	/**
+	 * Delay before the first retry in milliseconds.
+	 */
+	private long mInitialBackoff = DEFAULT_INITIAL_BACKOFF;
+
+	/**
+	 * Maximum delay between retries in milliseconds.
+	 */
+	private long mMaxBackoff = DEFAULT_MAX_BACKOFF;
+
+	/**
+	 * Maximum size of the spool directory in bytes.
+	 */
+	private volatile long mMaxSpoolSize = DEFAULT_MAX_SPOOL_SIZE;
+
+	/**
+	 * Count of consecutive failed attempts to post a batch.
+	 */
+	private int mFailureCount;
+
+	/**
+	 * Time in milliseconds before which no batch is posted due to the backoff.
+	 */
+	private long mNextAttemptTime;
+
+	/**
+	 * Flag indicating whether there are batches in the spool.
+	 */
+	private boolean mSpooled;
+
+	/**
+	 * Spooled files that have been already handled but could not be deleted. Such files are not
+	 * posted again by this sink. Accessed only by the shipping thread.
+	 */
+	private final Set<File> mHandledSpooled = new HashSet<>();
+
+	/**
+	 * Sequence used to name the spooled files.
+	 */
+	private long mSpoolSequence;
+
+	/**
+	 * Count of batches sealed so far.
+	 */
+	private long mSealedCount;
+
+	/**
+	 * Count of sealed batches that have been posted, spooled or rejected so far.
+	 */
+	private long mHandledCount;
+
+	/**
+	 * Count of batches successfully posted so far.
+	 */
+	private long mPostedBatchCount;
+
+	/**
+	 * Count of records successfully posted so far, not including records of spooled batches.
+	 */
+	private long mPostedRecordCount;
+
+	/**
+	 * Count of records dropped because all buffers were in use.
+	 */
+	private long mDroppedRecordCount;
+
+	/**
+	 * Flag indicating whether this sink has been closed.
+	 */
+	private boolean mClosed;
+
+	/**
+	 * Constructors ================================================================================
+	 */
+
+	/**
+	 * Same as {@link #HttpLogSink(URL, File, int)} with {@link #DEFAULT_MAX_BATCH_SIZE}.
+	 */
+	public HttpLogSink(@NonNull URL url, @NonNull File spoolDirectory) throws IOException {
+		this(url, spoolDirectory, DEFAULT_MAX_BATCH_SIZE);
+	}
+
+	/**
+	 * Creates a new instance of HttpLogSink which will post batches of log records to the specified
+	 * <var>url</var> and starts its background thread. Batches spooled into the spool directory by
+	 * a previous sink are posted once the collector is reachable.
+	 *
+	 * @param url            URL of the collector accepting the batches via POST requests.
+	 * @param spoolDirectory The directory where to spool batches that could not be posted. Will
+	 *                       be created if it does not exist yet.
+	 * @param maxBatchSize   Maximum size of a single uncompressed batch in bytes. Longer records
+	 *                       are truncated to this size.
+	 * @throws IOException If the spool directory cannot be created.
+	 */
+	public HttpLogSink(@NonNull URL url, @NonNull File spoolDirectory, @IntRange(from = 64) int maxBatchSize) throws IOException {
+		if (maxBatchSize < 64) throw new IllegalArgumentException("Max batch size must be at least 64.");
+		if (!spoolDirectory.isDirectory() && !spoolDirectory.mkdirs()) {
+			throw new IOException("Failed to create directory(" + spoolDirectory + ").");
+		}
+		this.mUrl = url;
+		this.mSpoolDirectory = spoolDirectory;
+		this.mMaxBatchSize = maxBatchSize;
+		for (int i = 0; i < BUFFER_COUNT; i++) {
+			mFreeBatches.add(new Batch(maxBatchSize));
+		}
+		this.mCompressed = new byte[maxBatchSize / 4 + GZIP_HEADER.length + 8];
+		final File[] spooled = listSpooled();
+		this.mSpooled = spooled.length > 0;
+		this.mSpoolSequence = System.currentTimeMillis();
+		if (mSpooled) {
+			final String lastName = spooled[spooled.length - 1].getName();
+			final long lastSequence = parseSpoolSequence(lastName);
+			if (lastSequence >= mSpoolSequence) this.mSpoolSequence = lastSequence + 1;
+		}
+		this.mThread = new Thread(new Runnable() {
+
+			/**
+			 */
+			@Override
+			public void run() {
+				ship();
+			}
+		}, TAG);
+		mThread.setDaemon(true);
+		mThread.start();
+	}
+
+	/**
+	 * Methods =====================================================================================
+	 */
+
+	/**
+	 * Returns the maximum size of a single batch.
+	 *
+	 * @return Maximum batch size in bytes.
+	 */
+	public final int getMaxBatchSize() {
+		return mMaxBatchSize;
+	}
+
+	/**
+	 * Specifies the maximum age of a batch after which the batch is sealed and posted even if it is
+	 * not full.
+	 *
+	 * @param age The desired age in milliseconds.
+	 * @see #DEFAULT_MAX_BATCH_AGE
+	 */
+	public void setMaxBatchAge(@IntRange(from = 0) long age) {
+		synchronized (mLock) {
+			this.mMaxBatchAge = age;
+			mLock.notifyAll();
+		}
+	}
+
+	/**
+	 * Returns the maximum age of a batch.
+	 *
+	 * @return Maximum batch age in milliseconds.
+	 */
+	public long getMaxBatchAge() {
+		synchronized (mLock) {
+			return mMaxBatchAge;
+		}
+	}
+
+	/**
+	 * Specifies the delays between attempts to post batches after failures. The delay starts at the
+	 * initial value and doubles after each consecutive failure up to the maximum value.
+	 *
+	 * @param initialBackoff The delay after the first failure in milliseconds.
+	 * @param maxBackoff     The maximum delay in milliseconds.
+	 * @see #DEFAULT_INITIAL_BACKOFF
+	 * @see #DEFAULT_MAX_BACKOFF
+	 */
+	public void setBackoff(@IntRange(from = 0) long initialBackoff, @IntRange(from = 0) long maxBackoff) {
+		if (initialBackoff > maxBackoff) throw new IllegalArgumentException("Initial backoff must not exceed max backoff.");
+		synchronized (mLock) {
+			this.mInitialBackoff = initialBackoff;
+			this.mMaxBackoff = maxBackoff;
+		}
+	}
+
+	/**
+	 * Specifies the maximum size of the spool directory. The oldest spooled batches are deleted when
+	 * exceeded.
+	 *
+	 * @param size The desired size in bytes.
+	 * @see #DEFAULT_MAX_SPOOL_SIZE
+	 */
+	public void setMaxSpoolSize(@IntRange(from = 0) long size) {
+		this.mMaxSpoolSize = size;
+	}
+
+	/**
+	 * Returns the count of batches that have been successfully posted to the collector.
+	 *
+	 * @return Posted batches count.
+	 */
+	public long getPostedBatchCount() {
+		synchronized (mLock) {
+			return mPostedBatchCount;
+		}
+	}
+
+	/**
+	 * Returns the count of records that have been posted to the collector directly, without being
+	 * spooled first.
+	 *
+	 * @return Posted records count.
+	 */
+	public long getPostedRecordCount() {
+		synchronized (mLock) {
+			return mPostedRecordCount;
+		}
+	}
+
+	/**
+	 * Returns the count of records dropped because all batch buffers were in use.
+	 *
+	 * @return Dropped records count.
+	 */
+	public long getDroppedRecordCount() {
+		synchronized (mLock) {
+			return mDroppedRecordCount;
+		}
+	}
+
+	/**
+	 * Lists batches that are currently spooled.
+	 *
+	 * @return Spooled batch files ordered from the oldest to the newest one.
+	 */
+	@NonNull
+	public File[] listSpooled() {
+		final File[] files = mSpoolDirectory.listFiles(new FileFilter() {
+
+			/**
+			 */
+			@Override
+			public boolean accept(File file) {
+				return parseSpoolSequence(file.getName()) >= 0;
+			}
+		});
+		if (files == null) {
+			return new File[0];
+		}
+		Arrays.sort(files, SPOOL_ORDER);
+		return files;
+	}
+
+	/**
+	 * Parses sequence of a spooled batch from the specified file name.
+	 *
+	 * @return Parsed sequence or {@code -1} if the name is not a name of a spooled batch.
+	 */
+	private static long parseSpoolSequence(String fileName) {
+		if (!fileName.startsWith(SPOOL_PREFIX) || !fileName.endsWith(SPOOL_EXTENSION)) {
+			return -1;
+		}
+		final int end = fileName.length() - SPOOL_EXTENSION.length();
+		if (end - SPOOL_PREFIX.length() != 19) {
+			return -1;
+		}
+		long sequence = 0;
+		for (int i = SPOOL_PREFIX.length(); i < end; i++) {
+			final char c = fileName.charAt(i);
+			if (c < '0' || c > '9') return -1;
+			sequence = sequence * 10 + (c - '0');
+		}
+		return sequence;
+	}
+
+	/**
+	 */
+	@Override
+	public void write(@Logger.Level int level, @NonNull String tag, @NonNull CharSequence msg, int start, int end) {
+		final long time = System.currentTimeMillis();
+		final int length = Utf8.decimalLength(time) + 3 + Utf8.encodedLength(tag, 0, tag.length()) + 2 + Utf8.encodedLength(msg, start, end) + 1;
+		synchronized (mLock) {
+			if (mClosed) return;
+			Batch batch = mCurrentBatch;
+			if (batch != null && batch.buffer.remaining() < length) {
+				sealCurrentBatch();
+				batch = null;
+			}
+			if (batch == null) {
+				batch = mFreeBatches.poll();
+				if (batch == null) {
+					this.mDroppedRecordCount++;
+					return;
+				}
+				batch.firstTime = time;
+				this.mCurrentBatch = batch;
+				mLock.notifyAll();
+			}
+			final ByteBuffer buffer = batch.buffer;
+			// Always keep space for the terminating new line character.
+			buffer.limit(buffer.capacity() - 1);
+			Utf8.encodeDecimal(time, buffer);
+			buffer.put((byte) ' ');
+			buffer.put(level >= 0 && level < LEVEL_CHARS.length ? LEVEL_CHARS[level] : (byte) '?');
+			buffer.put((byte) '/');
+			if (Utf8.encode(tag, 0, tag.length(), buffer) == tag.length() && buffer.remaining() >= 2) {
+				buffer.put((byte) ':');
+				buffer.put((byte) ' ');
+				Utf8.encode(msg, start, end, buffer);
+			}
+			buffer.limit(buffer.capacity());
+			buffer.put((byte) '\n');
+			batch.recordCount++;
+			if (!buffer.hasRemaining()) sealCurrentBatch();
+		}
+	}
+
+	/**
+	 * Seals the current batch, if any, so it is posted by the shipping thread.
+	 */
+	private void sealCurrentBatch() {
+		if (mCurrentBatch != null) {
+			mSealedBatches.add(mCurrentBatch);
+			this.mCurrentBatch = null;
+			this.mSealedCount++;
+			mLock.notifyAll();
+		}
+	}
+
+	/**
+	 * Compresses and posts the sealed batches until this sink is closed.
+	 */
+	private void ship() {
+		while (true) {
+			Batch batch = null;
+			synchronized (mLock) {
+				while (true) {
+					final long now = System.currentTimeMillis();
+					if (!mSealedBatches.isEmpty()) {
+						batch = mSealedBatches.poll();
+						break;
+					}
+					long timeout = 0;
+					if (mCurrentBatch != null) {
+						final long age = now - mCurrentBatch.firstTime;
+						if (age >= mMaxBatchAge) {
+							sealCurrentBatch();
+							continue;
+						}
+						timeout = mMaxBatchAge - age;
+					}
+					if (mClosed) {
+						return;
+					}
+					if (mSpooled) {
+						if (now >= mNextAttemptTime) break;
+						timeout = timeout == 0 ? mNextAttemptTime - now : Math.min(timeout, mNextAttemptTime - now);
+					}
+					try {
+						mLock.wait(timeout);
+					} catch (InterruptedException e) {
+						// Continue until closed.
+					}
+				}
+			}
+			int result = RESULT_REJECTED;
+			try {
+				if (batch == null) {
+					postSpooled();
+					continue;
+				}
+				compress(batch);
+				result = isBackingOff() ? RESULT_RETRY : post();
+				if (result == RESULT_RETRY) {
+					spool();
+				}
+				release(batch, result);
+				batch = null;
+				if (result == RESULT_SUCCESS) {
+					postSpooled();
+				}
+			} catch (RuntimeException e) {
+				// Unexpected failure must not stop the shipping thread, so flush() and close() return.
+				logWarning("Failed to ship batch.", e);
+				updateBackoff(RESULT_RETRY);
+			} finally {
+				if (batch != null) release(batch, result);
+			}
+		}
+	}
+
+	/**
+	 * Returns the given handled <var>batch</var> into the pool of free batches and notifies threads
+	 * waiting for the batch to be handled.
+	 */
+	private void release(Batch batch, int result) {
+		synchronized (mLock) {
+			if (result == RESULT_SUCCESS) {
+				this.mPostedBatchCount++;
+				this.mPostedRecordCount += batch.recordCount;
+			}
+			batch.clear();
+			mFreeBatches.add(batch);
+			this.mHandledCount++;
+			mLock.notifyAll();
+		}
+	}
+
+	/**
+	 * Checks whether posting of batches is currently delayed due to the backoff.
+	 */
+	private boolean isBackingOff() {
+		synchronized (mLock) {
+			return System.currentTimeMillis() < mNextAttemptTime;
+		}
+	}
+
+	/**
+	 * Compresses content of the given <var>batch</var> into the compressed buffer in GZIP format.
+	 */
+	private void compress(Batch batch) {
+		final byte[] data = batch.buffer.array();
+		final int length = batch.buffer.position();
+		mChecksum.reset();
+		mChecksum.update(data, 0, length);
+		mDeflater.reset();
+		mDeflater.setInput(data, 0, length);
+		mDeflater.finish();
+		System.arraycopy(GZIP_HEADER, 0, mCompressed, 0, GZIP_HEADER.length);
+		int position = GZIP_HEADER.length;
+		while (!mDeflater.finished()) {
+			if (position == mCompressed.length) {
+				growCompressed(mCompressed.length * 2);
+			}
+			position += mDeflater.deflate(mCompressed, position, mCompressed.length - position);
+		}
+		if (mCompressed.length - position < 8) {
+			growCompressed(position + 8);
+		}
+		writeIntLittleEndian((int) mChecksum.getValue(), mCompressed, position);
+		writeIntLittleEndian(length, mCompressed, position + 4);
+		this.mCompressedLength = position + 8;
+	}
+
+	/**
+	 * Grows the buffer for the compressed batch to the specified <var>size</var>, keeping its content.
+	 */
+	private void growCompressed(int size) {
+		final byte[] compressed = new byte[size];
+		System.arraycopy(mCompressed, 0, compressed, 0, mCompressed.length);
+		this.mCompressed = compressed;
+	}
+
+	/**
+	 * Writes the specified <var>value</var> into the given array in little endian byte order.
+	 */
+	private static void writeIntLittleEndian(int value, byte[] bytes, int offset) {
+		bytes[offset] = (byte) value;
+		bytes[offset + 1] = (byte) (value >> 8);
+		bytes[offset + 2] = (byte) (value >> 16);
+		bytes[offset + 3] = (byte) (value >> 24);
+	}
+
+	/**
+	 * Posts the compressed batch to the collector and updates the backoff according to the result.
+	 *
+	 * @return One of {@link #RESULT_SUCCESS}, {@link #RESULT_RETRY} or {@link #RESULT_REJECTED}.
+	 */
+	private int post() {
+		int result;
+		try {
+			final HttpURLConnection connection = (HttpURLConnection) mUrl.openConnection();
+			try {
+				connection.setRequestMethod("POST");
+				connection.setConnectTimeout(TIMEOUT);
+				connection.setReadTimeout(TIMEOUT);
+				connection.setDoOutput(true);
+				connection.setFixedLengthStreamingMode(mCompressedLength);
+				connection.setRequestProperty("Content-Type", "text/plain; charset=utf-8");
+				connection.setRequestProperty("Content-Encoding", "gzip");
+				final OutputStream output = connection.getOutputStream();
+				try {
+					output.write(mCompressed, 0, mCompressedLength);
+				} finally {
+					output.close();
+				}
+				final int code = connection.getResponseCode();
+				discardResponse(connection, code);
+				if (code >= 200 && code < 300) {
+					result = RESULT_SUCCESS;
+				} else if (code >= 400 && code < 500 && code != 408 && code != 429) {
+					logWarning("Batch rejected by collector with code(" + code + ").", null);
+					result = RESULT_REJECTED;
+				} else {
+					result = RESULT_RETRY;
+				}
+			} finally {
+				connection.disconnect();
+			}
+		} catch (IOException e) {
+			result = RESULT_RETRY;
+		}
+		updateBackoff(result);
+		return result;
+	}
+
+	/**
+	 * Updates the backoff according to the specified result of an attempt to post a batch.
+	 */
+	private void updateBackoff(int result) {
+		synchronized (mLock) {
+			if (result == RESULT_RETRY) {
+				final long backoff = mInitialBackoff << Math.min(mFailureCount, 30);
+				this.mNextAttemptTime = System.currentTimeMillis() + (backoff < 0 ? mMaxBackoff : Math.min(backoff, mMaxBackoff));
+				this.mFailureCount++;
+			} else {
+				this.mFailureCount = 0;
+				this.mNextAttemptTime = 0;
+			}
+		}
+	}
+
+	/**
+	 * Logs the specified warning of the shipping thread via {@link Log#w(String, String, Throwable)}.
+	 *
+	 * @param message The warning message.
+	 * @param error   The error causing the warning, if any.
+	 */
+	void logWarning(String message, Throwable error) {
+		Log.w(TAG, message, error);
+	}
+
+	/**
+	 * Reads and closes the response body of the given <var>connection</var>, so the connection may
+	 * be reused.
+	 */
+	private static void discardResponse(HttpURLConnection connection, int code) {
+		try {
+			final InputStream input = code >= 400 ? connection.getErrorStream() : connection.getInputStream();
+			if (input == null) {
+				return;
+			}
+			try {
+				final byte[] buffer = new byte[256];
+				while (input.read(buffer) != -1) {
+					// Discard the response.
+				}
+			} finally {
+				input.close();
+			}
+		} catch (IOException ignored) {
+			// Response is not needed.
+		}
+	}
+
+	/**
+	 * Writes the compressed batch into a new file in the spool directory and deletes the oldest
+	 * spooled batches if the spool exceeds its maximum size.
+	 */
+	private void spool() {
+		final File file;
+		synchronized (mLock) {
+			file = new File(mSpoolDirectory, SPOOL_PREFIX + String.format(Locale.US, "%019d", mSpoolSequence++) + SPOOL_EXTENSION);
+		}
+		try {
+			final OutputStream output = new FileOutputStream(file);
+			try {
+				output.write(mCompressed, 0, mCompressedLength);
+			} finally {
+				output.close();
+			}
+		} catch (IOException e) {
+			logWarning("Failed to spool batch(" + file + ").", e);
+			if (file.exists() && !file.delete()) {
+				logWarning("Failed to delete spool file(" + file + ").", null);
+			}
+			return;
+		}
+		final File[] spooled = listSpooled();
+		long size = 0;
+		for (final File spooledFile : spooled) {
+			size += spooledFile.length();
+		}
+		for (int i = 0; i < spooled.length && size > mMaxSpoolSize; i++) {
+			final long length = spooled[i].length();
+			if (spooled[i].delete()) size -= length;
+		}
+		updateSpooled();
+	}
+
+	/**
+	 * Posts the spooled batches from the oldest one until all are posted or posting fails.
+	 */
+	private void postSpooled() {
+		for (final File file : listSpooled()) {
+			if (isBackingOff()) {
+				break;
+			}
+			if (mHandledSpooled.contains(file)) {
+				continue;
+			}
+			if (!read(file)) {
+				// Unreadable batch would block the spool forever.
+				deleteSpooled(file);
+				continue;
+			}
+			final int result = post();
+			if (result == RESULT_RETRY) {
+				break;
+			}
+			if (result == RESULT_SUCCESS) {
+				synchronized (mLock) {
+					this.mPostedBatchCount++;
+				}
+			}
+			deleteSpooled(file);
+		}
+		updateSpooled();
+	}
+
+	/**
+	 * Deletes the given handled spooled <var>file</var>. If the file cannot be deleted, it is
+	 * remembered, so it is not posted again.
+	 */
+	private void deleteSpooled(File file) {
+		if (!file.delete()) {
+			logWarning("Failed to delete spool file(" + file + ").", null);
+			mHandledSpooled.add(file);
+		}
+	}
+
+	/**
+	 * Updates the flag indicating whether there are spooled batches that have not been handled yet.
+	 */
+	private void updateSpooled() {
+		int count = 0;
+		for (final File file : listSpooled()) {
+			if (!mHandledSpooled.contains(file)) count++;
+		}
+		synchronized (mLock) {
+			this.mSpooled = count > 0;
+		}
+	}
+
+	/**
+	 * Reads content of the given spooled <var>file</var> into the compressed buffer.
+	 *
+	 * @return {@code True} if the file has been read, {@code false} otherwise.
+	 */
+	private boolean read(File file) {
+		try {
+			final InputStream input = new FileInputStream(file);
+			try {
+				final int length = (int) file.length();
+				if (mCompressed.length < length) {
+					this.mCompressed = new byte[length];
+				}
+				int position = 0;
+				int count;
+				while (position < length && (count = input.read(mCompressed, position, length - position)) != -1) {
+					position += count;
+				}
+				this.mCompressedLength = position;
+				return true;
+			} finally {
+				input.close();
+			}
+		} catch (IOException e) {
+			logWarning("Failed to read spool file(" + file + ").", e);
+			return false;
+		}
+	}
+
+	/**
+	 * Seals the current batch and waits until all sealed batches are posted or spooled.
+	 */
+	@Override
+	public void flush() {
+		synchronized (mLock) {
+			sealCurrentBatch();
+			final long target = mSealedCount;
+			boolean interrupted = false;
+			while (mHandledCount < target && mThread.isAlive()) {
+				try {
+					mLock.wait();
+				} catch (InterruptedException e) {
+					interrupted = true;
+				}
+			}
+			if (interrupted) Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Flushes this sink and stops its background thread. Records written after this call are
+	 * ignored. Spooled batches remain in the spool directory and are posted by a next sink created
+	 * for the same directory.
+	 */
+	@Override
+	public void close() {
+		flush();
+		synchronized (mLock) {
+			this.mClosed = true;
+			mLock.notifyAll();
+		}
+		boolean interrupted = false;
+		while (mThread.isAlive() && Thread.currentThread() != mThread) {
+			try {
+				mThread.join();
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		if (interrupted) Thread.currentThread().interrupt();
+		mDeflater.end();
+	}
+
+	/**
+	 * Inner classes ===============================================================================
+	 */
+
+	/**
+	 * Reusable buffer holding a single batch of encoded records.
+	 */
+	private static final class Batch {
+
+		/**
+		 * Buffer into which are encoded the records.
+		 */
+		final ByteBuffer buffer;
+
+		/**
+		 * Count of records in the batch.
+		 */
+		int recordCount;
+
+		/**
+		 * Time of the first record in the batch.
+		 */
+		long firstTime;
+
+		/**
+		 * Creates a new instance of Batch with buffer of the specified <var>capacity</var>.
+		 */
+		Batch(int capacity) {
+			this.buffer = ByteBuffer.allocate(capacity);
+		}
+
+		/**
+		 * Clears this batch, so it may be reused.
+		 */
+		void clear() {
+			buffer.clear();
+			this.recordCount = 0;
+		}
+	}
+}
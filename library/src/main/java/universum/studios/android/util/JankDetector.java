@@ -0,0 +1,598 @@
+/*
+ * =================================================================================================
+ *                             Copyright (C) 2017 Universum Studios
+ * =================================================================================================
+ *         Licensed under the Apache License, Version 2.0 or later (further "License" only).
+ * -------------------------------------------------------------------------------------------------
+ * You may use this file only in compliance with the License. More details and copy of this License
+ * you may obtain at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * You can redistribute, modify or publish any part of the code written within this file but as it
+ * is described in the License, the software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES or CONDITIONS OF ANY KIND.
+ *
+ * See the License for the specific language governing permissions and limitations under the License.
+ * =================================================================================================
+ */
+package universum.studios.android.util;
+
+import android.os.Looper;
+import android.os.SystemClock;
+import android.support.annotation.IntRange;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.Log;
+import android.util.Printer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Watchdog which detects slow messages dispatched by a {@link Looper}, by default by the main one,
+ * and reports them via a {@link Logger}.
+ * <p>
+ * The detector hooks the looper via {@link Looper#setMessageLogging(Printer)}, so it replaces any
+ * printer that has been set before. The looper prints a line before and after dispatching of each
+ * message, the detector only takes time for each of them and keeps reference to the dispatch line,
+ * so nothing is allocated for messages that are fast enough. A message that takes at least the
+ * {@link #getThreshold() threshold} is reported at the {@link #setLevel(int) level} of the detector
+ * together with the class name of its target handler, its callback and its what code, parsed from
+ * the dispatch line.
+ * <p>
+ * If {@link #setStackSampleRate(int) stack sampling} is enabled, a background thread watches the
+ * running message and once it exceeds the threshold, the thread captures stack of the looper's
+ * thread, which is then included in the report, so it shows what the message has been doing while
+ * being slow. While the looper is idle the thread is parked and it is woken up only when the looper
+ * starts dispatching of a next message.
+ * <p>
+ * Counts and durations of slow messages are aggregated per handler class and may be obtained as
+ * list of offenders ranked by the count via {@link #getOffenders()}.
+ *
+ * @author Martin Albedinsky
+ */
+public class JankDetector implements Printer {
+
+	/**
+	 * Constants ===================================================================================
+	 */
+
+	/**
+	 * Log TAG.
+	 */
+	// private static final String TAG = "JankDetector";
+
+	/**
+	 * Tag used for reports of slow messages.
+	 */
+	public static final String REPORT_TAG = "Jank";
+
+	/**
+	 * Default threshold in milliseconds from which is a message considered slow.
+	 */
+	public static final long DEFAULT_THRESHOLD = 100;
+
+	/**
+	 * Name of the watchdog thread.
+	 */
+	private static final String THREAD_NAME = "JankDetector";
+
+	/**
+	 * Prefix of the line printed by looper before dispatching of a message.
+	 */
+	private static final String DISPATCH_PREFIX = ">>>>> Dispatching to ";
+
+	/**
+	 * Interface ===================================================================================
+	 */
+
+	/**
+	 * Static members ==============================================================================
+	 */
+
+	/**
+	 * Comparator ranking offenders by their count and then by their total duration.
+	 */
+	private static final Comparator<Offender> OFFENDER_RANK = new Comparator<Offender>() {
+
+		/**
+		 */
+		@Override
+		public int compare(Offender first, Offender second) {
+			if (first.mCount != second.mCount) {
+				return first.mCount > second.mCount ? -1 : 1;
+			}
+			if (first.mTotalDuration != second.mTotalDuration) {
+				return first.mTotalDuration > second.mTotalDuration ? -1 : 1;
+			}
+			return first.mHandlerClass.compareTo(second.mHandlerClass);
+		}
+	};
+
+	/**
+	 * Members =====================================================================================
+	 */
+
+	/**
+	 * Logger used to report slow messages.
+	 */
+	private final Logger mLogger;
+
+	/**
+	 * Threshold in milliseconds from which is a message considered slow.
+	 */
+	private final long mThreshold;
+
+	/**
+	 * Lock guarding the offenders and the watchdog thread.
+	 */
+	private final Object mLock = new Object();
+
+	/**
+	 * Offenders mapped to their handler classes.
+	 */
+	private final Map<String, Offender> mOffenders = new HashMap<>();
+
+	/**
+	 * Level at which are slow messages reported.
+	 */
+	private volatile int mLevel = Log.WARN;
+
+	/**
+	 * Rate at which are captured stacks of slow messages, {@code 0} if disabled.
+	 */
+	private volatile int mStackSampleRate;
+
+	/**
+	 * Looper hooked by this detector, if started.
+	 */
+	private Looper mLooper;
+
+	/**
+	 * Watchdog thread capturing stacks of slow messages, if running.
+	 */
+	private volatile Thread mWatchdog;
+
+	/**
+	 * Line printed by looper before dispatching of the current message.
+	 */
+	private String mDispatchLine;
+
+	/**
+	 * Time when dispatching of the current message has started.
+	 */
+	private volatile long mDispatchStart;
+
+	/**
+	 * Sequence of the dispatched messages. Odd while a message is being dispatched.
+	 */
+	private volatile long mDispatchSequence;
+
+	/**
+	 * Stack captured by the watchdog for the message identified by {@link #mSampledSequence}.
+	 */
+	private StackTraceElement[] mSampledStack;
+
+	/**
+	 * Sequence of the message for which has been captured {@link #mSampledStack}.
+	 */
+	private volatile long mSampledSequence;
+
+	/**
+	 * Constructors ================================================================================
+	 */
+
+	/**
+	 * Same as {@link #JankDetector(Logger, long)} with {@link #DEFAULT_THRESHOLD}.
+	 */
+	public JankDetector(@NonNull Logger logger) {
+		this(logger, DEFAULT_THRESHOLD);
+	}
+
+	/**
+	 * Creates a new instance of JankDetector which will report slow messages via the given
+	 * <var>logger</var>.
+	 *
+	 * @param logger    The logger used to report slow messages.
+	 * @param threshold Threshold in milliseconds from which is a message considered slow.
+	 */
+	public JankDetector(@NonNull Logger logger, @IntRange(from = 1) long threshold) {
+		if (threshold <= 0) throw new IllegalArgumentException("Threshold must be positive.");
+		this.mLogger = logger;
+		this.mThreshold = threshold;
+	}
+
+	/**
+	 * Methods =====================================================================================
+	 */
+
+	/**
+	 * Returns the threshold from which is a message considered slow.
+	 *
+	 * @return Threshold in milliseconds.
+	 */
+	public final long getThreshold() {
+		return mThreshold;
+	}
+
+	/**
+	 * Specifies the level at which are slow messages reported.
+	 *
+	 * @param level The desired level. {@link Log#WARN} by default.
+	 */
+	public void setLevel(@Logger.Level int level) {
+		this.mLevel = level;
+	}
+
+	/**
+	 * Returns the level at which are slow messages reported.
+	 *
+	 * @return Reporting level.
+	 */
+	@Logger.Level
+	public int getLevel() {
+		return mLevel;
+	}
+
+	/**
+	 * Specifies the rate at which are captured stacks of slow messages. Capturing a stack suspends
+	 * the looper's thread for a moment, so a rate greater than {@code 1} limits this overhead to
+	 * each n-th slow message. Should be specified before this detector is started.
+	 *
+	 * @param rate The desired rate. {@code 1} to capture stack of each slow message, {@code 0} to
+	 *             disable capturing, which is the default.
+	 */
+	public void setStackSampleRate(@IntRange(from = 0) int rate) {
+		if (rate < 0) throw new IllegalArgumentException("Sample rate must not be negative.");
+		this.mStackSampleRate = rate;
+	}
+
+	/**
+	 * Returns the rate at which are captured stacks of slow messages.
+	 *
+	 * @return Stack sample rate, {@code 0} if disabled.
+	 */
+	public int getStackSampleRate() {
+		return mStackSampleRate;
+	}
+
+	/**
+	 * Same as {@link #start(Looper)} for the main looper.
+	 */
+	public void start() {
+		start(Looper.getMainLooper());
+	}
+
+	/**
+	 * Starts detection of slow messages dispatched by the given <var>looper</var>. Does nothing if
+	 * this detector has been already started.
+	 *
+	 * @param looper The looper of which messages to watch.
+	 * @see #stop()
+	 */
+	public void start(@NonNull Looper looper) {
+		synchronized (mLock) {
+			if (mLooper != null) return;
+			this.mLooper = looper;
+		}
+		looper.setMessageLogging(this);
+		if (mStackSampleRate > 0) startWatchdog(looper.getThread());
+	}
+
+	/**
+	 * Stops detection of slow messages started via {@link #start(Looper)}, removing the printer from
+	 * the looper.
+	 */
+	public void stop() {
+		final Looper looper;
+		synchronized (mLock) {
+			looper = mLooper;
+			this.mLooper = null;
+		}
+		if (looper != null) looper.setMessageLogging(null);
+		stopWatchdog();
+	}
+
+	/**
+	 * Starts the watchdog thread which captures stack of the given looper's <var>thread</var> while
+	 * it dispatches a slow message.
+	 */
+	void startWatchdog(@Nullable final Thread thread) {
+		if (thread == null) return;
+		synchronized (mLock) {
+			if (mWatchdog != null) return;
+			this.mWatchdog = new Thread(new Runnable() {
+
+				/**
+				 */
+				@Override
+				public void run() {
+					watch(thread);
+				}
+			}, THREAD_NAME);
+			mWatchdog.setDaemon(true);
+			mWatchdog.start();
+		}
+	}
+
+	/**
+	 * Stops the watchdog thread, if running.
+	 */
+	void stopWatchdog() {
+		final Thread watchdog;
+		synchronized (mLock) {
+			watchdog = mWatchdog;
+			this.mWatchdog = null;
+		}
+		if (watchdog != null) LockSupport.unpark(watchdog);
+	}
+
+	/**
+	 * Body of the watchdog thread. Waits until the current message exceeds the threshold and then
+	 * captures stack of the given looper's <var>thread</var>, if the message is sampled. Parks
+	 * without timeout while there is no message to watch, until unparked by {@link #println(String)}.
+	 */
+	private void watch(Thread thread) {
+		final Thread watchdog = Thread.currentThread();
+		long lastSequence = 0;
+		int slowCount = 0;
+		while (mWatchdog == watchdog) {
+			long wait = 0;
+			final long sequence = mDispatchSequence;
+			if ((sequence & 1) != 0 && sequence != lastSequence) {
+				final long elapsed = uptimeMillis() - mDispatchStart;
+				if (elapsed >= mThreshold) {
+					lastSequence = sequence;
+					final int rate = mStackSampleRate;
+					if (rate > 0 && slowCount++ % rate == 0) {
+						final StackTraceElement[] stack = thread.getStackTrace();
+						// Stack is valid only if the message is still being dispatched.
+						if (mDispatchSequence == sequence) {
+							this.mSampledStack = stack;
+							this.mSampledSequence = sequence;
+						}
+					}
+				} else {
+					wait = mThreshold - elapsed;
+				}
+			}
+			if (wait > 0) {
+				LockSupport.parkNanos(this, wait * 1000000L);
+			} else {
+				// No message to watch, so wait until the looper starts dispatching of a next one.
+				LockSupport.park(this);
+			}
+			if (Thread.interrupted()) {
+				// Watchdog is stopped.
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Returns the current time in milliseconds used to measure the messages.
+	 *
+	 * @return Uptime in milliseconds.
+	 */
+	long uptimeMillis() {
+		return SystemClock.uptimeMillis();
+	}
+
+	/**
+	 * Receives lines printed by the looper before and after dispatching of each message.
+	 */
+	@Override
+	public void println(@NonNull String line) {
+		if (line.length() == 0) {
+			return;
+		}
+		final char first = line.charAt(0);
+		if (first == '>') {
+			this.mDispatchLine = line;
+			this.mDispatchStart = uptimeMillis();
+			this.mDispatchSequence++;
+			final Thread watchdog = mWatchdog;
+			if (watchdog != null) LockSupport.unpark(watchdog);
+		} else if (first == '<' && mDispatchLine != null) {
+			final long duration = uptimeMillis() - mDispatchStart;
+			final long sequence = mDispatchSequence;
+			this.mDispatchSequence = sequence + 1;
+			if (duration >= mThreshold) {
+				final StackTraceElement[] stack = mSampledSequence == sequence ? mSampledStack : null;
+				onSlowMessage(mDispatchLine, duration, stack);
+			}
+			this.mDispatchLine = null;
+		}
+	}
+
+	/**
+	 * Reports the slow message identified by the given dispatch <var>line</var> and adds it to the
+	 * offenders.
+	 */
+	private void onSlowMessage(String line, long duration, StackTraceElement[] stack) {
+		// Line format: ">>>>> Dispatching to {target} {callback}: {what}", where the target
+		// is printed as "Handler ({class name}) {{identity hash}}".
+		String handler = line.startsWith(DISPATCH_PREFIX) ? line.substring(DISPATCH_PREFIX.length()) : line;
+		String callback = null;
+		String what = null;
+		final int whatIndex = handler.lastIndexOf(": ");
+		if (whatIndex >= 0) {
+			what = handler.substring(whatIndex + 2);
+			handler = handler.substring(0, whatIndex);
+		}
+		final int targetEnd = handler.indexOf("} ");
+		if (targetEnd >= 0) {
+			callback = stripIdentity(handler.substring(targetEnd + 2));
+			handler = handler.substring(0, targetEnd + 1);
+		}
+		final int classStart = handler.indexOf('(');
+		final int classEnd = handler.lastIndexOf(')');
+		if (classStart >= 0 && classEnd > classStart) {
+			handler = handler.substring(classStart + 1, classEnd);
+		}
+		synchronized (mLock) {
+			Offender offender = mOffenders.get(handler);
+			if (offender == null) {
+				offender = new Offender(handler);
+				mOffenders.put(handler, offender);
+			}
+			offender.add(duration);
+		}
+		final int level = mLevel;
+		if (!mLogger.isLoggable(REPORT_TAG, level)) {
+			return;
+		}
+		final StringBuilder report = new StringBuilder(128);
+		report.append("Slow message (").append(duration).append(" ms): handler=").append(handler);
+		if (callback != null && !"null".equals(callback)) report.append(", callback=").append(callback);
+		if (what != null) report.append(", what=").append(what);
+		if (stack != null) {
+			for (final StackTraceElement element : stack) {
+				report.append("\n\tat ").append(element);
+			}
+		}
+		mLogger.log(level, REPORT_TAG, report.toString());
+	}
+
+	/**
+	 * Strips the identity hash, like {@code @1a2b3c}, from the given default object string.
+	 */
+	private static String stripIdentity(String value) {
+		final int index = value.lastIndexOf('@');
+		return index > 0 ? value.substring(0, index) : value;
+	}
+
+	/**
+	 * Returns offenders, that is handler classes of which messages have been slow, ranked by count
+	 * of their slow messages and then by their total duration.
+	 *
+	 * @return Snapshot of the offenders.
+	 */
+	@NonNull
+	public List<Offender> getOffenders() {
+		final List<Offender> offenders;
+		synchronized (mLock) {
+			offenders = new ArrayList<>(mOffenders.size());
+			for (final Offender offender : mOffenders.values()) {
+				offenders.add(new Offender(offender));
+			}
+		}
+		Collections.sort(offenders, OFFENDER_RANK);
+		return offenders;
+	}
+
+	/**
+	 * Clears all offenders collected so far.
+	 */
+	public void resetOffenders() {
+		synchronized (mLock) {
+			mOffenders.clear();
+		}
+	}
+
+	/**
+	 * Inner classes ===============================================================================
+	 */
+
+	/**
+	 * Aggregated slow messages of a single handler class.
+	 */
+	public static final class Offender {
+
+		/**
+		 * Class name of the handler.
+		 */
+		final String mHandlerClass;
+
+		/**
+		 * Count of slow messages.
+		 */
+		int mCount;
+
+		/**
+		 * Total duration of slow messages in milliseconds.
+		 */
+		long mTotalDuration;
+
+		/**
+		 * Maximum duration of a slow message in milliseconds.
+		 */
+		long mMaxDuration;
+
+		/**
+		 * Creates a new instance of Offender for the specified <var>handlerClass</var>.
+		 */
+		Offender(String handlerClass) {
+			this.mHandlerClass = handlerClass;
+		}
+
+		/**
+		 * Creates a new instance of Offender as copy of the given <var>other</var> one.
+		 */
+		Offender(Offender other) {
+			this.mHandlerClass = other.mHandlerClass;
+			this.mCount = other.mCount;
+			this.mTotalDuration = other.mTotalDuration;
+			this.mMaxDuration = other.mMaxDuration;
+		}
+
+		/**
+		 * Adds a slow message with the specified <var>duration</var>.
+		 */
+		void add(long duration) {
+			this.mCount++;
+			this.mTotalDuration += duration;
+			if (duration > mMaxDuration) this.mMaxDuration = duration;
+		}
+
+		/**
+		 * Returns class name of the handler of which messages have been slow.
+		 *
+		 * @return Handler class name.
+		 */
+		@NonNull
+		public String getHandlerClass() {
+			return mHandlerClass;
+		}
+
+		/**
+		 * Returns count of slow messages of the handler.
+		 *
+		 * @return Slow message count.
+		 */
+		public int getCount() {
+			return mCount;
+		}
+
+		/**
+		 * Returns total duration of slow messages of the handler.
+		 *
+		 * @return Total duration in milliseconds.
+		 */
+		public long getTotalDuration() {
+			return mTotalDuration;
+		}
+
+		/**
+		 * Returns duration of the slowest message of the handler.
+		 *
+		 * @return Maximum duration in milliseconds.
+		 */
+		public long getMaxDuration() {
+			return mMaxDuration;
+		}
+
+		/**
+		 */
+		@Override
+		public String toString() {
+			return mHandlerClass + ": count=" + mCount + ", total=" + mTotalDuration + " ms, max=" + mMaxDuration + " ms";
+		}
+	}
+}
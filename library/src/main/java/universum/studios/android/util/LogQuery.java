@@ -0,0 +1,402 @@
+/*
+ * =================================================================================================
+ *                             Copyright (C) 2017 Universum Studios
+ * =================================================================================================
+ *         Licensed under the Apache License, Version 2.0 or later (further "License" only).
+ * -------------------------------------------------------------------------------------------------
+ * You may use this file only in compliance with the License. More details and copy of this License
+ * you may obtain at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * You can redistribute, modify or publish any part of the code written within this file but as it
+ * is described in the License, the software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES or CONDITIONS OF ANY KIND.
+ *
+ * See the License for the specific language governing permissions and limitations under the License.
+ * =================================================================================================
+ */
+package universum.studios.android.util;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Query which reads records of a specific time window and/or tag from segments written by
+ * {@link MappedFileLogger}.
+ * <p>
+ * The query uses sparse indexes written alongside the segments to find blocks of records that may
+ * contain matching records and reads only these blocks via positional reads of {@link FileChannel},
+ * so the count of read bytes is proportional to the size of the result and not to the size of the
+ * segments. Only content of a segment that is not covered by its index yet, like the last block of
+ * the current segment, is read sequentially. Compressed segments cannot be read positionally, so
+ * their content is decompressed up to the end of the last matching block, but segments without any
+ * matching block are not opened at all.
+ * <p>
+ * Each matching record is returned as text in the format written by {@link MappedFileLogger},
+ * including stack trace lines if any, without the terminating new line character.
+ *
+ * @author Martin Albedinsky
+ */
+public class LogQuery {
+
+	/**
+	 * Constants ===================================================================================
+	 */
+
+	/**
+	 * Log TAG.
+	 */
+	// private static final String TAG = "LogQuery";
+
+	/**
+	 * Interface ===================================================================================
+	 */
+
+	/**
+	 * Static members ==============================================================================
+	 */
+
+	/**
+	 * Members =====================================================================================
+	 */
+
+	/**
+	 * Logger of which segments to query.
+	 */
+	private final MappedFileLogger mLogger;
+
+	/**
+	 * The lowest time of records to be returned.
+	 */
+	private long mFromTime = Long.MIN_VALUE;
+
+	/**
+	 * The highest time of records to be returned.
+	 */
+	private long mToTime = Long.MAX_VALUE;
+
+	/**
+	 * Tag of records to be returned. {@code Null} to return records with any tag.
+	 */
+	private String mTag;
+
+	/**
+	 * Buffer into which are read the blocks of segments.
+	 */
+	private ByteBuffer mBuffer = ByteBuffer.allocate(SegmentIndex.BLOCK_SIZE);
+
+	/**
+	 * Count of segment bytes read by the last execution.
+	 */
+	private long mBytesRead;
+
+	/**
+	 * Constructors ================================================================================
+	 */
+
+	/**
+	 * Creates a new instance of LogQuery which will query segments of the given <var>logger</var>.
+	 * The query matches all records until restricted.
+	 *
+	 * @param logger The logger of which segments to query.
+	 */
+	public LogQuery(@NonNull MappedFileLogger logger) {
+		this.mLogger = logger;
+	}
+
+	/**
+	 * Methods =====================================================================================
+	 */
+
+	/**
+	 * Restricts this query to records logged within the specified time range.
+	 *
+	 * @param fromTime The lowest time of records in milliseconds, inclusive.
+	 * @param toTime   The highest time of records in milliseconds, inclusive.
+	 * @return This query to allow methods chaining.
+	 */
+	public LogQuery setTimeRange(long fromTime, long toTime) {
+		if (fromTime > toTime) throw new IllegalArgumentException("Time range is empty.");
+		this.mFromTime = fromTime;
+		this.mToTime = toTime;
+		return this;
+	}
+
+	/**
+	 * Restricts this query to records logged with the specified <var>tag</var>.
+	 *
+	 * @param tag The desired tag. May be {@code null} to match records with any tag.
+	 * @return This query to allow methods chaining.
+	 */
+	public LogQuery setTag(@Nullable String tag) {
+		this.mTag = tag;
+		return this;
+	}
+
+	/**
+	 * Executes this query over all segments of the logger that are currently stored on the disk.
+	 *
+	 * @return List with the matching records ordered as they have been logged.
+	 * @throws IOException If reading of some segment or its index fails.
+	 */
+	@NonNull
+	public List<String> execute() throws IOException {
+		this.mBytesRead = 0;
+		final List<String> records = new ArrayList<>();
+		for (final File segment : mLogger.listAllSegments()) {
+			final List<SegmentIndex.Block> blocks = SegmentIndex.read(SegmentIndex.fileFor(segment));
+			if (segment.getName().endsWith(SegmentCompressor.EXTENSION)) {
+				queryCompressed(segment, blocks, records);
+			} else {
+				query(segment, blocks, records);
+			}
+		}
+		return records;
+	}
+
+	/**
+	 * Returns the count of bytes of segments read by the last execution of this query.
+	 *
+	 * @return Count of read bytes.
+	 */
+	public long getBytesRead() {
+		return mBytesRead;
+	}
+
+	/**
+	 * Checks whether the given index <var>block</var> may contain records matching this query.
+	 */
+	private boolean matches(SegmentIndex.Block block) {
+		return block.maxTime >= mFromTime && block.minTime <= mToTime &&
+				(mTag == null || (block.tags & SegmentIndex.tagBit(mTag)) != 0);
+	}
+
+	/**
+	 * Queries the specified uncompressed <var>segment</var> reading only its matching blocks.
+	 */
+	private void query(File segment, List<SegmentIndex.Block> blocks, List<String> records) throws IOException {
+		final RandomAccessFile access = new RandomAccessFile(segment, "r");
+		try {
+			final FileChannel channel = access.getChannel();
+			int indexedEnd = 0;
+			for (final SegmentIndex.Block block : blocks) {
+				indexedEnd = block.end;
+				if (matches(block)) {
+					final ByteBuffer buffer = obtainBuffer(block.end - block.start);
+					int read;
+					while (buffer.hasRemaining() && (read = channel.read(buffer, block.start + buffer.position())) != -1) {
+						this.mBytesRead += read;
+					}
+					collectRecords(buffer, records);
+				}
+			}
+			// Read the content not covered by the index until its end or unused preallocated space.
+			ByteBuffer buffer = obtainBuffer(SegmentIndex.BLOCK_SIZE);
+			int read;
+			while ((read = channel.read(buffer, indexedEnd + buffer.position())) > 0) {
+				this.mBytesRead += read;
+				if (containsZero(buffer, buffer.position() - read)) break;
+				if (!buffer.hasRemaining()) buffer = growBuffer(buffer);
+			}
+			collectRecords(buffer, records);
+		} finally {
+			access.close();
+		}
+	}
+
+	/**
+	 * Queries the specified compressed <var>segment</var> decompressing it up to the end of its
+	 * last matching block.
+	 */
+	private void queryCompressed(File segment, List<SegmentIndex.Block> blocks, List<String> records) throws IOException {
+		int lastMatching = -1;
+		for (int i = 0; i < blocks.size(); i++) {
+			if (matches(blocks.get(i))) lastMatching = i;
+		}
+		final int indexedEnd = blocks.isEmpty() ? 0 : blocks.get(blocks.size() - 1).end;
+		final boolean indexed = indexedEnd >= uncompressedLength(segment);
+		if (lastMatching == -1 && indexed) {
+			return;
+		}
+		final InputStream input = SegmentReader.openSegment(segment);
+		try {
+			long position = 0;
+			for (int i = 0; i <= lastMatching; i++) {
+				final SegmentIndex.Block block = blocks.get(i);
+				if (!matches(block)) {
+					continue;
+				}
+				position += skip(input, block.start - position);
+				final ByteBuffer buffer = obtainBuffer(block.end - block.start);
+				position += read(input, buffer);
+				collectRecords(buffer, records);
+			}
+			if (indexed) {
+				return;
+			}
+			skip(input, indexedEnd - position);
+			ByteBuffer buffer = obtainBuffer(SegmentIndex.BLOCK_SIZE);
+			while (read(input, buffer) > 0 && !buffer.hasRemaining()) {
+				buffer = growBuffer(buffer);
+			}
+			collectRecords(buffer, records);
+		} finally {
+			input.close();
+		}
+	}
+
+	/**
+	 * Returns length of the uncompressed content of the specified compressed <var>segment</var>
+	 * stored in the trailer of the GZIP format modulo {@code 2^32}.
+	 */
+	private static long uncompressedLength(File segment) throws IOException {
+		final RandomAccessFile access = new RandomAccessFile(segment, "r");
+		try {
+			if (access.length() < 4) {
+				return 0;
+			}
+			access.seek(access.length() - 4);
+			final int length = access.readInt();
+			return Integer.reverseBytes(length) & 0xFFFFFFFFL;
+		} finally {
+			access.close();
+		}
+	}
+
+	/**
+	 * Skips the specified count of bytes of the given decompressing <var>input</var>.
+	 */
+	private long skip(InputStream input, long count) throws IOException {
+		long skipped = 0;
+		long current;
+		while (skipped < count && (current = input.skip(count - skipped)) > 0) {
+			skipped += current;
+		}
+		this.mBytesRead += skipped;
+		return skipped;
+	}
+
+	/**
+	 * Reads from the given <var>input</var> into the remaining space of the given <var>buffer</var>.
+	 */
+	private int read(InputStream input, ByteBuffer buffer) throws IOException {
+		int total = 0;
+		int read;
+		while (buffer.hasRemaining() && (read = input.read(buffer.array(), buffer.position(), buffer.remaining())) != -1) {
+			buffer.position(buffer.position() + read);
+			total += read;
+		}
+		this.mBytesRead += total;
+		return total;
+	}
+
+	/**
+	 * Obtains the read buffer cleared and limited to the specified <var>size</var>.
+	 */
+	private ByteBuffer obtainBuffer(int size) {
+		if (mBuffer.capacity() < size) {
+			this.mBuffer = ByteBuffer.allocate(Math.max(size, mBuffer.capacity() * 2));
+		}
+		mBuffer.clear();
+		mBuffer.limit(size);
+		return mBuffer;
+	}
+
+	/**
+	 * Grows the read buffer by one block preserving its content.
+	 */
+	private ByteBuffer growBuffer(ByteBuffer buffer) {
+		if (buffer.capacity() - buffer.limit() < SegmentIndex.BLOCK_SIZE) {
+			final ByteBuffer grown = ByteBuffer.allocate(buffer.capacity() + Math.max(buffer.capacity(), SegmentIndex.BLOCK_SIZE));
+			buffer.flip();
+			grown.put(buffer);
+			this.mBuffer = grown;
+			buffer = grown;
+		}
+		buffer.limit(buffer.position() + SegmentIndex.BLOCK_SIZE);
+		return buffer;
+	}
+
+	/**
+	 * Checks whether the given <var>buffer</var> contains a {@code '\0'} byte between the specified
+	 * <var>start</var> and its position.
+	 */
+	private static boolean containsZero(ByteBuffer buffer, int start) {
+		final byte[] bytes = buffer.array();
+		for (int i = start; i < buffer.position(); i++) {
+			if (bytes[i] == 0) return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Decodes records read into the given <var>buffer</var> and adds the matching ones into the
+	 * given list of <var>records</var>. Decoding stops at the first {@code '\0'} byte.
+	 */
+	private void collectRecords(ByteBuffer buffer, List<String> records) throws IOException {
+		final byte[] bytes = buffer.array();
+		int length = 0;
+		while (length < buffer.position() && bytes[length] != 0) {
+			length++;
+		}
+		final String text = new String(bytes, 0, length, "UTF-8");
+		int recordStart = -1;
+		int lineStart = 0;
+		while (lineStart < text.length()) {
+			int lineEnd = text.indexOf('\n', lineStart);
+			if (lineEnd == -1) lineEnd = text.length();
+			if (isRecordStart(text, lineStart, lineEnd)) {
+				if (recordStart >= 0) collectRecord(text, recordStart, lineStart - 1, records);
+				recordStart = lineStart;
+			}
+			lineStart = lineEnd + 1;
+		}
+		if (recordStart >= 0) collectRecord(text, recordStart, Math.min(lineStart - 1, text.length()), records);
+	}
+
+	/**
+	 * Adds the record between the specified offsets of the given <var>text</var> into the given
+	 * list of <var>records</var> if it matches this query.
+	 */
+	private void collectRecord(String text, int start, int end, List<String> records) {
+		final int timeEnd = text.indexOf(' ', start);
+		final long time = Long.parseLong(text.substring(start, timeEnd));
+		if (time < mFromTime || time > mToTime) {
+			return;
+		}
+		if (mTag != null) {
+			final int tagStart = timeEnd + 3;
+			final int tagEnd = text.indexOf(": ", tagStart);
+			if (tagEnd - tagStart != mTag.length() || !text.startsWith(mTag, tagStart)) {
+				return;
+			}
+		}
+		records.add(text.substring(start, end));
+	}
+
+	/**
+	 * Checks whether the line between the specified offsets of the given <var>text</var> starts
+	 * a record, that is whether it starts with time followed by level and tag.
+	 */
+	private static boolean isRecordStart(String text, int start, int end) {
+		int i = start;
+		while (i < end && text.charAt(i) >= '0' && text.charAt(i) <= '9') {
+			i++;
+		}
+		return i > start && i + 2 < end && text.charAt(i) == ' ' && text.charAt(i + 2) == '/';
+	}
+
+	/**
+	 * Inner classes ===============================================================================
+	 */
+}
@@ -0,0 +1,47 @@
+/*
+ * =================================================================================================
+ *                             Copyright (C) 2017 Universum Studios
+ * =================================================================================================
+ *         Licensed under the Apache License, Version 2.0 or later (further "License" only).
+ * -------------------------------------------------------------------------------------------------
+ * You may use this file only in compliance with the License. More details and copy of this License
+ * you may obtain at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * You can redistribute, modify or publish any part of the code written within this file but as it
+ * is described in the License, the software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES or CONDITIONS OF ANY KIND.
+ *
+ * See the License for the specific language governing permissions and limitations under the License.
+ * =================================================================================================
+ */
+package universum.studios.android.util;
+
+import android.support.annotation.NonNull;
+
+/**
+ * Interface for outputs into which {@link SimpleLogger} writes its log records. Sinks receive
+ * messages as ranges of character sequences, so a logger may pass its reused message builder or
+ * a part of a larger message without creating an intermediate string for it.
+ * <p>
+ * Sinks for the common outputs may be obtained via {@link LogSinks}. Implementations should be
+ * thread safe as a single sink is commonly shared by all threads that log.
+ *
+ * @author Martin Albedinsky
+ * @see SimpleLogger#SimpleLogger(int, LogSink)
+ */
+public interface LogSink {
+
+	/**
+	 * Writes a single log record with the specified data into this sink. The characters must not be
+	 * accessed after this method returns, as the caller is free to reuse the sequence.
+	 *
+	 * @param level Level of the record.
+	 * @param tag   Tag of the record.
+	 * @param msg   The sequence containing message of the record.
+	 * @param start Start index (inclusive) of the message within the sequence.
+	 * @param end   End index (exclusive) of the message within the sequence.
+	 */
+	void write(@Logger.Level int level, @NonNull String tag, @NonNull CharSequence msg, int start, int end);
+}
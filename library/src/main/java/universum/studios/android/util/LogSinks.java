@@ -0,0 +1,279 @@
+/*
+ * =================================================================================================
+ *                             Copyright (C) 2017 Universum Studios
+ * =================================================================================================
+ *         Licensed under the Apache License, Version 2.0 or later (further "License" only).
+ * -------------------------------------------------------------------------------------------------
+ * You may use this file only in compliance with the License. More details and copy of this License
+ * you may obtain at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * You can redistribute, modify or publish any part of the code written within this file but as it
+ * is described in the License, the software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES or CONDITIONS OF ANY KIND.
+ *
+ * See the License for the specific language governing permissions and limitations under the License.
+ * =================================================================================================
+ */
+package universum.studios.android.util;
+
+import android.annotation.SuppressLint;
+import android.os.Build;
+import android.support.annotation.NonNull;
+import android.util.Log;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Factory providing {@link LogSink} implementations for the common outputs:
+ * <ul>
+ * <li>{@link #logcat()}: writes records into logcat via {@link Log}</li>
+ * <li>{@link #stream(OutputStream)}: writes records as UTF-8 text lines into a stream, like into
+ * {@link System#out} on a host machine</li>
+ * <li>{@link #channel(WritableByteChannel)}: writes records as UTF-8 text lines into a NIO channel</li>
+ * <li>{@link #noOp()}: discards all records, like for benchmarks of the logging core</li>
+ * </ul>
+ *
+ * @author Martin Albedinsky
+ */
+public final class LogSinks {
+
+	/**
+	 * Constants ===================================================================================
+	 */
+
+	/**
+	 * Log TAG.
+	 */
+	// private static final String TAG = "LogSinks";
+
+	/**
+	 * Flag indicating whether the WTF logging is supported by the current Android version or not.
+	 */
+	static final boolean WTF_SUPPORTED = Build.VERSION.SDK_INT >= Build.VERSION_CODES.FROYO;
+
+	/**
+	 * Characters identifying log levels within text records indexed by the level.
+	 */
+	private static final byte[] LEVEL_CHARS = {'?', '?', 'V', 'D', 'I', 'W', 'E', 'A'};
+
+	/**
+	 * Capacity of the buffer used by text sinks to encode records.
+	 */
+	private static final int BUFFER_CAPACITY = 1024;
+
+	/**
+	 * Interface ===================================================================================
+	 */
+
+	/**
+	 * Static members ==============================================================================
+	 */
+
+	/**
+	 * Sink writing into logcat.
+	 */
+	static final LogSink LOGCAT = new LogSink() {
+
+		/**
+		 */
+		@Override
+		@SuppressLint("NewApi")
+		public void write(@Logger.Level int level, @NonNull String tag, @NonNull CharSequence msg, int start, int end) {
+			final String message = start == 0 && end == msg.length() ?
+					msg.toString() :
+					new StringBuilder(end - start).append(msg, start, end).toString();
+			if (level == Log.ASSERT) {
+				if (WTF_SUPPORTED) Log.wtf(tag, message);
+			} else {
+				Log.println(level, tag, message);
+			}
+		}
+	};
+
+	/**
+	 * Sink discarding all records.
+	 */
+	private static final LogSink NO_OP = new LogSink() {
+
+		/**
+		 */
+		@Override
+		public void write(@Logger.Level int level, @NonNull String tag, @NonNull CharSequence msg, int start, int end) {
+			// Records are discarded.
+		}
+	};
+
+	/**
+	 * Members =====================================================================================
+	 */
+
+	/**
+	 * Constructors ================================================================================
+	 */
+
+	/**
+	 */
+	private LogSinks() {
+		// Creation of instances of this class is not publicly allowed.
+	}
+
+	/**
+	 * Methods =====================================================================================
+	 */
+
+	/**
+	 * Returns the sink which writes records into logcat via {@link Log#println(int, String, String)}.
+	 * Records with {@link Log#ASSERT} level are written via {@link Log#wtf(String, String)}. As
+	 * logcat accepts only strings, a new string is created for a message that is not a whole
+	 * string itself.
+	 *
+	 * @return Logcat sink.
+	 */
+	@NonNull
+	public static LogSink logcat() {
+		return LOGCAT;
+	}
+
+	/**
+	 * Returns the sink which discards all records.
+	 *
+	 * @return No-op sink.
+	 */
+	@NonNull
+	public static LogSink noOp() {
+		return NO_OP;
+	}
+
+	/**
+	 * Creates a new sink which writes records into the given <var>output</var> stream as UTF-8
+	 * text lines in format {@code <level>/<tag>: <message>}. Characters are encoded into a buffer
+	 * reused for all records, so no intermediate strings nor byte arrays are created. Failures of
+	 * the stream are ignored, like {@link java.io.PrintStream} does.
+	 *
+	 * @param output The stream into which to write the records.
+	 * @return Stream sink.
+	 */
+	@NonNull
+	public static LogSink stream(@NonNull final OutputStream output) {
+		return new TextSink() {
+
+			/**
+			 */
+			@Override
+			void writeBuffer(ByteBuffer buffer) throws IOException {
+				output.write(buffer.array(), 0, buffer.position());
+			}
+
+			/**
+			 */
+			@Override
+			void flushOutput() throws IOException {
+				output.flush();
+			}
+		};
+	}
+
+	/**
+	 * Creates a new sink which writes records into the given <var>channel</var> as UTF-8 text lines
+	 * in format {@code <level>/<tag>: <message>}. Characters are encoded into a buffer reused for all
+	 * records, so no intermediate strings nor byte arrays are created. Failures of the channel are
+	 * ignored.
+	 *
+	 * @param channel The channel into which to write the records.
+	 * @return Channel sink.
+	 */
+	@NonNull
+	public static LogSink channel(@NonNull final WritableByteChannel channel) {
+		return new TextSink() {
+
+			/**
+			 */
+			@Override
+			void writeBuffer(ByteBuffer buffer) throws IOException {
+				buffer.flip();
+				while (buffer.hasRemaining()) {
+					channel.write(buffer);
+				}
+			}
+		};
+	}
+
+	/**
+	 * Inner classes ===============================================================================
+	 */
+
+	/**
+	 * Base for sinks which encode records as UTF-8 text lines.
+	 */
+	private static abstract class TextSink implements LogSink {
+
+		/**
+		 * Buffer into which are encoded the records.
+		 */
+		private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_CAPACITY);
+
+		/**
+		 */
+		@Override
+		public void write(@Logger.Level int level, @NonNull String tag, @NonNull CharSequence msg, int start, int end) {
+			synchronized (buffer) {
+				try {
+					buffer.clear();
+					buffer.put(level >= 0 && level < LEVEL_CHARS.length ? LEVEL_CHARS[level] : (byte) '?');
+					buffer.put((byte) '/');
+					encode(tag, 0, tag.length());
+					ensureRemaining(2);
+					buffer.put((byte) ':');
+					buffer.put((byte) ' ');
+					encode(msg, start, end);
+					ensureRemaining(1);
+					buffer.put((byte) '\n');
+					writeBuffer(buffer);
+					flushOutput();
+				} catch (IOException e) {
+					// Ignored, logging must not fail the caller.
+				}
+			}
+		}
+
+		/**
+		 * Encodes the specified range of characters into the buffer, writing the buffer into the
+		 * output whenever it becomes full.
+		 */
+		private void encode(CharSequence chars, int start, int end) throws IOException {
+			int index = start;
+			while ((index = Utf8.encode(chars, index, end, buffer)) < end) {
+				writeBuffer(buffer);
+				buffer.clear();
+			}
+		}
+
+		/**
+		 * Ensures that the buffer has at least the specified count of bytes remaining, writing it
+		 * into the output if necessary.
+		 */
+		private void ensureRemaining(int count) throws IOException {
+			if (buffer.remaining() < count) {
+				writeBuffer(buffer);
+				buffer.clear();
+			}
+		}
+
+		/**
+		 * Writes content of the buffer from its start up to its position into the output.
+		 */
+		abstract void writeBuffer(ByteBuffer buffer) throws IOException;
+
+		/**
+		 * Flushes the output after each record.
+		 */
+		void flushOutput() throws IOException {
+			// May be overridden.
+		}
+	}
+}
@@ -0,0 +1,131 @@
+/*
+ * =================================================================================================
+ *                             Copyright (C) 2017 Universum Studios
+ * =================================================================================================
+ *         Licensed under the Apache License, Version 2.0 or later (further "License" only).
+ * -------------------------------------------------------------------------------------------------
+ * You may use this file only in compliance with the License. More details and copy of this License
+ * you may obtain at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * You can redistribute, modify or publish any part of the code written within this file but as it
+ * is described in the License, the software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES or CONDITIONS OF ANY KIND.
+ *
+ * See the License for the specific language governing permissions and limitations under the License.
+ * =================================================================================================
+ */
+package universum.studios.android.util;
+
+import android.support.annotation.NonNull;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Timer shared by decorating loggers which need to write deferred records, like summaries, even if
+ * no more records are logged. Tasks are run on a single low priority daemon thread which is started
+ * lazily, when the first task is scheduled, so loggers that never defer anything do not start it.
+ * Tasks should be short and must not block.
+ *
+ * @author Martin Albedinsky
+ */
+final class LogTimer {
+
+	/**
+	 * Constants ===================================================================================
+	 */
+
+	/**
+	 * Name of the timer thread.
+	 */
+	private static final String THREAD_NAME = "LogTimer";
+
+	/**
+	 * Interface ===================================================================================
+	 */
+
+	/**
+	 * Static members ==============================================================================
+	 */
+
+	/**
+	 * Lock guarding creation of the executor.
+	 */
+	private static final Object LOCK = new Object();
+
+	/**
+	 * Executor running the scheduled tasks, created lazily.
+	 */
+	private static ScheduledExecutorService sExecutor;
+
+	/**
+	 * Members =====================================================================================
+	 */
+
+	/**
+	 * Constructors ================================================================================
+	 */
+
+	/**
+	 */
+	private LogTimer() {
+		// Creation of instances of this class is not publicly allowed.
+	}
+
+	/**
+	 * Methods =====================================================================================
+	 */
+
+	/**
+	 * Schedules the given <var>task</var> to be run once after the specified delay. Failures of the
+	 * task are ignored, so they do not affect the other tasks.
+	 *
+	 * @param task       The task to be run.
+	 * @param delayNanos Delay in nanoseconds after which to run the task.
+	 * @return Future which may be used to cancel the task.
+	 */
+	@NonNull
+	static ScheduledFuture<?> schedule(@NonNull final Runnable task, long delayNanos) {
+		return obtainExecutor().schedule(new Runnable() {
+
+			/**
+			 */
+			@Override
+			public void run() {
+				try {
+					task.run();
+				} catch (RuntimeException e) {
+					// Failure of a single task must not affect the other ones.
+				}
+			}
+		}, Math.max(0, delayNanos), TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Obtains the executor, creating it if it has not been created yet.
+	 */
+	private static ScheduledExecutorService obtainExecutor() {
+		synchronized (LOCK) {
+			if (sExecutor == null) {
+				sExecutor = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+
+					/**
+					 */
+					@Override
+					public Thread newThread(@NonNull Runnable runnable) {
+						final Thread thread = new Thread(runnable, THREAD_NAME);
+						thread.setPriority(Thread.MIN_PRIORITY);
+						thread.setDaemon(true);
+						return thread;
+					}
+				});
+			}
+			return sExecutor;
+		}
+	}
+}
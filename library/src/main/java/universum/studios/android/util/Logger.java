@@ -28,6 +28,13 @@ import java.lang.annotation.RetentionPolicy;
 
 /**
  * Interface for console loggers.
+ * <p>
+ * Besides plain messages, loggers accept also message templates with arguments, like
+ * {@code logger.d(TAG, "Loaded {} items in {} ms.", count, duration)}, where each {@code {}}
+ * placeholder is in order replaced by one of the arguments. Such templates are formatted only in
+ * case when the requested level is loggable, so calls for not loggable levels do not cost more than
+ * the level check itself. Overloads for primitive arguments avoid boxing and none of the overloads
+ * requires a varargs array.
  *
  * @author Martin Albedinsky
  */
@@ -49,6 +56,25 @@ public interface Logger {
 	public @interface Level {
 	}
 
+	/**
+	 * Callback that may be used to provide a log message that is expensive to be built, like a dump
+	 * of a whole collection. Logger asks the supplier for the message only in case when the requested
+	 * log level is loggable at the time.
+	 *
+	 * @author Martin Albedinsky
+	 * @see #d(String, MessageSupplier)
+	 */
+	interface MessageSupplier {
+
+		/**
+		 * Builds the message to be logged.
+		 *
+		 * @return Message for the log call.
+		 */
+		@NonNull
+		String get();
+	}
+
 	/**
 	 * Sets a logging level for this logger.
 	 *
@@ -135,6 +161,176 @@ public interface Logger {
 	 */
 	void e(@NonNull String tag, @NonNull String msg, @Nullable Throwable tr);
 
+	/**
+	 * Formats the given <var>template</var> with the specified argument and delegates to
+	 * {@link Log#v(String, String)} if {@link Log#VERBOSE} level is loggable at the time. The template
+	 * is formatted only if the level is loggable.
+	 */
+	void v(@NonNull String tag, @NonNull String template, @Nullable Object arg);
+
+	/**
+	 * Same as {@link #v(String, String, Object)} for two arguments.
+	 */
+	void v(@NonNull String tag, @NonNull String template, @Nullable Object arg1, @Nullable Object arg2);
+
+	/**
+	 * Same as {@link #v(String, String, Object)} for {@code int} argument.
+	 */
+	void v(@NonNull String tag, @NonNull String template, int arg);
+
+	/**
+	 * Same as {@link #v(String, String, Object)} for {@code long} argument.
+	 */
+	void v(@NonNull String tag, @NonNull String template, long arg);
+
+	/**
+	 * Same as {@link #v(String, String, Object)} for {@code double} argument.
+	 */
+	void v(@NonNull String tag, @NonNull String template, double arg);
+
+	/**
+	 * Formats the given <var>template</var> with the specified argument and delegates to
+	 * {@link Log#d(String, String)} if {@link Log#DEBUG} level is loggable at the time. The template
+	 * is formatted only if the level is loggable.
+	 */
+	void d(@NonNull String tag, @NonNull String template, @Nullable Object arg);
+
+	/**
+	 * Same as {@link #d(String, String, Object)} for two arguments.
+	 */
+	void d(@NonNull String tag, @NonNull String template, @Nullable Object arg1, @Nullable Object arg2);
+
+	/**
+	 * Same as {@link #d(String, String, Object)} for {@code int} argument.
+	 */
+	void d(@NonNull String tag, @NonNull String template, int arg);
+
+	/**
+	 * Same as {@link #d(String, String, Object)} for {@code long} argument.
+	 */
+	void d(@NonNull String tag, @NonNull String template, long arg);
+
+	/**
+	 * Same as {@link #d(String, String, Object)} for {@code double} argument.
+	 */
+	void d(@NonNull String tag, @NonNull String template, double arg);
+
+	/**
+	 * Formats the given <var>template</var> with the specified argument and delegates to
+	 * {@link Log#i(String, String)} if {@link Log#INFO} level is loggable at the time. The template
+	 * is formatted only if the level is loggable.
+	 */
+	void i(@NonNull String tag, @NonNull String template, @Nullable Object arg);
+
+	/**
+	 * Same as {@link #i(String, String, Object)} for two arguments.
+	 */
+	void i(@NonNull String tag, @NonNull String template, @Nullable Object arg1, @Nullable Object arg2);
+
+	/**
+	 * Same as {@link #i(String, String, Object)} for {@code int} argument.
+	 */
+	void i(@NonNull String tag, @NonNull String template, int arg);
+
+	/**
+	 * Same as {@link #i(String, String, Object)} for {@code long} argument.
+	 */
+	void i(@NonNull String tag, @NonNull String template, long arg);
+
+	/**
+	 * Same as {@link #i(String, String, Object)} for {@code double} argument.
+	 */
+	void i(@NonNull String tag, @NonNull String template, double arg);
+
+	/**
+	 * Formats the given <var>template</var> with the specified argument and delegates to
+	 * {@link Log#w(String, String)} if {@link Log#WARN} level is loggable at the time. The template
+	 * is formatted only if the level is loggable.
+	 */
+	void w(@NonNull String tag, @NonNull String template, @Nullable Object arg);
+
+	/**
+	 * Same as {@link #w(String, String, Object)} for two arguments.
+	 */
+	void w(@NonNull String tag, @NonNull String template, @Nullable Object arg1, @Nullable Object arg2);
+
+	/**
+	 * Same as {@link #w(String, String, Object)} for {@code int} argument.
+	 */
+	void w(@NonNull String tag, @NonNull String template, int arg);
+
+	/**
+	 * Same as {@link #w(String, String, Object)} for {@code long} argument.
+	 */
+	void w(@NonNull String tag, @NonNull String template, long arg);
+
+	/**
+	 * Same as {@link #w(String, String, Object)} for {@code double} argument.
+	 */
+	void w(@NonNull String tag, @NonNull String template, double arg);
+
+	/**
+	 * Formats the given <var>template</var> with the specified argument and delegates to
+	 * {@link Log#e(String, String)} if {@link Log#ERROR} level is loggable at the time. The template
+	 * is formatted only if the level is loggable.
+	 */
+	void e(@NonNull String tag, @NonNull String template, @Nullable Object arg);
+
+	/**
+	 * Same as {@link #e(String, String, Object)} for two arguments.
+	 */
+	void e(@NonNull String tag, @NonNull String template, @Nullable Object arg1, @Nullable Object arg2);
+
+	/**
+	 * Same as {@link #e(String, String, Object)} for {@code int} argument.
+	 */
+	void e(@NonNull String tag, @NonNull String template, int arg);
+
+	/**
+	 * Same as {@link #e(String, String, Object)} for {@code long} argument.
+	 */
+	void e(@NonNull String tag, @NonNull String template, long arg);
+
+	/**
+	 * Same as {@link #e(String, String, Object)} for {@code double} argument.
+	 */
+	void e(@NonNull String tag, @NonNull String template, double arg);
+
+	/**
+	 * Delegates to {@link Log#v(String, String)} with message provided by the given <var>supplier</var>
+	 * if {@link Log#VERBOSE} level is loggable at the time. The supplier is asked for the message only
+	 * if the level is loggable.
+	 */
+	void v(@NonNull String tag, @NonNull MessageSupplier supplier);
+
+	/**
+	 * Delegates to {@link Log#d(String, String)} with message provided by the given <var>supplier</var>
+	 * if {@link Log#DEBUG} level is loggable at the time. The supplier is asked for the message only
+	 * if the level is loggable.
+	 */
+	void d(@NonNull String tag, @NonNull MessageSupplier supplier);
+
+	/**
+	 * Delegates to {@link Log#i(String, String)} with message provided by the given <var>supplier</var>
+	 * if {@link Log#INFO} level is loggable at the time. The supplier is asked for the message only
+	 * if the level is loggable.
+	 */
+	void i(@NonNull String tag, @NonNull MessageSupplier supplier);
+
+	/**
+	 * Delegates to {@link Log#w(String, String)} with message provided by the given <var>supplier</var>
+	 * if {@link Log#WARN} level is loggable at the time. The supplier is asked for the message only
+	 * if the level is loggable.
+	 */
+	void w(@NonNull String tag, @NonNull MessageSupplier supplier);
+
+	/**
+	 * Delegates to {@link Log#e(String, String)} with message provided by the given <var>supplier</var>
+	 * if {@link Log#ERROR} level is loggable at the time. The supplier is asked for the message only
+	 * if the level is loggable.
+	 */
+	void e(@NonNull String tag, @NonNull MessageSupplier supplier);
+
 	/**
 	 * Delegates to {@link Log#wtf(String, String)}.
 	 */
@@ -150,6 +346,13 @@ public interface Logger {
 	 */
 	void wtf(@NonNull String tag, @NonNull String msg, @Nullable Throwable tr);
 
+	/**
+	 * Delegates to {@link Log#wtf(String, String)} with message provided by the given <var>supplier</var>.
+	 * Like the other {@code wtf(...)} methods, this one is not subject to the level check, so the
+	 * supplier is always asked for the message.
+	 */
+	void wtf(@NonNull String tag, @NonNull MessageSupplier supplier);
+
 	/**
 	 * Delegates to {@link #forceLog(int, String, String)} if the specified <var>level</var> is
 	 * loggable at the time.
@@ -157,12 +360,16 @@ public interface Logger {
 	void log(@Level int level, @NonNull String tag, @NonNull String msg);
 
 	/**
-	 * Delegates to {@link Log#println(int, String, String)} with the specified parameters.
+	 * Logs the specified message at the specified <var>level</var> without checking whether the
+	 * level is loggable. Decorating loggers pass such records to their delegates as forced too.
 	 */
 	void forceLog(@Level int level, @NonNull String tag, @NonNull String msg);
 
 	/**
-	 * Delegates to {@link Log#getStackTraceString(Throwable)}.
+	 * Renders stack trace of the given throwable, including its causes and suppressed throwables,
+	 * in the same format as {@link Throwable#printStackTrace()} does. Like
+	 * {@link Log#getStackTraceString(Throwable)}, nothing is rendered for a throwable caused by
+	 * {@link java.net.UnknownHostException}.
 	 */
 	@Nullable
 	String getStackTraceString(@Nullable Throwable tr);
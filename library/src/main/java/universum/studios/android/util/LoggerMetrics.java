@@ -0,0 +1,503 @@
+/*
+ * =================================================================================================
+ *                             Copyright (C) 2017 Universum Studios
+ * =================================================================================================
+ *         Licensed under the Apache License, Version 2.0 or later (further "License" only).
+ * -------------------------------------------------------------------------------------------------
+ * You may use this file only in compliance with the License. More details and copy of this License
+ * you may obtain at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * You can redistribute, modify or publish any part of the code written within this file but as it
+ * is described in the License, the software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES or CONDITIONS OF ANY KIND.
+ *
+ * See the License for the specific language governing permissions and limitations under the License.
+ * =================================================================================================
+ */
+package universum.studios.android.util;
+
+import android.support.annotation.FloatRange;
+import android.support.annotation.NonNull;
+import android.util.Log;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Collector of metrics of a logging pipeline. The metrics are collected via {@link MetricsLogger},
+ * which records counts of emitted and suppressed records per level and per tag along with a latency
+ * histogram of writes into its delegate, and via {@link AsyncLogger#setMetrics(LoggerMetrics)},
+ * which records counts of dropped records.
+ * <p>
+ * All counters are striped, so recording of metrics from multiple threads does not contend on a
+ * single memory location. Latencies are recorded into a histogram with power of two buckets, so
+ * recording of a latency is a single atomic increment. Count of tracked tags is limited by
+ * {@link #MAX_TAGS}, records of any further tags are counted under {@link #OTHER_TAGS}.
+ * <p>
+ * The collected metrics may be polled via {@link #snapshot()}, which returns an immutable copy
+ * that may be inspected or exported as text via {@link Snapshot#toString()}.
+ *
+ * @author Martin Albedinsky
+ */
+public final class LoggerMetrics {
+
+	/**
+	 * Constants ===================================================================================
+	 */
+
+	/**
+	 * Log TAG.
+	 */
+	// private static final String TAG = "LoggerMetrics";
+
+	/**
+	 * Maximum count of tags for which are tracked separate counters.
+	 */
+	public static final int MAX_TAGS = 256;
+
+	/**
+	 * Name under which are counted records of tags beyond {@link #MAX_TAGS}.
+	 */
+	public static final String OTHER_TAGS = "*";
+
+	/**
+	 * Count of buckets of the latency histogram.
+	 */
+	static final int LATENCY_BUCKETS = 64;
+
+	/**
+	 * Count of levels for which are tracked separate counters.
+	 */
+	private static final int LEVELS = Log.ASSERT + 1;
+
+	/**
+	 * Characters identifying log levels within exported metrics indexed by the level.
+	 */
+	private static final char[] LEVEL_CHARS = {'?', '?', 'V', 'D', 'I', 'W', 'E', 'A'};
+
+	/**
+	 * Interface ===================================================================================
+	 */
+
+	/**
+	 * Static members ==============================================================================
+	 */
+
+	/**
+	 * Members =====================================================================================
+	 */
+
+	/**
+	 * Counters of emitted records indexed by their level.
+	 */
+	private final StripedCounter[] mEmitted = createCounters(LEVELS);
+
+	/**
+	 * Counters of suppressed records indexed by their level.
+	 */
+	private final StripedCounter[] mSuppressed = createCounters(LEVELS);
+
+	/**
+	 * Counters of dropped records indexed by their level.
+	 */
+	private final StripedCounter[] mDropped = createCounters(LEVELS);
+
+	/**
+	 * Counters of the tracked tags mapped to the tag names.
+	 */
+	private final ConcurrentHashMap<String, TagCounters> mTags = new ConcurrentHashMap<>();
+
+	/**
+	 * Counts of recorded latencies within the histogram buckets, where bucket {@code i} holds
+	 * latencies in range {@code [2^(i-1), 2^i)} nanoseconds.
+	 */
+	private final AtomicLongArray mLatencyHistogram = new AtomicLongArray(LATENCY_BUCKETS);
+
+	/**
+	 * Sum of all recorded latencies in nanoseconds.
+	 */
+	private final StripedCounter mTotalLatency = new StripedCounter();
+
+	/**
+	 * Constructors ================================================================================
+	 */
+
+	/**
+	 * Methods =====================================================================================
+	 */
+
+	/**
+	 * Creates an array with the specified count of counters.
+	 */
+	private static StripedCounter[] createCounters(int count) {
+		final StripedCounter[] counters = new StripedCounter[count];
+		for (int i = 0; i < count; i++) {
+			counters[i] = new StripedCounter();
+		}
+		return counters;
+	}
+
+	/**
+	 * Records a record that has been emitted, that is written into a logger.
+	 *
+	 * @param level        Level of the record.
+	 * @param tag          Tag of the record.
+	 * @param latencyNanos Time in nanoseconds the write of the record took.
+	 */
+	public void recordEmitted(@Logger.Level int level, @NonNull String tag, long latencyNanos) {
+		mEmitted[normalizeLevel(level)].increment();
+		obtainTagCounters(tag).emitted.increment();
+		mLatencyHistogram.incrementAndGet(latencyBucket(latencyNanos));
+		mTotalLatency.add(Math.max(0, latencyNanos));
+	}
+
+	/**
+	 * Records a record that has been suppressed by a level check.
+	 *
+	 * @param level Level of the record.
+	 * @param tag   Tag of the record.
+	 */
+	public void recordSuppressed(@Logger.Level int level, @NonNull String tag) {
+		mSuppressed[normalizeLevel(level)].increment();
+		obtainTagCounters(tag).suppressed.increment();
+	}
+
+	/**
+	 * Records a record that has been dropped, like due to a full buffer.
+	 *
+	 * @param level Level of the record.
+	 */
+	public void recordDropped(@Logger.Level int level) {
+		mDropped[normalizeLevel(level)].increment();
+	}
+
+	/**
+	 * Normalizes the given level into a valid index of level counters.
+	 */
+	private static int normalizeLevel(int level) {
+		return level >= 0 && level < LEVELS ? level : 0;
+	}
+
+	/**
+	 * Returns index of the histogram bucket for the specified latency.
+	 */
+	static int latencyBucket(long latencyNanos) {
+		return latencyNanos <= 0 ? 0 : Math.min(LATENCY_BUCKETS - 1, 64 - Long.numberOfLeadingZeros(latencyNanos));
+	}
+
+	/**
+	 * Obtains counters for the specified tag, creating them if the tag is not tracked yet.
+	 */
+	private TagCounters obtainTagCounters(String tag) {
+		TagCounters counters = mTags.get(tag);
+		if (counters == null) {
+			if (mTags.size() >= MAX_TAGS) {
+				tag = OTHER_TAGS;
+				counters = mTags.get(tag);
+				if (counters != null) return counters;
+			}
+			final TagCounters newCounters = new TagCounters();
+			counters = mTags.putIfAbsent(tag, newCounters);
+			if (counters == null) counters = newCounters;
+		}
+		return counters;
+	}
+
+	/**
+	 * Creates a snapshot of the current values of all metrics. Values recorded concurrently with
+	 * creation of the snapshot may or may not be included in it.
+	 *
+	 * @return Immutable snapshot of metrics.
+	 */
+	@NonNull
+	public Snapshot snapshot() {
+		final long[] emitted = new long[LEVELS];
+		final long[] suppressed = new long[LEVELS];
+		final long[] dropped = new long[LEVELS];
+		for (int i = 0; i < LEVELS; i++) {
+			emitted[i] = mEmitted[i].get();
+			suppressed[i] = mSuppressed[i].get();
+			dropped[i] = mDropped[i].get();
+		}
+		final Map<String, long[]> tags = new HashMap<>(mTags.size() * 2);
+		for (final Map.Entry<String, TagCounters> entry : mTags.entrySet()) {
+			final TagCounters counters = entry.getValue();
+			tags.put(entry.getKey(), new long[]{counters.emitted.get(), counters.suppressed.get()});
+		}
+		final long[] histogram = new long[LATENCY_BUCKETS];
+		for (int i = 0; i < LATENCY_BUCKETS; i++) {
+			histogram[i] = mLatencyHistogram.get(i);
+		}
+		return new Snapshot(emitted, suppressed, dropped, tags, histogram, mTotalLatency.get());
+	}
+
+	/**
+	 * Resets all metrics to zero and stops tracking of all tags.
+	 */
+	public void reset() {
+		for (int i = 0; i < LEVELS; i++) {
+			mEmitted[i].reset();
+			mSuppressed[i].reset();
+			mDropped[i].reset();
+		}
+		mTags.clear();
+		for (int i = 0; i < LATENCY_BUCKETS; i++) {
+			mLatencyHistogram.set(i, 0);
+		}
+		mTotalLatency.reset();
+	}
+
+	/**
+	 * Inner classes ===============================================================================
+	 */
+
+	/**
+	 * Counters of a single tag.
+	 */
+	private static final class TagCounters {
+
+		/**
+		 * Counter of emitted records.
+		 */
+		final StripedCounter emitted = new StripedCounter();
+
+		/**
+		 * Counter of suppressed records.
+		 */
+		final StripedCounter suppressed = new StripedCounter();
+	}
+
+	/**
+	 * Immutable snapshot of logging metrics.
+	 *
+	 * @author Martin Albedinsky
+	 */
+	public static final class Snapshot {
+
+		/**
+		 * Counts of emitted records indexed by their level.
+		 */
+		private final long[] mEmitted;
+
+		/**
+		 * Counts of suppressed records indexed by their level.
+		 */
+		private final long[] mSuppressed;
+
+		/**
+		 * Counts of dropped records indexed by their level.
+		 */
+		private final long[] mDropped;
+
+		/**
+		 * Counts of emitted and suppressed records mapped to the tag names.
+		 */
+		private final Map<String, long[]> mTags;
+
+		/**
+		 * Counts of latencies within the histogram buckets.
+		 */
+		private final long[] mLatencyHistogram;
+
+		/**
+		 * Sum of all latencies in nanoseconds.
+		 */
+		private final long mTotalLatency;
+
+		/**
+		 * Creates a new instance of Snapshot with the given data.
+		 */
+		Snapshot(long[] emitted, long[] suppressed, long[] dropped, Map<String, long[]> tags, long[] latencyHistogram, long totalLatency) {
+			this.mEmitted = emitted;
+			this.mSuppressed = suppressed;
+			this.mDropped = dropped;
+			this.mTags = tags;
+			this.mLatencyHistogram = latencyHistogram;
+			this.mTotalLatency = totalLatency;
+		}
+
+		/**
+		 * Returns the count of emitted records with the specified <var>level</var>.
+		 *
+		 * @param level The level for which to return the count.
+		 * @return Count of emitted records.
+		 */
+		public long getEmittedCount(@Logger.Level int level) {
+			return level >= 0 && level < LEVELS ? mEmitted[level] : 0;
+		}
+
+		/**
+		 * Returns the total count of emitted records of all levels.
+		 *
+		 * @return Count of emitted records.
+		 */
+		public long getEmittedCount() {
+			return sum(mEmitted);
+		}
+
+		/**
+		 * Returns the count of suppressed records with the specified <var>level</var>.
+		 *
+		 * @param level The level for which to return the count.
+		 * @return Count of suppressed records.
+		 */
+		public long getSuppressedCount(@Logger.Level int level) {
+			return level >= 0 && level < LEVELS ? mSuppressed[level] : 0;
+		}
+
+		/**
+		 * Returns the total count of suppressed records of all levels.
+		 *
+		 * @return Count of suppressed records.
+		 */
+		public long getSuppressedCount() {
+			return sum(mSuppressed);
+		}
+
+		/**
+		 * Returns the count of dropped records with the specified <var>level</var>.
+		 *
+		 * @param level The level for which to return the count.
+		 * @return Count of dropped records.
+		 */
+		public long getDroppedCount(@Logger.Level int level) {
+			return level >= 0 && level < LEVELS ? mDropped[level] : 0;
+		}
+
+		/**
+		 * Returns the total count of dropped records of all levels.
+		 *
+		 * @return Count of dropped records.
+		 */
+		public long getDroppedCount() {
+			return sum(mDropped);
+		}
+
+		/**
+		 * Sums all values of the given array.
+		 */
+		private static long sum(long[] values) {
+			long sum = 0;
+			for (final long value : values) {
+				sum += value;
+			}
+			return sum;
+		}
+
+		/**
+		 * Returns names of all tags tracked at the time of the snapshot.
+		 *
+		 * @return Set of tag names.
+		 */
+		@NonNull
+		public Set<String> getTags() {
+			return Collections.unmodifiableSet(mTags.keySet());
+		}
+
+		/**
+		 * Returns the count of emitted records with the specified <var>tag</var>.
+		 *
+		 * @param tag The tag for which to return the count.
+		 * @return Count of emitted records.
+		 */
+		public long getTagEmittedCount(@NonNull String tag) {
+			final long[] counts = mTags.get(tag);
+			return counts == null ? 0 : counts[0];
+		}
+
+		/**
+		 * Returns the count of suppressed records with the specified <var>tag</var>.
+		 *
+		 * @param tag The tag for which to return the count.
+		 * @return Count of suppressed records.
+		 */
+		public long getTagSuppressedCount(@NonNull String tag) {
+			final long[] counts = mTags.get(tag);
+			return counts == null ? 0 : counts[1];
+		}
+
+		/**
+		 * Returns the count of recorded latencies.
+		 *
+		 * @return Latencies count.
+		 */
+		public long getLatencyCount() {
+			return sum(mLatencyHistogram);
+		}
+
+		/**
+		 * Returns the sum of all recorded latencies.
+		 *
+		 * @return Total latency in nanoseconds.
+		 */
+		public long getTotalLatency() {
+			return mTotalLatency;
+		}
+
+		/**
+		 * Returns an estimate of the specified percentile of the recorded latencies. Due to the power
+		 * of two buckets of the histogram the estimate is the upper bound of the bucket into which the
+		 * percentile falls, so it may be up to twice as high as the actual value.
+		 *
+		 * @param percentile The desired percentile, like {@code 0.99}.
+		 * @return Latency estimate in nanoseconds or {@code 0} if no latencies have been recorded.
+		 */
+		public long getLatencyPercentile(@FloatRange(from = 0, to = 1) double percentile) {
+			final long count = getLatencyCount();
+			if (count == 0) {
+				return 0;
+			}
+			final long rank = Math.max(1, (long) Math.ceil(percentile * count));
+			long seen = 0;
+			for (int i = 0; i < LATENCY_BUCKETS; i++) {
+				seen += mLatencyHistogram[i];
+				if (seen >= rank) {
+					return i == 0 ? 0 : (i >= 63 ? Long.MAX_VALUE : (1L << i) - 1);
+				}
+			}
+			return Long.MAX_VALUE;
+		}
+
+		/**
+		 * Returns a copy of the latency histogram, where bucket {@code i} holds count of latencies in
+		 * range {@code [2^(i-1), 2^i)} nanoseconds and bucket {@code 0} count of zero latencies.
+		 *
+		 * @return Histogram buckets.
+		 */
+		@NonNull
+		public long[] getLatencyHistogram() {
+			return mLatencyHistogram.clone();
+		}
+
+		/**
+		 * Exports this snapshot as text with one {@code name=value} metric per line, suitable for
+		 * logging or uploading.
+		 */
+		@Override
+		public String toString() {
+			final StringBuilder builder = new StringBuilder(512);
+			for (int i = Log.VERBOSE; i < LEVELS; i++) {
+				builder.append("emitted.").append(LEVEL_CHARS[i]).append('=').append(mEmitted[i]).append('\n');
+				builder.append("suppressed.").append(LEVEL_CHARS[i]).append('=').append(mSuppressed[i]).append('\n');
+				builder.append("dropped.").append(LEVEL_CHARS[i]).append('=').append(mDropped[i]).append('\n');
+			}
+			for (final String tag : new TreeSet<>(mTags.keySet())) {
+				final long[] counts = mTags.get(tag);
+				builder.append("tag.").append(tag).append(".emitted=").append(counts[0]).append('\n');
+				builder.append("tag.").append(tag).append(".suppressed=").append(counts[1]).append('\n');
+			}
+			builder.append("latency.count=").append(getLatencyCount()).append('\n');
+			builder.append("latency.total=").append(mTotalLatency).append('\n');
+			builder.append("latency.p50=").append(getLatencyPercentile(0.5)).append('\n');
+			builder.append("latency.p99=").append(getLatencyPercentile(0.99)).append('\n');
+			return builder.toString();
+		}
+	}
+}
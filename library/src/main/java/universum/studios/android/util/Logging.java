@@ -0,0 +1,362 @@
+/*
+ * =================================================================================================
+ *                             Copyright (C) 2017 Universum Studios
+ * =================================================================================================
+ *         Licensed under the Apache License, Version 2.0 or later (further "License" only).
+ * -------------------------------------------------------------------------------------------------
+ * You may use this file only in compliance with the License. More details and copy of this License
+ * you may obtain at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * You can redistribute, modify or publish any part of the code written within this file but as it
+ * is described in the License, the software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES or CONDITIONS OF ANY KIND.
+ *
+ * See the License for the specific language governing permissions and limitations under the License.
+ * =================================================================================================
+ */
+package universum.studios.android.util;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.Log;
+
+/**
+ * Static logging facade which passes its calls to a {@link Logger} specified via {@link #setLogger(Logger)}.
+ * Until a logger is specified, all calls are ignored.
+ * <p>
+ * The facade itself does not gate any levels, as an application always links the release build of
+ * this library, so a gate derived from the library's build could not follow the build type of the
+ * application. Instead, the application decides which calls to remove in each of its build types:
+ * <ul>
+ * <li>PROGUARD.md lists opt-in ProGuard rules marking {@link #v(String, String)} and {@link #d(String, String)}
+ * methods, including all their overloads, as methods without side effects. When the application
+ * applies them in its minified build types, like release, those calls are removed completely,
+ * including evaluation of their arguments.</li>
+ * <li>Calls may be wrapped into a check of a compile-time constant of the application, like
+ * {@code if (BuildConfig.DEBUG) Logging.d(TAG, "...")}, which is removed by the compiler of the
+ * application in the build types where the constant is {@code false}.</li>
+ * </ul>
+ * Note that the arguments are removed by ProGuard only if their evaluation does not have side
+ * effects either, so expensive messages should be passed via templates or
+ * {@link Logger.MessageSupplier suppliers}.
+ *
+ * @author Martin Albedinsky
+ * @see Logger
+ */
+public final class Logging {
+
+	/**
+	 * Constants ===================================================================================
+	 */
+
+	/**
+	 * Log TAG.
+	 */
+	// private static final String TAG = "Logging";
+
+	/**
+	 * Interface ===================================================================================
+	 */
+
+	/**
+	 * Static members ==============================================================================
+	 */
+
+	/**
+	 * Logger to which are passed all calls of this facade. May be {@code null}.
+	 */
+	private static volatile Logger sLogger;
+
+	/**
+	 * Members =====================================================================================
+	 */
+
+	/**
+	 * Constructors ================================================================================
+	 */
+
+	/**
+	 */
+	private Logging() {
+		// Creation of instances of this class is not publicly allowed.
+	}
+
+	/**
+	 * Methods =====================================================================================
+	 */
+
+	/**
+	 * Specifies a logger to which should this facade pass all its calls.
+	 *
+	 * @param logger The desired logger. May be {@code null} to ignore all calls.
+	 * @see #getLogger()
+	 */
+	public static void setLogger(@Nullable Logger logger) {
+		sLogger = logger;
+	}
+
+	/**
+	 * Returns the logger to which this facade passes all its calls.
+	 *
+	 * @return The current logger or {@code null} if there is no logger specified.
+	 * @see #setLogger(Logger)
+	 */
+	@Nullable
+	public static Logger getLogger() {
+		return sLogger;
+	}
+
+	/**
+	 * Checks whether the specified <var>level</var> is loggable by the current logger for the
+	 * specified <var>tag</var>.
+	 *
+	 * @param tag   The tag for which to check the level.
+	 * @param level The level to check.
+	 * @return {@code True} if a call with the level would be logged, {@code false} otherwise.
+	 */
+	public static boolean isLoggable(@NonNull String tag, @Logger.Level int level) {
+		final Logger logger = sLogger;
+		return logger != null && logger.isLoggable(tag, level);
+	}
+
+	/**
+	 * Delegates to {@link Logger#v(String, String)} of the current logger, if any.
+	 */
+	public static void v(@NonNull String tag, @NonNull String msg) {
+		final Logger logger = sLogger;
+		if (logger != null) logger.v(tag, msg);
+	}
+
+	/**
+	 * Delegates to {@link Logger#v(String, String, Throwable)} of the current logger, if any.
+	 */
+	public static void v(@NonNull String tag, @NonNull String msg, @Nullable Throwable tr) {
+		final Logger logger = sLogger;
+		if (logger != null) logger.v(tag, msg, tr);
+	}
+
+	/**
+	 * Delegates to {@link Logger#v(String, String, Object)} of the current logger, if any.
+	 */
+	public static void v(@NonNull String tag, @NonNull String template, @Nullable Object arg) {
+		final Logger logger = sLogger;
+		if (logger != null) logger.v(tag, template, arg);
+	}
+
+	/**
+	 * Delegates to {@link Logger#v(String, String, Object, Object)} of the current logger, if any.
+	 */
+	public static void v(@NonNull String tag, @NonNull String template, @Nullable Object arg1, @Nullable Object arg2) {
+		final Logger logger = sLogger;
+		if (logger != null) logger.v(tag, template, arg1, arg2);
+	}
+
+	/**
+	 * Delegates to {@link Logger#v(String, Logger.MessageSupplier)} of the current logger, if any.
+	 */
+	public static void v(@NonNull String tag, @NonNull Logger.MessageSupplier supplier) {
+		final Logger logger = sLogger;
+		if (logger != null) logger.v(tag, supplier);
+	}
+
+	/**
+	 * Delegates to {@link Logger#d(String, String)} of the current logger, if any.
+	 */
+	public static void d(@NonNull String tag, @NonNull String msg) {
+		final Logger logger = sLogger;
+		if (logger != null) logger.d(tag, msg);
+	}
+
+	/**
+	 * Delegates to {@link Logger#d(String, String, Throwable)} of the current logger, if any.
+	 */
+	public static void d(@NonNull String tag, @NonNull String msg, @Nullable Throwable tr) {
+		final Logger logger = sLogger;
+		if (logger != null) logger.d(tag, msg, tr);
+	}
+
+	/**
+	 * Delegates to {@link Logger#d(String, String, Object)} of the current logger, if any.
+	 */
+	public static void d(@NonNull String tag, @NonNull String template, @Nullable Object arg) {
+		final Logger logger = sLogger;
+		if (logger != null) logger.d(tag, template, arg);
+	}
+
+	/**
+	 * Delegates to {@link Logger#d(String, String, Object, Object)} of the current logger, if any.
+	 */
+	public static void d(@NonNull String tag, @NonNull String template, @Nullable Object arg1, @Nullable Object arg2) {
+		final Logger logger = sLogger;
+		if (logger != null) logger.d(tag, template, arg1, arg2);
+	}
+
+	/**
+	 * Delegates to {@link Logger#d(String, Logger.MessageSupplier)} of the current logger, if any.
+	 */
+	public static void d(@NonNull String tag, @NonNull Logger.MessageSupplier supplier) {
+		final Logger logger = sLogger;
+		if (logger != null) logger.d(tag, supplier);
+	}
+
+	/**
+	 * Delegates to {@link Logger#i(String, String)} of the current logger, if any.
+	 */
+	public static void i(@NonNull String tag, @NonNull String msg) {
+		final Logger logger = sLogger;
+		if (logger != null) logger.i(tag, msg);
+	}
+
+	/**
+	 * Delegates to {@link Logger#i(String, String, Throwable)} of the current logger, if any.
+	 */
+	public static void i(@NonNull String tag, @NonNull String msg, @Nullable Throwable tr) {
+		final Logger logger = sLogger;
+		if (logger != null) logger.i(tag, msg, tr);
+	}
+
+	/**
+	 * Delegates to {@link Logger#i(String, String, Object)} of the current logger, if any.
+	 */
+	public static void i(@NonNull String tag, @NonNull String template, @Nullable Object arg) {
+		final Logger logger = sLogger;
+		if (logger != null) logger.i(tag, template, arg);
+	}
+
+	/**
+	 * Delegates to {@link Logger#i(String, String, Object, Object)} of the current logger, if any.
+	 */
+	public static void i(@NonNull String tag, @NonNull String template, @Nullable Object arg1, @Nullable Object arg2) {
+		final Logger logger = sLogger;
+		if (logger != null) logger.i(tag, template, arg1, arg2);
+	}
+
+	/**
+	 * Delegates to {@link Logger#i(String, Logger.MessageSupplier)} of the current logger, if any.
+	 */
+	public static void i(@NonNull String tag, @NonNull Logger.MessageSupplier supplier) {
+		final Logger logger = sLogger;
+		if (logger != null) logger.i(tag, supplier);
+	}
+
+	/**
+	 * Delegates to {@link Logger#w(String, String)} of the current logger, if any.
+	 */
+	public static void w(@NonNull String tag, @NonNull String msg) {
+		final Logger logger = sLogger;
+		if (logger != null) logger.w(tag, msg);
+	}
+
+	/**
+	 * Delegates to {@link Logger#w(String, String, Throwable)} of the current logger, if any.
+	 */
+	public static void w(@NonNull String tag, @NonNull String msg, @Nullable Throwable tr) {
+		final Logger logger = sLogger;
+		if (logger != null) logger.w(tag, msg, tr);
+	}
+
+	/**
+	 * Delegates to {@link Logger#w(String, Throwable)} of the current logger, if any.
+	 */
+	public static void w(@NonNull String tag, @Nullable Throwable tr) {
+		final Logger logger = sLogger;
+		if (logger != null) logger.w(tag, tr);
+	}
+
+	/**
+	 * Delegates to {@link Logger#w(String, String, Object)} of the current logger, if any.
+	 */
+	public static void w(@NonNull String tag, @NonNull String template, @Nullable Object arg) {
+		final Logger logger = sLogger;
+		if (logger != null) logger.w(tag, template, arg);
+	}
+
+	/**
+	 * Delegates to {@link Logger#w(String, String, Object, Object)} of the current logger, if any.
+	 */
+	public static void w(@NonNull String tag, @NonNull String template, @Nullable Object arg1, @Nullable Object arg2) {
+		final Logger logger = sLogger;
+		if (logger != null) logger.w(tag, template, arg1, arg2);
+	}
+
+	/**
+	 * Delegates to {@link Logger#w(String, Logger.MessageSupplier)} of the current logger, if any.
+	 */
+	public static void w(@NonNull String tag, @NonNull Logger.MessageSupplier supplier) {
+		final Logger logger = sLogger;
+		if (logger != null) logger.w(tag, supplier);
+	}
+
+	/**
+	 * Delegates to {@link Logger#e(String, String)} of the current logger, if any.
+	 */
+	public static void e(@NonNull String tag, @NonNull String msg) {
+		final Logger logger = sLogger;
+		if (logger != null) logger.e(tag, msg);
+	}
+
+	/**
+	 * Delegates to {@link Logger#e(String, String, Throwable)} of the current logger, if any.
+	 */
+	public static void e(@NonNull String tag, @NonNull String msg, @Nullable Throwable tr) {
+		final Logger logger = sLogger;
+		if (logger != null) logger.e(tag, msg, tr);
+	}
+
+	/**
+	 * Delegates to {@link Logger#e(String, String, Object)} of the current logger, if any.
+	 */
+	public static void e(@NonNull String tag, @NonNull String template, @Nullable Object arg) {
+		final Logger logger = sLogger;
+		if (logger != null) logger.e(tag, template, arg);
+	}
+
+	/**
+	 * Delegates to {@link Logger#e(String, String, Object, Object)} of the current logger, if any.
+	 */
+	public static void e(@NonNull String tag, @NonNull String template, @Nullable Object arg1, @Nullable Object arg2) {
+		final Logger logger = sLogger;
+		if (logger != null) logger.e(tag, template, arg1, arg2);
+	}
+
+	/**
+	 * Delegates to {@link Logger#e(String, Logger.MessageSupplier)} of the current logger, if any.
+	 */
+	public static void e(@NonNull String tag, @NonNull Logger.MessageSupplier supplier) {
+		final Logger logger = sLogger;
+		if (logger != null) logger.e(tag, supplier);
+	}
+
+	/**
+	 * Delegates to {@link Logger#wtf(String, String)} of the current logger. Calls with
+	 * {@link Log#ASSERT} level are never removed.
+	 */
+	public static void wtf(@NonNull String tag, @NonNull String msg) {
+		final Logger logger = sLogger;
+		if (logger != null) logger.wtf(tag, msg);
+	}
+
+	/**
+	 * Delegates to {@link Logger#wtf(String, Throwable)} of the current logger. Calls with
+	 * {@link Log#ASSERT} level are never removed.
+	 */
+	public static void wtf(@NonNull String tag, @Nullable Throwable tr) {
+		final Logger logger = sLogger;
+		if (logger != null) logger.wtf(tag, tr);
+	}
+
+	/**
+	 * Delegates to {@link Logger#wtf(String, String, Throwable)} of the current logger. Calls with
+	 * {@link Log#ASSERT} level are never removed.
+	 */
+	public static void wtf(@NonNull String tag, @NonNull String msg, @Nullable Throwable tr) {
+		final Logger logger = sLogger;
+		if (logger != null) logger.wtf(tag, msg, tr);
+	}
+
+	/**
+	 * Inner classes ===============================================================================
+	 */
+}
@@ -0,0 +1,635 @@
+/*
+ * =================================================================================================
+ *                             Copyright (C) 2017 Universum Studios
+ * =================================================================================================
+ *         Licensed under the Apache License, Version 2.0 or later (further "License" only).
+ * -------------------------------------------------------------------------------------------------
+ * You may use this file only in compliance with the License. More details and copy of this License
+ * you may obtain at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * You can redistribute, modify or publish any part of the code written within this file but as it
+ * is described in the License, the software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES or CONDITIONS OF ANY KIND.
+ *
+ * See the License for the specific language governing permissions and limitations under the License.
+ * =================================================================================================
+ */
+package universum.studios.android.util;
+
+import android.support.annotation.IntRange;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.Log;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileFilter;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * A {@link Logger} implementation which persists log records into segment files within a specified
+ * directory. Each segment is mapped into memory via {@link MappedByteBuffer}, so appending of a
+ * record is only a memory copy and no system call is made per record. The operating system writes
+ * the mapped pages into the file on its own, also when the process is killed.
+ * <p>
+ * When the current segment cannot fit a record, it is closed and a new one is started. Only the
+ * specified count of the most recent segments is retained, the older ones are deleted. A new segment
+ * is also started whenever a new logger is created for the same directory and name.
+ * <p>
+ * Each record is written as a single text line (with stack trace lines following when a throwable
+ * is logged) in the following format:
+ * <pre>
+ * {timeInMillis} {level}/{tag}: {message}
+ * </pre>
+ * Segment files are preallocated to the segment size while being written and truncated to their
+ * actual length when closed. A segment of a process that has been killed may therefore contain
+ * trailing {@code '\0'} bytes which should be ignored by readers.
+ * <p>
+ * Alongside each segment is written a sparse index with time range and tags of each block of
+ * records, so records of a specific time window or tag may be queried via {@link LogQuery} without
+ * reading of whole segments.
+ * <p>
+ * Closed segments may be compressed on a background thread by a {@link SegmentCompressor} set via
+ * {@link #setSegmentCompressor(SegmentCompressor)}. The current segment always stays uncompressed,
+ * so appending of records is not affected by compression. While a compressor is set, closed segments
+ * are not deleted by the logger but are retained within the disk size limit of the compressor.
+ * Once the compressor is closed, segments are again retained by their maximum count. Segments,
+ * compressed or not, may be read via {@link SegmentReader}.
+ *
+ * @author Martin Albedinsky
+ */
+public class MappedFileLogger extends BaseLogger implements Closeable, Flushable {
+
+	/**
+	 * Constants ===================================================================================
+	 */
+
+	/**
+	 * Log TAG.
+	 */
+	// private static final String TAG = "MappedFileLogger";
+
+	/**
+	 * Default size of a single segment file in bytes.
+	 */
+	public static final int DEFAULT_SEGMENT_SIZE = 1024 * 1024;
+
+	/**
+	 * Default count of segment files retained on the disk.
+	 */
+	public static final int DEFAULT_MAX_SEGMENTS = 5;
+
+	/**
+	 * Extension of segment files.
+	 */
+	public static final String SEGMENT_EXTENSION = ".log";
+
+	/**
+	 * Extension of compressed segment files.
+	 */
+	public static final String COMPRESSED_SEGMENT_EXTENSION = SEGMENT_EXTENSION + SegmentCompressor.EXTENSION;
+
+	/**
+	 * Separator between the name and the index of a segment file.
+	 */
+	static final char SEGMENT_INDEX_SEPARATOR = '-';
+
+	/**
+	 * Characters identifying log levels within records indexed by the level.
+	 */
+	private static final byte[] LEVEL_CHARS = {'?', '?', 'V', 'D', 'I', 'W', 'E', 'A'};
+
+	/**
+	 * Comparator ordering segment files from the oldest to the newest one by their indexes.
+	 */
+	private static final Comparator<File> SEGMENT_ORDER = new Comparator<File>() {
+
+		/**
+		 */
+		@Override
+		public int compare(File first, File second) {
+			final long firstIndex = parseSegmentIndex(first.getName());
+			final long secondIndex = parseSegmentIndex(second.getName());
+			return firstIndex < secondIndex ? -1 : (firstIndex == secondIndex ? 0 : 1);
+		}
+	};
+
+	/**
+	 * Interface ===================================================================================
+	 */
+
+	/**
+	 * Static members ==============================================================================
+	 */
+
+	/**
+	 * Members =====================================================================================
+	 */
+
+	/**
+	 * Lock used to synchronize appending of records.
+	 */
+	private final Object mLock = new Object();
+
+	/**
+	 * Directory where are stored the segment files.
+	 */
+	private final File mDirectory;
+
+	/**
+	 * Name of this logger used as prefix for names of its segment files.
+	 */
+	private final String mName;
+
+	/**
+	 * Size of a single segment file in bytes.
+	 */
+	private final int mSegmentSize;
+
+	/**
+	 * Maximum count of segment files retained on the disk.
+	 */
+	private final int mMaxSegments;
+
+	/**
+	 * Index of the current segment.
+	 */
+	private long mSegmentIndex;
+
+	/**
+	 * Current segment file.
+	 */
+	private File mSegmentFile;
+
+	/**
+	 * Random access file of the current segment.
+	 */
+	private RandomAccessFile mSegmentAccess;
+
+	/**
+	 * Buffer mapped to the current segment file.
+	 */
+	private MappedByteBuffer mBuffer;
+
+	/**
+	 * Index of the current segment.
+	 */
+	private SegmentIndex mIndex;
+
+	/**
+	 * Compressor to which are passed the closed segments. May be {@code null}.
+	 */
+	private SegmentCompressor mCompressor;
+
+	/**
+	 * Builder into which are rendered stack traces of the logged throwables.
+	 */
+	private final StringBuilder mStackTraceBuilder = new StringBuilder(256);
+
+	/**
+	 * Flag indicating whether this logger has been closed.
+	 */
+	private boolean mClosed;
+
+	/**
+	 * Constructors ================================================================================
+	 */
+
+	/**
+	 * Same as {@link #MappedFileLogger(int, File, String, int, int)} with {@link #DEFAULT_SEGMENT_SIZE}
+	 * and {@link #DEFAULT_MAX_SEGMENTS}.
+	 */
+	public MappedFileLogger(@Level int level, @NonNull File directory, @NonNull String name) throws IOException {
+		this(level, directory, name, DEFAULT_SEGMENT_SIZE, DEFAULT_MAX_SEGMENTS);
+	}
+
+	/**
+	 * Creates a new instance of MappedFileLogger with the specified log level and starts a new
+	 * segment file within the specified <var>directory</var>.
+	 *
+	 * @param level       The initial logging level for the logger.
+	 * @param directory   The directory where to store the segment files. Will be created if it
+	 *                    does not exist yet.
+	 * @param name        Name used as prefix for names of the segment files.
+	 * @param segmentSize Size of a single segment file in bytes.
+	 * @param maxSegments Count of the most recent segment files to be retained.
+	 * @throws IOException If the directory cannot be created or the segment file cannot be opened.
+	 */
+	public MappedFileLogger(
+			@Level int level,
+			@NonNull File directory,
+			@NonNull String name,
+			@IntRange(from = 1) int segmentSize,
+			@IntRange(from = 1) int maxSegments
+	) throws IOException {
+		super(level);
+		if (segmentSize <= 0) throw new IllegalArgumentException("Segment size must be positive.");
+		if (maxSegments <= 0) throw new IllegalArgumentException("Max segments must be positive.");
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException("Failed to create directory(" + directory + ").");
+		}
+		this.mDirectory = directory;
+		this.mName = name;
+		this.mSegmentSize = segmentSize;
+		this.mMaxSegments = maxSegments;
+		this.mSegmentIndex = Math.max(nextSegmentIndex(listSegments()), nextSegmentIndex(listCompressedSegments()));
+		synchronized (mLock) {
+			openSegment();
+			deleteObsoleteSegments();
+		}
+	}
+
+	/**
+	 * Methods =====================================================================================
+	 */
+
+	/**
+	 * Returns the directory where are stored the segment files of this logger.
+	 *
+	 * @return Logger's directory.
+	 */
+	@NonNull
+	public final File getDirectory() {
+		return mDirectory;
+	}
+
+	/**
+	 * Returns the name of this logger used as prefix for names of its segment files.
+	 *
+	 * @return Logger's name.
+	 */
+	@NonNull
+	public final String getName() {
+		return mName;
+	}
+
+	/**
+	 * Returns the segment file into which are currently appended new records.
+	 *
+	 * @return Current segment file.
+	 */
+	@NonNull
+	public File getCurrentSegment() {
+		synchronized (mLock) {
+			return mSegmentFile;
+		}
+	}
+
+	/**
+	 * Sets a compressor to which to pass segments of this logger once they are closed. All closed
+	 * segments that are currently stored on the disk are passed to the compressor immediately.
+	 *
+	 * @param compressor The desired compressor. May be {@code null} to not compress segments.
+	 * @see #getSegmentCompressor()
+	 */
+	public void setSegmentCompressor(@Nullable SegmentCompressor compressor) {
+		synchronized (mLock) {
+			this.mCompressor = compressor;
+			if (compressor == null) {
+				return;
+			}
+			for (final File segment : listSegments()) {
+				if (!segment.equals(mSegmentFile) && !compressor.enqueue(this, segment)) {
+					// Closed compressor does not take care of the segments.
+					deleteObsoleteSegments();
+					return;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the compressor to which are passed the closed segments of this logger.
+	 *
+	 * @return This logger's compressor or {@code null} if segments are not compressed.
+	 * @see #setSegmentCompressor(SegmentCompressor)
+	 */
+	@Nullable
+	public SegmentCompressor getSegmentCompressor() {
+		synchronized (mLock) {
+			return mCompressor;
+		}
+	}
+
+	/**
+	 * Lists all uncompressed segment files of this logger that are currently stored on the disk.
+	 *
+	 * @return Segment files ordered from the oldest to the newest one.
+	 */
+	@NonNull
+	public File[] listSegments() {
+		return listSegments(SEGMENT_EXTENSION);
+	}
+
+	/**
+	 * Lists all compressed segment files of this logger that are currently stored on the disk.
+	 *
+	 * @return Compressed segment files ordered from the oldest to the newest one.
+	 * @see #setSegmentCompressor(SegmentCompressor)
+	 */
+	@NonNull
+	public File[] listCompressedSegments() {
+		return listSegments(COMPRESSED_SEGMENT_EXTENSION);
+	}
+
+	/**
+	 * Lists all segment files of this logger, compressed and uncompressed, that are currently stored
+	 * on the disk.
+	 *
+	 * @return Segment files ordered from the oldest to the newest one.
+	 */
+	@NonNull
+	public File[] listAllSegments() {
+		final File[] compressed = listCompressedSegments();
+		final File[] segments = listSegments();
+		final File[] allSegments = new File[compressed.length + segments.length];
+		System.arraycopy(compressed, 0, allSegments, 0, compressed.length);
+		System.arraycopy(segments, 0, allSegments, compressed.length, segments.length);
+		Arrays.sort(allSegments, SEGMENT_ORDER);
+		return allSegments;
+	}
+
+	/**
+	 * Lists segment files of this logger with the specified <var>extension</var>.
+	 */
+	private File[] listSegments(final String extension) {
+		final String prefix = mName + SEGMENT_INDEX_SEPARATOR;
+		final File[] segments = mDirectory.listFiles(new FileFilter() {
+
+			/**
+			 */
+			@Override
+			public boolean accept(File file) {
+				final String fileName = file.getName();
+				return fileName.startsWith(prefix) &&
+						fileName.endsWith(extension) &&
+						fileName.lastIndexOf(SEGMENT_INDEX_SEPARATOR) == prefix.length() - 1 &&
+						parseSegmentIndex(fileName) >= 0;
+			}
+		});
+		if (segments == null) {
+			return new File[0];
+		}
+		Arrays.sort(segments, SEGMENT_ORDER);
+		return segments;
+	}
+
+	/**
+	 * Returns index following index of the newest of the given ordered <var>segments</var>.
+	 */
+	private static long nextSegmentIndex(File[] segments) {
+		return segments.length == 0 ? 0 : parseSegmentIndex(segments[segments.length - 1].getName()) + 1;
+	}
+
+	/**
+	 * Parses index of a segment from the specified segment file name.
+	 *
+	 * @param fileName Name of the segment file.
+	 * @return Parsed index or {@code -1} if the name is not a valid segment file name.
+	 */
+	static long parseSegmentIndex(String fileName) {
+		final int start = fileName.lastIndexOf(SEGMENT_INDEX_SEPARATOR) + 1;
+		int end = fileName.indexOf('.', start);
+		if (end == -1) end = fileName.length();
+		if (start == 0 || start == end) {
+			return -1;
+		}
+		long index = 0;
+		for (int i = start; i < end; i++) {
+			final char c = fileName.charAt(i);
+			if (c < '0' || c > '9') return -1;
+			index = index * 10 + (c - '0');
+		}
+		return index;
+	}
+
+	/**
+	 */
+	@Override
+	protected void onLog(@Level int level, @NonNull String tag, @Nullable String msg, @Nullable Throwable tr) {
+		synchronized (mLock) {
+			if (mClosed) return;
+			CharSequence stackTrace = null;
+			if (tr != null) {
+				mStackTraceBuilder.setLength(0);
+				appendStackTrace(mStackTraceBuilder, tr);
+				stackTrace = mStackTraceBuilder;
+			}
+			final long time = currentTimeMillis();
+			final int length = computeRecordLength(time, tag, msg, stackTrace);
+			if (length > mBuffer.remaining() && mBuffer.position() > 0) {
+				try {
+					rollSegment();
+				} catch (IOException e) {
+					closeOnFailure();
+					return;
+				}
+			}
+			writeRecord(time, level, tag, msg, stackTrace);
+		}
+	}
+
+	/**
+	 * Returns the current time in milliseconds written into the records.
+	 *
+	 * @return Wall clock time in milliseconds.
+	 */
+	long currentTimeMillis() {
+		return System.currentTimeMillis();
+	}
+
+	/**
+	 * Computes count of bytes of a record with the specified data.
+	 */
+	private static int computeRecordLength(long time, String tag, String msg, CharSequence stackTrace) {
+		int length = Utf8.decimalLength(time) + 3 + Utf8.encodedLength(tag, 0, tag.length()) + 2;
+		if (msg != null) {
+			length += Utf8.encodedLength(msg, 0, msg.length());
+		}
+		if (stackTrace != null) {
+			length += 1 + Utf8.encodedLength(stackTrace, 0, stackTrace.length());
+		}
+		return length + 1;
+	}
+
+	/**
+	 * Writes a record with the specified data into the current segment. If the record does not fit
+	 * the segment, it is truncated.
+	 */
+	private void writeRecord(long time, int level, String tag, String msg, CharSequence stackTrace) {
+		final MappedByteBuffer buffer = mBuffer;
+		mIndex.add(buffer.position(), time, tag);
+		// Always keep space for the terminating new line character.
+		buffer.limit(buffer.capacity() - 1);
+		if (buffer.remaining() >= Utf8.decimalLength(time) + 3) {
+			Utf8.encodeDecimal(time, buffer);
+			buffer.put((byte) ' ');
+			buffer.put(level >= 0 && level < LEVEL_CHARS.length ? LEVEL_CHARS[level] : (byte) '?');
+			buffer.put((byte) '/');
+			if (Utf8.encode(tag, 0, tag.length(), buffer) == tag.length() && buffer.remaining() >= 2) {
+				buffer.put((byte) ':');
+				buffer.put((byte) ' ');
+				if (msg != null) {
+					Utf8.encode(msg, 0, msg.length(), buffer);
+				}
+				if (stackTrace != null && buffer.hasRemaining()) {
+					buffer.put((byte) '\n');
+					Utf8.encode(stackTrace, 0, stackTrace.length(), buffer);
+				}
+			}
+		}
+		buffer.limit(buffer.capacity());
+		buffer.put((byte) '\n');
+	}
+
+	/**
+	 * Closes the current segment and opens a new one.
+	 *
+	 * @throws IOException If some I/O error occurs.
+	 */
+	private void rollSegment() throws IOException {
+		closeSegment();
+		final File closedSegment = mSegmentFile;
+		this.mSegmentIndex++;
+		openSegment();
+		if (mCompressor == null || !mCompressor.enqueue(this, closedSegment)) {
+			// Without a compressor accepting the segment, the segments are retained by count.
+			deleteObsoleteSegments();
+		}
+	}
+
+	/**
+	 * Opens segment file for the current segment index and maps it into memory.
+	 *
+	 * @throws IOException If some I/O error occurs.
+	 */
+	private void openSegment() throws IOException {
+		this.mSegmentFile = new File(mDirectory, mName + SEGMENT_INDEX_SEPARATOR + mSegmentIndex + SEGMENT_EXTENSION);
+		this.mSegmentAccess = new RandomAccessFile(mSegmentFile, "rw");
+		try {
+			this.mBuffer = mSegmentAccess.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, mSegmentSize);
+		} catch (IOException e) {
+			mSegmentAccess.close();
+			this.mSegmentAccess = null;
+			throw e;
+		}
+		this.mIndex = new SegmentIndex(this, mSegmentFile);
+	}
+
+	/**
+	 * Forces content of the current segment to the storage, truncates the segment file to the
+	 * actual length of its content and closes it.
+	 *
+	 * @throws IOException If some I/O error occurs.
+	 */
+	private void closeSegment() throws IOException {
+		if (mSegmentAccess == null) return;
+		mIndex.finish(mBuffer.position());
+		try {
+			mBuffer.force();
+			mSegmentAccess.getChannel().truncate(mBuffer.position());
+		} finally {
+			mSegmentAccess.close();
+			this.mSegmentAccess = null;
+		}
+	}
+
+	/**
+	 * Deletes the oldest segment files so only the maximum count of segments is retained.
+	 */
+	private void deleteObsoleteSegments() {
+		final File[] segments = listSegments();
+		for (int i = 0; i < segments.length - mMaxSegments; i++) {
+			if (segments[i].equals(mSegmentFile)) {
+				continue;
+			}
+			if (!segments[i].delete()) {
+				logWarning("Failed to delete obsolete segment(" + segments[i] + ").", null);
+			} else {
+				deleteIndex(segments[i]);
+			}
+		}
+	}
+
+	/**
+	 * Deletes index file of the specified deleted <var>segment</var>, if it exists.
+	 *
+	 * @param segment The deleted segment file.
+	 */
+	void deleteIndex(File segment) {
+		final File index = SegmentIndex.fileFor(segment);
+		if (index.exists() && !index.delete()) {
+			logWarning("Failed to delete index(" + index + ").", null);
+		}
+	}
+
+	/**
+	 * Logs the specified warning about a failure of this logger's files via
+	 * {@link Log#w(String, String, Throwable)}.
+	 *
+	 * @param message The warning message.
+	 * @param error   The error causing the warning, if any.
+	 */
+	void logWarning(String message, Throwable error) {
+		Log.w(getClass().getSimpleName(), message, error);
+	}
+
+	/**
+	 * Closes this logger after an I/O failure, so no more records are appended.
+	 */
+	private void closeOnFailure() {
+		this.mClosed = true;
+		try {
+			closeSegment();
+		} catch (IOException ignored) {
+			// Logger is already in failed state.
+		}
+	}
+
+	/**
+	 * Forces the records appended so far to be written to the storage.
+	 */
+	@Override
+	public void flush() {
+		synchronized (mLock) {
+			if (!mClosed) mBuffer.force();
+		}
+	}
+
+	/**
+	 * Closes the current segment of this logger. All records logged after this call are ignored.
+	 *
+	 * @throws IOException If the current segment cannot be closed.
+	 */
+	@Override
+	public void close() throws IOException {
+		synchronized (mLock) {
+			if (mClosed) return;
+			this.mClosed = true;
+			closeSegment();
+		}
+	}
+
+	/**
+	 * Checks whether this logger has been closed, either via {@link #close()} or due to a failure.
+	 *
+	 * @return {@code True} if this logger no longer appends records, {@code false} otherwise.
+	 */
+	public boolean isClosed() {
+		synchronized (mLock) {
+			return mClosed;
+		}
+	}
+
+	/**
+	 * Inner classes ===============================================================================
+	 */
+}
@@ -0,0 +1,199 @@
+/*
+ * =================================================================================================
+ *                             Copyright (C) 2017 Universum Studios
+ * =================================================================================================
+ *         Licensed under the Apache License, Version 2.0 or later (further "License" only).
+ * -------------------------------------------------------------------------------------------------
+ * You may use this file only in compliance with the License. More details and copy of this License
+ * you may obtain at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * You can redistribute, modify or publish any part of the code written within this file but as it
+ * is described in the License, the software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES or CONDITIONS OF ANY KIND.
+ *
+ * See the License for the specific language governing permissions and limitations under the License.
+ * =================================================================================================
+ */
+package universum.studios.android.util;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+/**
+ * Formatter used by loggers to format log message templates. Each {@link #PLACEHOLDER} found within
+ * a template is in order replaced by one of the supplied arguments. Placeholders without a matching
+ * argument are left as they are and arguments without a matching placeholder are ignored.
+ * <p>
+ * Messages are built in a {@link StringBuilder} that is reused per thread and primitive arguments
+ * are appended directly, so the only object allocated per format call is the resulting String.
+ * Object arguments are converted to strings before the buffer is obtained, so their {@code toString()}
+ * methods may log formatted messages as well without corrupting the message being formatted.
+ *
+ * @author Martin Albedinsky
+ */
+final class MessageFormatter {
+
+	/**
+	 * Constants ===================================================================================
+	 */
+
+	/**
+	 * Placeholder for arguments within message templates.
+	 */
+	static final String PLACEHOLDER = "{}";
+
+	/**
+	 * Initial capacity of the per thread buffer.
+	 */
+	private static final int BUFFER_CAPACITY = 256;
+
+	/**
+	 * Maximum capacity of the per thread buffer that may be retained between format calls. Larger
+	 * buffers are released so a single huge message does not occupy memory for the thread lifetime.
+	 */
+	private static final int BUFFER_MAX_RETAINED_CAPACITY = 8 * 1024;
+
+	/**
+	 * Interface ===================================================================================
+	 */
+
+	/**
+	 * Static members ==============================================================================
+	 */
+
+	/**
+	 * Per thread buffers used to build formatted messages.
+	 */
+	private static final ThreadLocal<StringBuilder> BUFFER = new ThreadLocal<StringBuilder>() {
+
+		/**
+		 */
+		@Override
+		protected StringBuilder initialValue() {
+			return new StringBuilder(BUFFER_CAPACITY);
+		}
+	};
+
+	/**
+	 * Members =====================================================================================
+	 */
+
+	/**
+	 * Constructors ================================================================================
+	 */
+
+	/**
+	 */
+	private MessageFormatter() {
+		// Creation of instances of this class is not publicly allowed.
+	}
+
+	/**
+	 * Methods =====================================================================================
+	 */
+
+	/**
+	 * Formats the given <var>template</var> with the specified argument.
+	 *
+	 * @param template The template to be formatted.
+	 * @param arg      The argument for the first placeholder.
+	 * @return Formatted message.
+	 */
+	@NonNull
+	static String format(@NonNull String template, @Nullable Object arg) {
+		final int index = template.indexOf(PLACEHOLDER);
+		if (index == -1) return template;
+		final String value = String.valueOf(arg);
+		final StringBuilder buffer = obtainBuffer();
+		buffer.append(template, 0, index).append(value).append(template, index + 2, template.length());
+		return releaseBuffer(buffer);
+	}
+
+	/**
+	 * Formats the given <var>template</var> with the specified arguments.
+	 *
+	 * @param template The template to be formatted.
+	 * @param arg1     The argument for the first placeholder.
+	 * @param arg2     The argument for the second placeholder.
+	 * @return Formatted message.
+	 */
+	@NonNull
+	static String format(@NonNull String template, @Nullable Object arg1, @Nullable Object arg2) {
+		final int first = template.indexOf(PLACEHOLDER);
+		if (first == -1) return template;
+		final int second = template.indexOf(PLACEHOLDER, first + 2);
+		final String value1 = String.valueOf(arg1);
+		final String value2 = second == -1 ? null : String.valueOf(arg2);
+		final StringBuilder buffer = obtainBuffer();
+		buffer.append(template, 0, first).append(value1);
+		if (second == -1) {
+			buffer.append(template, first + 2, template.length());
+		} else {
+			buffer.append(template, first + 2, second).append(value2).append(template, second + 2, template.length());
+		}
+		return releaseBuffer(buffer);
+	}
+
+	/**
+	 * Same as {@link #format(String, Object)} for {@code int} argument.
+	 */
+	@NonNull
+	static String format(@NonNull String template, int arg) {
+		final int index = template.indexOf(PLACEHOLDER);
+		if (index == -1) return template;
+		final StringBuilder buffer = obtainBuffer();
+		buffer.append(template, 0, index).append(arg).append(template, index + 2, template.length());
+		return releaseBuffer(buffer);
+	}
+
+	/**
+	 * Same as {@link #format(String, Object)} for {@code long} argument.
+	 */
+	@NonNull
+	static String format(@NonNull String template, long arg) {
+		final int index = template.indexOf(PLACEHOLDER);
+		if (index == -1) return template;
+		final StringBuilder buffer = obtainBuffer();
+		buffer.append(template, 0, index).append(arg).append(template, index + 2, template.length());
+		return releaseBuffer(buffer);
+	}
+
+	/**
+	 * Same as {@link #format(String, Object)} for {@code double} argument.
+	 */
+	@NonNull
+	static String format(@NonNull String template, double arg) {
+		final int index = template.indexOf(PLACEHOLDER);
+		if (index == -1) return template;
+		final StringBuilder buffer = obtainBuffer();
+		buffer.append(template, 0, index).append(arg).append(template, index + 2, template.length());
+		return releaseBuffer(buffer);
+	}
+
+	/**
+	 * Obtains the buffer for the current thread. The buffer is always empty.
+	 */
+	private static StringBuilder obtainBuffer() {
+		final StringBuilder buffer = BUFFER.get();
+		buffer.setLength(0);
+		return buffer;
+	}
+
+	/**
+	 * Builds the resulting message from the given <var>buffer</var> and releases the buffer if it
+	 * has grown too much.
+	 */
+	private static String releaseBuffer(StringBuilder buffer) {
+		final String message = buffer.toString();
+		if (buffer.capacity() > BUFFER_MAX_RETAINED_CAPACITY) {
+			BUFFER.set(new StringBuilder(BUFFER_CAPACITY));
+		}
+		return message;
+	}
+
+	/**
+	 * Inner classes ===============================================================================
+	 */
+}
@@ -0,0 +1,124 @@
+/*
+ * =================================================================================================
+ *                             Copyright (C) 2017 Universum Studios
+ * =================================================================================================
+ *         Licensed under the Apache License, Version 2.0 or later (further "License" only).
+ * -------------------------------------------------------------------------------------------------
+ * You may use this file only in compliance with the License. More details and copy of this License
+ * you may obtain at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * You can redistribute, modify or publish any part of the code written within this file but as it
+ * is described in the License, the software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES or CONDITIONS OF ANY KIND.
+ *
+ * See the License for the specific language governing permissions and limitations under the License.
+ * =================================================================================================
+ */
+package universum.studios.android.util;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+/**
+ * A {@link DelegatingLogger} implementation which records metrics of the log calls passing through
+ * it into {@link LoggerMetrics}. Each record written into the delegate is counted as emitted along
+ * with the time the write took, and each log call rejected by the level check is counted as
+ * suppressed. To measure time spent by writing into logcat, wrap {@link SimpleLogger}, to measure
+ * only the time spent by publishing of records, wrap {@link AsyncLogger}.
+ * <p>
+ * Note that the level checks performed via {@link #isLoggable(String, int)} directly, like guards
+ * around expensive log calls, are counted the same way as the ones performed by the log calls, while
+ * the level checks of tag handles, which do not call {@link #isLoggable(String, int)}, are not
+ * counted at all.
+ *
+ * @author Martin Albedinsky
+ */
+public class MetricsLogger extends DelegatingLogger {
+
+	/**
+	 * Constants ===================================================================================
+	 */
+
+	/**
+	 * Log TAG.
+	 */
+	// private static final String TAG = "MetricsLogger";
+
+	/**
+	 * Interface ===================================================================================
+	 */
+
+	/**
+	 * Static members ==============================================================================
+	 */
+
+	/**
+	 * Members =====================================================================================
+	 */
+
+	/**
+	 * Metrics into which are recorded the log calls.
+	 */
+	private final LoggerMetrics mMetrics;
+
+	/**
+	 * Constructors ================================================================================
+	 */
+
+	/**
+	 * Same as {@link #MetricsLogger(Logger, LoggerMetrics)} with a new instance of metrics.
+	 */
+	public MetricsLogger(@NonNull Logger delegate) {
+		this(delegate, new LoggerMetrics());
+	}
+
+	/**
+	 * Creates a new instance of MetricsLogger for the given <var>delegate</var> logger.
+	 *
+	 * @param delegate The logger to be measured.
+	 * @param metrics  The metrics into which to record the log calls. May be shared by multiple
+	 *                 loggers.
+	 */
+	public MetricsLogger(@NonNull Logger delegate, @NonNull LoggerMetrics metrics) {
+		super(delegate);
+		this.mMetrics = metrics;
+	}
+
+	/**
+	 * Methods =====================================================================================
+	 */
+
+	/**
+	 * Returns the metrics into which are recorded the log calls passing through this logger.
+	 *
+	 * @return This logger's metrics.
+	 */
+	@NonNull
+	public LoggerMetrics getMetrics() {
+		return mMetrics;
+	}
+
+	/**
+	 */
+	@Override
+	public boolean isLoggable(@NonNull String tag, @Level int level) {
+		final boolean loggable = super.isLoggable(tag, level);
+		if (!loggable) mMetrics.recordSuppressed(level, tag);
+		return loggable;
+	}
+
+	/**
+	 */
+	@Override
+	protected void onLog(@Level int level, @NonNull String tag, @Nullable String msg, @Nullable Throwable tr, boolean forced) {
+		final long start = System.nanoTime();
+		super.onLog(level, tag, msg, tr, forced);
+		mMetrics.recordEmitted(level, tag, System.nanoTime() - start);
+	}
+
+	/**
+	 * Inner classes ===============================================================================
+	 */
+}
@@ -0,0 +1,394 @@
+/*
+ * =================================================================================================
+ *                             Copyright (C) 2017 Universum Studios
+ * =================================================================================================
+ *         Licensed under the Apache License, Version 2.0 or later (further "License" only).
+ * -------------------------------------------------------------------------------------------------
+ * You may use this file only in compliance with the License. More details and copy of this License
+ * you may obtain at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * You can redistribute, modify or publish any part of the code written within this file but as it
+ * is described in the License, the software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES or CONDITIONS OF ANY KIND.
+ *
+ * See the License for the specific language governing permissions and limitations under the License.
+ * =================================================================================================
+ */
+package universum.studios.android.util;
+
+import android.support.annotation.IntRange;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.Log;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A {@link DelegatingLogger} implementation which protects its delegate against log storms, like
+ * the same failure being logged thousands of times per second. Each tag has its own token bucket
+ * that allows up to a <b>burst</b> of records at once and then a sustained rate of <b>permits per
+ * second</b>. Optionally, only every N-th record of a tag may be sampled before it even reaches the
+ * bucket via {@link #setSampleRate(int)}.
+ * <p>
+ * Records rejected by the limiter are only counted. As soon as a record of the same tag passes
+ * again, a single summary record with the count of suppressed records is logged right before it,
+ * at the highest level of the suppressed records. If no record of the tag is logged anymore, like
+ * when a storm stops, the summary is logged by a shared timer thread once the bucket of the tag
+ * refills, so a record would pass again. Summaries still pending may be logged on demand via
+ * {@link #flush()}. Records with {@link Log#ASSERT} level are never limited.
+ * <p>
+ * The decision whether to pass a record is lock-free and does not allocate: the token bucket of a
+ * tag is implemented as the generic cell rate algorithm, where the whole bucket state is a single
+ * "theoretical arrival time" updated via compare-and-set. Only the first record of each tag creates
+ * the state for that tag. Count of tags with own state is limited by {@link #MAX_TAGS}, records of
+ * any further tags share a single state under {@link #OTHER_TAGS}, with which are also logged its
+ * summaries.
+ *
+ * @author Martin Albedinsky
+ */
+public class RateLimitingLogger extends DelegatingLogger {
+
+	/**
+	 * Constants ===================================================================================
+	 */
+
+	/**
+	 * Log TAG.
+	 */
+	// private static final String TAG = "RateLimitingLogger";
+
+	/**
+	 * Maximum count of tags for which are tracked separate limiting states.
+	 */
+	public static final int MAX_TAGS = 256;
+
+	/**
+	 * Name under which are limited records of tags beyond {@link #MAX_TAGS}.
+	 */
+	public static final String OTHER_TAGS = "*";
+
+	/**
+	 * Count of nanoseconds in one second.
+	 */
+	private static final double NANOS_PER_SECOND = 1000000000d;
+
+	/**
+	 * Interface ===================================================================================
+	 */
+
+	/**
+	 * Static members ==============================================================================
+	 */
+
+	/**
+	 * Members =====================================================================================
+	 */
+
+	/**
+	 * Nanoseconds needed to refill a single permit into a bucket.
+	 */
+	private final long mEmissionInterval;
+
+	/**
+	 * Nanoseconds for which a bucket may run ahead of the current time, determined by the burst.
+	 */
+	private final long mBurstTolerance;
+
+	/**
+	 * Limiting states for the tags logged so far mapped to the tag names.
+	 */
+	private final ConcurrentHashMap<String, TagState> mStates = new ConcurrentHashMap<>();
+
+	/**
+	 * Rate in which are records sampled before they are passed to the token bucket.
+	 */
+	private volatile int mSampleRate = 1;
+
+	/**
+	 * Flag indicating whether a check of pending summaries has been scheduled.
+	 */
+	private final AtomicBoolean mSummaryCheckScheduled = new AtomicBoolean();
+
+	/**
+	 * Task checking pending summaries, run by {@link LogTimer}.
+	 */
+	private final Runnable mSummaryCheck = new Runnable() {
+
+		/**
+		 */
+		@Override
+		public void run() {
+			checkSummaries();
+		}
+	};
+
+	/**
+	 * Constructors ================================================================================
+	 */
+
+	/**
+	 * Creates a new instance of RateLimitingLogger for the given <var>delegate</var> logger.
+	 *
+	 * @param delegate        The logger to be protected.
+	 * @param permitsPerSecond Sustained count of records per second allowed for a single tag.
+	 * @param burst           Count of records of a single tag that may be logged at once.
+	 * @throws IllegalArgumentException If the rate is not positive or the burst is less than 1.
+	 */
+	public RateLimitingLogger(@NonNull Logger delegate, double permitsPerSecond, @IntRange(from = 1) int burst) {
+		super(delegate);
+		if (!(permitsPerSecond > 0)) {
+			throw new IllegalArgumentException("Permits per second must be positive, got(" + permitsPerSecond + ").");
+		}
+		if (burst < 1) {
+			throw new IllegalArgumentException("Burst must be at least 1, got(" + burst + ").");
+		}
+		this.mEmissionInterval = Math.max(1, (long) (NANOS_PER_SECOND / permitsPerSecond));
+		this.mBurstTolerance = mEmissionInterval * (burst - 1);
+	}
+
+	/**
+	 * Methods =====================================================================================
+	 */
+
+	/**
+	 * Specifies a rate in which should be records of each tag sampled. With rate {@code N} only the
+	 * first of each {@code N} records of a tag is passed to its token bucket, the remaining ones are
+	 * suppressed. Default rate is {@code 1}, so all records are passed.
+	 *
+	 * @param rate The desired sample rate.
+	 * @throws IllegalArgumentException If the rate is less than 1.
+	 * @see #getSampleRate()
+	 */
+	public void setSampleRate(@IntRange(from = 1) int rate) {
+		if (rate < 1) {
+			throw new IllegalArgumentException("Sample rate must be at least 1, got(" + rate + ").");
+		}
+		this.mSampleRate = rate;
+	}
+
+	/**
+	 * Returns the rate in which are sampled records of each tag.
+	 *
+	 * @return Sample rate.
+	 * @see #setSampleRate(int)
+	 */
+	@IntRange(from = 1)
+	public int getSampleRate() {
+		return mSampleRate;
+	}
+
+	/**
+	 * Returns the count of records of the specified <var>tag</var> that have been suppressed since
+	 * the last summary for that tag. Records of tags beyond {@link #MAX_TAGS} are counted under
+	 * {@link #OTHER_TAGS}.
+	 *
+	 * @param tag The tag for which to obtain the count.
+	 * @return Count of currently suppressed records.
+	 */
+	public int getSuppressedCount(@NonNull String tag) {
+		final TagState state = mStates.get(tag);
+		return state == null ? 0 : state.suppressed.get();
+	}
+
+	/**
+	 * Logs summaries for all tags with records suppressed since their last summary.
+	 */
+	public void flush() {
+		for (final Map.Entry<String, TagState> entry : mStates.entrySet()) {
+			logSummary(entry.getKey(), entry.getValue());
+		}
+	}
+
+	/**
+	 * Returns the current time in nanoseconds used to refill the token buckets.
+	 *
+	 * @return Monotonic time in nanoseconds.
+	 */
+	long nanoTime() {
+		return System.nanoTime();
+	}
+
+	/**
+	 */
+	@Override
+	protected void onLog(@Level int level, @NonNull String tag, @Nullable String msg, @Nullable Throwable tr, boolean forced) {
+		if (level == Log.ASSERT) {
+			super.onLog(level, tag, msg, tr, forced);
+			return;
+		}
+		final TagState state = obtainState(tag);
+		if (!state.sample(mSampleRate) || !state.acquire(nanoTime(), mEmissionInterval, mBurstTolerance)) {
+			if (state.suppress(level)) scheduleSummaryCheck();
+			return;
+		}
+		logSummary(state.tag, state);
+		super.onLog(level, tag, msg, tr, forced);
+	}
+
+	/**
+	 * Obtains limiting state for the specified <var>tag</var>, creating it if there is no such state
+	 * yet. If there are already states for {@link #MAX_TAGS} tags, the state shared by all further
+	 * tags is obtained instead.
+	 */
+	private TagState obtainState(String tag) {
+		TagState state = mStates.get(tag);
+		if (state == null) {
+			if (mStates.size() >= MAX_TAGS) {
+				tag = OTHER_TAGS;
+				state = mStates.get(tag);
+				if (state != null) return state;
+			}
+			final TagState newState = new TagState(tag);
+			state = mStates.putIfAbsent(tag, newState);
+			if (state == null) state = newState;
+		}
+		return state;
+	}
+
+	/**
+	 * Schedules a check of pending summaries after the time needed to refill a single permit, unless
+	 * such check is already scheduled.
+	 */
+	private void scheduleSummaryCheck() {
+		if (mSummaryCheckScheduled.compareAndSet(false, true)) {
+			schedule(mSummaryCheck, mEmissionInterval);
+		}
+	}
+
+	/**
+	 * Schedules the given <var>task</var> to be run after the specified delay via {@link LogTimer}.
+	 */
+	void schedule(Runnable task, long delayNanos) {
+		LogTimer.schedule(task, delayNanos);
+	}
+
+	/**
+	 * Logs summaries for all tags with suppressed records of which buckets have refilled at least
+	 * a single permit. Schedules a next check if there remain some pending summaries.
+	 */
+	void checkSummaries() {
+		mSummaryCheckScheduled.set(false);
+		final long now = nanoTime();
+		boolean pending = false;
+		for (final Map.Entry<String, TagState> entry : mStates.entrySet()) {
+			final TagState state = entry.getValue();
+			if (state.suppressed.get() == 0) {
+				continue;
+			}
+			if (state.hasPermit(now, mBurstTolerance)) {
+				logSummary(entry.getKey(), state);
+			} else {
+				pending = true;
+			}
+		}
+		if (pending) scheduleSummaryCheck();
+	}
+
+	/**
+	 * Logs summary for the given tag state if it has some suppressed records.
+	 */
+	private void logSummary(String tag, TagState state) {
+		if (state.suppressed.get() == 0) {
+			return;
+		}
+		final int level = state.suppressedLevel.getAndSet(0);
+		final int count = state.suppressed.getAndSet(0);
+		if (count > 0) {
+			super.onLog(level == 0 ? Log.VERBOSE : level, tag, "Suppressed " + count + " messages.", null, false);
+		}
+	}
+
+	/**
+	 * Inner classes ===============================================================================
+	 */
+
+	/**
+	 * Limiting state of a single tag.
+	 */
+	private static final class TagState {
+
+		/**
+		 * Tag with which are logged summaries of this state.
+		 */
+		final String tag;
+
+		/**
+		 * Theoretical arrival time of the next record, that is the time when the bucket becomes full.
+		 */
+		final AtomicLong arrivalTime = new AtomicLong(Long.MIN_VALUE);
+
+		/**
+		 * Count of records offered to the sampler.
+		 */
+		final AtomicLong sampled = new AtomicLong();
+
+		/**
+		 * Count of records suppressed since the last summary.
+		 */
+		final AtomicInteger suppressed = new AtomicInteger();
+
+		/**
+		 * The highest level of records suppressed since the last summary.
+		 */
+		final AtomicInteger suppressedLevel = new AtomicInteger();
+
+		/**
+		 * Creates a new instance of TagState for the specified <var>tag</var>.
+		 */
+		TagState(String tag) {
+			this.tag = tag;
+		}
+
+		/**
+		 * Checks whether the next record should be sampled according to the specified rate.
+		 */
+		boolean sample(int rate) {
+			return rate == 1 || (sampled.getAndIncrement() % rate) == 0;
+		}
+
+		/**
+		 * Attempts to acquire a single permit from the token bucket at the specified time.
+		 */
+		boolean acquire(long now, long interval, long tolerance) {
+			for (;;) {
+				final long current = arrivalTime.get();
+				final long arrival = current == Long.MIN_VALUE || current - now < 0 ? now : current;
+				if (arrival - now > tolerance) {
+					return false;
+				}
+				if (arrivalTime.compareAndSet(current, arrival + interval)) {
+					return true;
+				}
+			}
+		}
+
+		/**
+		 * Checks whether the bucket has at least a single permit available at the specified time.
+		 */
+		boolean hasPermit(long now, long tolerance) {
+			final long current = arrivalTime.get();
+			return current == Long.MIN_VALUE || current - now <= tolerance;
+		}
+
+		/**
+		 * Records suppression of a record with the specified level.
+		 *
+		 * @return {@code True} if this is the first record suppressed since the last summary.
+		 */
+		boolean suppress(int level) {
+			final boolean first = suppressed.incrementAndGet() == 1;
+			for (;;) {
+				final int current = suppressedLevel.get();
+				if (current >= level || suppressedLevel.compareAndSet(current, level)) {
+					return first;
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,669 @@
+/*
+ * =================================================================================================
+ *                             Copyright (C) 2017 Universum Studios
+ * =================================================================================================
+ *         Licensed under the Apache License, Version 2.0 or later (further "License" only).
+ * -------------------------------------------------------------------------------------------------
+ * You may use this file only in compliance with the License. More details and copy of this License
+ * you may obtain at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * You can redistribute, modify or publish any part of the code written within this file but as it
+ * is described in the License, the software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES or CONDITIONS OF ANY KIND.
+ *
+ * See the License for the specific language governing permissions and limitations under the License.
+ * =================================================================================================
+ */
+package universum.studios.android.util;
+
+import android.support.annotation.IntRange;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A {@link DelegatingLogger} implementation which redacts sensitive data, like tokens, emails and
+ * ids, from messages before they are passed to the delegate logger. Occurrences of the sensitive
+ * data are replaced by a {@link #setReplacement(String) replacement} text.
+ * <p>
+ * The following rules may be specified:
+ * <ul>
+ * <li>{@link #addLiteral(String) literals}: occurrences of the literal itself are redacted,</li>
+ * <li>
+ * {@link #addKey(String) keys}: values following the key and a {@code '='} or {@code ':'}
+ * separator are redacted, like in {@code token=abc}, {@code Authorization: xyz} or
+ * {@code "password":"secret"},
+ * </li>
+ * <li>{@link #setRedactEmails(boolean) emails}: email addresses are redacted,</li>
+ * <li>{@link #setMinDigitRunLength(int) digit runs}: sequences of digits of at least specified length are redacted.</li>
+ * </ul>
+ * Literals and keys are matched ignoring case of ASCII letters. All literals and keys, along with
+ * the {@code '@'} character which anchors emails, are compiled into a single Aho-Corasick automaton,
+ * so each message is scanned only once regardless of the count of rules. Rules are compiled when
+ * added and the compiled automaton is published atomically, so redaction does not take any locks.
+ * <p>
+ * Scanning of a message without any match does not allocate and the message is passed to the
+ * delegate unchanged as the same instance. If a throwable is logged, its stack trace is redacted
+ * too and if it contains sensitive data, the redacted stack trace is passed to the delegate as part
+ * of the message instead of the throwable.
+ *
+ * @author Martin Albedinsky
+ */
+public class RedactingLogger extends DelegatingLogger {
+
+	/**
+	 * Constants ===================================================================================
+	 */
+
+	/**
+	 * Log TAG.
+	 */
+	// private static final String TAG = "RedactingLogger";
+
+	/**
+	 * Default text which replaces the redacted data.
+	 */
+	public static final String DEFAULT_REPLACEMENT = "[REDACTED]";
+
+	/**
+	 * Types of the compiled patterns.
+	 */
+	private static final int TYPE_LITERAL = 0, TYPE_KEY = 1, TYPE_EMAIL = 2;
+
+	/**
+	 * Pattern anchoring email addresses.
+	 */
+	private static final String EMAIL_ANCHOR = "@";
+
+	/**
+	 * Interface ===================================================================================
+	 */
+
+	/**
+	 * Static members ==============================================================================
+	 */
+
+	/**
+	 * Members =====================================================================================
+	 */
+
+	/**
+	 * Lock used to synchronize modification of rules.
+	 */
+	private final Object mRulesLock = new Object();
+
+	/**
+	 * Literals to be redacted.
+	 */
+	private final List<String> mLiterals = new ArrayList<>();
+
+	/**
+	 * Keys of which values are to be redacted.
+	 */
+	private final List<String> mKeys = new ArrayList<>();
+
+	/**
+	 * Flag indicating whether to redact email addresses.
+	 */
+	private boolean mRedactEmails;
+
+	/**
+	 * Minimum length of digit runs to be redacted. {@code 0} to not redact digit runs.
+	 */
+	private volatile int mMinDigitRunLength;
+
+	/**
+	 * Text which replaces the redacted data.
+	 */
+	private volatile String mReplacement = DEFAULT_REPLACEMENT;
+
+	/**
+	 * Automaton compiled from the current rules.
+	 */
+	private volatile Automaton mAutomaton = new Automaton(new String[0], new int[0]);
+
+	/**
+	 * Constructors ================================================================================
+	 */
+
+	/**
+	 * Creates a new instance of RedactingLogger for the given <var>delegate</var> logger. The logger
+	 * does not redact anything until rules are added.
+	 *
+	 * @param delegate The logger to which to pass the redacted records.
+	 */
+	public RedactingLogger(@NonNull Logger delegate) {
+		super(delegate);
+	}
+
+	/**
+	 * Methods =====================================================================================
+	 */
+
+	/**
+	 * Adds a literal of which all occurrences are to be redacted.
+	 *
+	 * @param literal The literal to be redacted, like a known secret.
+	 * @see #addKey(String)
+	 */
+	public void addLiteral(@NonNull String literal) {
+		if (literal.length() == 0) throw new IllegalArgumentException("Literal must not be empty.");
+		synchronized (mRulesLock) {
+			mLiterals.add(literal);
+			compile();
+		}
+	}
+
+	/**
+	 * Adds a key of which values are to be redacted. The key is matched only as a whole word and
+	 * only if followed by a {@code '='} or {@code ':'} separator.
+	 *
+	 * @param key The key, like {@code token} or {@code password}.
+	 * @see #addLiteral(String)
+	 */
+	public void addKey(@NonNull String key) {
+		if (key.length() == 0) throw new IllegalArgumentException("Key must not be empty.");
+		synchronized (mRulesLock) {
+			mKeys.add(key);
+			compile();
+		}
+	}
+
+	/**
+	 * Specifies whether email addresses should be redacted.
+	 *
+	 * @param redact {@code True} to redact emails, {@code false} otherwise.
+	 */
+	public void setRedactEmails(boolean redact) {
+		synchronized (mRulesLock) {
+			this.mRedactEmails = redact;
+			compile();
+		}
+	}
+
+	/**
+	 * Checks whether email addresses are redacted.
+	 *
+	 * @return {@code True} if emails are redacted, {@code false} otherwise.
+	 */
+	public boolean isRedactingEmails() {
+		synchronized (mRulesLock) {
+			return mRedactEmails;
+		}
+	}
+
+	/**
+	 * Specifies the minimum length of runs of digits to be redacted, like card or phone numbers.
+	 *
+	 * @param length The desired minimum length. {@code 0} to not redact digit runs.
+	 */
+	public void setMinDigitRunLength(@IntRange(from = 0) int length) {
+		if (length < 0) throw new IllegalArgumentException("Length must not be negative.");
+		this.mMinDigitRunLength = length;
+	}
+
+	/**
+	 * Returns the minimum length of runs of digits to be redacted.
+	 *
+	 * @return Minimum length or {@code 0} if digit runs are not redacted.
+	 */
+	public int getMinDigitRunLength() {
+		return mMinDigitRunLength;
+	}
+
+	/**
+	 * Specifies a text which replaces the redacted data.
+	 *
+	 * @param replacement The desired replacement.
+	 * @see #DEFAULT_REPLACEMENT
+	 */
+	public void setReplacement(@NonNull String replacement) {
+		this.mReplacement = replacement;
+	}
+
+	/**
+	 * Returns the text which replaces the redacted data.
+	 *
+	 * @return Replacement text.
+	 */
+	@NonNull
+	public String getReplacement() {
+		return mReplacement;
+	}
+
+	/**
+	 * Compiles the current rules into a new automaton.
+	 */
+	private void compile() {
+		final int count = mLiterals.size() + mKeys.size() + (mRedactEmails ? 1 : 0);
+		final String[] patterns = new String[count];
+		final int[] types = new int[count];
+		int index = 0;
+		for (final String literal : mLiterals) {
+			patterns[index] = literal;
+			types[index++] = TYPE_LITERAL;
+		}
+		for (final String key : mKeys) {
+			patterns[index] = key;
+			types[index++] = TYPE_KEY;
+		}
+		if (mRedactEmails) {
+			patterns[index] = EMAIL_ANCHOR;
+			types[index] = TYPE_EMAIL;
+		}
+		this.mAutomaton = new Automaton(patterns, types);
+	}
+
+	/**
+	 * Redacts sensitive data from the given <var>text</var> according to the current rules.
+	 *
+	 * @param text The text to be redacted.
+	 * @return Redacted text or the same text instance if there is nothing to redact.
+	 */
+	@NonNull
+	public String redact(@NonNull String text) {
+		final Automaton automaton = mAutomaton;
+		final int minDigitRunLength = mMinDigitRunLength;
+		int[] ranges = null;
+		int rangeCount = 0;
+		int state = 0;
+		int digitRun = 0;
+		final int length = text.length();
+		for (int i = 0; i < length; i++) {
+			final char c = text.charAt(i);
+			if (minDigitRunLength > 0) {
+				if (c >= '0' && c <= '9') {
+					digitRun++;
+				} else {
+					if (digitRun >= minDigitRunLength) {
+						ranges = addRange(ranges, rangeCount++, i - digitRun, i);
+					}
+					digitRun = 0;
+				}
+			}
+			state = automaton.next(state, c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c);
+			for (int match = automaton.firstMatch(state); match != -1; match = automaton.nextMatch(match)) {
+				final int pattern = automaton.patternOf(match);
+				final int start = i + 1 - automaton.lengthOf(pattern);
+				final long range;
+				switch (automaton.typeOf(pattern)) {
+					case TYPE_LITERAL:
+						range = ((long) start << 32) | (i + 1);
+						break;
+					case TYPE_KEY:
+						range = findKeyValue(text, start, i + 1);
+						break;
+					default:
+						range = findEmail(text, i);
+						break;
+				}
+				if (range != -1) {
+					ranges = addRange(ranges, rangeCount++, (int) (range >>> 32), (int) range);
+				}
+			}
+		}
+		if (digitRun >= minDigitRunLength && minDigitRunLength > 0) {
+			ranges = addRange(ranges, rangeCount++, length - digitRun, length);
+		}
+		return rangeCount == 0 ? text : replaceRanges(text, ranges, rangeCount);
+	}
+
+	/**
+	 * Finds value of a key that occupies the specified range of the given <var>text</var>.
+	 *
+	 * @return Range of the value encoded as {@code (start << 32) | end} or {@code -1} if the key
+	 * is not followed by a value.
+	 */
+	private static long findKeyValue(String text, int keyStart, int keyEnd) {
+		if (keyStart > 0 && Character.isLetterOrDigit(text.charAt(keyStart - 1))) {
+			return -1;
+		}
+		final int length = text.length();
+		int i = keyEnd;
+		if (i < length && (text.charAt(i) == '"' || text.charAt(i) == '\'')) i++;
+		while (i < length && text.charAt(i) == ' ') i++;
+		if (i == length || (text.charAt(i) != '=' && text.charAt(i) != ':')) {
+			return -1;
+		}
+		i++;
+		while (i < length && text.charAt(i) == ' ') i++;
+		char quote = 0;
+		if (i < length && (text.charAt(i) == '"' || text.charAt(i) == '\'')) quote = text.charAt(i++);
+		final int start = i;
+		while (i < length && (quote == 0 ? !isValueDelimiter(text.charAt(i)) : text.charAt(i) != quote)) i++;
+		return i > start ? ((long) start << 32) | i : -1;
+	}
+
+	/**
+	 * Checks whether the given character terminates an unquoted value.
+	 */
+	private static boolean isValueDelimiter(char c) {
+		switch (c) {
+			case ',':
+			case ';':
+			case '&':
+			case '"':
+			case '\'':
+			case ')':
+			case ']':
+			case '}':
+				return true;
+			default:
+				return Character.isWhitespace(c);
+		}
+	}
+
+	/**
+	 * Finds email address around the {@code '@'} character at the specified <var>index</var> of the
+	 * given <var>text</var>.
+	 *
+	 * @return Range of the email encoded as {@code (start << 32) | end} or {@code -1} if there is
+	 * no valid email address.
+	 */
+	private static long findEmail(String text, int index) {
+		int start = index;
+		while (start > 0 && isEmailLocalChar(text.charAt(start - 1))) start--;
+		int end = index + 1;
+		int lastDot = -1;
+		while (end < text.length() && isEmailDomainChar(text.charAt(end))) {
+			if (text.charAt(end) == '.') lastDot = end;
+			end++;
+		}
+		// Trailing dot terminates a sentence rather than the domain.
+		if (lastDot == end - 1) {
+			end--;
+			lastDot = text.lastIndexOf('.', end - 1);
+		}
+		return start < index && lastDot > index + 1 && lastDot < end - 1 ? ((long) start << 32) | end : -1;
+	}
+
+	/**
+	 * Checks whether the given character may be a part of the local part of an email address.
+	 */
+	private static boolean isEmailLocalChar(char c) {
+		return isEmailDomainChar(c) || c == '_' || c == '+' || c == '%';
+	}
+
+	/**
+	 * Checks whether the given character may be a part of the domain of an email address.
+	 */
+	private static boolean isEmailDomainChar(char c) {
+		return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '.' || c == '-';
+	}
+
+	/**
+	 * Adds the specified range at the specified <var>index</var> of the given <var>ranges</var>
+	 * array, growing the array if needed.
+	 */
+	private static int[] addRange(int[] ranges, int index, int start, int end) {
+		if (ranges == null) {
+			ranges = new int[8];
+		} else if (ranges.length < (index + 1) * 2) {
+			final int[] grown = new int[ranges.length * 2];
+			System.arraycopy(ranges, 0, grown, 0, ranges.length);
+			ranges = grown;
+		}
+		ranges[index * 2] = start;
+		ranges[index * 2 + 1] = end;
+		return ranges;
+	}
+
+	/**
+	 * Replaces the specified ranges of the given <var>text</var>. The ranges may overlap.
+	 */
+	private String replaceRanges(String text, int[] ranges, int count) {
+		// Sort the ranges by their starts, there are usually only a few of them.
+		for (int i = 1; i < count; i++) {
+			final int start = ranges[i * 2];
+			final int end = ranges[i * 2 + 1];
+			int j = i - 1;
+			while (j >= 0 && ranges[j * 2] > start) {
+				ranges[(j + 1) * 2] = ranges[j * 2];
+				ranges[(j + 1) * 2 + 1] = ranges[j * 2 + 1];
+				j--;
+			}
+			ranges[(j + 1) * 2] = start;
+			ranges[(j + 1) * 2 + 1] = end;
+		}
+		final String replacement = mReplacement;
+		final StringBuilder builder = new StringBuilder(text.length() + count * replacement.length());
+		int position = 0;
+		int i = 0;
+		while (i < count) {
+			final int start = ranges[i * 2];
+			int end = ranges[i * 2 + 1];
+			// Merge all following ranges that overlap or touch the current one.
+			while (++i < count && ranges[i * 2] <= end) {
+				end = Math.max(end, ranges[i * 2 + 1]);
+			}
+			builder.append(text, position, start).append(replacement);
+			position = end;
+		}
+		return builder.append(text, position, text.length()).toString();
+	}
+
+	/**
+	 */
+	@Override
+	protected void onLog(@Level int level, @NonNull String tag, @Nullable String msg, @Nullable Throwable tr, boolean forced) {
+		final String message = msg == null ? null : redact(msg);
+		if (tr != null) {
+			final String stackTrace = getStackTraceString(tr);
+			final String redactedStackTrace = stackTrace == null ? null : redact(stackTrace);
+			if (redactedStackTrace != stackTrace) {
+				dispatch(getDelegate(), level, tag, message == null ? redactedStackTrace : message + "\n" + redactedStackTrace, null, forced);
+				return;
+			}
+		}
+		dispatch(getDelegate(), level, tag, message, tr, forced);
+	}
+
+	/**
+	 * Inner classes ===============================================================================
+	 */
+
+	/**
+	 * Aho-Corasick automaton matching a set of patterns in a single pass over a text. States with
+	 * transitions for ASCII characters from the root are resolved via a lookup table, other
+	 * transitions via binary search over sorted labels of each state.
+	 */
+	private static final class Automaton {
+
+		/**
+		 * Count of characters covered by the root lookup table.
+		 */
+		private static final int ROOT_TABLE_SIZE = 128;
+
+		/**
+		 * Lengths of the patterns.
+		 */
+		private final int[] mLengths;
+
+		/**
+		 * Types of the patterns.
+		 */
+		private final int[] mTypes;
+
+		/**
+		 * Targets of transitions from the root state for ASCII characters, {@code 0} if none.
+		 */
+		private final int[] mRootTargets = new int[ROOT_TABLE_SIZE];
+
+		/**
+		 * Sorted labels of transitions of each state.
+		 */
+		private final char[][] mLabels;
+
+		/**
+		 * Targets of transitions of each state, in the order of labels.
+		 */
+		private final int[][] mTargets;
+
+		/**
+		 * Failure link of each state.
+		 */
+		private final int[] mFailures;
+
+		/**
+		 * Pattern matched in each state or {@code -1} if none.
+		 */
+		private final int[] mPatterns;
+
+		/**
+		 * The nearest state along the failure links of each state in which a pattern is matched or
+		 * {@code -1} if none.
+		 */
+		private final int[] mMatchLinks;
+
+		/**
+		 * Creates a new instance of Automaton for the given <var>patterns</var> and their <var>types</var>.
+		 */
+		Automaton(String[] patterns, int[] types) {
+			this.mTypes = types;
+			this.mLengths = new int[patterns.length];
+			// Build the trie with temporary maps of transitions.
+			final List<Map<Character, Integer>> transitions = new ArrayList<>();
+			final List<Integer> statePatterns = new ArrayList<>();
+			transitions.add(new HashMap<Character, Integer>());
+			statePatterns.add(-1);
+			for (int p = 0; p < patterns.length; p++) {
+				final String pattern = patterns[p];
+				mLengths[p] = pattern.length();
+				int state = 0;
+				for (int i = 0; i < pattern.length(); i++) {
+					final char c = pattern.charAt(i);
+					final char label = c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+					Integer target = transitions.get(state).get(label);
+					if (target == null) {
+						target = transitions.size();
+						transitions.get(state).put(label, target);
+						transitions.add(new HashMap<Character, Integer>());
+						statePatterns.add(-1);
+					}
+					state = target;
+				}
+				// Keep the first of duplicate patterns.
+				if (statePatterns.get(state) == -1) statePatterns.set(state, p);
+			}
+			final int stateCount = transitions.size();
+			this.mLabels = new char[stateCount][];
+			this.mTargets = new int[stateCount][];
+			this.mPatterns = new int[stateCount];
+			for (int s = 0; s < stateCount; s++) {
+				final Map<Character, Integer> stateTransitions = transitions.get(s);
+				final char[] labels = new char[stateTransitions.size()];
+				int index = 0;
+				for (final Character label : stateTransitions.keySet()) {
+					labels[index++] = label;
+				}
+				Arrays.sort(labels);
+				final int[] targets = new int[labels.length];
+				for (int i = 0; i < labels.length; i++) {
+					targets[i] = stateTransitions.get(labels[i]);
+				}
+				mLabels[s] = labels;
+				mTargets[s] = targets;
+				mPatterns[s] = statePatterns.get(s);
+			}
+			for (int i = 0; i < mLabels[0].length; i++) {
+				if (mLabels[0][i] < ROOT_TABLE_SIZE) mRootTargets[mLabels[0][i]] = mTargets[0][i];
+			}
+			// Compute failure and match links in breadth first order.
+			this.mFailures = new int[stateCount];
+			this.mMatchLinks = new int[stateCount];
+			mMatchLinks[0] = -1;
+			// Each state, except the root one, is added into the queue exactly once.
+			final int[] queue = new int[stateCount];
+			int head = 0, tail = 0;
+			for (final int target : mTargets[0]) {
+				mFailures[target] = 0;
+				mMatchLinks[target] = -1;
+				queue[tail++] = target;
+			}
+			while (head < tail) {
+				final int state = queue[head++];
+				for (int i = 0; i < mLabels[state].length; i++) {
+					final int target = mTargets[state][i];
+					int failure = mFailures[state];
+					int next;
+					while ((next = transition(failure, mLabels[state][i])) == -1 && failure != 0) {
+						failure = mFailures[failure];
+					}
+					mFailures[target] = next == -1 || next == target ? 0 : next;
+					final int fallback = mFailures[target];
+					mMatchLinks[target] = mPatterns[fallback] != -1 ? fallback : mMatchLinks[fallback];
+					queue[tail++] = target;
+				}
+			}
+		}
+
+		/**
+		 * Returns target of the transition from the specified <var>state</var> for the specified
+		 * character or {@code -1} if there is no such transition.
+		 */
+		private int transition(int state, char c) {
+			if (state == 0 && c < ROOT_TABLE_SIZE) {
+				final int target = mRootTargets[c];
+				return target == 0 ? -1 : target;
+			}
+			final int index = Arrays.binarySearch(mLabels[state], c);
+			return index < 0 ? -1 : mTargets[state][index];
+		}
+
+		/**
+		 * Returns the state following the specified <var>state</var> for the specified character.
+		 */
+		int next(int state, char c) {
+			while (true) {
+				final int target = transition(state, c);
+				if (target != -1) return target;
+				if (state == 0) return 0;
+				state = mFailures[state];
+			}
+		}
+
+		/**
+		 * Returns the first state with a matched pattern for the specified current <var>state</var>
+		 * or {@code -1} if no pattern is matched.
+		 */
+		int firstMatch(int state) {
+			return mPatterns[state] != -1 ? state : mMatchLinks[state];
+		}
+
+		/**
+		 * Returns the next state with a matched pattern following the specified matching state or
+		 * {@code -1} if there are no more matches.
+		 */
+		int nextMatch(int state) {
+			return mMatchLinks[state];
+		}
+
+		/**
+		 * Returns the pattern matched in the specified matching state.
+		 */
+		int patternOf(int state) {
+			return mPatterns[state];
+		}
+
+		/**
+		 * Returns the length of the specified pattern.
+		 */
+		int lengthOf(int pattern) {
+			return mLengths[pattern];
+		}
+
+		/**
+		 * Returns the type of the specified pattern.
+		 */
+		int typeOf(int pattern) {
+			return mTypes[pattern];
+		}
+	}
+}
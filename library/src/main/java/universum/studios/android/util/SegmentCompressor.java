@@ -0,0 +1,359 @@
+/*
+ * =================================================================================================
+ *                             Copyright (C) 2017 Universum Studios
+ * =================================================================================================
+ *         Licensed under the Apache License, Version 2.0 or later (further "License" only).
+ * -------------------------------------------------------------------------------------------------
+ * You may use this file only in compliance with the License. More details and copy of this License
+ * you may obtain at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * You can redistribute, modify or publish any part of the code written within this file but as it
+ * is described in the License, the software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES or CONDITIONS OF ANY KIND.
+ *
+ * See the License for the specific language governing permissions and limitations under the License.
+ * =================================================================================================
+ */
+package universum.studios.android.util;
+
+import android.support.annotation.IntRange;
+import android.support.annotation.NonNull;
+import android.util.Log;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.LinkedList;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compressor which compresses closed segment files of {@link MappedFileLogger MappedFileLoggers} on
+ * a background thread, so the logging threads are never stalled by compression. A compressor may
+ * be shared by multiple loggers via {@link MappedFileLogger#setSegmentCompressor(SegmentCompressor)}.
+ * <p>
+ * Each segment is compressed via streaming GZIP using buffers of {@link #BUFFER_SIZE} bytes, so
+ * compression of a segment of any size requires only a constant amount of memory. The compressed
+ * content is first written into a temporary file which is renamed to the segment name suffixed by
+ * {@link #EXTENSION} only when complete and only then the original segment is deleted. A segment
+ * is therefore never lost even if the process is killed during its compression.
+ * <p>
+ * After each compressed segment the compressor enforces the maximum disk size specified for the
+ * compressor: while the total size of all segments of the logger, compressed and uncompressed,
+ * exceeds the maximum size, the oldest compressed segments are deleted. Uncompressed segments are
+ * never deleted by the compressor. Compressed segments may be read back via {@link SegmentReader}.
+ *
+ * @author Martin Albedinsky
+ */
+public class SegmentCompressor implements Closeable {
+
+	/**
+	 * Constants ===================================================================================
+	 */
+
+	/**
+	 * Log TAG.
+	 */
+	private static final String TAG = "SegmentCompressor";
+
+	/**
+	 * Extension appended to names of compressed segment files.
+	 */
+	public static final String EXTENSION = ".gz";
+
+	/**
+	 * Size of the buffers used to read and compress a segment in bytes.
+	 */
+	public static final int BUFFER_SIZE = 8 * 1024;
+
+	/**
+	 * Extension of temporary files into which are segments being compressed.
+	 */
+	private static final String TEMPORARY_EXTENSION = ".tmp";
+
+	/**
+	 * Name of the compressing thread.
+	 */
+	private static final String THREAD_NAME = "SegmentCompressor";
+
+	/**
+	 * Interface ===================================================================================
+	 */
+
+	/**
+	 * Static members ==============================================================================
+	 */
+
+	/**
+	 * Members =====================================================================================
+	 */
+
+	/**
+	 * Lock used to synchronize access to the queue of segments.
+	 */
+	private final Object mLock = new Object();
+
+	/**
+	 * Maximum total size of segments of a single logger in bytes.
+	 */
+	private final long mMaxDiskSize;
+
+	/**
+	 * Queue of segments waiting to be compressed.
+	 */
+	private final LinkedList<Task> mQueue = new LinkedList<>();
+
+	/**
+	 * Buffer into which are read the segments.
+	 */
+	private final byte[] mBuffer = new byte[BUFFER_SIZE];
+
+	/**
+	 * Thread on which are compressed the segments.
+	 */
+	private final Thread mThread;
+
+	/**
+	 * Count of segments that are queued or being compressed.
+	 */
+	private int mPendingCount;
+
+	/**
+	 * Flag indicating whether this compressor has been closed.
+	 */
+	private boolean mClosed;
+
+	/**
+	 * Constructors ================================================================================
+	 */
+
+	/**
+	 * Creates a new instance of SegmentCompressor and starts its background thread.
+	 * <p>
+	 * The maximum disk size is required, as loggers using a compressor do not delete their closed
+	 * segments and leave their retention to the compressor.
+	 *
+	 * @param maxDiskSize Maximum total size of segment files of a single logger in bytes. The
+	 *                    oldest compressed segments are deleted when exceeded.
+	 * @throws IllegalArgumentException If the size is not positive.
+	 */
+	public SegmentCompressor(@IntRange(from = 1) long maxDiskSize) {
+		if (maxDiskSize <= 0) throw new IllegalArgumentException("Max disk size must be positive.");
+		this.mMaxDiskSize = maxDiskSize;
+		this.mThread = new Thread(new Runnable() {
+
+			/**
+			 */
+			@Override
+			public void run() {
+				compressQueued();
+			}
+		}, THREAD_NAME);
+		mThread.setPriority(Thread.MIN_PRIORITY);
+		mThread.setDaemon(true);
+		mThread.start();
+	}
+
+	/**
+	 * Methods =====================================================================================
+	 */
+
+	/**
+	 * Returns the maximum total size of segment files of a single logger.
+	 *
+	 * @return Maximum disk size in bytes.
+	 */
+	public final long getMaxDiskSize() {
+		return mMaxDiskSize;
+	}
+
+	/**
+	 * Enqueues the given closed <var>segment</var> of the specified <var>logger</var> to be compressed.
+	 * Does nothing if this compressor has been already closed.
+	 *
+	 * @return {@code True} if the segment has been enqueued, {@code false} if this compressor has
+	 * been already closed, so the logger remains responsible for retention of the segment.
+	 */
+	boolean enqueue(MappedFileLogger logger, File segment) {
+		synchronized (mLock) {
+			if (mClosed) return false;
+			mQueue.add(new Task(logger, segment));
+			this.mPendingCount++;
+			mLock.notifyAll();
+			return true;
+		}
+	}
+
+	/**
+	 * Waits until all segments enqueued so far are compressed.
+	 *
+	 * @param timeout Maximum time to wait in milliseconds.
+	 * @return {@code True} if there are no more segments to compress, {@code false} if the timeout
+	 * has elapsed.
+	 * @throws InterruptedException If the current thread is interrupted while waiting.
+	 */
+	public boolean awaitIdle(long timeout) throws InterruptedException {
+		final long deadline = System.currentTimeMillis() + timeout;
+		synchronized (mLock) {
+			while (mPendingCount > 0 && !mClosed) {
+				final long remaining = deadline - System.currentTimeMillis();
+				if (remaining <= 0) return false;
+				mLock.wait(remaining);
+			}
+			return mPendingCount == 0;
+		}
+	}
+
+	/**
+	 * Takes segments from the queue and compresses them until this compressor is closed.
+	 */
+	private void compressQueued() {
+		while (true) {
+			final Task task;
+			synchronized (mLock) {
+				while (mQueue.isEmpty() && !mClosed) {
+					try {
+						mLock.wait();
+					} catch (InterruptedException e) {
+						// Continue until closed.
+					}
+				}
+				if (mClosed) return;
+				task = mQueue.poll();
+			}
+			try {
+				compress(task.segment);
+				enforceMaxDiskSize(task.logger);
+			} catch (RuntimeException e) {
+				// Unexpected failure must not stop the compressing thread with the segment pending.
+				logWarning("Failed to compress segment(" + task.segment + ").", e);
+			} finally {
+				synchronized (mLock) {
+					this.mPendingCount--;
+					mLock.notifyAll();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Compresses the given <var>segment</var> into a file with the same name suffixed by
+	 * {@link #EXTENSION} and deletes the segment. Does nothing if the segment no longer exists.
+	 */
+	private void compress(File segment) {
+		if (!segment.isFile()) {
+			return;
+		}
+		final File target = new File(segment.getPath() + EXTENSION);
+		final File temporary = new File(target.getPath() + TEMPORARY_EXTENSION);
+		try {
+			final InputStream input = new FileInputStream(segment);
+			try {
+				final OutputStream output = new GZIPOutputStream(new FileOutputStream(temporary), BUFFER_SIZE);
+				try {
+					int count;
+					while ((count = input.read(mBuffer)) != -1) {
+						output.write(mBuffer, 0, count);
+					}
+				} finally {
+					output.close();
+				}
+			} finally {
+				input.close();
+			}
+			if (!temporary.renameTo(target)) {
+				throw new IOException("Failed to rename file(" + temporary + ").");
+			}
+		} catch (IOException e) {
+			logWarning("Failed to compress segment(" + segment + ").", e);
+			if (temporary.exists() && !temporary.delete()) {
+				logWarning("Failed to delete temporary file(" + temporary + ").", null);
+			}
+			return;
+		}
+		if (!segment.delete()) {
+			logWarning("Failed to delete compressed segment(" + segment + ").", null);
+		}
+	}
+
+	/**
+	 * Deletes the oldest compressed segments of the specified <var>logger</var> while the total size
+	 * of all its segments exceeds the maximum disk size.
+	 */
+	private void enforceMaxDiskSize(MappedFileLogger logger) {
+		final File[] compressed = logger.listCompressedSegments();
+		long size = 0;
+		for (final File segment : compressed) {
+			size += segment.length();
+		}
+		for (final File segment : logger.listSegments()) {
+			size += segment.length();
+		}
+		for (int i = 0; i < compressed.length && size > mMaxDiskSize; i++) {
+			final long length = compressed[i].length();
+			if (compressed[i].delete()) {
+				logger.deleteIndex(compressed[i]);
+				size -= length;
+			} else {
+				logWarning("Failed to delete obsolete segment(" + compressed[i] + ").", null);
+			}
+		}
+	}
+
+	/**
+	 * Logs the specified warning of the compressing thread via {@link Log#w(String, String, Throwable)}.
+	 *
+	 * @param message The warning message.
+	 * @param error   The error causing the warning, if any.
+	 */
+	void logWarning(String message, Throwable error) {
+		Log.w(TAG, message, error);
+	}
+
+	/**
+	 * Stops the background thread of this compressor. Segments that have not been compressed yet
+	 * are left uncompressed and will be enqueued again once a logger for the same directory and
+	 * name is given a compressor.
+	 */
+	@Override
+	public void close() {
+		synchronized (mLock) {
+			this.mClosed = true;
+			mQueue.clear();
+			mLock.notifyAll();
+		}
+	}
+
+	/**
+	 * Inner classes ===============================================================================
+	 */
+
+	/**
+	 * Holds a segment waiting to be compressed along with its logger.
+	 */
+	private static final class Task {
+
+		/**
+		 * Logger that has written the segment.
+		 */
+		final MappedFileLogger logger;
+
+		/**
+		 * Segment file to be compressed.
+		 */
+		final File segment;
+
+		/**
+		 * Creates a new instance of Task for the given <var>logger</var> and <var>segment</var>.
+		 */
+		Task(MappedFileLogger logger, File segment) {
+			this.logger = logger;
+			this.segment = segment;
+		}
+	}
+}
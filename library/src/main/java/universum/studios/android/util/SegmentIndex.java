@@ -0,0 +1,326 @@
+/*
+ * =================================================================================================
+ *                             Copyright (C) 2017 Universum Studios
+ * =================================================================================================
+ *         Licensed under the Apache License, Version 2.0 or later (further "License" only).
+ * -------------------------------------------------------------------------------------------------
+ * You may use this file only in compliance with the License. More details and copy of this License
+ * you may obtain at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * You can redistribute, modify or publish any part of the code written within this file but as it
+ * is described in the License, the software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES or CONDITIONS OF ANY KIND.
+ *
+ * See the License for the specific language governing permissions and limitations under the License.
+ * =================================================================================================
+ */
+package universum.studios.android.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Sparse index of a segment file written by {@link MappedFileLogger}. Content of the segment is
+ * split into blocks of at least {@link #BLOCK_SIZE} bytes, each starting at the beginning of a
+ * record. For each block the index holds one entry of {@link #ENTRY_SIZE} bytes:
+ * <pre>
+ * {startOffset:int} {endOffset:int} {minTime:long} {maxTime:long} {tags:long}
+ * </pre>
+ * where tags is a bitmap with a bit set for each tag of records within the block, see {@link #tagBit(String)}.
+ * Entries are written into the index file positionally as soon as their blocks are complete, so
+ * the index of a segment of a killed process covers all but the last block. Content following
+ * the last indexed block is expected to be scanned sequentially by readers.
+ * <p>
+ * Writing of an index is best effort. If it fails, no more entries are written and the logger is
+ * not affected in any way.
+ *
+ * @author Martin Albedinsky
+ * @see LogQuery
+ */
+final class SegmentIndex {
+
+	/**
+	 * Constants ===================================================================================
+	 */
+
+	/**
+	 * Log TAG.
+	 */
+	// private static final String TAG = "SegmentIndex";
+
+	/**
+	 * Extension of index files.
+	 */
+	static final String EXTENSION = ".idx";
+
+	/**
+	 * Minimum count of bytes of a single indexed block.
+	 */
+	static final int BLOCK_SIZE = 16 * 1024;
+
+	/**
+	 * Count of bytes of a single index entry.
+	 */
+	static final int ENTRY_SIZE = 32;
+
+	/**
+	 * Interface ===================================================================================
+	 */
+
+	/**
+	 * Static members ==============================================================================
+	 */
+
+	/**
+	 * Members =====================================================================================
+	 */
+
+	/**
+	 * Logger which writes the indexed segment, used to log failures.
+	 */
+	private final MappedFileLogger mLogger;
+
+	/**
+	 * File of this index.
+	 */
+	private final File mFile;
+
+	/**
+	 * Buffer into which is encoded a single entry.
+	 */
+	private final ByteBuffer mEntry = ByteBuffer.allocate(ENTRY_SIZE);
+
+	/**
+	 * Random access file of this index. {@code Null} if writing of the index has failed.
+	 */
+	private RandomAccessFile mAccess;
+
+	/**
+	 * Count of entries written so far.
+	 */
+	private int mEntryCount;
+
+	/**
+	 * Offset at which starts the current block. {@code -1} if there is no current block.
+	 */
+	private int mBlockStart = -1;
+
+	/**
+	 * The lowest time of records within the current block.
+	 */
+	private long mMinTime;
+
+	/**
+	 * The highest time of records within the current block.
+	 */
+	private long mMaxTime;
+
+	/**
+	 * Bitmap of tags of records within the current block.
+	 */
+	private long mTags;
+
+	/**
+	 * Constructors ================================================================================
+	 */
+
+	/**
+	 * Creates a new instance of SegmentIndex which will write entries into a new index file for the
+	 * specified <var>segment</var> of the given <var>logger</var>. Any existing content of the index
+	 * file is discarded.
+	 */
+	SegmentIndex(MappedFileLogger logger, File segment) {
+		this.mLogger = logger;
+		this.mFile = fileFor(segment);
+		try {
+			this.mAccess = new RandomAccessFile(mFile, "rw");
+			mAccess.setLength(0);
+		} catch (IOException e) {
+			onFailure(e);
+		}
+	}
+
+	/**
+	 * Methods =====================================================================================
+	 */
+
+	/**
+	 * Returns the index file of the specified <var>segment</var> file. Compressed segments share
+	 * the index file with their uncompressed origin.
+	 */
+	static File fileFor(File segment) {
+		final String name = segment.getName();
+		int end = name.indexOf('.', name.lastIndexOf(MappedFileLogger.SEGMENT_INDEX_SEPARATOR) + 1);
+		if (end == -1) end = name.length();
+		return new File(segment.getParentFile(), name.substring(0, end) + EXTENSION);
+	}
+
+	/**
+	 * Returns the bit representing the specified <var>tag</var> in tag bitmaps of index entries.
+	 */
+	static long tagBit(String tag) {
+		final int hash = tag.hashCode() * 0x9E3779B9;
+		return 1L << (hash >>> 26);
+	}
+
+	/**
+	 * Records that a record with the specified <var>time</var> and <var>tag</var> starts at the
+	 * specified <var>offset</var> of the segment.
+	 */
+	void add(int offset, long time, String tag) {
+		if (mAccess == null) {
+			return;
+		}
+		if (mBlockStart >= 0 && offset - mBlockStart >= BLOCK_SIZE) {
+			writeEntry(offset);
+		}
+		if (mBlockStart < 0) {
+			this.mBlockStart = offset;
+			this.mMinTime = time;
+			this.mMaxTime = time;
+			this.mTags = 0;
+		} else if (time < mMinTime) {
+			this.mMinTime = time;
+		} else if (time > mMaxTime) {
+			this.mMaxTime = time;
+		}
+		this.mTags |= tagBit(tag);
+	}
+
+	/**
+	 * Writes entry for the current block which ends at the specified <var>offset</var> and closes
+	 * this index.
+	 */
+	void finish(int offset) {
+		if (mAccess == null) {
+			return;
+		}
+		if (mBlockStart >= 0) {
+			writeEntry(offset);
+		}
+		if (mAccess != null) {
+			try {
+				mAccess.close();
+			} catch (IOException e) {
+				mLogger.logWarning("Failed to close index(" + mFile + ").", e);
+			}
+			this.mAccess = null;
+		}
+	}
+
+	/**
+	 * Writes entry for the current block which ends at the specified <var>offset</var>.
+	 */
+	private void writeEntry(int offset) {
+		mEntry.clear();
+		mEntry.putInt(mBlockStart).putInt(offset).putLong(mMinTime).putLong(mMaxTime).putLong(mTags);
+		mEntry.flip();
+		try {
+			final FileChannel channel = mAccess.getChannel();
+			final long position = (long) mEntryCount * ENTRY_SIZE;
+			while (mEntry.hasRemaining()) {
+				channel.write(mEntry, position + mEntry.position());
+			}
+			this.mEntryCount++;
+			this.mBlockStart = -1;
+		} catch (IOException e) {
+			onFailure(e);
+		}
+	}
+
+	/**
+	 * Stops writing of this index after the given failure.
+	 */
+	private void onFailure(IOException e) {
+		mLogger.logWarning("Failed to write index(" + mFile + ").", e);
+		if (mAccess != null) {
+			try {
+				mAccess.close();
+			} catch (IOException ignored) {
+				// Index is already in failed state.
+			}
+			this.mAccess = null;
+		}
+	}
+
+	/**
+	 * Reads all complete entries of the specified index <var>file</var>.
+	 *
+	 * @return Read blocks ordered by their offsets. Empty if the index does not exist.
+	 * @throws IOException If reading of the index fails.
+	 */
+	static List<Block> read(File file) throws IOException {
+		final List<Block> blocks = new ArrayList<>();
+		if (!file.isFile()) {
+			return blocks;
+		}
+		final RandomAccessFile access = new RandomAccessFile(file, "r");
+		try {
+			final FileChannel channel = access.getChannel();
+			final ByteBuffer buffer = ByteBuffer.allocate((int) (channel.size() / ENTRY_SIZE * ENTRY_SIZE));
+			while (buffer.hasRemaining() && channel.read(buffer, buffer.position()) != -1) {
+				// Continue until the whole buffer is filled.
+			}
+			buffer.flip();
+			while (buffer.remaining() >= ENTRY_SIZE) {
+				blocks.add(new Block(buffer.getInt(), buffer.getInt(), buffer.getLong(), buffer.getLong(), buffer.getLong()));
+			}
+		} finally {
+			access.close();
+		}
+		return blocks;
+	}
+
+	/**
+	 * Inner classes ===============================================================================
+	 */
+
+	/**
+	 * Holds data of a single index entry.
+	 */
+	static final class Block {
+
+		/**
+		 * Offset of the first byte of the block within the segment.
+		 */
+		final int start;
+
+		/**
+		 * Offset following the last byte of the block within the segment.
+		 */
+		final int end;
+
+		/**
+		 * The lowest time of records within the block.
+		 */
+		final long minTime;
+
+		/**
+		 * The highest time of records within the block.
+		 */
+		final long maxTime;
+
+		/**
+		 * Bitmap of tags of records within the block.
+		 */
+		final long tags;
+
+		/**
+		 * Creates a new instance of Block with the specified data.
+		 */
+		Block(int start, int end, long minTime, long maxTime, long tags) {
+			this.start = start;
+			this.end = end;
+			this.minTime = minTime;
+			this.maxTime = maxTime;
+			this.tags = tags;
+		}
+	}
+}
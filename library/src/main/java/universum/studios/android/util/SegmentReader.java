@@ -0,0 +1,177 @@
+/*
+ * =================================================================================================
+ *                             Copyright (C) 2017 Universum Studios
+ * =================================================================================================
+ *         Licensed under the Apache License, Version 2.0 or later (further "License" only).
+ * -------------------------------------------------------------------------------------------------
+ * You may use this file only in compliance with the License. More details and copy of this License
+ * you may obtain at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * You can redistribute, modify or publish any part of the code written within this file but as it
+ * is described in the License, the software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES or CONDITIONS OF ANY KIND.
+ *
+ * See the License for the specific language governing permissions and limitations under the License.
+ * =================================================================================================
+ */
+package universum.studios.android.util;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Reader which reads lines of segment files written by {@link MappedFileLogger}, including the
+ * segments compressed by {@link SegmentCompressor}. Segments are read one after another, each
+ * decompressed on the fly if its name ends with {@link SegmentCompressor#EXTENSION}, so only the
+ * currently read segment is open at a time.
+ * <p>
+ * Trailing {@code '\0'} bytes of segments of killed processes are skipped.
+ *
+ * @author Martin Albedinsky
+ */
+public class SegmentReader implements Closeable {
+
+	/**
+	 * Constants ===================================================================================
+	 */
+
+	/**
+	 * Log TAG.
+	 */
+	// private static final String TAG = "SegmentReader";
+
+	/**
+	 * Interface ===================================================================================
+	 */
+
+	/**
+	 * Static members ==============================================================================
+	 */
+
+	/**
+	 * Members =====================================================================================
+	 */
+
+	/**
+	 * Segment files to be read.
+	 */
+	private final File[] mSegments;
+
+	/**
+	 * Index of the next segment to be opened.
+	 */
+	private int mNextSegment;
+
+	/**
+	 * Reader of the current segment.
+	 */
+	private BufferedReader mReader;
+
+	/**
+	 * Constructors ================================================================================
+	 */
+
+	/**
+	 * Creates a new instance of SegmentReader which will read all segments, compressed and
+	 * uncompressed, of the given <var>logger</var> that are currently stored on the disk.
+	 *
+	 * @param logger The logger of which segments to read.
+	 */
+	public SegmentReader(@NonNull MappedFileLogger logger) {
+		this.mSegments = logger.listAllSegments();
+	}
+
+	/**
+	 * Creates a new instance of SegmentReader which will read the given <var>segments</var> in the
+	 * given order.
+	 *
+	 * @param segments The segment files to read.
+	 */
+	public SegmentReader(@NonNull File... segments) {
+		this.mSegments = segments.clone();
+	}
+
+	/**
+	 * Methods =====================================================================================
+	 */
+
+	/**
+	 * Opens an input stream for the specified <var>segment</var> file which decompresses its content
+	 * if the segment is compressed.
+	 *
+	 * @param segment The segment file to open.
+	 * @return Stream with uncompressed content of the segment.
+	 * @throws IOException If the segment cannot be opened.
+	 */
+	@NonNull
+	public static InputStream openSegment(@NonNull File segment) throws IOException {
+		final InputStream input = new FileInputStream(segment);
+		if (!segment.getName().endsWith(SegmentCompressor.EXTENSION)) {
+			return input;
+		}
+		try {
+			return new GZIPInputStream(input, SegmentCompressor.BUFFER_SIZE);
+		} catch (IOException e) {
+			input.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Reads the next line from the segments.
+	 *
+	 * @return The line without the line terminator or {@code null} if all segments have been read.
+	 * @throws IOException If reading of a segment fails.
+	 */
+	@Nullable
+	public String readLine() throws IOException {
+		while (true) {
+			if (mReader == null) {
+				if (mNextSegment >= mSegments.length) {
+					return null;
+				}
+				this.mReader = new BufferedReader(new InputStreamReader(openSegment(mSegments[mNextSegment++]), "UTF-8"));
+			}
+			final String line = mReader.readLine();
+			if (line != null && (line.length() == 0 || line.charAt(0) != '\0')) {
+				return line;
+			}
+			// End of the segment or its unused preallocated space.
+			closeSegment();
+		}
+	}
+
+	/**
+	 * Closes reader of the current segment, if any.
+	 */
+	private void closeSegment() throws IOException {
+		if (mReader != null) {
+			final BufferedReader reader = mReader;
+			this.mReader = null;
+			reader.close();
+		}
+	}
+
+	/**
+	 */
+	@Override
+	public void close() throws IOException {
+		this.mNextSegment = mSegments.length;
+		closeSegment();
+	}
+
+	/**
+	 * Inner classes ===============================================================================
+	 */
+}
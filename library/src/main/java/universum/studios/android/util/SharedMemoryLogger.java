@@ -0,0 +1,628 @@
+/*
+ * =================================================================================================
+ *                             Copyright (C) 2017 Universum Studios
+ * =================================================================================================
+ *         Licensed under the Apache License, Version 2.0 or later (further "License" only).
+ * -------------------------------------------------------------------------------------------------
+ * You may use this file only in compliance with the License. More details and copy of this License
+ * you may obtain at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * You can redistribute, modify or publish any part of the code written within this file but as it
+ * is described in the License, the software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES or CONDITIONS OF ANY KIND.
+ *
+ * See the License for the specific language governing permissions and limitations under the License.
+ * =================================================================================================
+ */
+package universum.studios.android.util;
+
+import android.os.Process;
+import android.support.annotation.IntRange;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * A {@link Logger} implementation which appends log records into a memory-mapped file shared by
+ * multiple processes, so records of all processes of an application form a single log that may be
+ * read via {@link #readRecords()} ordered by time.
+ *
+ * <h3>Layout</h3>
+ * The file starts with a header holding geometry of the buffer and a shared 64-bit sequence
+ * counter. The rest of the file is split into slots of equal size which form a ring addressed by
+ * the sequence: the slot for sequence {@code n} is at index {@code n % slotCount}. Each record
+ * occupies one or more consecutive sequences. Once the ring is full, new records overwrite the
+ * oldest ones.
+ *
+ * <h3>Appending</h3>
+ * A process reserves slots for a record by advancing the shared sequence. Java does not provide
+ * atomic compare-and-set over memory-mapped buffers, so the reservation is made under a
+ * {@link FileLock} of the header region which guards only reading and incrementing of the counter.
+ * Records are encoded into the reserved slots outside of the lock, so processes append records in
+ * parallel. Each slot holds a stamp derived from its sequence which a writer clears before writing
+ * into the slot and sets once the whole record is written. Readers accept only records with valid
+ * stamps both before and after copying of their content, so partially written or concurrently
+ * overwritten records are skipped instead of being read corrupted.
+ * <p>
+ * Records longer than what fits into a quarter of all slots are truncated.
+ *
+ * @author Martin Albedinsky
+ */
+public class SharedMemoryLogger extends BaseLogger implements Closeable {
+
+	/**
+	 * Constants ===================================================================================
+	 */
+
+	/**
+	 * Log TAG.
+	 */
+	// private static final String TAG = "SharedMemoryLogger";
+
+	/**
+	 * Default size of a single slot in bytes.
+	 */
+	public static final int DEFAULT_SLOT_SIZE = 256;
+
+	/**
+	 * Default count of slots of the buffer.
+	 */
+	public static final int DEFAULT_SLOT_COUNT = 4096;
+
+	/**
+	 * Minimum size of a single slot in bytes.
+	 */
+	public static final int MIN_SLOT_SIZE = 64;
+
+	/**
+	 * Magic number identifying a shared log file.
+	 */
+	private static final int MAGIC = 0x55534C47;
+
+	/**
+	 * Version of the file layout.
+	 */
+	private static final int VERSION = 1;
+
+	/**
+	 * Size of the file header in bytes.
+	 */
+	private static final int HEADER_SIZE = 64;
+
+	/**
+	 * Offsets of values within the file header.
+	 */
+	private static final int HEADER_MAGIC = 0, HEADER_VERSION = 4, HEADER_SLOT_SIZE = 8, HEADER_SLOT_COUNT = 12, HEADER_SEQUENCE = 16;
+
+	/**
+	 * Size of the header of each slot in bytes.
+	 */
+	private static final int SLOT_HEADER_SIZE = 16;
+
+	/**
+	 * Offsets of values within the slot header.
+	 */
+	private static final int SLOT_STAMP = 0, SLOT_FLAGS = 8, SLOT_USED = 12;
+
+	/**
+	 * Flag marking the first slot of a record.
+	 */
+	private static final int FLAG_FIRST = 0x01;
+
+	/**
+	 * Size of the record header stored at start of the first slot of a record in bytes.
+	 */
+	private static final int RECORD_HEADER_SIZE = 20;
+
+	/**
+	 * Offsets of values within the record header relative to the slot payload.
+	 */
+	private static final int RECORD_TIME = 0, RECORD_PID = 8, RECORD_LEVEL = 12, RECORD_TAG_LENGTH = 14, RECORD_SLOT_COUNT = 16;
+
+	/**
+	 * Maximum count of bytes that may remain unused at the end of a slot, because characters are
+	 * never split between slots.
+	 */
+	private static final int MAX_SLOT_WASTE = 3;
+
+	/**
+	 * Characters identifying log levels within text of records indexed by the level.
+	 */
+	private static final String LEVEL_CHARS = "??VDIWEA";
+
+	/**
+	 * Interface ===================================================================================
+	 */
+
+	/**
+	 * Static members ==============================================================================
+	 */
+
+	/**
+	 * Lock serializing reservations within this process. File locks are held on behalf of the whole
+	 * process and may not overlap, so threads must take turns.
+	 */
+	private static final Object RESERVE_LOCK = new Object();
+
+	/**
+	 * Comparator ordering records by their time.
+	 */
+	private static final Comparator<Record> TIME_ORDER = new Comparator<Record>() {
+
+		/**
+		 */
+		@Override
+		public int compare(Record first, Record second) {
+			return first.time < second.time ? -1 : (first.time == second.time ? 0 : 1);
+		}
+	};
+
+	/**
+	 * Members =====================================================================================
+	 */
+
+	/**
+	 * Random access file of the shared buffer.
+	 */
+	private final RandomAccessFile mAccess;
+
+	/**
+	 * Buffer mapped to the shared file.
+	 */
+	private final MappedByteBuffer mBuffer;
+
+	/**
+	 * Size of a single slot in bytes.
+	 */
+	private final int mSlotSize;
+
+	/**
+	 * Count of slots of the buffer.
+	 */
+	private final int mSlotCount;
+
+	/**
+	 * Maximum count of slots occupied by a single record.
+	 */
+	private final int mMaxRecordSlots;
+
+	/**
+	 * Id of the process in which this logger writes its records.
+	 */
+	private final int mPid;
+
+	/**
+	 * Views of the mapped buffer used by the logging threads to encode records.
+	 */
+	private final ThreadLocal<ByteBuffer> mThreadBuffers = new ThreadLocal<ByteBuffer>() {
+
+		/**
+		 */
+		@Override
+		protected ByteBuffer initialValue() {
+			return mBuffer.duplicate();
+		}
+	};
+
+	/**
+	 * Field written and read to order accesses to the mapped buffer as volatile accesses act as
+	 * memory barriers.
+	 */
+	private volatile int mFence;
+
+	/**
+	 * Flag indicating whether this logger has been closed.
+	 */
+	private volatile boolean mClosed;
+
+	/**
+	 * Constructors ================================================================================
+	 */
+
+	/**
+	 * Same as {@link #SharedMemoryLogger(int, File, int, int)} with {@link #DEFAULT_SLOT_SIZE} and
+	 * {@link #DEFAULT_SLOT_COUNT}.
+	 */
+	public SharedMemoryLogger(@Level int level, @NonNull File file) throws IOException {
+		this(level, file, DEFAULT_SLOT_SIZE, DEFAULT_SLOT_COUNT);
+	}
+
+	/**
+	 * Creates a new instance of SharedMemoryLogger with the specified log level which will append
+	 * records into the specified shared <var>file</var>. If the file has been already initialized
+	 * by another logger, possibly in another process, its existing geometry is used instead of the
+	 * specified one.
+	 *
+	 * @param level     The initial logging level for the logger.
+	 * @param file      The file shared by all processes which should log into the same buffer.
+	 * @param slotSize  Size of a single slot in bytes.
+	 * @param slotCount Count of slots of the buffer.
+	 * @throws IOException If the file cannot be opened or mapped.
+	 */
+	public SharedMemoryLogger(
+			@Level int level,
+			@NonNull File file,
+			@IntRange(from = MIN_SLOT_SIZE) int slotSize,
+			@IntRange(from = 4) int slotCount
+	) throws IOException {
+		super(level);
+		if (slotSize < MIN_SLOT_SIZE) throw new IllegalArgumentException("Slot size must be at least " + MIN_SLOT_SIZE + ".");
+		if (slotCount < 4) throw new IllegalArgumentException("Slot count must be at least 4.");
+		this.mAccess = new RandomAccessFile(file, "rw");
+		try {
+			final FileChannel channel = mAccess.getChannel();
+			synchronized (RESERVE_LOCK) {
+				final FileLock lock = channel.lock();
+				try {
+					final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+					while (header.hasRemaining() && channel.read(header, header.position()) > 0) {
+						// Continue until the whole header is read.
+					}
+					if (header.position() == HEADER_SIZE &&
+							header.getInt(HEADER_MAGIC) == MAGIC &&
+							header.getInt(HEADER_VERSION) == VERSION &&
+							header.getInt(HEADER_SLOT_SIZE) >= MIN_SLOT_SIZE &&
+							header.getInt(HEADER_SLOT_COUNT) >= 4) {
+						slotSize = header.getInt(HEADER_SLOT_SIZE);
+						slotCount = header.getInt(HEADER_SLOT_COUNT);
+					} else {
+						mAccess.setLength(0);
+						header.clear();
+						header.putInt(HEADER_MAGIC, MAGIC);
+						header.putInt(HEADER_VERSION, VERSION);
+						header.putInt(HEADER_SLOT_SIZE, slotSize);
+						header.putInt(HEADER_SLOT_COUNT, slotCount);
+						while (header.hasRemaining()) {
+							channel.write(header, header.position());
+						}
+					}
+					final long size = HEADER_SIZE + (long) slotSize * slotCount;
+					if (mAccess.length() < size) mAccess.setLength(size);
+					this.mBuffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+				} finally {
+					lock.release();
+				}
+			}
+		} catch (IOException e) {
+			mAccess.close();
+			throw e;
+		}
+		this.mSlotSize = slotSize;
+		this.mSlotCount = slotCount;
+		this.mPid = myPid();
+		this.mMaxRecordSlots = slotCount / 4;
+	}
+
+	/**
+	 * Methods =====================================================================================
+	 */
+
+	/**
+	 * Returns the size of a single slot of the shared buffer.
+	 *
+	 * @return Slot size in bytes.
+	 */
+	public final int getSlotSize() {
+		return mSlotSize;
+	}
+
+	/**
+	 * Returns the count of slots of the shared buffer.
+	 *
+	 * @return Slot count.
+	 */
+	public final int getSlotCount() {
+		return mSlotCount;
+	}
+
+	/**
+	 * Returns id of the process in which this logger writes its records. Called only once, when
+	 * this logger is created.
+	 *
+	 * @return Process id.
+	 */
+	int myPid() {
+		return Process.myPid();
+	}
+
+	/**
+	 */
+	@Override
+	protected void onLog(@Level int level, @NonNull String tag, @Nullable String msg, @Nullable Throwable tr) {
+		if (mClosed) return;
+		final long time = System.currentTimeMillis();
+		final CharSequence text;
+		if (tr == null) {
+			text = msg == null ? "" : msg;
+		} else {
+			final StringBuilder builder = new StringBuilder(msg == null ? 256 : msg.length() + 256);
+			if (msg != null) builder.append(msg).append('\n');
+			appendStackTrace(builder, tr);
+			text = builder;
+		}
+		final int firstPayload = mSlotSize - SLOT_HEADER_SIZE - RECORD_HEADER_SIZE - MAX_SLOT_WASTE;
+		final int payload = mSlotSize - SLOT_HEADER_SIZE - MAX_SLOT_WASTE;
+		final int length = Utf8.encodedLength(tag, 0, tag.length()) + Utf8.encodedLength(text, 0, text.length());
+		final int slots = Math.min(length <= firstPayload ? 1 : 1 + (length - firstPayload + payload - 1) / payload, mMaxRecordSlots);
+		final long sequence;
+		try {
+			sequence = reserve(slots);
+		} catch (IOException e) {
+			this.mClosed = true;
+			return;
+		}
+		writeRecord(sequence, slots, time, level, tag, text);
+	}
+
+	/**
+	 * Reserves the specified count of consecutive sequences.
+	 *
+	 * @return The first reserved sequence.
+	 * @throws IOException If locking of the header fails.
+	 */
+	private long reserve(int count) throws IOException {
+		synchronized (RESERVE_LOCK) {
+			final FileLock lock = mAccess.getChannel().lock(0, HEADER_SIZE, false);
+			try {
+				final long sequence = mBuffer.getLong(HEADER_SEQUENCE);
+				mBuffer.putLong(HEADER_SEQUENCE, sequence + count);
+				return sequence;
+			} finally {
+				lock.release();
+			}
+		}
+	}
+
+	/**
+	 * Returns the offset of the slot for the specified <var>sequence</var> within the buffer.
+	 */
+	private int slotOffset(long sequence) {
+		return HEADER_SIZE + (int) (sequence % mSlotCount) * mSlotSize;
+	}
+
+	/**
+	 * Writes a record with the specified data into the slots reserved for it.
+	 */
+	private void writeRecord(long sequence, int slots, long time, int level, String tag, CharSequence text) {
+		final ByteBuffer buffer = mThreadBuffers.get();
+		for (int i = 0; i < slots; i++) {
+			buffer.putLong(slotOffset(sequence + i) + SLOT_STAMP, 0);
+		}
+		this.mFence = 0;
+		int slotOffset = slotOffset(sequence);
+		buffer.putInt(slotOffset + SLOT_FLAGS, FLAG_FIRST);
+		final int recordOffset = slotOffset + SLOT_HEADER_SIZE;
+		buffer.putLong(recordOffset + RECORD_TIME, time);
+		buffer.putInt(recordOffset + RECORD_PID, mPid);
+		buffer.put(recordOffset + RECORD_LEVEL, (byte) level);
+		buffer.putShort(recordOffset + RECORD_TAG_LENGTH, (short) Math.min(tag.length(), Short.MAX_VALUE));
+		buffer.putInt(recordOffset + RECORD_SLOT_COUNT, slots);
+		buffer.limit(slotOffset + mSlotSize).position(recordOffset + RECORD_HEADER_SIZE);
+		int slot = 0;
+		int tagIndex = 0;
+		int textIndex = 0;
+		while (true) {
+			if (tagIndex < tag.length()) {
+				tagIndex = Utf8.encode(tag, tagIndex, tag.length(), buffer);
+			}
+			if (tagIndex == tag.length()) {
+				textIndex = Utf8.encode(text, textIndex, text.length(), buffer);
+			}
+			buffer.putInt(slotOffset + SLOT_USED, buffer.position() - slotOffset - SLOT_HEADER_SIZE);
+			if (++slot == slots) {
+				break;
+			}
+			slotOffset = slotOffset(sequence + slot);
+			buffer.limit(buffer.capacity());
+			buffer.putInt(slotOffset + SLOT_FLAGS, 0);
+			buffer.limit(slotOffset + mSlotSize).position(slotOffset + SLOT_HEADER_SIZE);
+		}
+		buffer.clear();
+		this.mFence = 0;
+		for (int i = slots - 1; i >= 0; i--) {
+			buffer.putLong(slotOffset(sequence + i) + SLOT_STAMP, sequence + i + 1);
+		}
+	}
+
+	/**
+	 * Reads all records that are currently stored in the shared buffer, including the records of
+	 * other processes.
+	 *
+	 * @return List with the records ordered by their time.
+	 * @throws IOException If locking of the header fails.
+	 */
+	@NonNull
+	public List<Record> readRecords() throws IOException {
+		final long end;
+		synchronized (RESERVE_LOCK) {
+			final FileLock lock = mAccess.getChannel().lock(0, HEADER_SIZE, true);
+			try {
+				end = mBuffer.getLong(HEADER_SEQUENCE);
+			} finally {
+				lock.release();
+			}
+		}
+		final ByteBuffer buffer = mBuffer.duplicate();
+		final List<Record> records = new ArrayList<>();
+		byte[] bytes = new byte[mSlotSize];
+		long sequence = Math.max(0, end - mSlotCount);
+		while (sequence < end) {
+			final int slotOffset = slotOffset(sequence);
+			if (buffer.getLong(slotOffset + SLOT_STAMP) != sequence + 1 || (buffer.getInt(slotOffset + SLOT_FLAGS) & FLAG_FIRST) == 0) {
+				sequence++;
+				continue;
+			}
+			final int recordOffset = slotOffset + SLOT_HEADER_SIZE;
+			final long time = buffer.getLong(recordOffset + RECORD_TIME);
+			final int pid = buffer.getInt(recordOffset + RECORD_PID);
+			final int level = buffer.get(recordOffset + RECORD_LEVEL);
+			final int tagLength = buffer.getShort(recordOffset + RECORD_TAG_LENGTH);
+			final int slots = buffer.getInt(recordOffset + RECORD_SLOT_COUNT);
+			if (slots <= 0 || slots > mMaxRecordSlots || sequence + slots > end) {
+				sequence++;
+				continue;
+			}
+			if (bytes.length < slots * mSlotSize) {
+				bytes = new byte[slots * mSlotSize];
+			}
+			int length = 0;
+			boolean valid = true;
+			for (int i = 0; i < slots && valid; i++) {
+				final int offset = slotOffset(sequence + i);
+				final int dataOffset = offset + SLOT_HEADER_SIZE + (i == 0 ? RECORD_HEADER_SIZE : 0);
+				final int used = buffer.getInt(offset + SLOT_USED) - (i == 0 ? RECORD_HEADER_SIZE : 0);
+				valid = buffer.getLong(offset + SLOT_STAMP) == sequence + i + 1 && used >= 0 && dataOffset + used <= offset + mSlotSize;
+				if (valid) {
+					buffer.position(dataOffset);
+					buffer.get(bytes, length, used);
+					length += used;
+				}
+			}
+			// Volatile read orders the copying before the following check of the stamps.
+			if (valid && mFence == 0) {
+				// Content is accepted only if no slot has been overwritten while being copied.
+				for (int i = 0; i < slots && valid; i++) {
+					valid = buffer.getLong(slotOffset(sequence + i) + SLOT_STAMP) == sequence + i + 1;
+				}
+			}
+			if (valid) {
+				final String text = new String(bytes, 0, length, "UTF-8");
+				final int tagEnd = Math.min(tagLength, text.length());
+				records.add(new Record(time, pid, level, text.substring(0, tagEnd), text.substring(tagEnd)));
+				sequence += slots;
+			} else {
+				sequence++;
+			}
+		}
+		Collections.sort(records, TIME_ORDER);
+		return records;
+	}
+
+	/**
+	 * Closes the shared file of this logger. All records logged after this call are ignored. The
+	 * buffer is unmapped by the system once it is garbage collected.
+	 *
+	 * @throws IOException If closing of the file fails.
+	 */
+	@Override
+	public void close() throws IOException {
+		this.mClosed = true;
+		mAccess.close();
+	}
+
+	/**
+	 * Inner classes ===============================================================================
+	 */
+
+	/**
+	 * A single log record read from the shared buffer.
+	 */
+	public static final class Record {
+
+		/**
+		 * Time of the record in milliseconds.
+		 */
+		final long time;
+
+		/**
+		 * Id of the process that has logged the record.
+		 */
+		final int pid;
+
+		/**
+		 * Log level of the record.
+		 */
+		final int level;
+
+		/**
+		 * Tag of the record.
+		 */
+		final String tag;
+
+		/**
+		 * Message of the record including stack trace of the logged throwable, if any.
+		 */
+		final String message;
+
+		/**
+		 * Creates a new instance of Record with the specified data.
+		 */
+		Record(long time, int pid, int level, String tag, String message) {
+			this.time = time;
+			this.pid = pid;
+			this.level = level;
+			this.tag = tag;
+			this.message = message;
+		}
+
+		/**
+		 * Returns the time when this record has been logged.
+		 *
+		 * @return Time in milliseconds.
+		 */
+		public long getTime() {
+			return time;
+		}
+
+		/**
+		 * Returns the id of the process that has logged this record.
+		 *
+		 * @return Process id.
+		 */
+		public int getProcessId() {
+			return pid;
+		}
+
+		/**
+		 * Returns the log level of this record.
+		 *
+		 * @return Log level.
+		 */
+		@Level
+		public int getLevel() {
+			return level;
+		}
+
+		/**
+		 * Returns the tag of this record.
+		 *
+		 * @return Record's tag.
+		 */
+		@NonNull
+		public String getTag() {
+			return tag;
+		}
+
+		/**
+		 * Returns the message of this record.
+		 *
+		 * @return Record's message including stack trace of the logged throwable, if any.
+		 */
+		@NonNull
+		public String getMessage() {
+			return message;
+		}
+
+		/**
+		 */
+		@Override
+		public String toString() {
+			final char levelChar = level >= 0 && level < LEVEL_CHARS.length() ? LEVEL_CHARS.charAt(level) : '?';
+			return time + " " + pid + " " + levelChar + "/" + tag + ": " + message;
+		}
+	}
+}
@@ -19,208 +19,308 @@
 package universum.studios.android.util;
 
 import android.annotation.SuppressLint;
-import android.os.Build;
+import android.support.annotation.IntRange;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.util.Log;
 
 /**
- * A simple implementation of {@link Logger} which delegates all its calls to {@link Log} class.
+ * A simple implementation of {@link Logger} which writes all its records into a {@link LogSink}.
+ * By default, the logger writes into logcat, that is, it delegates all its calls to {@link Log}
+ * class. Other sinks, like the ones provided by {@link LogSinks}, allow to run the logger also
+ * on a plain JVM, like in local tests or benchmarks.
  *
  * @author Martin Albedinsky
  */
-public class SimpleLogger implements Logger {
+public class SimpleLogger extends BaseLogger {
 
 	/**
 	 * Constants ===================================================================================
 	 */
 
 	/**
-	 * Flag indicating whether the WTF logging is supported by the current Android version or not.
+	 * Default maximum count of UTF-8 bytes of a single message chunk. Logcat truncates messages
+	 * longer than approximately 4 KB including the tag.
 	 */
-	private static final boolean WTF_SUPPORTED = Build.VERSION.SDK_INT >= Build.VERSION_CODES.FROYO;
+	public static final int DEFAULT_CHUNK_SIZE = 4000;
 
 	/**
-	 * Interface ===================================================================================
-	 */
-
-	/**
-	 * Static members ==============================================================================
+	 * Minimum size of a message chunk.
 	 */
+	private static final int MIN_CHUNK_SIZE = 16;
 
 	/**
-	 * Logging level for this logger.
-	 */
-	@Level
-	private int mLogLevel;
-
-	/**
-	 * Members =====================================================================================
-	 */
-
-	/**
-	 * Constructors ================================================================================
-	 */
-
-	/**
-	 * Creates a new instance of SimpleLogger with the specified log level.
-	 *
-	 * @param level The initial logging level for the logger.
-	 * @see #setLogLevel(int)
-	 * @see #getLogLevel()
+	 * Marker which prefixes each chunk of a message that continues the previous chunk.
 	 */
-	public SimpleLogger(@Level int level) {
-		this.mLogLevel = level;
-	}
+	static final String CONTINUATION_MARKER = "... ";
 
 	/**
-	 * Methods =====================================================================================
+	 * Interface ===================================================================================
 	 */
 
-	@Override
-	public void setLogLevel(@Level int level) {
-		this.mLogLevel = level;
-	}
-
 	/**
+	 * Static members ==============================================================================
 	 */
-	@Level
-	@Override
-	public int getLogLevel() {
-		return mLogLevel;
-	}
 
 	/**
+	 * Members =====================================================================================
 	 */
-	@Override
-	public boolean isLoggable(@NonNull String tag, int level) {
-		return mLogLevel <= level;
-	}
 
 	/**
+	 * Sink into which are written all log records.
 	 */
-	@Override
-	public void d(@NonNull String tag, @NonNull String msg) {
-		if (isLoggable(tag, Log.DEBUG)) Log.d(tag, msg);
-	}
+	private final LogSink mSink;
 
 	/**
+	 * Maximum count of UTF-8 bytes of a single message chunk.
 	 */
-	@Override
-	public void d(@NonNull String tag, @NonNull String msg, @Nullable Throwable tr) {
-		if (isLoggable(tag, Log.DEBUG)) Log.d(tag, msg, tr);
-	}
+	private volatile int mChunkSize = DEFAULT_CHUNK_SIZE;
 
 	/**
+	 * Constructors ================================================================================
 	 */
-	@Override
-	public void v(@NonNull String tag, @NonNull String msg) {
-		if (isLoggable(tag, Log.VERBOSE)) Log.v(tag, msg);
-	}
 
 	/**
+	 * Creates a new instance of SimpleLogger with the specified log level which writes into logcat.
+	 *
+	 * @param level The initial logging level for the logger.
+	 * @see #setLogLevel(int)
+	 * @see #getLogLevel()
 	 */
-	@Override
-	public void v(@NonNull String tag, @NonNull String msg, @Nullable Throwable tr) {
-		if (isLoggable(tag, Log.VERBOSE)) Log.v(tag, msg, tr);
+	public SimpleLogger(@Level int level) {
+		this(level, LogSinks.LOGCAT);
 	}
 
 	/**
+	 * Creates a new instance of SimpleLogger with the specified log level which writes into the
+	 * given <var>sink</var>.
+	 *
+	 * @param level The initial logging level for the logger.
+	 * @param sink  The sink into which to write the log records.
 	 */
-	@Override
-	public void i(@NonNull String tag, @NonNull String msg) {
-		if (isLoggable(tag, Log.INFO)) Log.i(tag, msg);
+	public SimpleLogger(@Level int level, @NonNull LogSink sink) {
+		super(level);
+		this.mSink = sink;
 	}
 
 	/**
+	 * Methods =====================================================================================
 	 */
-	@Override
-	public void i(@NonNull String tag, @NonNull String msg, @Nullable Throwable tr) {
-		if (isLoggable(tag, Log.INFO)) Log.i(tag, msg, tr);
-	}
 
 	/**
+	 * Returns the sink into which this logger writes its log records.
+	 *
+	 * @return This logger's sink.
 	 */
-	@Override
-	public void w(@NonNull String tag, @NonNull String msg) {
-		if (isLoggable(tag, Log.WARN)) Log.w(tag, msg);
+	@NonNull
+	public final LogSink getSink() {
+		return mSink;
 	}
 
 	/**
+	 * Specifies a maximum size of a single chunk of a message written into the sink. Messages longer
+	 * than this size are split into multiple chunks. Default size is {@link #DEFAULT_CHUNK_SIZE}.
+	 *
+	 * @param size The desired chunk size in UTF-8 bytes.
+	 * @throws IllegalArgumentException If the size is less than 16 bytes.
+	 * @see #getChunkSize()
 	 */
-	@Override
-	public void w(@NonNull String tag, @Nullable Throwable tr) {
-		if (isLoggable(tag, Log.WARN)) Log.w(tag, tr);
+	public void setChunkSize(@IntRange(from = MIN_CHUNK_SIZE) int size) {
+		if (size < MIN_CHUNK_SIZE) {
+			throw new IllegalArgumentException("Chunk size must be at least " + MIN_CHUNK_SIZE + ", got(" + size + ").");
+		}
+		this.mChunkSize = size;
 	}
 
 	/**
+	 * Returns the maximum size of a single chunk of a message written into the sink.
+	 *
+	 * @return Chunk size in UTF-8 bytes.
+	 * @see #setChunkSize(int)
 	 */
-	@Override
-	public void w(@NonNull String tag, @NonNull String msg, @Nullable Throwable tr) {
-		if (isLoggable(tag, Log.WARN)) Log.w(tag, msg, tr);
+	public int getChunkSize() {
+		return mChunkSize;
 	}
 
 	/**
 	 */
 	@Override
-	public void e(@NonNull String tag, @NonNull String msg) {
-		if (isLoggable(tag, Log.ERROR)) Log.e(tag, msg);
+	@SuppressLint("NewApi")
+	public void wtf(@NonNull String tag, @NonNull String msg) {
+		if (mSink != LogSinks.LOGCAT) super.wtf(tag, msg);
+		else if (LogSinks.WTF_SUPPORTED) Log.wtf(tag, msg);
 	}
 
 	/**
 	 */
 	@Override
-	public void e(@NonNull String tag, @NonNull String msg, @Nullable Throwable tr) {
-		if (isLoggable(tag, Log.ERROR)) Log.e(tag, msg, tr);
+	@SuppressLint("NewApi")
+	public void wtf(@NonNull String tag, @Nullable Throwable tr) {
+		if (mSink != LogSinks.LOGCAT) super.wtf(tag, tr);
+		else if (LogSinks.WTF_SUPPORTED) Log.wtf(tag, tr);
 	}
 
 	/**
 	 */
 	@Override
 	@SuppressLint("NewApi")
-	public void wtf(@NonNull String tag, @NonNull String msg) {
-		if (WTF_SUPPORTED) Log.wtf(tag, msg);
+	public void wtf(@NonNull String tag, @NonNull String msg, @Nullable Throwable tr) {
+		if (mSink != LogSinks.LOGCAT) super.wtf(tag, msg, tr);
+		else if (LogSinks.WTF_SUPPORTED) Log.wtf(tag, msg, tr);
 	}
 
 	/**
 	 */
 	@Override
-	@SuppressLint("NewApi")
-	public void wtf(@NonNull String tag, @Nullable Throwable tr) {
-		if (WTF_SUPPORTED) Log.wtf(tag, tr);
+	public void forceLog(@Level int level, @NonNull String tag, @NonNull String msg) {
+		write(level, tag, msg);
 	}
 
 	/**
+	 * Writes the given log data into the sink of this logger in the same format as the level
+	 * specific methods of {@link Log} class do.
 	 */
 	@Override
-	@SuppressLint("NewApi")
-	public void wtf(@NonNull String tag, @NonNull String msg, @Nullable Throwable tr) {
-		if (WTF_SUPPORTED) Log.wtf(tag, msg, tr);
+	protected void onLog(@Level int level, @NonNull String tag, @Nullable String msg, @Nullable Throwable tr) {
+		if (tr == null) {
+			write(level, tag, msg == null ? "" : msg);
+		} else {
+			final StringBuilder message = new StringBuilder(msg == null ? 256 : msg.length() + 256);
+			if (msg != null) message.append(msg).append('\n');
+			appendStackTrace(message, tr);
+			write(level, tag, message);
+		}
 	}
 
 	/**
+	 * Writes the record rendered into its own text buffer directly into the sink, so no string is
+	 * created for it, unless required by the sink.
 	 */
 	@Override
-	public void log(@Level int level, @NonNull String tag, @NonNull String msg) {
-		if (isLoggable(tag, level)) forceLog(level, tag, msg);
+	void onLogStructured(@NonNull StructuredRecord record) {
+		write(record.getLevel(), record.getTag(), record.render());
 	}
 
 	/**
+	 * Writes the given message into the sink of this logger. If the message is longer than the
+	 * chunk size, it is split into multiple chunks, preferably on line boundaries. The chunks are
+	 * passed to the sink as views over the original message, so the message is not copied, where
+	 * each chunk that continues the previous one is prefixed by {@link #CONTINUATION_MARKER}.
 	 */
-	@Override
-	public void forceLog(@Level int level, @NonNull String tag, @NonNull String msg) {
-		Log.println(level, tag, msg);
+	private void write(int level, String tag, CharSequence msg) {
+		final int length = msg.length();
+		final int chunkSize = mChunkSize;
+		// Each character occupies at most 3 UTF-8 bytes, so short messages do not need to be measured.
+		if (length <= chunkSize / 3) {
+			mSink.write(level, tag, msg, 0, length);
+			return;
+		}
+		Continuation continuation = null;
+		int start = 0;
+		for (;;) {
+			final int size = continuation == null ? chunkSize : chunkSize - CONTINUATION_MARKER.length();
+			int end = start;
+			int bytes = 0;
+			int lastLineEnd = -1;
+			while (end < length) {
+				final char c = msg.charAt(end);
+				final int charBytes;
+				if (c < 0x80) charBytes = 1;
+				else if (c < 0x800) charBytes = 2;
+				else if (Character.isHighSurrogate(c) && end + 1 < length && Character.isLowSurrogate(msg.charAt(end + 1))) charBytes = 4;
+				else charBytes = 3;
+				if (bytes + charBytes > size) break;
+				if (c == '\n') lastLineEnd = end;
+				bytes += charBytes;
+				end += charBytes == 4 ? 2 : 1;
+			}
+			int next = end;
+			if (end < length && lastLineEnd > start) {
+				end = lastLineEnd;
+				next = lastLineEnd + 1;
+			}
+			if (continuation == null) {
+				mSink.write(level, tag, msg, start, end);
+				continuation = new Continuation(msg);
+			} else {
+				continuation.set(start, end);
+				mSink.write(level, tag, continuation, 0, continuation.length());
+			}
+			if (next >= length) {
+				return;
+			}
+			start = next;
+		}
 	}
 
 	/**
+	 * Inner classes ===============================================================================
 	 */
-	@Override
-	@Nullable
-	public String getStackTraceString(@Nullable Throwable tr) {
-		return Log.getStackTraceString(tr);
-	}
 
 	/**
-	 * Inner classes ===============================================================================
+	 * A view over a range of a message prefixed by {@link #CONTINUATION_MARKER}. The view is reused
+	 * for all continuing chunks of the same message.
 	 */
+	private static final class Continuation implements CharSequence {
+
+		/**
+		 * The viewed message.
+		 */
+		private final CharSequence message;
+
+		/**
+		 * Start index (inclusive) of the viewed range of the message.
+		 */
+		private int start;
+
+		/**
+		 * End index (exclusive) of the viewed range of the message.
+		 */
+		private int end;
+
+		/**
+		 * Creates a new instance of Continuation for the given <var>message</var>.
+		 */
+		Continuation(CharSequence message) {
+			this.message = message;
+		}
+
+		/**
+		 * Changes the viewed range of the message.
+		 */
+		void set(int start, int end) {
+			this.start = start;
+			this.end = end;
+		}
+
+		/**
+		 */
+		@Override
+		public int length() {
+			return CONTINUATION_MARKER.length() + end - start;
+		}
+
+		/**
+		 */
+		@Override
+		public char charAt(int index) {
+			final int markerLength = CONTINUATION_MARKER.length();
+			return index < markerLength ? CONTINUATION_MARKER.charAt(index) : message.charAt(start + index - markerLength);
+		}
+
+		/**
+		 */
+		@Override
+		public CharSequence subSequence(int start, int end) {
+			return toString().substring(start, end);
+		}
+
+		/**
+		 */
+		@Override
+		@NonNull
+		public String toString() {
+			return new StringBuilder(length()).append(CONTINUATION_MARKER).append(message, start, end).toString();
+		}
+	}
 }
@@ -0,0 +1,356 @@
+/*
+ * =================================================================================================
+ *                             Copyright (C) 2017 Universum Studios
+ * =================================================================================================
+ *         Licensed under the Apache License, Version 2.0 or later (further "License" only).
+ * -------------------------------------------------------------------------------------------------
+ * You may use this file only in compliance with the License. More details and copy of this License
+ * you may obtain at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * You can redistribute, modify or publish any part of the code written within this file but as it
+ * is described in the License, the software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES or CONDITIONS OF ANY KIND.
+ *
+ * See the License for the specific language governing permissions and limitations under the License.
+ * =================================================================================================
+ */
+package universum.studios.android.util;
+
+import android.support.annotation.IntRange;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded LRU cache of rendered stack traces. When the same exception is thrown from the same
+ * place repeatedly, like in a loop, its stack trace is rendered only once and the cached string is
+ * returned for all subsequent occurrences.
+ * <p>
+ * Throwables are looked up by a fingerprint computed from the class, message and stack frames of
+ * the throwable and of all its causes, where only the top frames of each throwable take part in the
+ * hash code. Fingerprints that share the hash code are compared by all their frames, so a cached
+ * string is returned only for a throwable that would be rendered exactly the same. Throwables with
+ * suppressed throwables anywhere within their cause chain and throwables with more than
+ * {@code 16} causes are not cached at all, their stack traces are always rendered.
+ * <p>
+ * The cache may be attached to any {@link BaseLogger} via {@link BaseLogger#setStackTraceCache(StackTraceCache)}
+ * and may be also shared by multiple loggers. Efficiency of the cache may be checked via
+ * {@link #getHitCount()} and {@link #getMissCount()}.
+ *
+ * @author Martin Albedinsky
+ */
+public final class StackTraceCache {
+
+	/**
+	 * Constants ===================================================================================
+	 */
+
+	/**
+	 * Log TAG.
+	 */
+	// private static final String TAG = "StackTraceCache";
+
+	/**
+	 * Default maximum count of stack traces held by the cache.
+	 */
+	public static final int DEFAULT_MAX_SIZE = 32;
+
+	/**
+	 * Count of the top frames of each throwable that take part in the fingerprint hash code.
+	 */
+	private static final int HASHED_FRAMES = 8;
+
+	/**
+	 * Maximum count of throwables from a cause chain that take part in the fingerprint.
+	 */
+	private static final int MAX_CAUSES = 16;
+
+	/**
+	 * Interface ===================================================================================
+	 */
+
+	/**
+	 * Static members ==============================================================================
+	 */
+
+	/**
+	 * Members =====================================================================================
+	 */
+
+	/**
+	 * Maximum count of stack traces held by this cache.
+	 */
+	private final int mMaxSize;
+
+	/**
+	 * Renderer used to render stack traces that are not cached yet.
+	 */
+	private final StackTraceRenderer mRenderer;
+
+	/**
+	 * Map with the rendered stack traces in the access order, so the eldest entry is the least
+	 * recently used one.
+	 */
+	private final Map<Fingerprint, String> mEntries;
+
+	/**
+	 * Count of lookups that returned a cached stack trace.
+	 */
+	private final AtomicLong mHitCount = new AtomicLong();
+
+	/**
+	 * Count of lookups that required rendering of a stack trace.
+	 */
+	private final AtomicLong mMissCount = new AtomicLong();
+
+	/**
+	 * Constructors ================================================================================
+	 */
+
+	/**
+	 * Same as {@link #StackTraceCache(int)} with {@link #DEFAULT_MAX_SIZE}.
+	 */
+	public StackTraceCache() {
+		this(DEFAULT_MAX_SIZE);
+	}
+
+	/**
+	 * Same as {@link #StackTraceCache(int, StackTraceRenderer)} with {@link StackTraceRenderer#DEFAULT}.
+	 */
+	public StackTraceCache(@IntRange(from = 1) int maxSize) {
+		this(maxSize, StackTraceRenderer.DEFAULT);
+	}
+
+	/**
+	 * Creates a new instance of StackTraceCache with the specified maximum size.
+	 *
+	 * @param maxSize  Maximum count of stack traces to be held by the cache.
+	 * @param renderer The renderer used to render stack traces that are not cached yet.
+	 * @throws IllegalArgumentException If the size is less than 1.
+	 */
+	public StackTraceCache(@IntRange(from = 1) int maxSize, @NonNull StackTraceRenderer renderer) {
+		if (maxSize < 1) {
+			throw new IllegalArgumentException("Max size must be at least 1, got(" + maxSize + ").");
+		}
+		this.mMaxSize = maxSize;
+		this.mRenderer = renderer;
+		this.mEntries = new LruMap(maxSize);
+	}
+
+	/**
+	 * Methods =====================================================================================
+	 */
+
+	/**
+	 * Returns the stack trace string of the given throwable. If there is a stack trace cached for
+	 * a throwable with the same fingerprint, that string is returned, otherwise the stack trace is
+	 * rendered and cached.
+	 *
+	 * @param tr The throwable of which stack trace to obtain.
+	 * @return Rendered stack trace or empty string if the throwable is {@code null}.
+	 */
+	@NonNull
+	public String get(@Nullable Throwable tr) {
+		if (tr == null) {
+			return "";
+		}
+		final Fingerprint fingerprint = Fingerprint.create(tr);
+		if (fingerprint == null) {
+			mMissCount.incrementAndGet();
+			return mRenderer.render(tr);
+		}
+		String stackTrace;
+		synchronized (mEntries) {
+			stackTrace = mEntries.get(fingerprint);
+		}
+		if (stackTrace != null) {
+			mHitCount.incrementAndGet();
+			return stackTrace;
+		}
+		mMissCount.incrementAndGet();
+		stackTrace = mRenderer.render(tr);
+		synchronized (mEntries) {
+			mEntries.put(fingerprint, stackTrace);
+		}
+		return stackTrace;
+	}
+
+	/**
+	 * Returns the maximum count of stack traces held by this cache.
+	 *
+	 * @return Maximum size.
+	 */
+	public int getMaxSize() {
+		return mMaxSize;
+	}
+
+	/**
+	 * Returns the current count of stack traces held by this cache.
+	 *
+	 * @return Current size.
+	 */
+	public int size() {
+		synchronized (mEntries) {
+			return mEntries.size();
+		}
+	}
+
+	/**
+	 * Returns the count of lookups that returned a cached stack trace.
+	 *
+	 * @return Hit count.
+	 */
+	public long getHitCount() {
+		return mHitCount.get();
+	}
+
+	/**
+	 * Returns the count of lookups that required rendering of a stack trace.
+	 *
+	 * @return Miss count.
+	 */
+	public long getMissCount() {
+		return mMissCount.get();
+	}
+
+	/**
+	 * Removes all stack traces from this cache and resets its counters.
+	 */
+	public void clear() {
+		synchronized (mEntries) {
+			mEntries.clear();
+		}
+		mHitCount.set(0);
+		mMissCount.set(0);
+	}
+
+	/**
+	 * Inner classes ===============================================================================
+	 */
+
+	/**
+	 * Map with entries in the access order which removes its eldest entry once its maximum size
+	 * is exceeded.
+	 */
+	private static final class LruMap extends LinkedHashMap<Fingerprint, String> {
+
+		/**
+		 */
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * Maximum count of entries held by the map.
+		 */
+		private final int maxSize;
+
+		/**
+		 * Creates a new instance of LruMap with the specified maximum size.
+		 */
+		LruMap(int maxSize) {
+			super(16, 0.75f, true);
+			this.maxSize = maxSize;
+		}
+
+		/**
+		 */
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Fingerprint, String> eldest) {
+			return size() > maxSize;
+		}
+	}
+
+	/**
+	 * Fingerprint of a throwable along with its cause chain.
+	 */
+	private static final class Fingerprint {
+
+		/**
+		 * Classes of the throwables within the chain.
+		 */
+		final Class<?>[] classes;
+
+		/**
+		 * Messages of the throwables within the chain.
+		 */
+		final String[] messages;
+
+		/**
+		 * Stack frames of the throwables within the chain.
+		 */
+		final StackTraceElement[][] frames;
+
+		/**
+		 * Hash code of this fingerprint.
+		 */
+		final int hash;
+
+		/**
+		 * Creates a new instance of Fingerprint for the given throwable, unless the throwable may
+		 * be rendered differently than another one with the same fingerprint.
+		 *
+		 * @return The fingerprint or {@code null} if the throwable or some of its causes has some
+		 * suppressed throwables or if its cause chain exceeds {@link #MAX_CAUSES}.
+		 */
+		static Fingerprint create(Throwable tr) {
+			int count = 0;
+			for (Throwable cause = tr; cause != null; cause = cause.getCause()) {
+				if (++count > MAX_CAUSES || StackTraceRenderer.getSuppressed(cause).length > 0) {
+					return null;
+				}
+				if (cause.getCause() == cause) break;
+			}
+			return new Fingerprint(tr, count);
+		}
+
+		/**
+		 * Creates a new instance of Fingerprint for the given throwable and the specified count of
+		 * throwables within its cause chain.
+		 */
+		private Fingerprint(Throwable tr, int count) {
+			this.classes = new Class<?>[count];
+			this.messages = new String[count];
+			this.frames = new StackTraceElement[count][];
+			int hash = 17;
+			Throwable cause = tr;
+			for (int i = 0; i < count; i++, cause = cause.getCause()) {
+				final StackTraceElement[] causeFrames = cause.getStackTrace();
+				classes[i] = cause.getClass();
+				messages[i] = cause.getMessage();
+				frames[i] = causeFrames;
+				hash = 31 * hash + classes[i].hashCode();
+				hash = 31 * hash + (messages[i] == null ? 0 : messages[i].hashCode());
+				hash = 31 * hash + causeFrames.length;
+				for (int j = 0; j < causeFrames.length && j < HASHED_FRAMES; j++) {
+					hash = 31 * hash + causeFrames[j].hashCode();
+				}
+			}
+			this.hash = hash;
+		}
+
+		/**
+		 */
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		/**
+		 */
+		@Override
+		public boolean equals(Object other) {
+			if (other == this) return true;
+			if (!(other instanceof Fingerprint)) return false;
+			final Fingerprint fingerprint = (Fingerprint) other;
+			return hash == fingerprint.hash &&
+					Arrays.equals(classes, fingerprint.classes) &&
+					Arrays.equals(messages, fingerprint.messages) &&
+					Arrays.deepEquals(frames, fingerprint.frames);
+		}
+	}
+}
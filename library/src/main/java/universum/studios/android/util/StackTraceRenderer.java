@@ -0,0 +1,374 @@
+/*
+ * =================================================================================================
+ *                             Copyright (C) 2017 Universum Studios
+ * =================================================================================================
+ *         Licensed under the Apache License, Version 2.0 or later (further "License" only).
+ * -------------------------------------------------------------------------------------------------
+ * You may use this file only in compliance with the License. More details and copy of this License
+ * you may obtain at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * You can redistribute, modify or publish any part of the code written within this file but as it
+ * is described in the License, the software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES or CONDITIONS OF ANY KIND.
+ *
+ * See the License for the specific language governing permissions and limitations under the License.
+ * =================================================================================================
+ */
+package universum.studios.android.util;
+
+import android.support.annotation.IntRange;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.lang.reflect.Method;
+import java.net.UnknownHostException;
+
+/**
+ * Renderer which appends stack traces of throwables directly into a given {@link StringBuilder},
+ * like into an output buffer of a logger, instead of rendering them into a separate string first.
+ * Stack traces are rendered in the same format as {@link Throwable#printStackTrace()} does, including
+ * the folding of frames that a cause has in common with its enclosing throwable into {@code ... N more}.
+ * <p>
+ * Suppressed throwables, available since Android KitKat, are rendered as indented
+ * {@code Suppressed: ...} blocks along with their own causes, as they are by {@link Throwable#printStackTrace()}.
+ * <p>
+ * Count of frames rendered for each throwable may be limited by <b>max frames</b> and count of
+ * rendered causes by <b>max causes</b>, so rendering of a throwable with hundreds of frames in long
+ * cause chains, like the ones of reactive libraries, costs bounded time and memory. Frames that are
+ * not rendered due to the limit are folded into {@code ... N more} and causes into
+ * {@code ... N more causes}. The same limits apply to each suppressed throwable and its causes,
+ * while count of rendered suppressed throwables of each throwable is limited by max causes too,
+ * the remaining ones are folded into {@code ... N more suppressed}. Circular references are detected
+ * and rendered as {@code [CIRCULAR REFERENCE: ...]}.
+ * <p>
+ * For consistency with {@link android.util.Log#getStackTraceString(Throwable)} nothing is rendered
+ * for a throwable caused by {@link UnknownHostException}, as such failures are expected whenever
+ * the device is offline.
+ *
+ * @author Martin Albedinsky
+ */
+public final class StackTraceRenderer {
+
+	/**
+	 * Constants ===================================================================================
+	 */
+
+	/**
+	 * Log TAG.
+	 */
+	// private static final String TAG = "StackTraceRenderer";
+
+	/**
+	 * Constant that may be used as limit of frames or causes to not limit them.
+	 */
+	public static final int UNLIMITED = Integer.MAX_VALUE;
+
+	/**
+	 * Prefix of a rendered cause.
+	 */
+	private static final String CAUSE_PREFIX = "Caused by: ";
+
+	/**
+	 * Prefix of a rendered suppressed throwable.
+	 */
+	private static final String SUPPRESSED_PREFIX = "Suppressed: ";
+
+	/**
+	 * Empty array of throwables returned when there are no suppressed throwables.
+	 */
+	private static final Throwable[] NO_THROWABLES = new Throwable[0];
+
+	/**
+	 * Interface ===================================================================================
+	 */
+
+	/**
+	 * Static members ==============================================================================
+	 */
+
+	/**
+	 * Renderer which does not limit count of rendered frames nor causes.
+	 */
+	public static final StackTraceRenderer DEFAULT = new StackTraceRenderer(UNLIMITED, UNLIMITED);
+
+	/**
+	 * Method {@code Throwable.getSuppressed()}, which is available only since Android KitKat, or
+	 * {@code null} if it is not available.
+	 */
+	private static final Method GET_SUPPRESSED = findGetSuppressed();
+
+	/**
+	 * Members =====================================================================================
+	 */
+
+	/**
+	 * Maximum count of frames rendered for each throwable.
+	 */
+	private final int mMaxFrames;
+
+	/**
+	 * Maximum count of causes rendered for a throwable.
+	 */
+	private final int mMaxCauses;
+
+	/**
+	 * Constructors ================================================================================
+	 */
+
+	/**
+	 * Creates a new instance of StackTraceRenderer with the specified limits.
+	 *
+	 * @param maxFrames Maximum count of frames to be rendered for the throwable and each of its causes.
+	 *                  May be {@link #UNLIMITED}.
+	 * @param maxCauses Maximum count of causes to be rendered for the throwable. May be {@link #UNLIMITED}.
+	 * @throws IllegalArgumentException If some of the limits is negative.
+	 */
+	public StackTraceRenderer(@IntRange(from = 0) int maxFrames, @IntRange(from = 0) int maxCauses) {
+		if (maxFrames < 0 || maxCauses < 0) {
+			throw new IllegalArgumentException("Limits must not be negative, got(" + maxFrames + ", " + maxCauses + ").");
+		}
+		this.mMaxFrames = maxFrames;
+		this.mMaxCauses = maxCauses;
+	}
+
+	/**
+	 * Methods =====================================================================================
+	 */
+
+	/**
+	 * Returns the maximum count of frames rendered for each throwable.
+	 *
+	 * @return Frames limit.
+	 */
+	public int getMaxFrames() {
+		return mMaxFrames;
+	}
+
+	/**
+	 * Returns the maximum count of causes rendered for a throwable.
+	 *
+	 * @return Causes limit.
+	 */
+	public int getMaxCauses() {
+		return mMaxCauses;
+	}
+
+	/**
+	 * Renders stack trace of the given throwable into a new string.
+	 *
+	 * @param tr The throwable of which stack trace to render. May be {@code null}.
+	 * @return The rendered stack trace or empty string if the throwable is {@code null}.
+	 * @see #render(Throwable, StringBuilder)
+	 */
+	@NonNull
+	public String render(@Nullable Throwable tr) {
+		if (tr == null) {
+			return "";
+		}
+		final StringBuilder builder = new StringBuilder(256);
+		render(tr, builder);
+		return builder.toString();
+	}
+
+	/**
+	 * Renders stack trace of the given throwable at the end of the specified <var>output</var>
+	 * builder. Rendered stack trace ends with a new line character, as it does when printed via
+	 * {@link Throwable#printStackTrace()}.
+	 *
+	 * @param tr     The throwable of which stack trace to render. May be {@code null}.
+	 * @param output The builder where to append the rendered stack trace.
+	 */
+	public void render(@Nullable Throwable tr, @NonNull StringBuilder output) {
+		if (tr == null || isCausedByUnknownHost(tr)) {
+			return;
+		}
+		renderChain(tr, null, "", null, null, output);
+	}
+
+	/**
+	 * Renders the given throwable followed by its causes, each of them followed by its suppressed
+	 * throwables.
+	 *
+	 * @param tr              The throwable which starts the chain.
+	 * @param enclosingFrames Frames of the throwable which encloses the chain, {@code null} for the
+	 *                        top level throwable.
+	 * @param prefix          Prefix of each rendered line.
+	 * @param caption         Caption of the throwable which starts the chain, {@code null} for the
+	 *                        top level throwable.
+	 * @param enclosing       Context of the throwables which enclose the chain, {@code null} for the
+	 *                        top level throwable.
+	 * @param output          The builder where to append the rendered stack trace.
+	 */
+	private void renderChain(Throwable tr, StackTraceElement[] enclosingFrames, String prefix, String caption, Enclosing enclosing, StringBuilder output) {
+		int renderedCauses = 0;
+		Throwable previous = null;
+		for (Throwable cause = tr; cause != null; previous = cause, cause = cause.getCause()) {
+			if ((previous != null && isRendered(tr, previous, cause)) || (enclosing != null && enclosing.contains(cause))) {
+				output.append(prefix).append("\t[CIRCULAR REFERENCE: ").append(cause).append("]\n");
+				return;
+			}
+			if (previous != null) {
+				if (renderedCauses == mMaxCauses) {
+					output.append(prefix).append("\t... ").append(countCauses(tr, previous)).append(" more causes\n");
+					return;
+				}
+				renderedCauses++;
+				output.append(prefix).append(CAUSE_PREFIX);
+			} else if (caption != null) {
+				output.append(prefix).append(caption);
+			}
+			output.append(cause).append('\n');
+			final StackTraceElement[] frames = cause.getStackTrace();
+			final int uniqueFrames = enclosingFrames == null ? frames.length : frames.length - countFramesInCommon(frames, enclosingFrames);
+			final int renderedFrames = Math.min(uniqueFrames, mMaxFrames);
+			for (int i = 0; i < renderedFrames; i++) {
+				output.append(prefix).append("\tat ").append(frames[i]).append('\n');
+			}
+			if (renderedFrames < frames.length) {
+				output.append(prefix).append("\t... ").append(frames.length - renderedFrames).append(" more\n");
+			}
+			final Throwable[] suppressed = getSuppressed(cause);
+			if (suppressed.length > 0) {
+				final Enclosing context = new Enclosing(tr, cause, enclosing);
+				final int renderedSuppressed = Math.min(suppressed.length, mMaxCauses);
+				for (int i = 0; i < renderedSuppressed; i++) {
+					renderChain(suppressed[i], frames, prefix + "\t", SUPPRESSED_PREFIX, context, output);
+				}
+				if (renderedSuppressed < suppressed.length) {
+					output.append(prefix).append("\t... ").append(suppressed.length - renderedSuppressed).append(" more suppressed\n");
+				}
+			}
+			enclosingFrames = frames;
+		}
+	}
+
+	/**
+	 * Finds method {@code Throwable.getSuppressed()}.
+	 *
+	 * @return The method or {@code null} if it is not available on the current platform.
+	 */
+	private static Method findGetSuppressed() {
+		try {
+			return Throwable.class.getMethod("getSuppressed");
+		} catch (NoSuchMethodException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Returns the throwables suppressed by the given one.
+	 *
+	 * @return Suppressed throwables, empty if there are none or they are not available on the
+	 * current platform.
+	 */
+	static Throwable[] getSuppressed(Throwable tr) {
+		if (GET_SUPPRESSED == null) {
+			return NO_THROWABLES;
+		}
+		try {
+			final Throwable[] suppressed = (Throwable[]) GET_SUPPRESSED.invoke(tr);
+			return suppressed == null ? NO_THROWABLES : suppressed;
+		} catch (Exception e) {
+			return NO_THROWABLES;
+		}
+	}
+
+	/**
+	 * Checks whether the given throwable or some of its causes is {@link UnknownHostException}.
+	 */
+	private static boolean isCausedByUnknownHost(Throwable tr) {
+		Throwable cause = tr;
+		for (int i = 0; cause != null && i < 1024; i++, cause = cause.getCause()) {
+			if (cause instanceof UnknownHostException) return true;
+			if (cause.getCause() == cause) break;
+		}
+		return false;
+	}
+
+	/**
+	 * Checks whether the specified <var>cause</var> of the <var>last</var> throwable has been already
+	 * rendered, that is whether it appears within the chain of the given throwable up to the last one.
+	 * Does not allocate any helper collections.
+	 */
+	private static boolean isRendered(Throwable tr, Throwable last, Throwable cause) {
+		for (Throwable rendered = tr; ; rendered = rendered.getCause()) {
+			if (rendered == cause) return true;
+			if (rendered == last) return false;
+		}
+	}
+
+	/**
+	 * Counts the causes remaining within the chain of the given throwable after the <var>last</var>
+	 * rendered one, stopping at a circular reference.
+	 */
+	private static int countCauses(Throwable tr, Throwable last) {
+		int count = 0;
+		for (Throwable previous = last; previous.getCause() != null; previous = previous.getCause()) {
+			if (isRendered(tr, previous, previous.getCause())) break;
+			count++;
+		}
+		return count;
+	}
+
+	/**
+	 * Counts the frames at the bottom of the given stack that are in common with the enclosing stack.
+	 */
+	private static int countFramesInCommon(StackTraceElement[] frames, StackTraceElement[] enclosingFrames) {
+		int i = frames.length - 1;
+		int j = enclosingFrames.length - 1;
+		int count = 0;
+		while (i >= 0 && j >= 0 && frames[i].equals(enclosingFrames[j])) {
+			count++;
+			i--;
+			j--;
+		}
+		return count;
+	}
+
+	/**
+	 * Inner classes ===============================================================================
+	 */
+
+	/**
+	 * Context of a rendered suppressed throwable, that is the chain of throwables which encloses it,
+	 * used to detect circular references.
+	 */
+	private static final class Enclosing {
+
+		/**
+		 * Throwable which starts the enclosing chain.
+		 */
+		final Throwable chain;
+
+		/**
+		 * Throwable of the enclosing chain which has suppressed the rendered one.
+		 */
+		final Throwable last;
+
+		/**
+		 * Context of the enclosing chain, {@code null} for the top level chain.
+		 */
+		final Enclosing parent;
+
+		/**
+		 * Creates a new instance of Enclosing with the specified chain.
+		 */
+		Enclosing(Throwable chain, Throwable last, Enclosing parent) {
+			this.chain = chain;
+			this.last = last;
+			this.parent = parent;
+		}
+
+		/**
+		 * Checks whether the given throwable is within this or some of the enclosing chains.
+		 */
+		boolean contains(Throwable tr) {
+			for (Enclosing context = this; context != null; context = context.parent) {
+				if (isRendered(context.chain, context.last, tr)) return true;
+			}
+			return false;
+		}
+	}
+}
@@ -0,0 +1,137 @@
+/*
+ * =================================================================================================
+ *                             Copyright (C) 2017 Universum Studios
+ * =================================================================================================
+ *         Licensed under the Apache License, Version 2.0 or later (further "License" only).
+ * -------------------------------------------------------------------------------------------------
+ * You may use this file only in compliance with the License. More details and copy of this License
+ * you may obtain at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * You can redistribute, modify or publish any part of the code written within this file but as it
+ * is described in the License, the software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES or CONDITIONS OF ANY KIND.
+ *
+ * See the License for the specific language governing permissions and limitations under the License.
+ * =================================================================================================
+ */
+package universum.studios.android.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counter that spreads increments from different threads over multiple cells, so threads that
+ * frequently increment the same counter do not contend on a single memory location. Cells are
+ * padded so each one occupies its own cache line. Reading of the counter sums all cells, so it is
+ * more expensive than incrementing and intended for occasional polling.
+ *
+ * @author Martin Albedinsky
+ */
+final class StripedCounter {
+
+	/**
+	 * Constants ===================================================================================
+	 */
+
+	/**
+	 * Count of longs between two cells, so each cell occupies a separate 64 bytes cache line.
+	 */
+	private static final int CELL_STRIDE = 8;
+
+	/**
+	 * Maximum count of cells of a single counter.
+	 */
+	private static final int MAX_CELLS = 16;
+
+	/**
+	 * Interface ===================================================================================
+	 */
+
+	/**
+	 * Static members ==============================================================================
+	 */
+
+	/**
+	 * Count of cells used by all counters, the lowest power of two not less than the count of
+	 * available processors.
+	 */
+	private static final int CELLS;
+
+	static {
+		final int processors = Math.min(Runtime.getRuntime().availableProcessors(), MAX_CELLS);
+		int cells = 1;
+		while (cells < processors) {
+			cells <<= 1;
+		}
+		CELLS = cells;
+	}
+
+	/**
+	 * Members =====================================================================================
+	 */
+
+	/**
+	 * Array with the padded cells.
+	 */
+	private final AtomicLongArray mCells = new AtomicLongArray(CELLS * CELL_STRIDE);
+
+	/**
+	 * Constructors ================================================================================
+	 */
+
+	/**
+	 * Methods =====================================================================================
+	 */
+
+	/**
+	 * Increments this counter by one.
+	 */
+	void increment() {
+		add(1);
+	}
+
+	/**
+	 * Adds the specified <var>delta</var> to this counter.
+	 *
+	 * @param delta The value to be added.
+	 */
+	void add(long delta) {
+		mCells.getAndAdd(cellIndex(), delta);
+	}
+
+	/**
+	 * Returns the index of the cell that should be used by the current thread.
+	 */
+	private static int cellIndex() {
+		final long id = Thread.currentThread().getId();
+		final int hash = (int) (id ^ (id >>> 32)) * 0x9E3779B9;
+		return ((hash >>> 16) & (CELLS - 1)) * CELL_STRIDE;
+	}
+
+	/**
+	 * Returns the current value of this counter.
+	 *
+	 * @return Sum of all cells.
+	 */
+	long get() {
+		long sum = 0;
+		for (int i = 0; i < mCells.length(); i += CELL_STRIDE) {
+			sum += mCells.get(i);
+		}
+		return sum;
+	}
+
+	/**
+	 * Resets this counter to zero. Increments performed concurrently with reset may be lost.
+	 */
+	void reset() {
+		for (int i = 0; i < mCells.length(); i += CELL_STRIDE) {
+			mCells.set(i, 0);
+		}
+	}
+
+	/**
+	 * Inner classes ===============================================================================
+	 */
+}
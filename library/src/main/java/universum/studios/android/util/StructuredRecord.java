@@ -0,0 +1,442 @@
+/*
+ * =================================================================================================
+ *                             Copyright (C) 2017 Universum Studios
+ * =================================================================================================
+ *         Licensed under the Apache License, Version 2.0 or later (further "License" only).
+ * -------------------------------------------------------------------------------------------------
+ * You may use this file only in compliance with the License. More details and copy of this License
+ * you may obtain at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * You can redistribute, modify or publish any part of the code written within this file but as it
+ * is described in the License, the software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES or CONDITIONS OF ANY KIND.
+ *
+ * See the License for the specific language governing permissions and limitations under the License.
+ * =================================================================================================
+ */
+package universum.studios.android.util;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A structured log record composed of typed key/value fields, like {@code event=login userId=42 latencyMs=13}.
+ * Records are obtained from a pool via {@link #obtain(Logger, int, String)}, filled via {@code put(...)}
+ * methods and dispatched via {@link #log()}, which also returns the record back into the pool:
+ * <pre>
+ * StructuredRecord.obtain(logger, Log.INFO, TAG)
+ *         .put("event", "login")
+ *         .put("userId", userId)
+ *         .put("latencyMs", latency)
+ *         .log();
+ * </pre>
+ * Primitive values are stored without boxing and the field arrays as well as the text buffer of a
+ * record are kept when the record is returned into the pool, so structured logging does not
+ * allocate in a steady state. If the requested level is not loggable at the time of obtaining,
+ * a shared disabled record is returned which ignores all fields.
+ * <p>
+ * Loggers provided by this library render the records either as {@code key=value} text, where
+ * values containing spaces, quotes or {@code =} are quoted, or, like {@link BinaryLogger}, as
+ * typed fields of the binary log format. A record must not be accessed after it has been logged.
+ *
+ * @author Martin Albedinsky
+ */
+public final class StructuredRecord {
+
+	/**
+	 * Constants ===================================================================================
+	 */
+
+	/**
+	 * Log TAG.
+	 */
+	// private static final String TAG = "StructuredRecord";
+
+	/**
+	 * Type of a field with {@code long} value.
+	 */
+	static final int TYPE_LONG = 0;
+
+	/**
+	 * Type of a field with {@code double} value.
+	 */
+	static final int TYPE_DOUBLE = 1;
+
+	/**
+	 * Type of a field with {@code boolean} value.
+	 */
+	static final int TYPE_BOOLEAN = 2;
+
+	/**
+	 * Type of a field with text value.
+	 */
+	static final int TYPE_TEXT = 3;
+
+	/**
+	 * Type of a field with {@code null} value.
+	 */
+	static final int TYPE_NULL = 4;
+
+	/**
+	 * Maximum count of records held by the pool.
+	 */
+	private static final int POOL_SIZE = 16;
+
+	/**
+	 * Initial capacity of field arrays.
+	 */
+	private static final int INITIAL_CAPACITY = 8;
+
+	/**
+	 * Interface ===================================================================================
+	 */
+
+	/**
+	 * Static members ==============================================================================
+	 */
+
+	/**
+	 * Pool of released records.
+	 */
+	private static final AtomicReferenceArray<StructuredRecord> POOL = new AtomicReferenceArray<>(POOL_SIZE);
+
+	/**
+	 * Record returned for levels that are not loggable.
+	 */
+	private static final StructuredRecord DISABLED = new StructuredRecord();
+
+	/**
+	 * Members =====================================================================================
+	 */
+
+	/**
+	 * Logger to which will be this record dispatched.
+	 */
+	private Logger mLogger;
+
+	/**
+	 * Level of this record.
+	 */
+	private int mLevel;
+
+	/**
+	 * Tag of this record.
+	 */
+	private String mTag;
+
+	/**
+	 * Count of fields of this record.
+	 */
+	private int mFieldCount;
+
+	/**
+	 * Keys of the fields.
+	 */
+	private String[] mKeys = new String[INITIAL_CAPACITY];
+
+	/**
+	 * Types of the fields.
+	 */
+	private int[] mTypes = new int[INITIAL_CAPACITY];
+
+	/**
+	 * Primitive values of the fields, where doubles are stored as their raw long bits.
+	 */
+	private long[] mPrimitives = new long[INITIAL_CAPACITY];
+
+	/**
+	 * Text values of the fields.
+	 */
+	private CharSequence[] mTexts = new CharSequence[INITIAL_CAPACITY];
+
+	/**
+	 * Buffer into which is rendered text of this record.
+	 */
+	private final StringBuilder mText = new StringBuilder(128);
+
+	/**
+	 * Constructors ================================================================================
+	 */
+
+	/**
+	 * Creates a new instance of StructuredRecord. Records are created only by the pool.
+	 */
+	private StructuredRecord() {
+		// Records are obtained via obtain(...).
+	}
+
+	/**
+	 * Methods =====================================================================================
+	 */
+
+	/**
+	 * Obtains a record from the pool that will be dispatched to the given <var>logger</var>.
+	 *
+	 * @param logger The logger to which to dispatch the record.
+	 * @param level  Level of the record.
+	 * @param tag    Tag of the record.
+	 * @return Record ready to be filled with fields or a disabled record ignoring all fields if the
+	 * level is not loggable for the tag.
+	 */
+	@NonNull
+	public static StructuredRecord obtain(@NonNull Logger logger, @Logger.Level int level, @NonNull String tag) {
+		if (!logger.isLoggable(tag, level)) {
+			return DISABLED;
+		}
+		StructuredRecord record = null;
+		for (int i = 0; i < POOL_SIZE && record == null; i++) {
+			if (POOL.get(i) != null) record = POOL.getAndSet(i, null);
+		}
+		if (record == null) {
+			record = new StructuredRecord();
+		}
+		record.mLogger = logger;
+		record.mLevel = level;
+		record.mTag = tag;
+		return record;
+	}
+
+	/**
+	 * Appends a field with the specified <var>key</var> and {@code long} <var>value</var>.
+	 *
+	 * @param key   Key of the field.
+	 * @param value Value of the field.
+	 * @return This record to allow methods chaining.
+	 */
+	public StructuredRecord put(@NonNull String key, long value) {
+		if (this != DISABLED) {
+			final int index = addField(key, TYPE_LONG);
+			mPrimitives[index] = value;
+		}
+		return this;
+	}
+
+	/**
+	 * Appends a field with the specified <var>key</var> and {@code double} <var>value</var>.
+	 *
+	 * @param key   Key of the field.
+	 * @param value Value of the field.
+	 * @return This record to allow methods chaining.
+	 */
+	public StructuredRecord put(@NonNull String key, double value) {
+		if (this != DISABLED) {
+			final int index = addField(key, TYPE_DOUBLE);
+			mPrimitives[index] = Double.doubleToRawLongBits(value);
+		}
+		return this;
+	}
+
+	/**
+	 * Appends a field with the specified <var>key</var> and {@code boolean} <var>value</var>.
+	 *
+	 * @param key   Key of the field.
+	 * @param value Value of the field.
+	 * @return This record to allow methods chaining.
+	 */
+	public StructuredRecord put(@NonNull String key, boolean value) {
+		if (this != DISABLED) {
+			final int index = addField(key, TYPE_BOOLEAN);
+			mPrimitives[index] = value ? 1 : 0;
+		}
+		return this;
+	}
+
+	/**
+	 * Appends a field with the specified <var>key</var> and text <var>value</var>. The value is
+	 * not copied, so it must not be changed until the record is logged.
+	 *
+	 * @param key   Key of the field.
+	 * @param value Value of the field. May be {@code null}.
+	 * @return This record to allow methods chaining.
+	 */
+	public StructuredRecord put(@NonNull String key, @Nullable CharSequence value) {
+		if (this != DISABLED) {
+			final int index = addField(key, value == null ? TYPE_NULL : TYPE_TEXT);
+			mTexts[index] = value;
+		}
+		return this;
+	}
+
+	/**
+	 * Adds a new field with the specified key and type, growing the field arrays if necessary.
+	 *
+	 * @return Index of the added field.
+	 */
+	private int addField(String key, int type) {
+		if (mFieldCount == mKeys.length) {
+			final int capacity = mKeys.length * 2;
+			final String[] keys = new String[capacity];
+			final int[] types = new int[capacity];
+			final long[] primitives = new long[capacity];
+			final CharSequence[] texts = new CharSequence[capacity];
+			System.arraycopy(mKeys, 0, keys, 0, mFieldCount);
+			System.arraycopy(mTypes, 0, types, 0, mFieldCount);
+			System.arraycopy(mPrimitives, 0, primitives, 0, mFieldCount);
+			System.arraycopy(mTexts, 0, texts, 0, mFieldCount);
+			this.mKeys = keys;
+			this.mTypes = types;
+			this.mPrimitives = primitives;
+			this.mTexts = texts;
+		}
+		final int index = mFieldCount++;
+		mKeys[index] = key;
+		mTypes[index] = type;
+		return index;
+	}
+
+	/**
+	 * Dispatches this record to its logger and returns it back into the pool.
+	 */
+	public void log() {
+		if (this == DISABLED) {
+			return;
+		}
+		try {
+			if (mLogger instanceof BaseLogger) {
+				((BaseLogger) mLogger).onLogStructured(this);
+			} else {
+				mLogger.forceLog(mLevel, mTag, render().toString());
+			}
+		} finally {
+			recycle();
+		}
+	}
+
+	/**
+	 * Clears this record and returns it back into the pool if there is space.
+	 */
+	private void recycle() {
+		for (int i = 0; i < mFieldCount; i++) {
+			mKeys[i] = null;
+			mTexts[i] = null;
+		}
+		this.mFieldCount = 0;
+		this.mLogger = null;
+		this.mTag = null;
+		if (mText.capacity() > 8192) {
+			// Do not keep excessively large buffers in the pool.
+			return;
+		}
+		for (int i = 0; i < POOL_SIZE; i++) {
+			if (POOL.get(i) == null && POOL.compareAndSet(i, null, this)) return;
+		}
+	}
+
+	/**
+	 * Returns the level of this record.
+	 */
+	int getLevel() {
+		return mLevel;
+	}
+
+	/**
+	 * Returns the tag of this record.
+	 */
+	String getTag() {
+		return mTag;
+	}
+
+	/**
+	 * Returns the count of fields of this record.
+	 */
+	int getFieldCount() {
+		return mFieldCount;
+	}
+
+	/**
+	 * Returns the key of field at the specified index.
+	 */
+	String getKey(int index) {
+		return mKeys[index];
+	}
+
+	/**
+	 * Returns the type of field at the specified index.
+	 */
+	int getType(int index) {
+		return mTypes[index];
+	}
+
+	/**
+	 * Returns the primitive value of field at the specified index.
+	 */
+	long getPrimitive(int index) {
+		return mPrimitives[index];
+	}
+
+	/**
+	 * Returns the text value of field at the specified index.
+	 */
+	CharSequence getText(int index) {
+		return mTexts[index];
+	}
+
+	/**
+	 * Renders this record as {@code key=value} text into the buffer of this record.
+	 *
+	 * @return The buffer with rendered text, valid until the record is logged.
+	 */
+	CharSequence render() {
+		final StringBuilder text = mText;
+		text.setLength(0);
+		for (int i = 0; i < mFieldCount; i++) {
+			if (i > 0) text.append(' ');
+			text.append(mKeys[i]).append('=');
+			switch (mTypes[i]) {
+				case TYPE_LONG:
+					text.append(mPrimitives[i]);
+					break;
+				case TYPE_DOUBLE:
+					text.append(Double.longBitsToDouble(mPrimitives[i]));
+					break;
+				case TYPE_BOOLEAN:
+					text.append(mPrimitives[i] != 0);
+					break;
+				case TYPE_TEXT:
+					appendText(text, mTexts[i]);
+					break;
+				case TYPE_NULL:
+				default:
+					text.append("null");
+					break;
+			}
+		}
+		return text;
+	}
+
+	/**
+	 * Appends the given text <var>value</var> into the specified builder, quoting it if it contains
+	 * spaces, quotes or {@code =}.
+	 *
+	 * @param output The builder where to append the value.
+	 * @param value  The value to be appended.
+	 */
+	static void appendText(StringBuilder output, CharSequence value) {
+		final int length = value.length();
+		boolean quote = length == 0;
+		for (int i = 0; i < length && !quote; i++) {
+			final char c = value.charAt(i);
+			quote = c <= ' ' || c == '"' || c == '=';
+		}
+		if (!quote) {
+			output.append(value);
+			return;
+		}
+		output.append('"');
+		for (int i = 0; i < length; i++) {
+			final char c = value.charAt(i);
+			if (c == '"' || c == '\\') output.append('\\').append(c);
+			else if (c == '\n') output.append("\\n");
+			else output.append(c);
+		}
+		output.append('"');
+	}
+
+	/**
+	 * Inner classes ===============================================================================
+	 */
+}
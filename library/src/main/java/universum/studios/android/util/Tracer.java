@@ -0,0 +1,499 @@
+/*
+ * =================================================================================================
+ *                             Copyright (C) 2017 Universum Studios
+ * =================================================================================================
+ *         Licensed under the Apache License, Version 2.0 or later (further "License" only).
+ * -------------------------------------------------------------------------------------------------
+ * You may use this file only in compliance with the License. More details and copy of this License
+ * you may obtain at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * You can redistribute, modify or publish any part of the code written within this file but as it
+ * is described in the License, the software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES or CONDITIONS OF ANY KIND.
+ *
+ * See the License for the specific language governing permissions and limitations under the License.
+ * =================================================================================================
+ */
+package universum.studios.android.util;
+
+import android.os.Process;
+import android.support.annotation.IntRange;
+import android.support.annotation.NonNull;
+import android.util.Log;
+
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Tracer which records timing spans of application phases, like startup or synchronization, and
+ * exports them in the Chrome trace event format, which may be opened in {@code chrome://tracing}
+ * or Perfetto.
+ * <p>
+ * A span is started via {@link #begin(String, String)} and finished via {@link #end()} on the same
+ * thread. Spans may be nested, each thread has its own stack of open spans. A span is recorded only
+ * if the logger of the tracer accepts the tag of the span at the {@link #setLevel(int) level} of the
+ * tracer, so tracing may be enabled or disabled per tag along with logging. Spans that are not
+ * recorded cost only a level check and at most a stack push, nothing is allocated nor measured for
+ * them.
+ * <p>
+ * Finished spans are written into a ring buffer of preallocated arrays owned by the thread that
+ * has finished them, so recording does not take any locks nor allocate. The buffer of a thread is
+ * allocated when the first recorded span begins on that thread, so threads which do not record
+ * any spans do not hold any buffer. Once the buffer of a thread is full, its oldest spans are
+ * overwritten. Spans may be exported at any time from any thread via {@link #exportChromeTrace(Appendable)};
+ * spans that are overwritten while being exported are skipped. Buffers of threads that are no longer
+ * alive are released once their spans are exported or cleared.
+ *
+ * @author Martin Albedinsky
+ */
+public class Tracer {
+
+	/**
+	 * Constants ===================================================================================
+	 */
+
+	/**
+	 * Log TAG.
+	 */
+	// private static final String TAG = "Tracer";
+
+	/**
+	 * Default count of finished spans retained per thread.
+	 */
+	public static final int DEFAULT_CAPACITY = 4096;
+
+	/**
+	 * Maximum depth of nested spans which are recorded. Deeper spans are ignored.
+	 */
+	public static final int MAX_DEPTH = 64;
+
+	/**
+	 * Interface ===================================================================================
+	 */
+
+	/**
+	 * Static members ==============================================================================
+	 */
+
+	/**
+	 * Members =====================================================================================
+	 */
+
+	/**
+	 * Logger used to check whether spans should be recorded.
+	 */
+	private final Logger mLogger;
+
+	/**
+	 * Count of finished spans retained per thread.
+	 */
+	private final int mCapacity;
+
+	/**
+	 * Time in nanoseconds to which are related times of all spans.
+	 */
+	private final long mOrigin;
+
+	/**
+	 * Id of the process exported with the spans.
+	 */
+	private final int mPid;
+
+	/**
+	 * Span buffers of all threads that have used this tracer.
+	 */
+	private final List<SpanBuffer> mBuffers = new CopyOnWriteArrayList<>();
+
+	/**
+	 * Span buffer of the current thread, {@code null} until a recorded span begins on the thread.
+	 */
+	private final ThreadLocal<SpanBuffer> mThreadBuffer = new ThreadLocal<>();
+
+	/**
+	 * Level at which are spans checked against the logger.
+	 */
+	private volatile int mLevel = Log.DEBUG;
+
+	/**
+	 * Constructors ================================================================================
+	 */
+
+	/**
+	 * Same as {@link #Tracer(Logger, int)} with {@link #DEFAULT_CAPACITY}.
+	 */
+	public Tracer(@NonNull Logger logger) {
+		this(logger, DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Creates a new instance of Tracer which will record spans accepted by the given <var>logger</var>.
+	 *
+	 * @param logger   The logger used to check whether spans should be recorded.
+	 * @param capacity Count of finished spans retained per thread.
+	 */
+	public Tracer(@NonNull Logger logger, @IntRange(from = 1) int capacity) {
+		if (capacity <= 0) throw new IllegalArgumentException("Capacity must be positive.");
+		this.mLogger = logger;
+		this.mCapacity = capacity;
+		this.mOrigin = nanoTime();
+		this.mPid = myPid();
+	}
+
+	/**
+	 * Methods =====================================================================================
+	 */
+
+	/**
+	 * Specifies the level at which are spans checked against the logger.
+	 *
+	 * @param level The desired level. {@link Log#DEBUG} by default.
+	 */
+	public void setLevel(@Logger.Level int level) {
+		this.mLevel = level;
+	}
+
+	/**
+	 * Returns the level at which are spans checked against the logger.
+	 *
+	 * @return Tracing level.
+	 */
+	@Logger.Level
+	public int getLevel() {
+		return mLevel;
+	}
+
+	/**
+	 * Returns the current time in nanoseconds used to measure the spans.
+	 *
+	 * @return Monotonic time in nanoseconds.
+	 */
+	long nanoTime() {
+		return System.nanoTime();
+	}
+
+	/**
+	 * Returns id of the process exported with the spans. Called only once, when this tracer is
+	 * created.
+	 *
+	 * @return Process id.
+	 */
+	int myPid() {
+		return Process.myPid();
+	}
+
+	/**
+	 * Begins a new span on the current thread. The span is nested into the span which is currently
+	 * open on the thread, if any.
+	 *
+	 * @param tag  Tag of the span, exported as its category.
+	 * @param name Name of the span.
+	 * @see #end()
+	 */
+	public void begin(@NonNull String tag, @NonNull String name) {
+		final boolean recorded = mLogger.isLoggable(tag, mLevel);
+		SpanBuffer buffer = mThreadBuffer.get();
+		if (buffer == null) {
+			// Spans begun before the buffer exists are all outer ones, so their ends find no open span.
+			if (!recorded) return;
+			buffer = new SpanBuffer(Thread.currentThread(), mCapacity);
+			mThreadBuffer.set(buffer);
+			mBuffers.add(buffer);
+		}
+		final int depth = buffer.depth++;
+		if (depth >= MAX_DEPTH) {
+			return;
+		}
+		if (recorded) {
+			buffer.openTags[depth] = tag;
+			buffer.openNames[depth] = name;
+			buffer.openStarts[depth] = nanoTime();
+		} else {
+			buffer.openNames[depth] = null;
+		}
+	}
+
+	/**
+	 * Ends the span which has been most recently begun on the current thread. Does nothing if there
+	 * is no open span.
+	 *
+	 * @see #begin(String, String)
+	 */
+	public void end() {
+		final SpanBuffer buffer = mThreadBuffer.get();
+		if (buffer == null || buffer.depth == 0) {
+			return;
+		}
+		final int depth = --buffer.depth;
+		if (depth >= MAX_DEPTH || buffer.openNames[depth] == null) {
+			return;
+		}
+		final long start = buffer.openStarts[depth];
+		buffer.record(buffer.openTags[depth], buffer.openNames[depth], start - mOrigin, nanoTime() - start);
+		buffer.openTags[depth] = null;
+		buffer.openNames[depth] = null;
+	}
+
+	/**
+	 * Discards all finished spans recorded so far. Open spans are not affected.
+	 */
+	public void clear() {
+		for (final SpanBuffer buffer : mBuffers) {
+			buffer.clearedSequence = buffer.sequence;
+			if (!buffer.isThreadAlive()) mBuffers.remove(buffer);
+		}
+	}
+
+	/**
+	 * Same as {@link #exportChromeTrace(Appendable)} but returns the exported trace as string.
+	 *
+	 * @return Trace in JSON format.
+	 */
+	@NonNull
+	public String exportChromeTrace() {
+		final StringBuilder trace = new StringBuilder(1024);
+		try {
+			exportChromeTrace(trace);
+		} catch (IOException e) {
+			// StringBuilder does not throw.
+		}
+		return trace.toString();
+	}
+
+	/**
+	 * Exports all finished spans recorded so far into the given <var>output</var> as JSON object in
+	 * the Chrome trace event format. Each span is exported as a complete ({@code "X"}) event with
+	 * time and duration in microseconds and each thread is described by a thread name metadata event.
+	 * Buffers of threads that are no longer alive are released after their spans are exported, so
+	 * those spans are exported only once.
+	 *
+	 * @param output The output into which to append the trace.
+	 * @throws IOException If appending into the output fails.
+	 */
+	public void exportChromeTrace(@NonNull Appendable output) throws IOException {
+		final int pid = mPid;
+		output.append("{\"traceEvents\":[");
+		boolean first = true;
+		for (final SpanBuffer buffer : mBuffers) {
+			final boolean alive = buffer.isThreadAlive();
+			if (!first) output.append(',');
+			first = false;
+			output.append("{\"name\":\"thread_name\",\"ph\":\"M\",\"pid\":").append(Integer.toString(pid));
+			output.append(",\"tid\":").append(Long.toString(buffer.threadId));
+			output.append(",\"args\":{\"name\":");
+			appendString(output, buffer.threadName);
+			output.append("}}");
+			final long end = buffer.sequence;
+			for (long sequence = Math.max(buffer.clearedSequence, end - mCapacity); sequence < end; sequence++) {
+				final int index = (int) (sequence % mCapacity);
+				if (buffer.stamps.get(index) != sequence + 1) {
+					continue;
+				}
+				final String tag = buffer.tags[index];
+				final String name = buffer.names[index];
+				final long start = buffer.starts[index];
+				final long duration = buffer.durations[index];
+				// Span is exported only if it has not been overwritten while being read.
+				if (buffer.stamps.get(index) != sequence + 1) {
+					continue;
+				}
+				output.append(",{\"name\":");
+				appendString(output, name);
+				output.append(",\"cat\":");
+				appendString(output, tag);
+				output.append(",\"ph\":\"X\",\"ts\":");
+				appendMicros(output, start);
+				output.append(",\"dur\":");
+				appendMicros(output, duration);
+				output.append(",\"pid\":").append(Integer.toString(pid));
+				output.append(",\"tid\":").append(Long.toString(buffer.threadId)).append('}');
+			}
+			if (!alive) mBuffers.remove(buffer);
+		}
+		output.append("],\"displayTimeUnit\":\"ms\"}");
+	}
+
+	/**
+	 * Appends the specified time in nanoseconds into the given <var>output</var> as microseconds
+	 * with three decimal places.
+	 */
+	private static void appendMicros(Appendable output, long nanos) throws IOException {
+		if (nanos < 0) {
+			output.append('-');
+			nanos = -nanos;
+		}
+		output.append(Long.toString(nanos / 1000)).append('.');
+		final int fraction = (int) (nanos % 1000);
+		if (fraction < 100) output.append('0');
+		if (fraction < 10) output.append('0');
+		output.append(Integer.toString(fraction));
+	}
+
+	/**
+	 * Appends the given <var>value</var> into the given <var>output</var> as JSON string.
+	 */
+	private static void appendString(Appendable output, String value) throws IOException {
+		output.append('"');
+		for (int i = 0; i < value.length(); i++) {
+			final char c = value.charAt(i);
+			switch (c) {
+				case '"':
+					output.append("\\\"");
+					break;
+				case '\\':
+					output.append("\\\\");
+					break;
+				case '\n':
+					output.append("\\n");
+					break;
+				case '\r':
+					output.append("\\r");
+					break;
+				case '\t':
+					output.append("\\t");
+					break;
+				default:
+					if (c < 0x20) {
+						final String hex = Integer.toHexString(c);
+						output.append("\\u");
+						for (int j = hex.length(); j < 4; j++) {
+							output.append('0');
+						}
+						output.append(hex);
+					} else {
+						output.append(c);
+					}
+			}
+		}
+		output.append('"');
+	}
+
+	/**
+	 * Inner classes ===============================================================================
+	 */
+
+	/**
+	 * Buffer holding open and finished spans of a single thread. Only the owning thread writes into
+	 * the buffer, other threads only read the finished spans.
+	 */
+	private static final class SpanBuffer {
+
+		/**
+		 * Reference to the owning thread, which does not keep the thread reachable.
+		 */
+		final WeakReference<Thread> thread;
+
+		/**
+		 * Id of the owning thread.
+		 */
+		final long threadId;
+
+		/**
+		 * Name of the owning thread at time when the buffer has been created.
+		 */
+		final String threadName;
+
+		/**
+		 * Count of finished spans in the ring.
+		 */
+		final int capacity;
+
+		/**
+		 * Tags of the open spans indexed by their depth.
+		 */
+		final String[] openTags = new String[MAX_DEPTH];
+
+		/**
+		 * Names of the open spans indexed by their depth, {@code null} for spans not being recorded.
+		 */
+		final String[] openNames = new String[MAX_DEPTH];
+
+		/**
+		 * Start times of the open spans indexed by their depth.
+		 */
+		final long[] openStarts = new long[MAX_DEPTH];
+
+		/**
+		 * Current depth of the open spans.
+		 */
+		int depth;
+
+		/**
+		 * Tags of the finished spans.
+		 */
+		final String[] tags;
+
+		/**
+		 * Names of the finished spans.
+		 */
+		final String[] names;
+
+		/**
+		 * Start times of the finished spans relative to the tracer's origin.
+		 */
+		final long[] starts;
+
+		/**
+		 * Durations of the finished spans.
+		 */
+		final long[] durations;
+
+		/**
+		 * Stamps of the ring slots, holding sequence of the span in the slot increased by one or
+		 * {@code 0} while the slot is being written.
+		 */
+		final AtomicLongArray stamps;
+
+		/**
+		 * Sequence of the next finished span.
+		 */
+		volatile long sequence;
+
+		/**
+		 * Sequence of the first span not discarded via {@link #clear()}.
+		 */
+		volatile long clearedSequence;
+
+		/**
+		 * Creates a new instance of SpanBuffer for the given <var>thread</var>.
+		 */
+		SpanBuffer(Thread thread, int capacity) {
+			this.thread = new WeakReference<>(thread);
+			this.threadId = thread.getId();
+			this.threadName = thread.getName();
+			this.capacity = capacity;
+			this.tags = new String[capacity];
+			this.names = new String[capacity];
+			this.starts = new long[capacity];
+			this.durations = new long[capacity];
+			this.stamps = new AtomicLongArray(capacity);
+		}
+
+		/**
+		 * Checks whether the owning thread is still alive.
+		 */
+		boolean isThreadAlive() {
+			final Thread owner = thread.get();
+			return owner != null && owner.isAlive();
+		}
+
+		/**
+		 * Records a finished span with the specified data into the ring.
+		 */
+		void record(String tag, String name, long start, long duration) {
+			final long current = sequence;
+			final int index = (int) (current % capacity);
+			stamps.set(index, 0);
+			tags[index] = tag;
+			names[index] = name;
+			starts[index] = start;
+			durations[index] = duration;
+			stamps.set(index, current + 1);
+			this.sequence = current + 1;
+		}
+	}
+}
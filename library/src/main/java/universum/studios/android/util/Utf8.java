@@ -0,0 +1,180 @@
+/*
+ * =================================================================================================
+ *                             Copyright (C) 2017 Universum Studios
+ * =================================================================================================
+ *         Licensed under the Apache License, Version 2.0 or later (further "License" only).
+ * -------------------------------------------------------------------------------------------------
+ * You may use this file only in compliance with the License. More details and copy of this License
+ * you may obtain at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * You can redistribute, modify or publish any part of the code written within this file but as it
+ * is described in the License, the software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES or CONDITIONS OF ANY KIND.
+ *
+ * See the License for the specific language governing permissions and limitations under the License.
+ * =================================================================================================
+ */
+package universum.studios.android.util;
+
+import android.support.annotation.NonNull;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Utility used by file based loggers to encode characters into UTF-8 bytes directly into a target
+ * buffer, without creating intermediate byte arrays as {@link String#getBytes(String)} does.
+ * Unpaired surrogates are encoded as {@code '?'}.
+ *
+ * @author Martin Albedinsky
+ */
+final class Utf8 {
+
+	/**
+	 * Constants ===================================================================================
+	 */
+
+	/**
+	 * Byte used as replacement for characters that cannot be encoded.
+	 */
+	private static final byte REPLACEMENT = '?';
+
+	/**
+	 * Interface ===================================================================================
+	 */
+
+	/**
+	 * Static members ==============================================================================
+	 */
+
+	/**
+	 * Members =====================================================================================
+	 */
+
+	/**
+	 * Constructors ================================================================================
+	 */
+
+	/**
+	 */
+	private Utf8() {
+		// Creation of instances of this class is not publicly allowed.
+	}
+
+	/**
+	 * Methods =====================================================================================
+	 */
+
+	/**
+	 * Computes count of bytes of the UTF-8 representation of the specified range of characters.
+	 *
+	 * @param chars The characters of which length to compute.
+	 * @param start Start index (inclusive) of the range.
+	 * @param end   End index (exclusive) of the range.
+	 * @return Count of UTF-8 bytes.
+	 */
+	static int encodedLength(@NonNull CharSequence chars, int start, int end) {
+		int length = 0;
+		for (int i = start; i < end; i++) {
+			final char c = chars.charAt(i);
+			if (c < 0x80) {
+				length++;
+			} else if (c < 0x800) {
+				length += 2;
+			} else if (Character.isHighSurrogate(c) && i + 1 < end && Character.isLowSurrogate(chars.charAt(i + 1))) {
+				length += 4;
+				i++;
+			} else {
+				length += isSurrogate(c) ? 1 : 3;
+			}
+		}
+		return length;
+	}
+
+	/**
+	 * Encodes the specified range of characters into the given <var>buffer</var> at its current
+	 * position. Characters are encoded only while there is space remaining in the buffer, a character
+	 * is never encoded only partially.
+	 *
+	 * @param chars  The characters to be encoded.
+	 * @param start  Start index (inclusive) of the range.
+	 * @param end    End index (exclusive) of the range.
+	 * @param buffer The buffer into which to encode the characters.
+	 * @return Index of the first character that has not been encoded due to insufficient space in
+	 * the buffer or <var>end</var> if all characters have been encoded.
+	 */
+	static int encode(@NonNull CharSequence chars, int start, int end, @NonNull ByteBuffer buffer) {
+		int i = start;
+		for (; i < end; i++) {
+			final char c = chars.charAt(i);
+			if (c < 0x80) {
+				if (buffer.remaining() < 1) break;
+				buffer.put((byte) c);
+			} else if (c < 0x800) {
+				if (buffer.remaining() < 2) break;
+				buffer.put((byte) (0xC0 | (c >> 6)));
+				buffer.put((byte) (0x80 | (c & 0x3F)));
+			} else if (Character.isHighSurrogate(c) && i + 1 < end && Character.isLowSurrogate(chars.charAt(i + 1))) {
+				if (buffer.remaining() < 4) break;
+				final int codePoint = Character.toCodePoint(c, chars.charAt(++i));
+				buffer.put((byte) (0xF0 | (codePoint >> 18)));
+				buffer.put((byte) (0x80 | ((codePoint >> 12) & 0x3F)));
+				buffer.put((byte) (0x80 | ((codePoint >> 6) & 0x3F)));
+				buffer.put((byte) (0x80 | (codePoint & 0x3F)));
+			} else if (isSurrogate(c)) {
+				if (buffer.remaining() < 1) break;
+				buffer.put(REPLACEMENT);
+			} else {
+				if (buffer.remaining() < 3) break;
+				buffer.put((byte) (0xE0 | (c >> 12)));
+				buffer.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+				buffer.put((byte) (0x80 | (c & 0x3F)));
+			}
+		}
+		return i;
+	}
+
+	/**
+	 * Checks whether the specified character is a (high or low) surrogate.
+	 */
+	private static boolean isSurrogate(char c) {
+		return c >= Character.MIN_SURROGATE && c <= Character.MAX_SURROGATE;
+	}
+
+	/**
+	 * Computes count of digits of decimal representation of the specified <var>value</var>.
+	 *
+	 * @param value The value of which length to compute. Must not be negative.
+	 * @return Count of decimal digits.
+	 */
+	static int decimalLength(long value) {
+		int length = 1;
+		while (value >= 10) {
+			value /= 10;
+			length++;
+		}
+		return length;
+	}
+
+	/**
+	 * Encodes decimal representation of the specified <var>value</var> into the given <var>buffer</var>
+	 * at its current position.
+	 *
+	 * @param value  The value to be encoded. Must not be negative.
+	 * @param buffer The buffer into which to encode the digits.
+	 */
+	static void encodeDecimal(long value, @NonNull ByteBuffer buffer) {
+		long divisor = 1;
+		while (value / divisor >= 10) {
+			divisor *= 10;
+		}
+		for (; divisor > 0; divisor /= 10) {
+			buffer.put((byte) ('0' + (value / divisor) % 10));
+		}
+	}
+
+	/**
+	 * Inner classes ===============================================================================
+	 */
+}
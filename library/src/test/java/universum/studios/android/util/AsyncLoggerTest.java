@@ -0,0 +1,233 @@
+/*
+ * =================================================================================================
+ *                             Copyright (C) 2017 Universum Studios
+ * =================================================================================================
+ *         Licensed under the Apache License, Version 2.0 or later (further "License" only).
+ * -------------------------------------------------------------------------------------------------
+ * You may use this file only in compliance with the License. More details and copy of this License
+ * you may obtain at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * You can redistribute, modify or publish any part of the code written within this file but as it
+ * is described in the License, the software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES or CONDITIONS OF ANY KIND.
+ *
+ * See the License for the specific language governing permissions and limitations under the License.
+ * =================================================================================================
+ */
+package universum.studios.android.util;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.Log;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import universum.studios.android.util.inner.RecordingLogger;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+/**
+ * @author Martin Albedinsky
+ */
+public final class AsyncLoggerTest {
+
+	@SuppressWarnings("unused")
+	private static final String TAG = "AsyncLoggerTest";
+
+	private RecordingLogger delegate;
+	private AsyncLogger logger;
+
+	@Before
+	public void beforeTest() {
+		this.delegate = new RecordingLogger(Log.DEBUG);
+		this.logger = new AsyncLogger(delegate, 8);
+	}
+
+	@After
+	public void afterTest() {
+		logger.shutdown();
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInstantiationWithInvalidCapacity() {
+		new AsyncLogger(delegate, 6);
+	}
+
+	@Test
+	public void testLogLevelIsDelegated() {
+		assertThat(logger.getLogLevel(), is(Log.DEBUG));
+		logger.setLogLevel(Log.ERROR);
+		assertThat(delegate.getLogLevel(), is(Log.ERROR));
+		assertThat(logger.isLoggable(TAG, Log.WARN), is(false));
+		assertThat(logger.isLoggable(TAG, Log.ERROR), is(true));
+	}
+
+	@Test
+	public void testFlush() {
+		logger.v(TAG, "verbose");
+		logger.d(TAG, "debug");
+		logger.w(TAG, new IllegalStateException());
+		logger.e(TAG, "error", new IllegalArgumentException());
+		logger.flush();
+		final List<String> records = delegate.records();
+		assertThat(records.size(), is(3));
+		assertThat(records.get(0), is("D/" + TAG + ": debug"));
+		assertThat(records.get(1), is("W/" + TAG + ": null [IllegalStateException]"));
+		assertThat(records.get(2), is("E/" + TAG + ": error [IllegalArgumentException]"));
+	}
+
+	@Test
+	public void testForcedRecordsBypassDelegateLevel() {
+		delegate.setLogLevel(Log.ERROR);
+		logger.d(TAG, "rejected");
+		logger.forceLog(Log.DEBUG, TAG, "forced");
+		logger.wtf(TAG, "failure");
+		logger.flush();
+		final List<String> records = delegate.records();
+		assertThat(records.size(), is(2));
+		assertThat(records.get(0), is("D/" + TAG + ": forced"));
+		assertThat(records.get(1), is("A/" + TAG + ": failure"));
+	}
+
+	@Test
+	public void testConcurrentProducers() throws Exception {
+		final int producers = 4;
+		final int recordsPerProducer = 2000;
+		final List<Thread> threads = new ArrayList<>(producers);
+		for (int i = 0; i < producers; i++) {
+			final Thread thread = new Thread(new Runnable() {
+
+				@Override
+				public void run() {
+					for (int j = 0; j < recordsPerProducer; j++) {
+						logger.d(TAG, "record");
+					}
+				}
+			});
+			threads.add(thread);
+			thread.start();
+		}
+		for (final Thread thread : threads) {
+			thread.join();
+		}
+		logger.flush();
+		assertThat(delegate.size(), is(producers * recordsPerProducer));
+	}
+
+	@Test
+	public void testErrorOfDelegateDoesNotStopDraining() {
+		final RecordingLogger failingDelegate = new RecordingLogger() {
+
+			@Override
+			protected void onLog(int level, @NonNull String tag, @Nullable String msg, @Nullable Throwable tr) {
+				if ("overflow".equals(msg)) throw new StackOverflowError();
+				super.onLog(level, tag, msg, tr);
+			}
+		};
+		final AsyncLogger logger = new AsyncLogger(failingDelegate, 8, AsyncLogger.BACKPRESSURE_BLOCK);
+		logger.i(TAG, "overflow");
+		for (int i = 0; i < 100; i++) {
+			logger.i(TAG, "record");
+		}
+		logger.flush();
+		assertThat(failingDelegate.size(), is(100));
+		logger.shutdown();
+	}
+
+	@Test
+	public void testShutdownDrainsBuffer() {
+		for (int i = 0; i < 100; i++) {
+			logger.i(TAG, "record");
+		}
+		logger.shutdown();
+		assertThat(logger.isShutdown(), is(true));
+		assertThat(delegate.size(), is(100));
+		logger.i(TAG, "after shutdown");
+		assertThat(delegate.size(), is(101));
+	}
+
+	@Test
+	public void testBackpressureDropNewest() throws Exception {
+		final BlockingLogger blockingDelegate = new BlockingLogger();
+		final AsyncLogger logger = new AsyncLogger(blockingDelegate, 8, AsyncLogger.BACKPRESSURE_DROP_NEWEST);
+		final LoggerMetrics metrics = new LoggerMetrics();
+		logger.setMetrics(metrics);
+		fillWhileBlocked(logger, blockingDelegate);
+		logger.d(TAG, "dropped");
+		logger.e(TAG, "dropped");
+		blockingDelegate.release.countDown();
+		logger.shutdown();
+		assertThat(logger.getDroppedCount(Log.DEBUG), is(1L));
+		assertThat(logger.getDroppedCount(Log.ERROR), is(1L));
+		assertThat(logger.getDroppedCount(), is(2L));
+		assertThat(metrics.snapshot().getDroppedCount(Log.ERROR), is(1L));
+		assertThat(metrics.snapshot().getDroppedCount(), is(2L));
+		assertThat(blockingDelegate.size(), is(9));
+		assertThat(blockingDelegate.records().contains("D/" + TAG + ": dropped"), is(false));
+	}
+
+	@Test
+	public void testBackpressureDropOldest() throws Exception {
+		final BlockingLogger blockingDelegate = new BlockingLogger();
+		final AsyncLogger logger = new AsyncLogger(blockingDelegate, 8, AsyncLogger.BACKPRESSURE_DROP_OLDEST);
+		fillWhileBlocked(logger, blockingDelegate);
+		logger.w(TAG, "newest");
+		blockingDelegate.release.countDown();
+		logger.shutdown();
+		assertThat(logger.getDroppedCount(Log.INFO), is(1L));
+		assertThat(blockingDelegate.size(), is(9));
+		final List<String> records = blockingDelegate.records();
+		assertThat(records.get(1), is("I/" + TAG + ": 1"));
+		assertThat(records.get(records.size() - 1), is("W/" + TAG + ": newest"));
+	}
+
+	@Test
+	public void testBackpressureDropBelowLevel() throws Exception {
+		final BlockingLogger blockingDelegate = new BlockingLogger();
+		final AsyncLogger logger = new AsyncLogger(blockingDelegate, 8, AsyncLogger.BACKPRESSURE_DROP_BELOW_LEVEL);
+		logger.setBackpressureLevel(Log.WARN);
+		fillWhileBlocked(logger, blockingDelegate);
+		logger.v(TAG, "dropped");
+		logger.i(TAG, "dropped");
+		blockingDelegate.release.countDown();
+		logger.shutdown();
+		assertThat(logger.getDroppedCount(Log.VERBOSE), is(1L));
+		assertThat(logger.getDroppedCount(Log.INFO), is(1L));
+		assertThat(blockingDelegate.records().contains("I/" + TAG + ": dropped"), is(false));
+	}
+
+	private static void fillWhileBlocked(AsyncLogger logger, BlockingLogger delegate) throws InterruptedException {
+		logger.i(TAG, "blocking");
+		assertThat(delegate.entered.await(5, TimeUnit.SECONDS), is(true));
+		for (int i = 0; i < logger.getCapacity(); i++) {
+			logger.i(TAG, Integer.toString(i));
+		}
+	}
+
+	private static final class BlockingLogger extends RecordingLogger {
+
+		final CountDownLatch entered = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+
+		@Override
+		protected void onLog(int level, @NonNull String tag, @Nullable String msg, @Nullable Throwable tr) {
+			super.onLog(level, tag, msg, tr);
+			entered.countDown();
+			try {
+				release.await(5, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+}
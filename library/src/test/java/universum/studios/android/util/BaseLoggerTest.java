@@ -0,0 +1,159 @@
+/*
+ * =================================================================================================
+ *                             Copyright (C) 2017 Universum Studios
+ * =================================================================================================
+ *         Licensed under the Apache License, Version 2.0 or later (further "License" only).
+ * -------------------------------------------------------------------------------------------------
+ * You may use this file only in compliance with the License. More details and copy of this License
+ * you may obtain at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * You can redistribute, modify or publish any part of the code written within this file but as it
+ * is described in the License, the software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES or CONDITIONS OF ANY KIND.
+ *
+ * See the License for the specific language governing permissions and limitations under the License.
+ * =================================================================================================
+ */
+package universum.studios.android.util;
+
+import android.support.annotation.NonNull;
+import android.util.Log;
+
+import org.junit.Test;
+
+import universum.studios.android.util.inner.RecordingLogger;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+/**
+ * @author Martin Albedinsky
+ */
+public final class BaseLoggerTest {
+
+	@SuppressWarnings("unused")
+	private static final String TAG = "BaseLoggerTest";
+
+	@Test
+	public void testTemplateIsNotFormattedForNotLoggableLevel() {
+		final RecordingLogger logger = new RecordingLogger(Log.INFO);
+		final CountingArgument argument = new CountingArgument();
+		logger.v(TAG, "{}", argument);
+		logger.d(TAG, "{} {}", argument, argument);
+		assertThat(argument.toStringCalls, is(0));
+		assertThat(logger.size(), is(0));
+		logger.i(TAG, "{}", argument);
+		assertThat(argument.toStringCalls, is(1));
+		assertThat(logger.records().get(0), is("I/" + TAG + ": argument"));
+	}
+
+	@Test
+	public void testTemplateWithPrimitives() {
+		final RecordingLogger logger = new RecordingLogger(Log.VERBOSE);
+		logger.w(TAG, "count={}", 7);
+		logger.e(TAG, "time={}", 1234567890123L);
+		logger.d(TAG, "ratio={}", 0.25);
+		assertThat(logger.records().get(0), is("W/" + TAG + ": count=7"));
+		assertThat(logger.records().get(1), is("E/" + TAG + ": time=1234567890123"));
+		assertThat(logger.records().get(2), is("D/" + TAG + ": ratio=0.25"));
+	}
+
+	@Test
+	public void testMessageSupplierIsCalledOnlyForLoggableLevel() {
+		final RecordingLogger logger = new RecordingLogger(Log.WARN);
+		final CountingSupplier supplier = new CountingSupplier();
+		logger.v(TAG, supplier);
+		logger.d(TAG, supplier);
+		logger.i(TAG, supplier);
+		assertThat(supplier.getCalls, is(0));
+		logger.w(TAG, supplier);
+		logger.e(TAG, supplier);
+		logger.wtf(TAG, supplier);
+		assertThat(supplier.getCalls, is(3));
+		assertThat(logger.records().get(0), is("W/" + TAG + ": supplied"));
+		assertThat(logger.records().get(2), is("A/" + TAG + ": supplied"));
+	}
+
+	@Test
+	public void testWtfIgnoresLogLevel() {
+		final RecordingLogger logger = new RecordingLogger(Log.ASSERT);
+		logger.e(TAG, "error");
+		logger.wtf(TAG, "failure");
+		assertThat(logger.size(), is(1));
+		assertThat(logger.records().get(0), is("A/" + TAG + ": failure"));
+	}
+
+	@Test
+	public void testWtfWithSupplierIgnoresLogLevel() {
+		final RecordingLogger logger = new RecordingLogger(Log.ASSERT) {
+
+			@Override
+			public boolean isLoggable(@NonNull String tag, int level) {
+				return false;
+			}
+		};
+		final CountingSupplier supplier = new CountingSupplier();
+		logger.wtf(TAG, supplier);
+		assertThat(supplier.getCalls, is(1));
+		assertThat(logger.records().get(0), is("A/" + TAG + ": supplied"));
+	}
+
+	@Test
+	public void testTagLogLevel() {
+		final RecordingLogger logger = new RecordingLogger(Log.INFO);
+		logger.setTagLogLevel("Chatty", Log.ERROR);
+		logger.setTagLogLevel("Verbose", Log.VERBOSE);
+		assertThat(logger.isLoggable("Chatty", Log.WARN), is(false));
+		assertThat(logger.isLoggable("Verbose", Log.VERBOSE), is(true));
+		assertThat(logger.isLoggable(TAG, Log.DEBUG), is(false));
+		assertThat(logger.isLoggable(TAG, Log.INFO), is(true));
+		logger.clearTagLogLevel("Chatty");
+		assertThat(logger.getTagLogLevel("Chatty"), is(Log.INFO));
+		assertThat(logger.isLoggable("Chatty", Log.WARN), is(true));
+	}
+
+	@Test
+	public void testTagHandles() {
+		final RecordingLogger logger = new RecordingLogger(Log.INFO);
+		final BaseLogger.Tag tag = logger.tag("Network");
+		assertThat(logger.tag("Network"), is(sameInstance(tag)));
+		assertThat(tag.getLogLevel(), is(Log.INFO));
+		tag.d("ignored");
+		tag.i("logged");
+		logger.setTagLogLevel("Network", Log.DEBUG);
+		assertThat(tag.isLoggable(Log.DEBUG), is(true));
+		tag.d("logged");
+		logger.clearTagLogLevel("Network");
+		logger.setLogLevel(Log.ERROR);
+		assertThat(tag.getLogLevel(), is(Log.ERROR));
+		tag.w("ignored");
+		assertThat(logger.size(), is(2));
+		assertThat(logger.records().get(1), is("D/Network: logged"));
+	}
+
+	private static final class CountingSupplier implements Logger.MessageSupplier {
+
+		int getCalls;
+
+		@NonNull
+		@Override
+		public String get() {
+			getCalls++;
+			return "supplied";
+		}
+	}
+
+	private static final class CountingArgument {
+
+		int toStringCalls;
+
+		@Override
+		public String toString() {
+			toStringCalls++;
+			return "argument";
+		}
+	}
+}
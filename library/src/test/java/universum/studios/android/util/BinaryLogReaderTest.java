@@ -0,0 +1,110 @@
+/*
+ * =================================================================================================
+ *                             Copyright (C) 2017 Universum Studios
+ * =================================================================================================
+ *         Licensed under the Apache License, Version 2.0 or later (further "License" only).
+ * -------------------------------------------------------------------------------------------------
+ * You may use this file only in compliance with the License. More details and copy of this License
+ * you may obtain at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * You can redistribute, modify or publish any part of the code written within this file but as it
+ * is described in the License, the software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES or CONDITIONS OF ANY KIND.
+ *
+ * See the License for the specific language governing permissions and limitations under the License.
+ * =================================================================================================
+ */
+package universum.studios.android.util;
+
+import android.util.Log;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+/**
+ * @author Martin Albedinsky
+ */
+public final class BinaryLogReaderTest {
+
+	@SuppressWarnings("unused")
+	private static final String TAG = "BinaryLogReaderTest";
+
+	@Test
+	public void testReadWrittenRecords() throws IOException {
+		final ByteArrayOutputStream output = new ByteArrayOutputStream();
+		final BinaryLogWriter writer = new BinaryLogWriter(output);
+		writer.write(1500000000000L, Log.DEBUG, TAG, "first");
+		writer.write(1500000000250L, Log.ERROR, "Other", "second \u00e9\u20ac\ud83d\ude00");
+		writer.write(1500000000100L, Log.WARN, TAG, "");
+		writer.close();
+		final BinaryLogReader reader = new BinaryLogReader(new ByteArrayInputStream(output.toByteArray()));
+		final BinaryLogReader.Record record = new BinaryLogReader.Record();
+		assertThat(reader.read(record), is(true));
+		assertThat(record.getTime(), is(1500000000000L));
+		assertThat(record.getLevel(), is(Log.DEBUG));
+		assertThat(record.getTag(), is(TAG));
+		assertThat(record.getMessage(), is("first"));
+		assertThat(reader.read(record), is(true));
+		assertThat(record.getTime(), is(1500000000250L));
+		assertThat(record.getTag(), is("Other"));
+		assertThat(record.getMessage(), is("second \u00e9\u20ac\ud83d\ude00"));
+		assertThat(reader.read(record), is(true));
+		assertThat(record.getTime(), is(1500000000100L));
+		assertThat(record.getLevel(), is(Log.WARN));
+		assertThat(record.getTag(), is(TAG));
+		assertThat(record.getMessage(), is(""));
+		assertThat(reader.read(record), is(false));
+	}
+
+	@Test
+	public void testReadConcatenatedStreams() throws IOException {
+		final ByteArrayOutputStream output = new ByteArrayOutputStream();
+		new BinaryLogWriter(output).write(1000L, Log.INFO, "First", "a");
+		new BinaryLogWriter(output).write(2000L, Log.INFO, "Second", "b");
+		final BinaryLogReader reader = new BinaryLogReader(new ByteArrayInputStream(output.toByteArray()));
+		final BinaryLogReader.Record record = new BinaryLogReader.Record();
+		assertThat(reader.read(record), is(true));
+		assertThat(reader.read(record), is(true));
+		assertThat(record.getTime(), is(2000L));
+		assertThat(record.getTag(), is("Second"));
+		assertThat(reader.read(record), is(false));
+	}
+
+	@Test
+	public void testReadEmptyStream() throws IOException {
+		final BinaryLogReader reader = new BinaryLogReader(new ByteArrayInputStream(new byte[0]));
+		assertThat(reader.read(new BinaryLogReader.Record()), is(false));
+	}
+
+	@Test(expected = IOException.class)
+	public void testReadInvalidStream() throws IOException {
+		new BinaryLogReader(new ByteArrayInputStream("plain text".getBytes("UTF-8"))).read(new BinaryLogReader.Record());
+	}
+
+	@Test
+	public void testEncodingIsCompact() throws IOException {
+		final ByteArrayOutputStream output = new ByteArrayOutputStream();
+		final BinaryLogger logger = new BinaryLogger(Log.VERBOSE, output);
+		for (int i = 0; i < 100; i++) {
+			logger.d("NetworkClient", "ok");
+		}
+		logger.close();
+		// Header, one tag definition, the first record with absolute time and 99 records each
+		// with 6 bytes at most.
+		assertThat(output.size() <= 5 + 16 + 12 + 99 * 6, is(true));
+		final ByteArrayOutputStream rendered = new ByteArrayOutputStream();
+		BinaryLogReader.render(new ByteArrayInputStream(output.toByteArray()), new PrintStream(rendered, true, "UTF-8"));
+		final String[] lines = rendered.toString("UTF-8").split("\n");
+		assertThat(lines.length, is(100));
+		assertThat(lines[99].endsWith(" D/NetworkClient: ok"), is(true));
+	}
+}
@@ -0,0 +1,196 @@
+/*
+ * =================================================================================================
+ *                             Copyright (C) 2017 Universum Studios
+ * =================================================================================================
+ *         Licensed under the Apache License, Version 2.0 or later (further "License" only).
+ * -------------------------------------------------------------------------------------------------
+ * You may use this file only in compliance with the License. More details and copy of this License
+ * you may obtain at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * You can redistribute, modify or publish any part of the code written within this file but as it
+ * is described in the License, the software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES or CONDITIONS OF ANY KIND.
+ *
+ * See the License for the specific language governing permissions and limitations under the License.
+ * =================================================================================================
+ */
+package universum.studios.android.util;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.Log;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import universum.studios.android.util.inner.RecordingLogger;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+/**
+ * @author Martin Albedinsky
+ */
+public final class CoalescingLoggerTest {
+
+	@SuppressWarnings("unused")
+	private static final String TAG = "CoalescingLoggerTest";
+
+	private RecordingLogger delegate;
+	private TestLogger logger;
+
+	@Before
+	public void beforeTest() {
+		this.delegate = new RecordingLogger(Log.VERBOSE);
+		this.logger = new TestLogger(delegate);
+	}
+
+	@Test
+	public void testCollapseRun() {
+		for (int i = 0; i < 4; i++) {
+			logger.d(TAG, "polling");
+		}
+		assertThat(delegate.size(), is(1));
+		logger.d(TAG, "done");
+		assertThat(delegate.records(), is(Arrays.asList(
+				"D/" + TAG + ": polling",
+				"D/" + TAG + ": Last message repeated 3 times.",
+				"D/" + TAG + ": done"
+		)));
+	}
+
+	@Test
+	public void testEqualMessagesAreCompared() {
+		logger.d(TAG, new StringBuilder("poll").append("ing").toString());
+		logger.d(TAG, new StringBuilder("pol").append("ling").toString());
+		logger.flush();
+		assertThat(delegate.records().get(1), is("D/" + TAG + ": Last message repeated 1 times."));
+	}
+
+	@Test
+	public void testDifferentLevelOrTagEndsRun() {
+		logger.d(TAG, "polling");
+		logger.i(TAG, "polling");
+		logger.i("Other", "polling");
+		assertThat(delegate.size(), is(3));
+	}
+
+	@Test
+	public void testTimeout() {
+		logger.setTimeout(1000);
+		logger.w(TAG, "polling");
+		logger.w(TAG, "polling");
+		logger.time += 1000000000L;
+		logger.w(TAG, "polling");
+		assertThat(delegate.records().get(1), is("W/" + TAG + ": Last message repeated 2 times."));
+		logger.w(TAG, "polling");
+		logger.flush();
+		assertThat(delegate.records().get(2), is("W/" + TAG + ": Last message repeated 1 times."));
+		logger.flush();
+		assertThat(delegate.size(), is(3));
+	}
+
+	@Test
+	public void testTimeoutWithoutFurtherRecords() {
+		logger.setTimeout(1000);
+		logger.w(TAG, "polling");
+		logger.w(TAG, "polling");
+		logger.w(TAG, "polling");
+		assertThat(logger.scheduledChecks, is(1));
+		logger.time += 400000000L;
+		logger.checkTimeout();
+		assertThat(delegate.size(), is(1));
+		assertThat(logger.scheduledChecks, is(2));
+		logger.time += 600000000L;
+		logger.checkTimeout();
+		assertThat(delegate.records().get(1), is("W/" + TAG + ": Last message repeated 2 times."));
+		logger.checkTimeout();
+		assertThat(delegate.size(), is(2));
+		assertThat(logger.scheduledChecks, is(2));
+	}
+
+	@Test
+	public void testThrowableIsNotCollapsed() {
+		final Exception error = new IllegalStateException();
+		logger.e(TAG, "failed", error);
+		logger.e(TAG, "failed", error);
+		assertThat(delegate.size(), is(2));
+	}
+
+	@Test
+	public void testSummaryPrecedesRecordsOfOtherThreads() throws Exception {
+		final CountDownLatch summaryStarted = new CountDownLatch(1);
+		final CountDownLatch summaryReleased = new CountDownLatch(1);
+		final RecordingLogger slowDelegate = new RecordingLogger(Log.VERBOSE) {
+
+			@Override
+			protected void onLog(int level, @NonNull String tag, @Nullable String msg, @Nullable Throwable tr) {
+				if (msg != null && msg.startsWith("Last message repeated")) {
+					summaryStarted.countDown();
+					try {
+						summaryReleased.await(1, TimeUnit.SECONDS);
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+				}
+				super.onLog(level, tag, msg, tr);
+			}
+		};
+		final TestLogger logger = new TestLogger(slowDelegate);
+		logger.d(TAG, "polling");
+		logger.d(TAG, "polling");
+		final Thread ending = new Thread(new Runnable() {
+
+			@Override
+			public void run() {
+				logger.d(TAG, "done");
+			}
+		});
+		ending.start();
+		assertThat(summaryStarted.await(1, TimeUnit.SECONDS), is(true));
+		final Thread other = new Thread(new Runnable() {
+
+			@Override
+			public void run() {
+				logger.i(TAG, "other");
+			}
+		});
+		other.start();
+		other.join(100);
+		summaryReleased.countDown();
+		ending.join();
+		other.join();
+		assertThat(slowDelegate.records(), is(Arrays.asList(
+				"D/" + TAG + ": polling",
+				"D/" + TAG + ": Last message repeated 1 times.",
+				"D/" + TAG + ": done",
+				"I/" + TAG + ": other"
+		)));
+	}
+
+	private static final class TestLogger extends CoalescingLogger {
+
+		long time;
+		int scheduledChecks;
+
+		TestLogger(Logger delegate) {
+			super(delegate);
+		}
+
+		@Override
+		long nanoTime() {
+			return time;
+		}
+
+		@Override
+		void schedule(Runnable task, long delayNanos) {
+			this.scheduledChecks++;
+		}
+	}
+}
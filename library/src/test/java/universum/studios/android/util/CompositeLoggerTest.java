@@ -0,0 +1,124 @@
+/*
+ * =================================================================================================
+ *                             Copyright (C) 2017 Universum Studios
+ * =================================================================================================
+ *         Licensed under the Apache License, Version 2.0 or later (further "License" only).
+ * -------------------------------------------------------------------------------------------------
+ * You may use this file only in compliance with the License. More details and copy of this License
+ * you may obtain at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * You can redistribute, modify or publish any part of the code written within this file but as it
+ * is described in the License, the software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES or CONDITIONS OF ANY KIND.
+ *
+ * See the License for the specific language governing permissions and limitations under the License.
+ * =================================================================================================
+ */
+package universum.studios.android.util;
+
+import android.util.Log;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import universum.studios.android.util.inner.RecordingLogger;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+/**
+ * @author Martin Albedinsky
+ */
+public final class CompositeLoggerTest {
+
+	@SuppressWarnings("unused")
+	private static final String TAG = "CompositeLoggerTest";
+
+	private CompositeLogger logger;
+	private RecordingLogger console;
+	private RecordingLogger file;
+
+	@Before
+	public void beforeTest() {
+		this.logger = new CompositeLogger(Log.VERBOSE);
+		// Sinks' own levels must not matter as records are forced into them.
+		this.console = new RecordingLogger(Log.ASSERT);
+		this.file = new RecordingLogger(Log.ASSERT);
+	}
+
+	@Test
+	public void testWithoutSinks() {
+		assertThat(logger.getSinkCount(), is(0));
+		assertThat(logger.isLoggable(TAG, Log.ERROR), is(false));
+	}
+
+	@Test
+	public void testDispatchWithThresholds() {
+		logger.addSink(console, Log.DEBUG);
+		logger.addSink(file, Log.WARN);
+		assertThat(logger.isLoggable(TAG, Log.VERBOSE), is(false));
+		assertThat(logger.isLoggable(TAG, Log.DEBUG), is(true));
+		logger.v(TAG, "verbose");
+		logger.d(TAG, "debug");
+		logger.e(TAG, "error");
+		assertThat(console.size(), is(2));
+		assertThat(console.records().get(0), is("D/" + TAG + ": debug"));
+		assertThat(file.size(), is(1));
+		assertThat(file.records().get(0), is("E/" + TAG + ": error"));
+	}
+
+	@Test
+	public void testMessageIsFormattedOnce() {
+		final CapturingLogger first = new CapturingLogger();
+		final CapturingLogger second = new CapturingLogger();
+		logger.addSink(first, Log.VERBOSE);
+		logger.addSink(second, Log.VERBOSE);
+		logger.i(TAG, "value={}", 42);
+		assertThat(first.lastMessage, is("value=42"));
+		assertThat(first.lastMessage, is(sameInstance(second.lastMessage)));
+	}
+
+	@Test
+	public void testAddExistingSinkUpdatesThreshold() {
+		logger.addSink(console, Log.ERROR);
+		logger.addSink(console, Log.INFO);
+		assertThat(logger.getSinkCount(), is(1));
+		assertThat(logger.isLoggable(TAG, Log.INFO), is(true));
+	}
+
+	@Test
+	public void testRemoveSink() {
+		logger.addSink(console, Log.DEBUG);
+		logger.addSink(file, Log.WARN);
+		assertThat(logger.removeSink(console), is(true));
+		assertThat(logger.removeSink(console), is(false));
+		assertThat(logger.isLoggable(TAG, Log.INFO), is(false));
+		logger.w(TAG, "warn");
+		assertThat(console.size(), is(0));
+		assertThat(file.size(), is(1));
+	}
+
+	@Test
+	public void testCompositeLogLevel() {
+		logger.addSink(console, Log.VERBOSE);
+		logger.setLogLevel(Log.WARN);
+		logger.i(TAG, "info");
+		logger.wtf(TAG, "wtf");
+		assertThat(console.size(), is(1));
+		assertThat(console.records().get(0), is("A/" + TAG + ": wtf"));
+	}
+
+	private static final class CapturingLogger extends RecordingLogger {
+
+		String lastMessage;
+
+		@Override
+		public void forceLog(int level, String tag, String msg) {
+			this.lastMessage = msg;
+			super.forceLog(level, tag, msg);
+		}
+	}
+}
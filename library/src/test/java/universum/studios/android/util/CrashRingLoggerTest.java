@@ -0,0 +1,185 @@
+/*
+ * =================================================================================================
+ *                             Copyright (C) 2017 Universum Studios
+ * =================================================================================================
+ *         Licensed under the Apache License, Version 2.0 or later (further "License" only).
+ * -------------------------------------------------------------------------------------------------
+ * You may use this file only in compliance with the License. More details and copy of this License
+ * you may obtain at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * You can redistribute, modify or publish any part of the code written within this file but as it
+ * is described in the License, the software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES or CONDITIONS OF ANY KIND.
+ *
+ * See the License for the specific language governing permissions and limitations under the License.
+ * =================================================================================================
+ */
+package universum.studios.android.util;
+
+import android.util.Log;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.util.concurrent.atomic.AtomicReference;
+
+import universum.studios.android.util.inner.RecordingLogger;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.CoreMatchers.startsWith;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+/**
+ * @author Martin Albedinsky
+ */
+public final class CrashRingLoggerTest {
+
+	@SuppressWarnings("unused")
+	private static final String TAG = "CrashRingLoggerTest";
+
+	@Rule
+	public final TemporaryFolder folder = new TemporaryFolder();
+
+	private RecordingLogger delegate;
+	private CrashRingLogger logger;
+	private Thread.UncaughtExceptionHandler defaultHandler;
+
+	@Before
+	public void beforeTest() {
+		this.defaultHandler = Thread.getDefaultUncaughtExceptionHandler();
+		this.delegate = new RecordingLogger(Log.WARN);
+		this.logger = new CrashRingLogger(delegate, 1024);
+	}
+
+	@After
+	public void afterTest() {
+		logger.uninstallCrashHandler();
+		Thread.setDefaultUncaughtExceptionHandler(defaultHandler);
+	}
+
+	@Test
+	public void testCaptureBelowDelegateLevel() throws Exception {
+		assertThat(logger.isLoggable(TAG, Log.VERBOSE), is(true));
+		assertThat(logger.tag(TAG).isLoggable(Log.VERBOSE), is(true));
+		logger.v(TAG, "verbose");
+		logger.w(TAG, "warning");
+		assertThat(delegate.size(), is(1));
+		final String[] lines = dump().split("\n");
+		assertThat(lines.length, is(2));
+		assertThat(lines[0], containsString(" V/" + TAG + ": verbose"));
+		assertThat(lines[1], containsString(" W/" + TAG + ": warning"));
+	}
+
+	@Test
+	public void testCaptureLevel() throws Exception {
+		logger.setCaptureLevel(Log.INFO);
+		assertThat(logger.isLoggable(TAG, Log.DEBUG), is(false));
+		logger.d(TAG, "debug");
+		logger.i(TAG, "info");
+		assertThat(dump(), not(containsString("debug")));
+	}
+
+	@Test
+	public void testOldestRecordsAreOverwritten() throws Exception {
+		for (int i = 0; i < 50; i++) {
+			logger.d(TAG, "message " + i);
+		}
+		final String dump = dump();
+		assertThat(dump.length() <= logger.getCapacity(), is(true));
+		assertThat(dump, containsString("message 49\n"));
+		assertThat(dump, not(containsString("message 0\n")));
+		// The partially overwritten oldest record must be skipped.
+		for (final String line : dump.split("\n")) {
+			assertThat(line, containsString(" D/" + TAG + ": message "));
+		}
+	}
+
+	@Test
+	public void testThrowableAndLongMessage() throws Exception {
+		logger.e(TAG, "multi\nline", new IllegalStateException("failure"));
+		final StringBuilder message = new StringBuilder();
+		for (int i = 0; i < 300; i++) message.append('x');
+		logger.i(TAG, message.toString());
+		final String[] lines = dump().split("\n");
+		assertThat(lines[0], containsString(": multi line [java.lang.IllegalStateException: failure]"));
+		assertThat(lines[1].length(), is(logger.getCapacity() / 4 - 1));
+	}
+
+	@Test
+	public void testCrashHandler() throws Exception {
+		final AtomicReference<Throwable> forwarded = new AtomicReference<>();
+		final Thread.UncaughtExceptionHandler previous = new Thread.UncaughtExceptionHandler() {
+
+			@Override
+			public void uncaughtException(Thread thread, Throwable throwable) {
+				forwarded.set(throwable);
+			}
+		};
+		Thread.setDefaultUncaughtExceptionHandler(previous);
+		final File file = folder.newFile("crash.log");
+		logger.installCrashHandler(file);
+		logger.d(TAG, "before crash");
+		final Throwable crash = new IllegalStateException("boom");
+		Thread.getDefaultUncaughtExceptionHandler().uncaughtException(Thread.currentThread(), crash);
+		assertThat(forwarded.get(), is(sameInstance(crash)));
+		final String content = read(file);
+		assertThat(content, containsString(" D/" + TAG + ": before crash\n"));
+		assertThat(content, containsString(" A/AndroidRuntime: " + Thread.currentThread().getName() + " [java.lang.IllegalStateException: boom]\n"));
+		logger.uninstallCrashHandler();
+		assertThat(Thread.getDefaultUncaughtExceptionHandler(), is(sameInstance(previous)));
+	}
+
+	private String dump() throws Exception {
+		final ByteArrayOutputStream output = new ByteArrayOutputStream();
+		logger.dump(output);
+		final String dump = output.toString("UTF-8");
+		assertThat(dump.length() == 0 || dump.matches("(?s)[0-9]+ .*"), is(true));
+		return dump;
+	}
+
+	@Test
+	public void testCrashHandlerWithoutPreviousHandler() throws Exception {
+		final AtomicReference<Throwable> forwarded = new AtomicReference<>();
+		final ThreadGroup group = new ThreadGroup("crashing") {
+
+			@Override
+			public void uncaughtException(Thread thread, Throwable throwable) {
+				forwarded.set(throwable);
+			}
+		};
+		Thread.setDefaultUncaughtExceptionHandler(null);
+		final File file = folder.newFile("crash.log");
+		logger.installCrashHandler(file);
+		final Thread thread = new Thread(group, "Crashing");
+		final Throwable crash = new IllegalStateException("boom");
+		Thread.getDefaultUncaughtExceptionHandler().uncaughtException(thread, crash);
+		assertThat(forwarded.get(), is(sameInstance(crash)));
+		assertThat(read(file), containsString(" A/AndroidRuntime: Crashing [java.lang.IllegalStateException: boom]\n"));
+	}
+
+	private static String read(File file) throws Exception {
+		final FileInputStream input = new FileInputStream(file);
+		try {
+			final ByteArrayOutputStream output = new ByteArrayOutputStream();
+			final byte[] buffer = new byte[1024];
+			int count;
+			while ((count = input.read(buffer)) != -1) {
+				output.write(buffer, 0, count);
+			}
+			return output.toString("UTF-8");
+		} finally {
+			input.close();
+		}
+	}
+}
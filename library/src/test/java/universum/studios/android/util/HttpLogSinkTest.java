@@ -0,0 +1,278 @@
+/*
+ * =================================================================================================
+ *                             Copyright (C) 2017 Universum Studios
+ * =================================================================================================
+ *         Licensed under the Apache License, Version 2.0 or later (further "License" only).
+ * -------------------------------------------------------------------------------------------------
+ * You may use this file only in compliance with the License. More details and copy of this License
+ * you may obtain at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * You can redistribute, modify or publish any part of the code written within this file but as it
+ * is described in the License, the software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES or CONDITIONS OF ANY KIND.
+ *
+ * See the License for the specific language governing permissions and limitations under the License.
+ * =================================================================================================
+ */
+package universum.studios.android.util;
+
+import android.util.Log;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+/**
+ * @author Martin Albedinsky
+ */
+public final class HttpLogSinkTest {
+
+	@SuppressWarnings("unused")
+	private static final String TAG = "HttpLogSinkTest";
+
+	@Rule
+	public final TemporaryFolder folder = new TemporaryFolder();
+
+	private HttpServer server;
+	private URL url;
+	private final List<String> lines = new ArrayList<>();
+	private final List<Integer> batchSizes = new ArrayList<>();
+	private volatile int responseCode = 200;
+
+	@Before
+	public void beforeTest() throws IOException {
+		this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.createContext("/logs", new HttpHandler() {
+
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				final int code = responseCode;
+				if (code == 200) {
+					assertThat(exchange.getRequestMethod(), is("POST"));
+					assertThat(exchange.getRequestHeaders().getFirst("Content-Encoding"), is("gzip"));
+					final byte[] body = readFully(exchange.getRequestBody());
+					final String batch = new String(readFully(new GZIPInputStream(new ByteArrayInputStream(body))), "UTF-8");
+					synchronized (lines) {
+						batchSizes.add(batch.getBytes("UTF-8").length);
+						for (final String line : batch.split("\n")) {
+							lines.add(line);
+						}
+					}
+				} else {
+					readFully(exchange.getRequestBody());
+				}
+				exchange.sendResponseHeaders(code, -1);
+				exchange.close();
+			}
+		});
+		server.start();
+		this.url = new URL("http://127.0.0.1:" + server.getAddress().getPort() + "/logs");
+	}
+
+	@After
+	public void afterTest() {
+		server.stop(0);
+	}
+
+	@Test
+	public void testBatchBySize() throws Exception {
+		final TestSink sink = new TestSink(url, folder.newFolder("spool"), 1024);
+		final SimpleLogger logger = new SimpleLogger(Log.VERBOSE, sink);
+		for (int i = 0; i < 2000; i++) {
+			logger.i(TAG, "record number " + i);
+			if (i % 50 == 49) sink.flush();
+		}
+		sink.close();
+		assertThat(sink.getDroppedRecordCount(), is(0L));
+		assertThat(sink.getPostedRecordCount(), is(2000L));
+		synchronized (lines) {
+			assertThat(lines.size(), is(2000));
+			for (int i = 0; i < lines.size(); i++) {
+				assertThat(lines.get(i).endsWith(" I/" + TAG + ": record number " + i), is(true));
+			}
+			for (final int size : batchSizes) {
+				assertThat(size <= 1024, is(true));
+			}
+			assertThat((long) batchSizes.size(), is(sink.getPostedBatchCount()));
+			assertThat(batchSizes.size() < 200, is(true));
+		}
+	}
+
+	@Test
+	public void testBatchByAge() throws Exception {
+		final TestSink sink = new TestSink(url, folder.newFolder("spool"));
+		sink.setMaxBatchAge(50);
+		sink.write(Log.WARN, TAG, "first", 0, 5);
+		sink.write(Log.ERROR, TAG, "xsecondx", 1, 7);
+		final long deadline = System.currentTimeMillis() + 5000;
+		while (sink.getPostedBatchCount() == 0 && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		assertThat(sink.getPostedBatchCount(), is(1L));
+		synchronized (lines) {
+			assertThat(lines.size(), is(2));
+			assertThat(lines.get(0).endsWith(" W/" + TAG + ": first"), is(true));
+			assertThat(lines.get(1).endsWith(" E/" + TAG + ": second"), is(true));
+		}
+		sink.close();
+	}
+
+	@Test
+	public void testSpoolAndRetry() throws Exception {
+		this.responseCode = 503;
+		final TestSink sink = new TestSink(url, folder.newFolder("spool"), 256);
+		sink.setBackoff(20, 100);
+		for (int i = 0; i < 30; i++) {
+			sink.write(Log.INFO, TAG, "record " + i, 0, ("record " + i).length());
+			if (i % 5 == 4) sink.flush();
+		}
+		sink.flush();
+		assertThat(sink.listSpooled().length > 1, is(true));
+		assertThat(sink.getPostedBatchCount(), is(0L));
+		this.responseCode = 200;
+		final long deadline = System.currentTimeMillis() + 5000;
+		while (sink.listSpooled().length > 0 && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		assertThat(sink.listSpooled().length, is(0));
+		synchronized (lines) {
+			assertThat(lines.size(), is(30));
+			for (int i = 0; i < lines.size(); i++) {
+				assertThat(lines.get(i).endsWith("record " + i), is(true));
+			}
+		}
+		sink.close();
+	}
+
+	@Test
+	public void testPostSpooledOfPreviousSink() throws Exception {
+		this.responseCode = 500;
+		final TestSink first = new TestSink(url, folder.newFolder("spool"));
+		first.write(Log.INFO, TAG, "spooled", 0, 7);
+		first.close();
+		assertThat(first.listSpooled().length, is(1));
+		this.responseCode = 200;
+		final TestSink second = new TestSink(url, first.listSpooled()[0].getParentFile());
+		final long deadline = System.currentTimeMillis() + 5000;
+		while (second.getPostedBatchCount() == 0 && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		assertThat(second.listSpooled().length, is(0));
+		synchronized (lines) {
+			assertThat(lines.size(), is(1));
+			assertThat(lines.get(0).endsWith("spooled"), is(true));
+		}
+		second.close();
+	}
+
+	@Test
+	public void testRejectedBatchIsNotSpooled() throws Exception {
+		this.responseCode = 400;
+		final TestSink sink = new TestSink(url, folder.newFolder("spool"));
+		sink.write(Log.INFO, TAG, "rejected", 0, 8);
+		sink.flush();
+		assertThat(sink.listSpooled().length, is(0));
+		assertThat(sink.getPostedBatchCount(), is(0L));
+		assertThat(sink.warnings, is(Collections.singletonList("Batch rejected by collector with code(400).")));
+		sink.close();
+	}
+
+	@Test
+	public void testUnexpectedFailureDoesNotStopShipping() throws Exception {
+		// Connection of a file URL is not a HttpURLConnection, so posting fails with a RuntimeException.
+		final TestSink sink = new TestSink(folder.newFile("collector").toURI().toURL(), folder.newFolder("spool"));
+		sink.setBackoff(60000, 60000);
+		sink.write(Log.INFO, TAG, "first", 0, 5);
+		sink.flush();
+		assertThat(sink.warnings, is(Collections.singletonList("Failed to ship batch.")));
+		// The failure backs off the sink, so the next batch is spooled.
+		sink.write(Log.INFO, TAG, "second", 0, 6);
+		sink.flush();
+		assertThat(sink.listSpooled().length, is(1));
+		assertThat(sink.getPostedBatchCount(), is(0L));
+		sink.close();
+	}
+
+	@Test
+	public void testSpoolFileNamesDoNotDependOnLocale() throws Exception {
+		final Locale locale = Locale.getDefault();
+		Locale.setDefault(new Locale("ar", "EG"));
+		try {
+			this.responseCode = 500;
+			final TestSink sink = new TestSink(url, folder.newFolder("spool"));
+			sink.setBackoff(60000, 60000);
+			sink.write(Log.INFO, TAG, "spooled", 0, 7);
+			sink.flush();
+			assertThat(sink.listSpooled().length, is(1));
+			assertThat(sink.listSpooled()[0].getName().matches("batch-[0-9]{19}\\.gz"), is(true));
+			sink.close();
+		} finally {
+			Locale.setDefault(locale);
+		}
+	}
+
+	@Test
+	public void testDropRecordsWhenAllBuffersAreInUse() throws Exception {
+		this.responseCode = 503;
+		final TestSink sink = new TestSink(url, folder.newFolder("spool"), 64);
+		sink.setBackoff(60000, 60000);
+		final String message = "record of exactly forty bytes long";
+		for (int i = 0; i < 100; i++) {
+			sink.write(Log.INFO, TAG, message, 0, message.length());
+		}
+		assertThat(sink.getDroppedRecordCount() > 0, is(true));
+		sink.close();
+	}
+
+	private static byte[] readFully(InputStream input) throws IOException {
+		final ByteArrayOutputStream output = new ByteArrayOutputStream();
+		final byte[] buffer = new byte[1024];
+		int count;
+		while ((count = input.read(buffer)) != -1) {
+			output.write(buffer, 0, count);
+		}
+		return output.toByteArray();
+	}
+
+	private static final class TestSink extends HttpLogSink {
+
+		final List<String> warnings = Collections.synchronizedList(new ArrayList<String>());
+
+		TestSink(URL url, File spoolDirectory) throws IOException {
+			super(url, spoolDirectory);
+		}
+
+		TestSink(URL url, File spoolDirectory, int maxBatchSize) throws IOException {
+			super(url, spoolDirectory, maxBatchSize);
+		}
+
+		@Override
+		void logWarning(String message, Throwable error) {
+			warnings.add(message);
+		}
+	}
+}
@@ -0,0 +1,220 @@
+/*
+ * =================================================================================================
+ *                             Copyright (C) 2017 Universum Studios
+ * =================================================================================================
+ *         Licensed under the Apache License, Version 2.0 or later (further "License" only).
+ * -------------------------------------------------------------------------------------------------
+ * You may use this file only in compliance with the License. More details and copy of this License
+ * you may obtain at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * You can redistribute, modify or publish any part of the code written within this file but as it
+ * is described in the License, the software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES or CONDITIONS OF ANY KIND.
+ *
+ * See the License for the specific language governing permissions and limitations under the License.
+ * =================================================================================================
+ */
+package universum.studios.android.util;
+
+import android.util.Log;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import universum.studios.android.util.inner.RecordingLogger;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+/**
+ * @author Martin Albedinsky
+ */
+public final class JankDetectorTest {
+
+	@SuppressWarnings("unused")
+	private static final String TAG = "JankDetectorTest";
+
+	private static final String FRAME_DISPATCH = ">>>>> Dispatching to Handler (android.view.Choreographer$FrameHandler) {3b1a8c5} " +
+			"android.view.Choreographer$FrameDisplayEventReceiver@e1c3a2: 0";
+	private static final String SYNC_DISPATCH = ">>>>> Dispatching to Handler (com.example.SyncHandler) {12ab} null: 7";
+	private static final String FINISHED = "<<<<< Finished to Handler (com.example.SyncHandler) {12ab} null";
+
+	@Test
+	public void testFastMessagesAreNotReported() {
+		final RecordingLogger logger = new RecordingLogger();
+		final TestDetector detector = new TestDetector(logger, 16);
+		dispatch(detector, SYNC_DISPATCH, 15);
+		dispatch(detector, FRAME_DISPATCH, 0);
+		assertThat(logger.size(), is(0));
+		assertThat(detector.getOffenders().isEmpty(), is(true));
+	}
+
+	@Test
+	public void testSlowMessageIsReported() {
+		final RecordingLogger logger = new RecordingLogger();
+		final TestDetector detector = new TestDetector(logger, 16);
+		dispatch(detector, FRAME_DISPATCH, 40);
+		dispatch(detector, SYNC_DISPATCH, 16);
+		final List<String> records = logger.records();
+		assertThat(records.size(), is(2));
+		assertThat(records.get(0), is("W/Jank: Slow message (40 ms): handler=android.view.Choreographer$FrameHandler, " +
+				"callback=android.view.Choreographer$FrameDisplayEventReceiver, what=0"));
+		assertThat(records.get(1), is("W/Jank: Slow message (16 ms): handler=com.example.SyncHandler, what=7"));
+	}
+
+	@Test
+	public void testLevelGating() {
+		final RecordingLogger logger = new RecordingLogger(Log.WARN);
+		final TestDetector detector = new TestDetector(logger, 16);
+		detector.setLevel(Log.INFO);
+		dispatch(detector, SYNC_DISPATCH, 100);
+		assertThat(logger.size(), is(0));
+		assertThat(detector.getOffenders().size(), is(1));
+	}
+
+	@Test
+	public void testUnknownLineFormat() {
+		final RecordingLogger logger = new RecordingLogger();
+		final TestDetector detector = new TestDetector(logger, 16);
+		dispatch(detector, ">custom", 20);
+		detector.println("");
+		assertThat(logger.records().get(0), is("W/Jank: Slow message (20 ms): handler=>custom"));
+	}
+
+	@Test
+	public void testFinishWithoutDispatchIsIgnored() {
+		final RecordingLogger logger = new RecordingLogger();
+		final TestDetector detector = new TestDetector(logger, 16);
+		detector.time = 100;
+		detector.println(FINISHED);
+		assertThat(logger.size(), is(0));
+	}
+
+	@Test
+	public void testOffendersRanking() {
+		final TestDetector detector = new TestDetector(new RecordingLogger(), 16);
+		dispatch(detector, FRAME_DISPATCH, 500);
+		dispatch(detector, SYNC_DISPATCH, 20);
+		dispatch(detector, SYNC_DISPATCH, 30);
+		dispatch(detector, SYNC_DISPATCH, 5);
+		final List<JankDetector.Offender> offenders = detector.getOffenders();
+		assertThat(offenders.size(), is(2));
+		final JankDetector.Offender first = offenders.get(0);
+		assertThat(first.getHandlerClass(), is("com.example.SyncHandler"));
+		assertThat(first.getCount(), is(2));
+		assertThat(first.getTotalDuration(), is(50L));
+		assertThat(first.getMaxDuration(), is(30L));
+		assertThat(offenders.get(1).getHandlerClass(), is("android.view.Choreographer$FrameHandler"));
+		detector.resetOffenders();
+		assertThat(detector.getOffenders().isEmpty(), is(true));
+	}
+
+	@Test
+	public void testStackSampling() throws Exception {
+		final RecordingLogger logger = new RecordingLogger();
+		final JankDetector detector = new ClockDetector(logger, 20);
+		detector.setStackSampleRate(1);
+		detector.startWatchdog(Thread.currentThread());
+		try {
+			detector.println(SYNC_DISPATCH);
+			Thread.sleep(300);
+			detector.println(FINISHED);
+			detector.println(SYNC_DISPATCH);
+			detector.println(FINISHED);
+		} finally {
+			detector.stopWatchdog();
+		}
+		final List<String> records = logger.records();
+		assertThat(records.size(), is(1));
+		assertThat(records.get(0), containsString("handler=com.example.SyncHandler"));
+		assertThat(records.get(0), containsString("\n\tat "));
+		assertThat(records.get(0), containsString("testStackSampling"));
+	}
+
+	@Test
+	public void testStackSamplingDisabled() throws Exception {
+		final RecordingLogger logger = new RecordingLogger();
+		final JankDetector detector = new ClockDetector(logger, 20);
+		detector.startWatchdog(Thread.currentThread());
+		try {
+			detector.println(SYNC_DISPATCH);
+			Thread.sleep(100);
+			detector.println(FINISHED);
+		} finally {
+			detector.stopWatchdog();
+		}
+		assertThat(logger.records().get(0), not(containsString("\n\tat ")));
+	}
+
+	@Test
+	public void testIdleWatchdogIsParked() throws Exception {
+		final RecordingLogger logger = new RecordingLogger();
+		final JankDetector detector = new ClockDetector(logger, 20);
+		detector.setStackSampleRate(1);
+		detector.startWatchdog(Thread.currentThread());
+		final Thread watchdog = findThread("JankDetector");
+		try {
+			detector.println(SYNC_DISPATCH);
+			Thread.sleep(100);
+			detector.println(FINISHED);
+			final long deadline = System.currentTimeMillis() + 1000;
+			while (watchdog.getState() != Thread.State.WAITING && System.currentTimeMillis() < deadline) {
+				Thread.sleep(10);
+			}
+			assertThat(watchdog.getState(), is(Thread.State.WAITING));
+			detector.println(SYNC_DISPATCH);
+			Thread.sleep(100);
+			detector.println(FINISHED);
+		} finally {
+			detector.stopWatchdog();
+		}
+		watchdog.join(1000);
+		assertThat(watchdog.isAlive(), is(false));
+		assertThat(logger.records().size(), is(2));
+		assertThat(logger.records().get(1), containsString("\n\tat "));
+	}
+
+	private static Thread findThread(String name) {
+		for (final Thread thread : Thread.getAllStackTraces().keySet()) {
+			if (name.equals(thread.getName())) return thread;
+		}
+		throw new AssertionError("No thread with name(" + name + ").");
+	}
+
+	private static void dispatch(TestDetector detector, String line, long duration) {
+		detector.println(line);
+		detector.time += duration;
+		detector.println(FINISHED);
+	}
+
+	private static final class ClockDetector extends JankDetector {
+
+		ClockDetector(Logger logger, long threshold) {
+			super(logger, threshold);
+		}
+
+		@Override
+		long uptimeMillis() {
+			return System.nanoTime() / 1000000;
+		}
+	}
+
+	private static final class TestDetector extends JankDetector {
+
+		long time;
+
+		TestDetector(Logger logger, long threshold) {
+			super(logger, threshold);
+		}
+
+		@Override
+		long uptimeMillis() {
+			return time;
+		}
+	}
+}
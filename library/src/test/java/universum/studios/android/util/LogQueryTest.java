@@ -0,0 +1,139 @@
+/*
+ * =================================================================================================
+ *                             Copyright (C) 2017 Universum Studios
+ * =================================================================================================
+ *         Licensed under the Apache License, Version 2.0 or later (further "License" only).
+ * -------------------------------------------------------------------------------------------------
+ * You may use this file only in compliance with the License. More details and copy of this License
+ * you may obtain at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * You can redistribute, modify or publish any part of the code written within this file but as it
+ * is described in the License, the software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES or CONDITIONS OF ANY KIND.
+ *
+ * See the License for the specific language governing permissions and limitations under the License.
+ * =================================================================================================
+ */
+package universum.studios.android.util;
+
+import android.util.Log;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+/**
+ * @author Martin Albedinsky
+ */
+public final class LogQueryTest {
+
+	@SuppressWarnings("unused")
+	private static final String TAG = "LogQueryTest";
+
+	private static final int RECORDS = 4000;
+
+	@Rule
+	public final TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testQueryTimeRange() throws IOException {
+		final MappedFileLogger logger = createLoggerWithRecords(true);
+		final LogQuery query = new LogQuery(logger).setTimeRange(2000, 2099);
+		final List<String> records = query.execute();
+		assertThat(records.size(), is(100));
+		for (int i = 0; i < records.size(); i++) {
+			assertThat(records.get(i).startsWith((2000 + i) + " "), is(true));
+			assertThat(records.get(i).endsWith(": record number " + (2000 + i)), is(true));
+		}
+		long totalSize = 0;
+		for (final File segment : logger.listSegments()) {
+			totalSize += segment.length();
+		}
+		assertThat(query.getBytesRead() < totalSize / 4, is(true));
+	}
+
+	@Test
+	public void testQueryTag() throws IOException {
+		final MappedFileLogger logger = createLoggerWithRecords(false);
+		logger.e("Rare", "failure", new IllegalStateException("boom"));
+		final LogQuery query = new LogQuery(logger).setTag("Rare");
+		final List<String> records = query.execute();
+		assertThat(records.size(), is(1));
+		assertThat(records.get(0).startsWith(RECORDS + " E/Rare: failure\njava.lang.IllegalStateException: boom\n"), is(true));
+		assertThat(new LogQuery(logger).setTag("Rar").execute().isEmpty(), is(true));
+		assertThat(new LogQuery(logger).setTag("Odd").setTimeRange(10, 20).execute().size(), is(5));
+		logger.close();
+	}
+
+	@Test
+	public void testQueryRunningSegment() throws IOException {
+		final MappedFileLogger logger = createLoggerWithRecords(false);
+		final List<String> records = new LogQuery(logger).setTimeRange(RECORDS - 3, Long.MAX_VALUE).execute();
+		assertThat(records.size(), is(3));
+		assertThat(records.get(2).endsWith("record number " + (RECORDS - 1)), is(true));
+		logger.close();
+	}
+
+	@Test
+	public void testQueryWithoutIndex() throws IOException {
+		final MappedFileLogger logger = createLoggerWithRecords(true);
+		for (final File segment : logger.listSegments()) {
+			assertThat(SegmentIndex.fileFor(segment).delete(), is(true));
+		}
+		final List<String> records = new LogQuery(logger).setTimeRange(100, 104).setTag("Even").execute();
+		assertThat(records.size(), is(3));
+		assertThat(records.get(1).endsWith("Even: record number 102"), is(true));
+	}
+
+	@Test
+	public void testQueryCompressedSegments() throws Exception {
+		final SegmentCompressor compressor = new SegmentCompressor(4 * MappedFileLogger.DEFAULT_SEGMENT_SIZE);
+		try {
+			final MappedFileLogger logger = createLoggerWithRecords(false);
+			logger.setSegmentCompressor(compressor);
+			assertThat(compressor.awaitIdle(5000), is(true));
+			assertThat(logger.listCompressedSegments().length > 0, is(true));
+			final LogQuery query = new LogQuery(logger).setTimeRange(0, 2);
+			assertThat(query.execute().size(), is(3));
+			final long bytesRead = query.getBytesRead();
+			final List<String> records = query.setTimeRange(RECORDS - 1, RECORDS - 1).execute();
+			assertThat(records.size(), is(1));
+			assertThat(query.getBytesRead() < bytesRead * 2, is(true));
+			logger.close();
+		} finally {
+			compressor.close();
+		}
+	}
+
+	private MappedFileLogger createLoggerWithRecords(boolean close) throws IOException {
+		final TestLogger logger = new TestLogger(folder.getRoot());
+		for (int i = 0; i < RECORDS; i++) {
+			logger.i(i % 2 == 0 ? "Even" : "Odd", "record number " + i);
+		}
+		if (close) logger.close();
+		return logger;
+	}
+
+	private static final class TestLogger extends MappedFileLogger {
+
+		long time;
+
+		TestLogger(File directory) throws IOException {
+			super(Log.VERBOSE, directory, "app", 64 * 1024, 10);
+		}
+
+		@Override
+		long currentTimeMillis() {
+			return time++;
+		}
+	}
+}
@@ -0,0 +1,83 @@
+/*
+ * =================================================================================================
+ *                             Copyright (C) 2017 Universum Studios
+ * =================================================================================================
+ *         Licensed under the Apache License, Version 2.0 or later (further "License" only).
+ * -------------------------------------------------------------------------------------------------
+ * You may use this file only in compliance with the License. More details and copy of this License
+ * you may obtain at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * You can redistribute, modify or publish any part of the code written within this file but as it
+ * is described in the License, the software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES or CONDITIONS OF ANY KIND.
+ *
+ * See the License for the specific language governing permissions and limitations under the License.
+ * =================================================================================================
+ */
+package universum.studios.android.util;
+
+import android.util.Log;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.channels.Channels;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.CoreMatchers.startsWith;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+/**
+ * @author Martin Albedinsky
+ */
+public final class LogSinksTest {
+
+	@SuppressWarnings("unused")
+	private static final String TAG = "LogSinksTest";
+
+	@Test
+	public void testStreamSink() throws Exception {
+		final ByteArrayOutputStream output = new ByteArrayOutputStream();
+		final LogSink sink = LogSinks.stream(output);
+		sink.write(Log.INFO, TAG, "[message]", 1, 8);
+		sink.write(Log.ERROR, TAG, new StringBuilder("caf\u00e9"), 0, 4);
+		assertThat(output.toString("UTF-8"), is("I/" + TAG + ": message\nE/" + TAG + ": caf\u00e9\n"));
+	}
+
+	@Test
+	public void testChannelSinkWithLongMessage() throws Exception {
+		final ByteArrayOutputStream output = new ByteArrayOutputStream();
+		final LogSink sink = LogSinks.channel(Channels.newChannel(output));
+		final StringBuilder message = new StringBuilder();
+		for (int i = 0; i < 5000; i++) {
+			message.append((char) ('a' + i % 26));
+		}
+		sink.write(Log.DEBUG, TAG, message, 0, message.length());
+		assertThat(output.toString("UTF-8"), is("D/" + TAG + ": " + message + "\n"));
+	}
+
+	@Test
+	public void testSimpleLoggerWritesIntoSink() throws Exception {
+		final ByteArrayOutputStream output = new ByteArrayOutputStream();
+		final SimpleLogger logger = new SimpleLogger(Log.DEBUG, LogSinks.stream(output));
+		logger.v(TAG, "rejected");
+		logger.d(TAG, "value={}", 42);
+		logger.forceLog(Log.VERBOSE, TAG, "forced");
+		logger.wtf(TAG, "failure", new IllegalStateException("cause"));
+		final String[] lines = output.toString("UTF-8").split("\n");
+		assertThat(lines[0], is("D/" + TAG + ": value=42"));
+		assertThat(lines[1], is("V/" + TAG + ": forced"));
+		assertThat(lines[2], is("A/" + TAG + ": failure"));
+		assertThat(lines[3], is("java.lang.IllegalStateException: cause"));
+		assertThat(lines[4], startsWith("\tat "));
+	}
+
+	@Test
+	public void testDefaultSink() {
+		assertThat(new SimpleLogger(Log.DEBUG).getSink(), is(sameInstance(LogSinks.logcat())));
+		LogSinks.noOp().write(Log.DEBUG, TAG, "discarded", 0, 9);
+	}
+}
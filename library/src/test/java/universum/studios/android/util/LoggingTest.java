@@ -0,0 +1,95 @@
+/*
+ * =================================================================================================
+ *                             Copyright (C) 2017 Universum Studios
+ * =================================================================================================
+ *         Licensed under the Apache License, Version 2.0 or later (further "License" only).
+ * -------------------------------------------------------------------------------------------------
+ * You may use this file only in compliance with the License. More details and copy of this License
+ * you may obtain at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * You can redistribute, modify or publish any part of the code written within this file but as it
+ * is described in the License, the software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES or CONDITIONS OF ANY KIND.
+ *
+ * See the License for the specific language governing permissions and limitations under the License.
+ * =================================================================================================
+ */
+package universum.studios.android.util;
+
+import android.util.Log;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import universum.studios.android.util.inner.RecordingLogger;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+/**
+ * @author Martin Albedinsky
+ */
+public final class LoggingTest {
+
+	@SuppressWarnings("unused")
+	private static final String TAG = "LoggingTest";
+
+	private RecordingLogger logger;
+
+	@Before
+	public void beforeTest() {
+		this.logger = new RecordingLogger(Log.DEBUG);
+		Logging.setLogger(logger);
+	}
+
+	@After
+	public void afterTest() {
+		Logging.setLogger(null);
+	}
+
+	@Test
+	public void testCallsArePassedToLogger() {
+		Logging.v(TAG, "rejected");
+		Logging.d(TAG, "value={}", 1);
+		Logging.i(TAG, "values={}, {}", 1, 2);
+		Logging.w(TAG, new IllegalStateException());
+		Logging.e(TAG, new Logger.MessageSupplier() {
+
+			@Override
+			public String get() {
+				return "supplied";
+			}
+		});
+		Logging.wtf(TAG, "failure");
+		assertThat(logger.records(), is(Arrays.asList(
+				"D/" + TAG + ": value=1",
+				"I/" + TAG + ": values=1, 2",
+				"W/" + TAG + ": null [IllegalStateException]",
+				"E/" + TAG + ": supplied",
+				"A/" + TAG + ": failure"
+		)));
+	}
+
+	@Test
+	public void testIsLoggable() {
+		assertThat(Logging.isLoggable(TAG, Log.VERBOSE), is(false));
+		assertThat(Logging.isLoggable(TAG, Log.DEBUG), is(true));
+		Logging.setLogger(null);
+		assertThat(Logging.isLoggable(TAG, Log.ERROR), is(false));
+	}
+
+	@Test
+	public void testWithoutLogger() {
+		Logging.setLogger(null);
+		assertThat(Logging.getLogger(), is(nullValue()));
+		Logging.e(TAG, "ignored");
+		Logging.wtf(TAG, "ignored", null);
+		assertThat(logger.size(), is(0));
+	}
+}
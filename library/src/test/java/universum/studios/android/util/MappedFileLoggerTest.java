@@ -0,0 +1,114 @@
+/*
+ * =================================================================================================
+ *                             Copyright (C) 2017 Universum Studios
+ * =================================================================================================
+ *         Licensed under the Apache License, Version 2.0 or later (further "License" only).
+ * -------------------------------------------------------------------------------------------------
+ * You may use this file only in compliance with the License. More details and copy of this License
+ * you may obtain at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * You can redistribute, modify or publish any part of the code written within this file but as it
+ * is described in the License, the software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES or CONDITIONS OF ANY KIND.
+ *
+ * See the License for the specific language governing permissions and limitations under the License.
+ * =================================================================================================
+ */
+package universum.studios.android.util;
+
+import android.util.Log;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+/**
+ * @author Martin Albedinsky
+ */
+public final class MappedFileLoggerTest {
+
+	@SuppressWarnings("unused")
+	private static final String TAG = "MappedFileLoggerTest";
+
+	@Rule
+	public final TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testAppendRecords() throws IOException {
+		final MappedFileLogger logger = new MappedFileLogger(Log.DEBUG, folder.getRoot(), "app");
+		logger.v(TAG, "ignored");
+		logger.d(TAG, "first");
+		logger.e(TAG, "second \u00e9\u20ac");
+		logger.close();
+		final String[] lines = readLines(logger.getCurrentSegment());
+		assertThat(lines.length, is(2));
+		assertThat(lines[0].endsWith(" D/" + TAG + ": first"), is(true));
+		assertThat(lines[1].endsWith(" E/" + TAG + ": second \u00e9\u20ac"), is(true));
+		final long time = Long.parseLong(lines[0].substring(0, lines[0].indexOf(' ')));
+		assertThat(Math.abs(System.currentTimeMillis() - time) < 60000, is(true));
+	}
+
+	@Test
+	public void testRollAndRetention() throws IOException {
+		final MappedFileLogger logger = new MappedFileLogger(Log.VERBOSE, folder.getRoot(), "app", 128, 3);
+		for (int i = 0; i < 50; i++) {
+			logger.i(TAG, "record number " + i);
+		}
+		logger.close();
+		final File[] segments = logger.listSegments();
+		assertThat(segments.length, is(3));
+		assertThat(segments[2], is(logger.getCurrentSegment()));
+		final String[] lines = readLines(segments[2]);
+		assertThat(lines[lines.length - 1].endsWith("record number 49"), is(true));
+		for (final File segment : segments) {
+			assertThat(segment.length() <= 128, is(true));
+		}
+	}
+
+	@Test
+	public void testNewLoggerStartsNewSegment() throws IOException {
+		final MappedFileLogger first = new MappedFileLogger(Log.VERBOSE, folder.getRoot(), "app");
+		first.close();
+		new File(folder.getRoot(), "app-other-7.log").createNewFile();
+		final MappedFileLogger second = new MappedFileLogger(Log.VERBOSE, folder.getRoot(), "app");
+		second.close();
+		assertThat(second.listSegments().length, is(2));
+		assertThat(second.getCurrentSegment().getName(), is("app-1.log"));
+	}
+
+	@Test
+	public void testTruncateOversizedRecord() throws IOException {
+		final MappedFileLogger logger = new MappedFileLogger(Log.VERBOSE, folder.getRoot(), "app", 64, 2);
+		final StringBuilder message = new StringBuilder();
+		for (int i = 0; i < 200; i++) {
+			message.append('x');
+		}
+		logger.w(TAG, message.toString());
+		logger.close();
+		assertThat(logger.getCurrentSegment().length(), is(64L));
+		assertThat(logger.isClosed(), is(true));
+	}
+
+	private static String[] readLines(File file) throws IOException {
+		final byte[] bytes = new byte[(int) file.length()];
+		final FileInputStream stream = new FileInputStream(file);
+		try {
+			int offset = 0;
+			while (offset < bytes.length) {
+				offset += stream.read(bytes, offset, bytes.length - offset);
+			}
+		} finally {
+			stream.close();
+		}
+		return new String(bytes, "UTF-8").split("\n");
+	}
+}
@@ -0,0 +1,98 @@
+/*
+ * =================================================================================================
+ *                             Copyright (C) 2017 Universum Studios
+ * =================================================================================================
+ *         Licensed under the Apache License, Version 2.0 or later (further "License" only).
+ * -------------------------------------------------------------------------------------------------
+ * You may use this file only in compliance with the License. More details and copy of this License
+ * you may obtain at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * You can redistribute, modify or publish any part of the code written within this file but as it
+ * is described in the License, the software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES or CONDITIONS OF ANY KIND.
+ *
+ * See the License for the specific language governing permissions and limitations under the License.
+ * =================================================================================================
+ */
+package universum.studios.android.util;
+
+import android.util.Log;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import universum.studios.android.util.inner.RecordingLogger;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+/**
+ * @author Martin Albedinsky
+ */
+public final class MessageFormatterTest {
+
+	@SuppressWarnings("unused")
+	private static final String TAG = "MessageFormatterTest";
+
+	@Test
+	public void testFormatWithoutPlaceholder() {
+		final String template = "No placeholder.";
+		assertThat(MessageFormatter.format(template, "arg"), is(sameInstance(template)));
+		assertThat(MessageFormatter.format(template, 1), is(sameInstance(template)));
+	}
+
+	@Test
+	public void testFormatObject() {
+		assertThat(MessageFormatter.format("x={}.", "value"), is("x=value."));
+		assertThat(MessageFormatter.format("x={}", (Object) null), is("x=null"));
+	}
+
+	@Test
+	public void testFormatTwoObjects() {
+		assertThat(MessageFormatter.format("x={} y={}", "1", "2"), is("x=1 y=2"));
+		assertThat(MessageFormatter.format("x={}", "1", "2"), is("x=1"));
+	}
+
+	@Test
+	public void testFormatPrimitives() {
+		assertThat(MessageFormatter.format("int={}", 42), is("int=42"));
+		assertThat(MessageFormatter.format("long={}", 42L << 33), is("long=" + (42L << 33)));
+		assertThat(MessageFormatter.format("double={}", 0.5d), is("double=0.5"));
+	}
+
+	@Test
+	public void testFormatHugeMessage() {
+		final StringBuilder builder = new StringBuilder();
+		for (int i = 0; i < 10000; i++) {
+			builder.append('a');
+		}
+		final String huge = builder.toString();
+		assertThat(MessageFormatter.format("{}", huge), is(huge));
+		assertThat(MessageFormatter.format("{}!", "small"), is("small!"));
+	}
+
+	@Test
+	public void testArgumentLoggingInItsToString() {
+		final RecordingLogger logger = new RecordingLogger(Log.VERBOSE);
+		final Object arg = new Object() {
+
+			@Override
+			public String toString() {
+				logger.d(TAG, "inner={}, {}", "nested", 1);
+				return "outer";
+			}
+		};
+		logger.d(TAG, "first={}, second={}", arg, 2);
+		logger.d(TAG, "only={}", arg);
+		assertThat(logger.records(), is(Arrays.asList(
+				"D/" + TAG + ": inner=nested, 1",
+				"D/" + TAG + ": first=outer, second=2",
+				"D/" + TAG + ": inner=nested, 1",
+				"D/" + TAG + ": only=outer"
+		)));
+	}
+}
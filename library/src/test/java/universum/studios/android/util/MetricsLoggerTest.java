@@ -0,0 +1,124 @@
+/*
+ * =================================================================================================
+ *                             Copyright (C) 2017 Universum Studios
+ * =================================================================================================
+ *         Licensed under the Apache License, Version 2.0 or later (further "License" only).
+ * -------------------------------------------------------------------------------------------------
+ * You may use this file only in compliance with the License. More details and copy of this License
+ * you may obtain at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * You can redistribute, modify or publish any part of the code written within this file but as it
+ * is described in the License, the software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES or CONDITIONS OF ANY KIND.
+ *
+ * See the License for the specific language governing permissions and limitations under the License.
+ * =================================================================================================
+ */
+package universum.studios.android.util;
+
+import android.util.Log;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import universum.studios.android.util.inner.RecordingLogger;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.hasItem;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+/**
+ * @author Martin Albedinsky
+ */
+public final class MetricsLoggerTest {
+
+	@SuppressWarnings("unused")
+	private static final String TAG = "MetricsLoggerTest";
+
+	private RecordingLogger delegate;
+	private MetricsLogger logger;
+
+	@Before
+	public void beforeTest() {
+		this.delegate = new RecordingLogger(Log.DEBUG);
+		this.logger = new MetricsLogger(delegate);
+	}
+
+	@Test
+	public void testEmittedAndSuppressed() {
+		logger.v(TAG, "suppressed");
+		logger.d(TAG, "emitted");
+		logger.e(TAG, "emitted");
+		logger.e("Other", "emitted");
+		final LoggerMetrics.Snapshot snapshot = logger.getMetrics().snapshot();
+		assertThat(delegate.size(), is(3));
+		assertThat(snapshot.getEmittedCount(), is(3L));
+		assertThat(snapshot.getEmittedCount(Log.ERROR), is(2L));
+		assertThat(snapshot.getSuppressedCount(Log.VERBOSE), is(1L));
+		assertThat(snapshot.getTagEmittedCount(TAG), is(2L));
+		assertThat(snapshot.getTagSuppressedCount(TAG), is(1L));
+		assertThat(snapshot.getTagEmittedCount("Other"), is(1L));
+		assertThat(snapshot.getTags(), hasItem("Other"));
+		assertThat(snapshot.getLatencyCount(), is(3L));
+	}
+
+	@Test
+	public void testCountsFromMultipleThreads() throws Exception {
+		final Thread[] threads = new Thread[4];
+		for (int i = 0; i < threads.length; i++) {
+			threads[i] = new Thread(new Runnable() {
+
+				@Override
+				public void run() {
+					for (int j = 0; j < 1000; j++) {
+						logger.i(TAG, "message");
+					}
+				}
+			});
+			threads[i].start();
+		}
+		for (final Thread thread : threads) {
+			thread.join();
+		}
+		assertThat(logger.getMetrics().snapshot().getEmittedCount(Log.INFO), is(4000L));
+	}
+
+	@Test
+	public void testLatencyHistogram() {
+		final LoggerMetrics metrics = new LoggerMetrics();
+		for (int i = 0; i < 98; i++) {
+			metrics.recordEmitted(Log.DEBUG, TAG, 100);
+		}
+		metrics.recordEmitted(Log.DEBUG, TAG, 5000);
+		metrics.recordEmitted(Log.DEBUG, TAG, 0);
+		final LoggerMetrics.Snapshot snapshot = metrics.snapshot();
+		assertThat(snapshot.getLatencyHistogram()[LoggerMetrics.latencyBucket(100)], is(98L));
+		assertThat(snapshot.getLatencyPercentile(0.5), is(127L));
+		assertThat(snapshot.getLatencyPercentile(1), is(8191L));
+		assertThat(snapshot.getTotalLatency(), is(98 * 100L + 5000L));
+	}
+
+	@Test
+	public void testTagsLimit() {
+		final LoggerMetrics metrics = new LoggerMetrics();
+		for (int i = 0; i < LoggerMetrics.MAX_TAGS + 10; i++) {
+			metrics.recordSuppressed(Log.DEBUG, "tag" + i);
+		}
+		final LoggerMetrics.Snapshot snapshot = metrics.snapshot();
+		assertThat(snapshot.getTags().size(), is(LoggerMetrics.MAX_TAGS + 1));
+		assertThat(snapshot.getTagSuppressedCount(LoggerMetrics.OTHER_TAGS), is(10L));
+	}
+
+	@Test
+	public void testExportAndReset() {
+		logger.w(TAG, "emitted");
+		assertThat(logger.getMetrics().snapshot().toString(), containsString("emitted.W=1\n"));
+		assertThat(logger.getMetrics().snapshot().toString(), containsString("tag." + TAG + ".emitted=1\n"));
+		logger.getMetrics().reset();
+		assertThat(logger.getMetrics().snapshot().getEmittedCount(), is(0L));
+		assertThat(logger.getMetrics().snapshot().getTags().isEmpty(), is(true));
+	}
+}
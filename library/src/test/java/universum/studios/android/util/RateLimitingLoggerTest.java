@@ -0,0 +1,177 @@
+/*
+ * =================================================================================================
+ *                             Copyright (C) 2017 Universum Studios
+ * =================================================================================================
+ *         Licensed under the Apache License, Version 2.0 or later (further "License" only).
+ * -------------------------------------------------------------------------------------------------
+ * You may use this file only in compliance with the License. More details and copy of this License
+ * you may obtain at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * You can redistribute, modify or publish any part of the code written within this file but as it
+ * is described in the License, the software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES or CONDITIONS OF ANY KIND.
+ *
+ * See the License for the specific language governing permissions and limitations under the License.
+ * =================================================================================================
+ */
+package universum.studios.android.util;
+
+import android.util.Log;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import universum.studios.android.util.inner.RecordingLogger;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+/**
+ * @author Martin Albedinsky
+ */
+public final class RateLimitingLoggerTest {
+
+	@SuppressWarnings("unused")
+	private static final String TAG = "RateLimitingLoggerTest";
+
+	private RecordingLogger delegate;
+	private TestLogger logger;
+
+	@Before
+	public void beforeTest() {
+		this.delegate = new RecordingLogger(Log.VERBOSE);
+		// 10 records per second, that is one permit each 100ms, with burst of 2.
+		this.logger = new TestLogger(delegate, 10, 2);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidRate() {
+		new RateLimitingLogger(delegate, 0, 1);
+	}
+
+	@Test
+	public void testBurstThenSummary() {
+		for (int i = 0; i < 5; i++) {
+			logger.d(TAG, "message " + i);
+		}
+		logger.w(TAG, "warning");
+		assertThat(delegate.records(), is(Arrays.asList("D/" + TAG + ": message 0", "D/" + TAG + ": message 1")));
+		assertThat(logger.getSuppressedCount(TAG), is(4));
+		logger.time += 100000000L;
+		logger.d(TAG, "message 5");
+		assertThat(logger.getSuppressedCount(TAG), is(0));
+		assertThat(delegate.size(), is(4));
+		assertThat(delegate.records().get(2), is("W/" + TAG + ": Suppressed 4 messages."));
+		assertThat(delegate.records().get(3), is("D/" + TAG + ": message 5"));
+	}
+
+	@Test
+	public void testTagsHaveOwnBuckets() {
+		logger.d(TAG, "a");
+		logger.d(TAG, "b");
+		logger.d(TAG, "c");
+		logger.d("Other", "a");
+		assertThat(delegate.size(), is(3));
+		assertThat(logger.getSuppressedCount(TAG), is(1));
+		assertThat(logger.getSuppressedCount("Other"), is(0));
+	}
+
+	@Test
+	public void testTagsBeyondMaxShareBucket() {
+		for (int i = 0; i < RateLimitingLogger.MAX_TAGS; i++) {
+			logger.d("Tag" + i, "a");
+		}
+		logger.d("Dynamic1", "a");
+		logger.d("Dynamic2", "a");
+		logger.d("Dynamic3", "a");
+		assertThat(delegate.size(), is(RateLimitingLogger.MAX_TAGS + 2));
+		assertThat(logger.getSuppressedCount("Dynamic3"), is(0));
+		assertThat(logger.getSuppressedCount(RateLimitingLogger.OTHER_TAGS), is(1));
+		logger.flush();
+		assertThat(delegate.records().get(delegate.size() - 1), is("D/" + RateLimitingLogger.OTHER_TAGS + ": Suppressed 1 messages."));
+	}
+
+	@Test
+	public void testAssertIsNotLimited() {
+		for (int i = 0; i < 5; i++) {
+			logger.wtf(TAG, "failure");
+		}
+		assertThat(delegate.size(), is(5));
+	}
+
+	@Test
+	public void testSampling() {
+		logger = new TestLogger(delegate, 1000, 1000);
+		logger.setSampleRate(3);
+		for (int i = 0; i < 7; i++) {
+			logger.i(TAG, "message " + i);
+		}
+		assertThat(delegate.records(), is(Arrays.asList(
+				"I/" + TAG + ": message 0",
+				"I/" + TAG + ": Suppressed 2 messages.",
+				"I/" + TAG + ": message 3",
+				"I/" + TAG + ": Suppressed 2 messages.",
+				"I/" + TAG + ": message 6"
+		)));
+	}
+
+	@Test
+	public void testSummaryAfterStormStops() {
+		for (int i = 0; i < 5; i++) {
+			logger.d(TAG, "message " + i);
+		}
+		assertThat(logger.scheduledChecks, is(1));
+		logger.time += 50000000L;
+		logger.checkSummaries();
+		assertThat(delegate.size(), is(2));
+		assertThat(logger.scheduledChecks, is(2));
+		logger.time += 60000000L;
+		logger.checkSummaries();
+		assertThat(delegate.records().get(2), is("D/" + TAG + ": Suppressed 3 messages."));
+		assertThat(logger.getSuppressedCount(TAG), is(0));
+		assertThat(logger.scheduledChecks, is(2));
+	}
+
+	@Test
+	public void testFlush() {
+		for (int i = 0; i < 3; i++) {
+			logger.e(TAG, "error");
+		}
+		logger.flush();
+		assertThat(delegate.records().get(2), is("E/" + TAG + ": Suppressed 1 messages."));
+		logger.flush();
+		assertThat(delegate.size(), is(3));
+	}
+
+	@Test
+	public void testLevelIsDelegated() {
+		delegate.setLogLevel(Log.ERROR);
+		logger.d(TAG, "rejected");
+		assertThat(logger.getSuppressedCount(TAG), is(0));
+		assertThat(delegate.size(), is(0));
+	}
+
+	private static final class TestLogger extends RateLimitingLogger {
+
+		long time = 1000000000L;
+		int scheduledChecks;
+
+		TestLogger(Logger delegate, double permitsPerSecond, int burst) {
+			super(delegate, permitsPerSecond, burst);
+		}
+
+		@Override
+		long nanoTime() {
+			return time;
+		}
+
+		@Override
+		void schedule(Runnable task, long delayNanos) {
+			this.scheduledChecks++;
+		}
+	}
+}
@@ -0,0 +1,121 @@
+/*
+ * =================================================================================================
+ *                             Copyright (C) 2017 Universum Studios
+ * =================================================================================================
+ *         Licensed under the Apache License, Version 2.0 or later (further "License" only).
+ * -------------------------------------------------------------------------------------------------
+ * You may use this file only in compliance with the License. More details and copy of this License
+ * you may obtain at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * You can redistribute, modify or publish any part of the code written within this file but as it
+ * is described in the License, the software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES or CONDITIONS OF ANY KIND.
+ *
+ * See the License for the specific language governing permissions and limitations under the License.
+ * =================================================================================================
+ */
+package universum.studios.android.util;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.Log;
+
+import org.junit.Test;
+
+import universum.studios.android.util.inner.RecordingLogger;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+/**
+ * @author Martin Albedinsky
+ */
+public final class RedactingLoggerTest {
+
+	@SuppressWarnings("unused")
+	private static final String TAG = "RedactingLoggerTest";
+
+	@Test
+	public void testNoMatchPassesSameInstance() {
+		final CapturingLogger delegate = new CapturingLogger();
+		final RedactingLogger logger = new RedactingLogger(delegate);
+		logger.addKey("token");
+		logger.addLiteral("s3cr3t");
+		logger.setRedactEmails(true);
+		final String message = "Synced 12 items in 30 ms, tokens refreshed at home";
+		logger.i(TAG, message);
+		assertThat(delegate.message, is(sameInstance(message)));
+		assertThat(logger.redact(message), is(sameInstance(message)));
+	}
+
+	@Test
+	public void testRedactLiterals() {
+		final RedactingLogger logger = new RedactingLogger(new RecordingLogger());
+		logger.addLiteral("s3cr3t");
+		logger.addLiteral("cr3t-key");
+		logger.addLiteral("he");
+		logger.addLiteral("she");
+		logger.setReplacement("***");
+		assertThat(logger.redact("value S3CR3T-KEY end"), is("value *** end"));
+		assertThat(logger.redact("ushers"), is("u***rs"));
+		assertThat(logger.redact("s3cr3ts3cr3t"), is("***"));
+	}
+
+	@Test
+	public void testRedactKeyValues() {
+		final RedactingLogger logger = new RedactingLogger(new RecordingLogger());
+		logger.addKey("token");
+		logger.addKey("password");
+		logger.addKey("Authorization");
+		assertThat(logger.redact("GET /sync?token=abc123&page=2"), is("GET /sync?token=[REDACTED]&page=2"));
+		assertThat(logger.redact("{\"password\":\"p a s s\",\"user\":\"john\"}"), is("{\"password\":\"[REDACTED]\",\"user\":\"john\"}"));
+		assertThat(logger.redact("authorization: Bearer xyz"), is("authorization: [REDACTED] xyz"));
+		assertThat(logger.redact("accessToken=abc, token = def;"), is("accessToken=abc, token = [REDACTED];"));
+		assertThat(logger.redact("token expired"), is("token expired"));
+	}
+
+	@Test
+	public void testRedactEmailsAndDigitRuns() {
+		final RedactingLogger logger = new RedactingLogger(new RecordingLogger());
+		logger.setRedactEmails(true);
+		logger.setMinDigitRunLength(8);
+		assertThat(logger.isRedactingEmails(), is(true));
+		assertThat(logger.getMinDigitRunLength(), is(8));
+		assertThat(logger.redact("Mail sent to john.doe+news@mail.example.com."), is("Mail sent to [REDACTED]."));
+		assertThat(logger.redact("Not an email: user@localhost @ home"), is("Not an email: user@localhost @ home"));
+		assertThat(logger.redact("Card 4111111111111111 for order 1234"), is("Card [REDACTED] for order 1234"));
+		assertThat(logger.redact("id 12345678"), is("id [REDACTED]"));
+	}
+
+	@Test
+	public void testRedactRecords() {
+		final RecordingLogger delegate = new RecordingLogger(Log.DEBUG);
+		final RedactingLogger logger = new RedactingLogger(delegate);
+		logger.addKey("token");
+		logger.v(TAG, "token=ignored");
+		logger.d(TAG, "login token=abc");
+		logger.e(TAG, "failed", new IllegalStateException("token=xyz"));
+		logger.e(TAG, "failed", new IllegalStateException("plain"));
+		assertThat(delegate.size(), is(3));
+		assertThat(delegate.records().get(0), is("D/" + TAG + ": login token=[REDACTED]"));
+		assertThat(delegate.records().get(1).startsWith("E/" + TAG + ": failed\njava.lang.IllegalStateException: token=[REDACTED]\n"), is(true));
+		assertThat(delegate.records().get(2), is("E/" + TAG + ": failed [IllegalStateException]"));
+	}
+
+	private static final class CapturingLogger extends BaseLogger {
+
+		String message;
+
+		CapturingLogger() {
+			super(Log.VERBOSE);
+		}
+
+		@Override
+		protected void onLog(int level, @NonNull String tag, @Nullable String msg, @Nullable Throwable tr) {
+			this.message = msg;
+		}
+	}
+}
@@ -0,0 +1,203 @@
+/*
+ * =================================================================================================
+ *                             Copyright (C) 2017 Universum Studios
+ * =================================================================================================
+ *         Licensed under the Apache License, Version 2.0 or later (further "License" only).
+ * -------------------------------------------------------------------------------------------------
+ * You may use this file only in compliance with the License. More details and copy of this License
+ * you may obtain at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * You can redistribute, modify or publish any part of the code written within this file but as it
+ * is described in the License, the software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES or CONDITIONS OF ANY KIND.
+ *
+ * See the License for the specific language governing permissions and limitations under the License.
+ * =================================================================================================
+ */
+package universum.studios.android.util;
+
+import android.support.annotation.NonNull;
+import android.util.Log;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+/**
+ * @author Martin Albedinsky
+ */
+public final class SegmentCompressorTest {
+
+	@SuppressWarnings("unused")
+	private static final String TAG = "SegmentCompressorTest";
+
+	@Rule
+	public final TemporaryFolder folder = new TemporaryFolder();
+
+	private SegmentCompressor compressor;
+
+	@After
+	public void afterTest() {
+		if (compressor != null) compressor.close();
+	}
+
+	@Test
+	public void testCompressClosedSegments() throws Exception {
+		this.compressor = new SegmentCompressor(4 * MappedFileLogger.DEFAULT_SEGMENT_SIZE);
+		final MappedFileLogger logger = new MappedFileLogger(Log.VERBOSE, folder.getRoot(), "app", 256, 1);
+		logger.setSegmentCompressor(compressor);
+		for (int i = 0; i < 40; i++) {
+			logger.i(TAG, "record number " + i);
+		}
+		assertThat(compressor.awaitIdle(5000), is(true));
+		final File[] segments = logger.listSegments();
+		assertThat(segments.length, is(1));
+		assertThat(segments[0], is(logger.getCurrentSegment()));
+		final File[] compressed = logger.listCompressedSegments();
+		assertThat(compressed.length > 1, is(true));
+		assertThat(compressed[0].getName(), is("app-0" + MappedFileLogger.COMPRESSED_SEGMENT_EXTENSION));
+		logger.close();
+		final SegmentReader reader = new SegmentReader(logger);
+		for (int i = 0; i < 40; i++) {
+			final String line = reader.readLine();
+			assertThat(line.endsWith(" I/" + TAG + ": record number " + i), is(true));
+		}
+		assertThat(reader.readLine(), is(nullValue()));
+		reader.close();
+	}
+
+	@Test
+	public void testEnforceMaxDiskSize() throws Exception {
+		this.compressor = new SegmentCompressor(1024);
+		final MappedFileLogger logger = new MappedFileLogger(Log.VERBOSE, folder.getRoot(), "app", 512, 1);
+		logger.setSegmentCompressor(compressor);
+		for (int i = 0; i < 200; i++) {
+			logger.i(TAG, "record number " + i + " with some text " + Math.random());
+		}
+		assertThat(compressor.awaitIdle(5000), is(true));
+		long size = logger.getCurrentSegment().length();
+		for (final File segment : logger.listCompressedSegments()) {
+			size += segment.length();
+		}
+		assertThat(size <= 1024, is(true));
+		assertThat(logger.getCurrentSegment().exists(), is(true));
+		logger.close();
+	}
+
+	@Test
+	public void testCompressExistingSegments() throws Exception {
+		final MappedFileLogger first = new MappedFileLogger(Log.VERBOSE, folder.getRoot(), "app");
+		first.d(TAG, "first");
+		first.close();
+		final MappedFileLogger second = new MappedFileLogger(Log.VERBOSE, folder.getRoot(), "app");
+		this.compressor = new SegmentCompressor(4 * MappedFileLogger.DEFAULT_SEGMENT_SIZE);
+		second.setSegmentCompressor(compressor);
+		assertThat(compressor.awaitIdle(5000), is(true));
+		assertThat(second.listSegments().length, is(1));
+		assertThat(second.listCompressedSegments().length, is(1));
+		second.d(TAG, "second");
+		second.close();
+		final MappedFileLogger third = new MappedFileLogger(Log.VERBOSE, folder.getRoot(), "app");
+		third.close();
+		assertThat(third.getCurrentSegment().getName(), is("app-2.log"));
+		final SegmentReader reader = new SegmentReader(third);
+		assertThat(reader.readLine().endsWith("first"), is(true));
+		assertThat(reader.readLine().endsWith("second"), is(true));
+		assertThat(reader.readLine(), is(nullValue()));
+		reader.close();
+	}
+
+	@Test
+	public void testSkipMissingSegment() throws Exception {
+		this.compressor = new SegmentCompressor(4 * MappedFileLogger.DEFAULT_SEGMENT_SIZE);
+		final MappedFileLogger logger = new MappedFileLogger(Log.VERBOSE, folder.getRoot(), "app");
+		compressor.enqueue(logger, new File(folder.getRoot(), "app-7.log"));
+		assertThat(compressor.awaitIdle(5000), is(true));
+		assertThat(logger.listCompressedSegments().length, is(0));
+		logger.close();
+	}
+
+	@Test
+	public void testClosedCompressorLeavesRetentionToLogger() throws Exception {
+		this.compressor = new SegmentCompressor(4 * MappedFileLogger.DEFAULT_SEGMENT_SIZE);
+		compressor.close();
+		final MappedFileLogger logger = new MappedFileLogger(Log.VERBOSE, folder.getRoot(), "app", 256, 2);
+		logger.setSegmentCompressor(compressor);
+		for (int i = 0; i < 40; i++) {
+			logger.i(TAG, "record number " + i);
+		}
+		assertThat(logger.listSegments().length, is(2));
+		assertThat(logger.listCompressedSegments().length, is(0));
+		logger.close();
+	}
+
+	@Test
+	public void testUnexpectedFailureDoesNotStopCompressing() throws Exception {
+		final List<String> warnings = Collections.synchronizedList(new ArrayList<String>());
+		this.compressor = new SegmentCompressor(4 * MappedFileLogger.DEFAULT_SEGMENT_SIZE) {
+
+			@Override
+			void logWarning(String message, Throwable error) {
+				warnings.add(message);
+			}
+		};
+		final AtomicBoolean broken = new AtomicBoolean();
+		final MappedFileLogger failing = new MappedFileLogger(Log.VERBOSE, folder.newFolder("failing"), "app", 256, 1) {
+
+			@NonNull
+			@Override
+			public File[] listCompressedSegments() {
+				if (broken.get()) throw new IllegalStateException();
+				return super.listCompressedSegments();
+			}
+		};
+		broken.set(true);
+		failing.setSegmentCompressor(compressor);
+		for (int i = 0; i < 20; i++) {
+			failing.i(TAG, "record number " + i);
+		}
+		assertThat(compressor.awaitIdle(5000), is(true));
+		assertThat(warnings.isEmpty(), is(false));
+		final MappedFileLogger logger = new MappedFileLogger(Log.VERBOSE, folder.newFolder("working"), "app", 256, 1);
+		logger.setSegmentCompressor(compressor);
+		for (int i = 0; i < 20; i++) {
+			logger.i(TAG, "record number " + i);
+		}
+		assertThat(compressor.awaitIdle(5000), is(true));
+		assertThat(logger.listCompressedSegments().length > 0, is(true));
+		failing.close();
+		logger.close();
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidMaxDiskSize() {
+		new SegmentCompressor(0);
+	}
+
+	@Test
+	public void testReadLinesIgnoresUnusedSpace() throws IOException {
+		final MappedFileLogger logger = new MappedFileLogger(Log.VERBOSE, folder.getRoot(), "app");
+		logger.w(TAG, "only");
+		logger.flush();
+		// Segment is not closed, so its preallocated space is still filled with zeros.
+		final SegmentReader reader = new SegmentReader(logger.getCurrentSegment());
+		assertThat(reader.readLine().endsWith("W/" + TAG + ": only"), is(true));
+		assertThat(reader.readLine(), is(nullValue()));
+		reader.close();
+		logger.close();
+	}
+}
@@ -0,0 +1,184 @@
+/*
+ * =================================================================================================
+ *                             Copyright (C) 2017 Universum Studios
+ * =================================================================================================
+ *         Licensed under the Apache License, Version 2.0 or later (further "License" only).
+ * -------------------------------------------------------------------------------------------------
+ * You may use this file only in compliance with the License. More details and copy of this License
+ * you may obtain at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * You can redistribute, modify or publish any part of the code written within this file but as it
+ * is described in the License, the software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES or CONDITIONS OF ANY KIND.
+ *
+ * See the License for the specific language governing permissions and limitations under the License.
+ * =================================================================================================
+ */
+package universum.studios.android.util;
+
+import android.util.Log;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+/**
+ * @author Martin Albedinsky
+ */
+public final class SharedMemoryLoggerTest {
+
+	@SuppressWarnings("unused")
+	private static final String TAG = "SharedMemoryLoggerTest";
+
+	@Rule
+	public final TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testMergeRecordsOfMultipleLoggers() throws Exception {
+		final File file = new File(folder.getRoot(), "shared.log");
+		final SharedMemoryLogger ui = new TestLogger(Log.DEBUG, file);
+		final SharedMemoryLogger sync = new TestLogger(Log.DEBUG, file);
+		ui.v("Ui", "ignored");
+		ui.i("Ui", "first");
+		sync.w("Sync", "second \u00e9\u20ac");
+		ui.d("Ui", "third");
+		final List<SharedMemoryLogger.Record> records = sync.readRecords();
+		assertThat(records.size(), is(3));
+		assertThat(records.get(0).getTag(), is("Ui"));
+		assertThat(records.get(0).getLevel(), is(Log.INFO));
+		assertThat(records.get(0).getMessage(), is("first"));
+		assertThat(records.get(0).getProcessId(), is(TestLogger.PID));
+		assertThat(records.get(1).getTag(), is("Sync"));
+		assertThat(records.get(1).getMessage(), is("second \u00e9\u20ac"));
+		assertThat(records.get(2).getMessage(), is("third"));
+		assertThat(records.get(1).toString().endsWith(" W/Sync: second \u00e9\u20ac"), is(true));
+		for (int i = 1; i < records.size(); i++) {
+			assertThat(records.get(i - 1).getTime() <= records.get(i).getTime(), is(true));
+		}
+		ui.close();
+		sync.close();
+	}
+
+	@Test
+	public void testRecordSpanningSlots() throws IOException {
+		final SharedMemoryLogger logger = new TestLogger(Log.VERBOSE, new File(folder.getRoot(), "shared.log"), 64, 512);
+		final StringBuilder message = new StringBuilder();
+		for (int i = 0; i < 100; i++) {
+			message.append("part").append(i).append(i % 10 == 0 ? "\u20ac" : " ");
+		}
+		logger.e(TAG, message.toString(), new IllegalStateException("boom"));
+		final List<SharedMemoryLogger.Record> records = logger.readRecords();
+		assertThat(records.size(), is(1));
+		assertThat(records.get(0).getMessage().startsWith(message + "\njava.lang.IllegalStateException: boom"), is(true));
+		logger.close();
+	}
+
+	@Test
+	public void testTruncateOversizedRecord() throws IOException {
+		final SharedMemoryLogger logger = new TestLogger(Log.VERBOSE, new File(folder.getRoot(), "shared.log"), 64, 8);
+		final StringBuilder message = new StringBuilder();
+		for (int i = 0; i < 1000; i++) {
+			message.append('x');
+		}
+		logger.i(TAG, message.toString());
+		final List<SharedMemoryLogger.Record> records = logger.readRecords();
+		assertThat(records.size(), is(1));
+		assertThat(records.get(0).getTag(), is(TAG));
+		assertThat(message.toString().startsWith(records.get(0).getMessage()), is(true));
+		assertThat(records.get(0).getMessage().length() < 128, is(true));
+		logger.close();
+	}
+
+	@Test
+	public void testOverwriteOldestRecords() throws IOException {
+		final SharedMemoryLogger logger = new TestLogger(Log.VERBOSE, new File(folder.getRoot(), "shared.log"), 64, 16);
+		for (int i = 0; i < 100; i++) {
+			logger.i(TAG, i % 7 == 0 ? "long record number " + i + " that spans over two slots" : "record " + i);
+		}
+		final List<SharedMemoryLogger.Record> records = logger.readRecords();
+		assertThat(records.isEmpty(), is(false));
+		assertThat(records.size() <= 16, is(true));
+		assertThat(records.get(records.size() - 1).getMessage(), is("record 99"));
+		for (final SharedMemoryLogger.Record record : records) {
+			assertThat(record.getMessage().startsWith("record ") || record.getMessage().startsWith("long record number "), is(true));
+		}
+		logger.close();
+	}
+
+	@Test
+	public void testAdoptExistingGeometry() throws IOException {
+		final File file = new File(folder.getRoot(), "shared.log");
+		final SharedMemoryLogger first = new TestLogger(Log.VERBOSE, file, 128, 32);
+		first.i(TAG, "kept");
+		final SharedMemoryLogger second = new TestLogger(Log.VERBOSE, file);
+		assertThat(second.getSlotSize(), is(128));
+		assertThat(second.getSlotCount(), is(32));
+		assertThat(second.readRecords().get(0).getMessage(), is("kept"));
+		first.close();
+		second.close();
+	}
+
+	@Test
+	public void testConcurrentLoggers() throws Exception {
+		final File file = new File(folder.getRoot(), "shared.log");
+		final SharedMemoryLogger[] loggers = {
+				new TestLogger(Log.VERBOSE, file, 128, 8192),
+				new TestLogger(Log.VERBOSE, file, 128, 8192)
+		};
+		final Thread[] threads = new Thread[4];
+		for (int t = 0; t < threads.length; t++) {
+			final int id = t;
+			threads[t] = new Thread(new Runnable() {
+
+				@Override
+				public void run() {
+					for (int i = 0; i < 500; i++) {
+						loggers[id % 2].i("T" + id, "record " + i);
+					}
+				}
+			});
+			threads[t].start();
+		}
+		for (final Thread thread : threads) {
+			thread.join();
+		}
+		final List<SharedMemoryLogger.Record> records = loggers[0].readRecords();
+		assertThat(records.size(), is(2000));
+		final Set<String> unique = new HashSet<>();
+		for (final SharedMemoryLogger.Record record : records) {
+			unique.add(record.getTag() + ":" + record.getMessage());
+		}
+		assertThat(unique.size(), is(2000));
+		loggers[0].close();
+		loggers[1].close();
+	}
+
+	private static final class TestLogger extends SharedMemoryLogger {
+
+		static final int PID = 1234;
+
+		TestLogger(int level, File file) throws IOException {
+			super(level, file);
+		}
+
+		TestLogger(int level, File file, int slotSize, int slotCount) throws IOException {
+			super(level, file, slotSize, slotCount);
+		}
+
+		@Override
+		int myPid() {
+			return PID;
+		}
+	}
+}
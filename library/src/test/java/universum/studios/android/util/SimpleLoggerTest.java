@@ -0,0 +1,129 @@
+/*
+ * =================================================================================================
+ *                             Copyright (C) 2017 Universum Studios
+ * =================================================================================================
+ *         Licensed under the Apache License, Version 2.0 or later (further "License" only).
+ * -------------------------------------------------------------------------------------------------
+ * You may use this file only in compliance with the License. More details and copy of this License
+ * you may obtain at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * You can redistribute, modify or publish any part of the code written within this file but as it
+ * is described in the License, the software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES or CONDITIONS OF ANY KIND.
+ *
+ * See the License for the specific language governing permissions and limitations under the License.
+ * =================================================================================================
+ */
+package universum.studios.android.util;
+
+import android.support.annotation.NonNull;
+import android.util.Log;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+/**
+ * @author Martin Albedinsky
+ */
+public final class SimpleLoggerTest {
+
+	@SuppressWarnings("unused")
+	private static final String TAG = "SimpleLoggerTest";
+
+	private ChunkSink sink;
+	private SimpleLogger logger;
+
+	@Before
+	public void beforeTest() {
+		this.sink = new ChunkSink();
+		this.logger = new SimpleLogger(Log.VERBOSE, sink);
+		logger.setChunkSize(32);
+	}
+
+	@Test
+	public void testShortMessageIsNotChunked() {
+		final String message = "short";
+		logger.forceLog(Log.INFO, TAG, message);
+		assertThat(sink.chunks.size(), is(1));
+		assertThat(sink.sequences.get(0), is(sameInstance((CharSequence) message)));
+	}
+
+	@Test
+	public void testChunksOnLineBoundaries() {
+		logger.d(TAG, "first line of the message\nsecond line of the message\nthird");
+		assertThat(sink.chunks.size(), is(3));
+		assertThat(sink.chunks.get(0), is("first line of the message"));
+		assertThat(sink.chunks.get(1), is(SimpleLogger.CONTINUATION_MARKER + "second line of the message"));
+		assertThat(sink.chunks.get(2), is(SimpleLogger.CONTINUATION_MARKER + "third"));
+	}
+
+	@Test
+	public void testChunksWithoutLineBoundaries() {
+		final StringBuilder message = new StringBuilder();
+		for (int i = 0; i < 100; i++) {
+			message.append((char) ('a' + i % 26));
+		}
+		logger.forceLog(Log.WARN, TAG, message.toString());
+		final StringBuilder joined = new StringBuilder();
+		for (int i = 0; i < sink.chunks.size(); i++) {
+			final String chunk = sink.chunks.get(i);
+			assertThat(chunk.length() <= 32, is(true));
+			joined.append(i == 0 ? chunk : chunk.substring(SimpleLogger.CONTINUATION_MARKER.length()));
+		}
+		assertThat(joined.toString(), is(message.toString()));
+		assertThat(sink.chunks.get(0).length(), is(32));
+	}
+
+	@Test
+	public void testChunksAreMeasuredInBytes() {
+		final StringBuilder message = new StringBuilder();
+		for (int i = 0; i < 20; i++) {
+			// Each character occupies 3 bytes and each surrogate pair 4 bytes.
+			message.append('\u20ac').append("\ud83d\ude00");
+		}
+		logger.forceLog(Log.ERROR, TAG, message.toString());
+		final StringBuilder joined = new StringBuilder();
+		for (int i = 0; i < sink.chunks.size(); i++) {
+			final String chunk = sink.chunks.get(i);
+			assertThat(utf8Length(chunk) <= 32, is(true));
+			assertThat(Character.isHighSurrogate(chunk.charAt(chunk.length() - 1)), is(false));
+			joined.append(i == 0 ? chunk : chunk.substring(SimpleLogger.CONTINUATION_MARKER.length()));
+		}
+		assertThat(joined.toString(), is(message.toString()));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidChunkSize() {
+		logger.setChunkSize(8);
+	}
+
+	private static int utf8Length(String chunk) {
+		try {
+			return chunk.getBytes("UTF-8").length;
+		} catch (UnsupportedEncodingException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	private static final class ChunkSink implements LogSink {
+
+		final List<String> chunks = new ArrayList<>();
+		final List<CharSequence> sequences = new ArrayList<>();
+
+		@Override
+		public void write(int level, @NonNull String tag, @NonNull CharSequence msg, int start, int end) {
+			sequences.add(msg);
+			chunks.add(msg.subSequence(start, end).toString());
+		}
+	}
+}
@@ -0,0 +1,140 @@
+/*
+ * =================================================================================================
+ *                             Copyright (C) 2017 Universum Studios
+ * =================================================================================================
+ *         Licensed under the Apache License, Version 2.0 or later (further "License" only).
+ * -------------------------------------------------------------------------------------------------
+ * You may use this file only in compliance with the License. More details and copy of this License
+ * you may obtain at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * You can redistribute, modify or publish any part of the code written within this file but as it
+ * is described in the License, the software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES or CONDITIONS OF ANY KIND.
+ *
+ * See the License for the specific language governing permissions and limitations under the License.
+ * =================================================================================================
+ */
+package universum.studios.android.util;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import universum.studios.android.util.inner.RecordingLogger;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+/**
+ * @author Martin Albedinsky
+ */
+public final class StackTraceCacheTest {
+
+	@SuppressWarnings("unused")
+	private static final String TAG = "StackTraceCacheTest";
+
+	private StackTraceCache cache;
+
+	@Before
+	public void beforeTest() {
+		this.cache = new StackTraceCache(2);
+	}
+
+	@Test
+	public void testSameSiteIsCached() {
+		String first = null;
+		for (int i = 0; i < 3; i++) {
+			final String stackTrace = cache.get(createError("failure"));
+			if (first == null) first = stackTrace;
+			assertThat(stackTrace, is(sameInstance(first)));
+		}
+		assertThat(first, containsString("IllegalStateException: failure"));
+		assertThat(cache.getMissCount(), is(1L));
+		assertThat(cache.getHitCount(), is(2L));
+	}
+
+	@Test
+	public void testDifferentMessageIsNotCached() {
+		final String first = cache.get(createError("first"));
+		final String second = cache.get(createError("second"));
+		assertThat(second, is(not(first)));
+		assertThat(second, containsString("second"));
+		assertThat(cache.getMissCount(), is(2L));
+	}
+
+	@Test
+	public void testCauseIsPartOfFingerprint() {
+		final String plain = cache.get(createError("failure"));
+		final String caused = cache.get(createError("failure", new RuntimeException("cause")));
+		assertThat(caused, is(not(plain)));
+		assertThat(caused, containsString("Caused by: java.lang.RuntimeException: cause"));
+	}
+
+	@Test
+	public void testSuppressedAreNotCached() {
+		// Errors must be created at the same site, otherwise their frames differ.
+		final String[] stackTraces = new String[3];
+		for (int i = 0; i < stackTraces.length; i++) {
+			final Throwable error = createError("failure");
+			if (i == 1) error.addSuppressed(new RuntimeException("suppressed"));
+			stackTraces[i] = cache.get(error);
+		}
+		assertThat(stackTraces[0], not(containsString("Suppressed:")));
+		assertThat(stackTraces[1], containsString("Suppressed: java.lang.RuntimeException: suppressed"));
+		assertThat(stackTraces[2], is(sameInstance(stackTraces[0])));
+		assertThat(cache.size(), is(1));
+	}
+
+	@Test
+	public void testLongCauseChainIsNotCached() {
+		Throwable error = createError("root");
+		for (int i = 0; i < 20; i++) {
+			error = createError("wrapper", error);
+		}
+		final String first = cache.get(error);
+		assertThat(first, containsString("Caused by: java.lang.IllegalStateException: root"));
+		assertThat(cache.get(error), is(not(sameInstance(first))));
+		assertThat(cache.size(), is(0));
+	}
+
+	@Test
+	public void testLeastRecentlyUsedIsEvicted() {
+		// Errors must be created at the same site, otherwise their frames differ.
+		for (final String message : new String[]{"a", "b", "a", "c", "a", "b"}) {
+			cache.get(createError(message));
+		}
+		assertThat(cache.size(), is(2));
+		assertThat(cache.getHitCount(), is(2L));
+		assertThat(cache.getMissCount(), is(4L));
+	}
+
+	@Test
+	public void testNullThrowable() {
+		assertThat(cache.get(null), is(""));
+		assertThat(cache.getMissCount(), is(0L));
+	}
+
+	@Test
+	public void testUsedByLogger() {
+		final RecordingLogger logger = new RecordingLogger();
+		logger.setStackTraceCache(cache);
+		final String[] stackTraces = new String[2];
+		for (int i = 0; i < stackTraces.length; i++) {
+			stackTraces[i] = logger.getStackTraceString(createError("failure"));
+		}
+		assertThat(stackTraces[1], is(sameInstance(stackTraces[0])));
+		assertThat(cache.getHitCount(), is(1L));
+	}
+
+	private static Throwable createError(String message) {
+		return new IllegalStateException(message);
+	}
+
+	private static Throwable createError(String message, Throwable cause) {
+		return new IllegalStateException(message, cause);
+	}
+}
@@ -0,0 +1,148 @@
+/*
+ * =================================================================================================
+ *                             Copyright (C) 2017 Universum Studios
+ * =================================================================================================
+ *         Licensed under the Apache License, Version 2.0 or later (further "License" only).
+ * -------------------------------------------------------------------------------------------------
+ * You may use this file only in compliance with the License. More details and copy of this License
+ * you may obtain at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * You can redistribute, modify or publish any part of the code written within this file but as it
+ * is described in the License, the software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES or CONDITIONS OF ANY KIND.
+ *
+ * See the License for the specific language governing permissions and limitations under the License.
+ * =================================================================================================
+ */
+package universum.studios.android.util;
+
+import org.junit.Test;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.net.UnknownHostException;
+
+import universum.studios.android.util.inner.RecordingLogger;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.endsWith;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.startsWith;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+/**
+ * @author Martin Albedinsky
+ */
+public final class StackTraceRendererTest {
+
+	@SuppressWarnings("unused")
+	private static final String TAG = "StackTraceRendererTest";
+
+	@Test
+	public void testDefaultMatchesPrintStackTrace() {
+		final Throwable error = new IllegalStateException("outer", new RuntimeException("inner", new Error("root")));
+		final StringWriter writer = new StringWriter();
+		error.printStackTrace(new PrintWriter(writer));
+		assertThat(StackTraceRenderer.DEFAULT.render(error), is(writer.toString()));
+	}
+
+	@Test
+	public void testSuppressedMatchesPrintStackTrace() {
+		final Exception suppressed = new IllegalArgumentException("close failed", new Error("disk"));
+		suppressed.addSuppressed(new RuntimeException("nested"));
+		final Throwable cause = new RuntimeException("inner");
+		cause.addSuppressed(new IllegalStateException("cleanup"));
+		final Throwable error = new IllegalStateException("outer", cause);
+		error.addSuppressed(suppressed);
+		final StringWriter writer = new StringWriter();
+		error.printStackTrace(new PrintWriter(writer));
+		assertThat(StackTraceRenderer.DEFAULT.render(error), is(writer.toString()));
+	}
+
+	@Test
+	public void testSuppressedLimits() {
+		final Throwable error = new IllegalStateException("outer");
+		for (int i = 0; i < 3; i++) {
+			error.addSuppressed(new RuntimeException("suppressed " + i, new Error("cause " + i, new Error("root " + i))));
+		}
+		final String stackTrace = new StackTraceRenderer(0, 1).render(error);
+		assertThat(stackTrace, containsString("\n\tSuppressed: java.lang.RuntimeException: suppressed 0\n"));
+		assertThat(stackTrace, containsString("\n\tCaused by: java.lang.Error: cause 0\n"));
+		assertThat(stackTrace, containsString("\n\t\t... 1 more causes\n"));
+		assertThat(stackTrace, not(containsString("suppressed 1")));
+		assertThat(stackTrace, endsWith("\t... 2 more suppressed\n"));
+	}
+
+	@Test
+	public void testSuppressedCircularReference() {
+		final Exception first = new Exception("first");
+		final Exception second = new Exception("second");
+		first.addSuppressed(second);
+		second.initCause(first);
+		final String stackTrace = new StackTraceRenderer(0, StackTraceRenderer.UNLIMITED).render(first);
+		assertThat(stackTrace, containsString("\tSuppressed: java.lang.Exception: second\n"));
+		assertThat(stackTrace, endsWith("\t\t[CIRCULAR REFERENCE: java.lang.Exception: first]\n"));
+	}
+
+	@Test
+	public void testRenderIntoBuilder() {
+		final StringBuilder builder = new StringBuilder("message\n");
+		StackTraceRenderer.DEFAULT.render(new IllegalStateException("failure"), builder);
+		assertThat(builder.toString(), startsWith("message\njava.lang.IllegalStateException: failure\n\tat "));
+	}
+
+	@Test
+	public void testFramesLimit() {
+		final Throwable error = createDeepError(50);
+		final int frames = error.getStackTrace().length;
+		final String stackTrace = new StackTraceRenderer(3, StackTraceRenderer.UNLIMITED).render(error);
+		assertThat(stackTrace.split("\n").length, is(1 + 3 + 1));
+		assertThat(stackTrace, endsWith("\t... " + (frames - 3) + " more\n"));
+	}
+
+	@Test
+	public void testCausesLimit() {
+		Throwable error = new Error("root");
+		for (int i = 0; i < 10; i++) {
+			error = new RuntimeException("level " + i, error);
+		}
+		final String stackTrace = new StackTraceRenderer(0, 2).render(error);
+		assertThat(stackTrace, containsString("Caused by: java.lang.RuntimeException: level 8"));
+		assertThat(stackTrace, containsString("Caused by: java.lang.RuntimeException: level 7"));
+		assertThat(stackTrace, not(containsString("level 6")));
+		assertThat(stackTrace, endsWith("\t... 8 more causes\n"));
+	}
+
+	@Test
+	public void testCircularReference() {
+		final Exception first = new Exception("first");
+		final Exception second = new Exception("second", first);
+		first.initCause(second);
+		final String stackTrace = new StackTraceRenderer(0, StackTraceRenderer.UNLIMITED).render(first);
+		assertThat(stackTrace, containsString("Caused by: java.lang.Exception: second"));
+		assertThat(stackTrace, endsWith("\t[CIRCULAR REFERENCE: java.lang.Exception: first]\n"));
+	}
+
+	@Test
+	public void testUnknownHostIsNotRendered() {
+		final Throwable error = new IllegalStateException(new UnknownHostException("offline"));
+		assertThat(StackTraceRenderer.DEFAULT.render(error), is(""));
+		assertThat(StackTraceRenderer.DEFAULT.render(null), is(""));
+	}
+
+	@Test
+	public void testUsedByLogger() {
+		final RecordingLogger logger = new RecordingLogger();
+		logger.setStackTraceRenderer(new StackTraceRenderer(0, 0));
+		assertThat(logger.getStackTraceString(new IllegalStateException("failure", new Error())), endsWith(
+				"java.lang.IllegalStateException: failure\n\t... " + new Throwable().getStackTrace().length + " more\n\t... 1 more causes\n"
+		));
+	}
+
+	private static Throwable createDeepError(int depth) {
+		return depth == 0 ? new IllegalStateException("deep") : createDeepError(depth - 1);
+	}
+}
@@ -0,0 +1,118 @@
+/*
+ * =================================================================================================
+ *                             Copyright (C) 2017 Universum Studios
+ * =================================================================================================
+ *         Licensed under the Apache License, Version 2.0 or later (further "License" only).
+ * -------------------------------------------------------------------------------------------------
+ * You may use this file only in compliance with the License. More details and copy of this License
+ * you may obtain at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * You can redistribute, modify or publish any part of the code written within this file but as it
+ * is described in the License, the software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES or CONDITIONS OF ANY KIND.
+ *
+ * See the License for the specific language governing permissions and limitations under the License.
+ * =================================================================================================
+ */
+package universum.studios.android.util;
+
+import android.util.Log;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+
+import universum.studios.android.util.inner.RecordingLogger;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+/**
+ * @author Martin Albedinsky
+ */
+public final class StructuredRecordTest {
+
+	@SuppressWarnings("unused")
+	private static final String TAG = "StructuredRecordTest";
+
+	@Test
+	public void testRenderAsText() {
+		final RecordingLogger logger = new RecordingLogger(Log.DEBUG);
+		StructuredRecord.obtain(logger, Log.INFO, TAG)
+				.put("event", "login")
+				.put("userId", 42)
+				.put("ratio", 0.5)
+				.put("ok", true)
+				.put("name", "John \"J\" Doe")
+				.put("empty", "")
+				.put("missing", null)
+				.log();
+		assertThat(logger.records().get(0), is("I/" + TAG + ": event=login userId=42 ratio=0.5 ok=true name=\"John \\\"J\\\" Doe\" empty=\"\" missing=null"));
+	}
+
+	@Test
+	public void testNotLoggableLevelIsDisabled() {
+		final RecordingLogger logger = new RecordingLogger(Log.WARN);
+		final StructuredRecord record = StructuredRecord.obtain(logger, Log.DEBUG, TAG);
+		assertThat(record, is(sameInstance(StructuredRecord.obtain(logger, Log.INFO, TAG))));
+		assertThat(record.put("key", 1).getFieldCount(), is(0));
+		record.log();
+		assertThat(logger.size(), is(0));
+	}
+
+	@Test
+	public void testRecordsArePooled() {
+		final RecordingLogger logger = new RecordingLogger(Log.VERBOSE);
+		final StructuredRecord first = StructuredRecord.obtain(logger, Log.INFO, TAG);
+		final StructuredRecord nested = StructuredRecord.obtain(logger, Log.INFO, TAG);
+		assertThat(nested, is(not(sameInstance(first))));
+		for (int i = 0; i < 20; i++) {
+			first.put("field" + i, i);
+		}
+		first.log();
+		nested.put("nested", true).log();
+		final StructuredRecord reused = StructuredRecord.obtain(logger, Log.INFO, TAG);
+		assertThat(reused == first || reused == nested, is(true));
+		assertThat(reused.getFieldCount(), is(0));
+		reused.log();
+		assertThat(logger.records().get(0).endsWith("field19=19"), is(true));
+		assertThat(logger.records().get(1), is("I/" + TAG + ": nested=true"));
+	}
+
+	@Test
+	public void testWriteIntoSink() throws Exception {
+		final ByteArrayOutputStream output = new ByteArrayOutputStream();
+		final SimpleLogger logger = new SimpleLogger(Log.VERBOSE, LogSinks.stream(output));
+		StructuredRecord.obtain(logger, Log.DEBUG, TAG).put("latencyMs", 13).log();
+		assertThat(output.toString("UTF-8"), is("D/" + TAG + ": latencyMs=13\n"));
+	}
+
+	@Test
+	public void testBinaryRoundTrip() throws Exception {
+		final ByteArrayOutputStream output = new ByteArrayOutputStream();
+		final BinaryLogger logger = new BinaryLogger(Log.VERBOSE, output);
+		StructuredRecord.obtain(logger, Log.WARN, TAG)
+				.put("event", "sync failed")
+				.put("attempt", -3)
+				.put("ratio", 0.25)
+				.put("retry", false)
+				.put("cause", null)
+				.log();
+		logger.i(TAG, "plain");
+		logger.flush();
+		final BinaryLogReader reader = new BinaryLogReader(new ByteArrayInputStream(output.toByteArray()));
+		final BinaryLogReader.Record record = new BinaryLogReader.Record();
+		assertThat(reader.read(record), is(true));
+		assertThat(record.getLevel(), is(Log.WARN));
+		assertThat(record.getTag(), is(TAG));
+		assertThat(record.getMessage(), is("event=\"sync failed\" attempt=-3 ratio=0.25 retry=false cause=null"));
+		assertThat(reader.read(record), is(true));
+		assertThat(record.getMessage(), is("plain"));
+		assertThat(reader.read(record), is(false));
+	}
+}
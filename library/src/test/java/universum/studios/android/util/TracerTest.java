@@ -0,0 +1,215 @@
+/*
+ * =================================================================================================
+ *                             Copyright (C) 2017 Universum Studios
+ * =================================================================================================
+ *         Licensed under the Apache License, Version 2.0 or later (further "License" only).
+ * -------------------------------------------------------------------------------------------------
+ * You may use this file only in compliance with the License. More details and copy of this License
+ * you may obtain at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * You can redistribute, modify or publish any part of the code written within this file but as it
+ * is described in the License, the software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES or CONDITIONS OF ANY KIND.
+ *
+ * See the License for the specific language governing permissions and limitations under the License.
+ * =================================================================================================
+ */
+package universum.studios.android.util;
+
+import android.util.Log;
+
+import org.junit.Test;
+
+import universum.studios.android.util.inner.RecordingLogger;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+/**
+ * @author Martin Albedinsky
+ */
+public final class TracerTest {
+
+	@SuppressWarnings("unused")
+	private static final String TAG = "TracerTest";
+
+	@Test
+	public void testNestedSpans() {
+		final TestTracer tracer = new TestTracer(new RecordingLogger(Log.VERBOSE), 16);
+		tracer.begin("Startup", "onCreate");
+		tracer.time += 1500;
+		tracer.begin("Startup", "inflate \"main\"");
+		tracer.time += 250;
+		tracer.end();
+		tracer.time += 1000;
+		tracer.end();
+		final String trace = tracer.exportChromeTrace();
+		final long tid = Thread.currentThread().getId();
+		assertThat(trace, containsString(
+				"{\"name\":\"inflate \\\"main\\\"\",\"cat\":\"Startup\",\"ph\":\"X\",\"ts\":1.500,\"dur\":0.250,\"pid\":0,\"tid\":" + tid + "}"
+		));
+		assertThat(trace, containsString(
+				"{\"name\":\"onCreate\",\"cat\":\"Startup\",\"ph\":\"X\",\"ts\":0.000,\"dur\":2.750,\"pid\":0,\"tid\":" + tid + "}"
+		));
+		assertThat(trace, containsString("\"ph\":\"M\""));
+		assertThat(trace.startsWith("{\"traceEvents\":["), is(true));
+		assertThat(trace.endsWith("],\"displayTimeUnit\":\"ms\"}"), is(true));
+	}
+
+	@Test
+	public void testLevelGating() {
+		final RecordingLogger logger = new RecordingLogger(Log.INFO);
+		final TestTracer tracer = new TestTracer(logger, 16);
+		tracer.begin("Sync", "outer");
+		tracer.setLevel(Log.INFO);
+		tracer.begin("Sync", "inner");
+		tracer.end();
+		tracer.end();
+		final String trace = tracer.exportChromeTrace();
+		assertThat(trace, containsString("\"name\":\"inner\""));
+		assertThat(trace, not(containsString("\"name\":\"outer\"")));
+		assertThat(logger.size(), is(0));
+	}
+
+	@Test
+	public void testUnbalancedEndIsIgnored() {
+		final TestTracer tracer = new TestTracer(new RecordingLogger(Log.VERBOSE), 16);
+		tracer.end();
+		tracer.begin("Sync", "span");
+		tracer.end();
+		tracer.end();
+		assertThat(countSpans(tracer.exportChromeTrace()), is(1));
+	}
+
+	@Test
+	public void testDeepNestingIsBounded() {
+		final TestTracer tracer = new TestTracer(new RecordingLogger(Log.VERBOSE), 256);
+		for (int i = 0; i < Tracer.MAX_DEPTH + 10; i++) {
+			tracer.begin("Deep", "span");
+		}
+		for (int i = 0; i < Tracer.MAX_DEPTH + 10; i++) {
+			tracer.end();
+		}
+		tracer.begin("Deep", "after");
+		tracer.end();
+		final String trace = tracer.exportChromeTrace();
+		assertThat(countSpans(trace), is(Tracer.MAX_DEPTH + 1));
+		assertThat(trace, containsString("\"name\":\"after\""));
+	}
+
+	@Test
+	public void testRingRetainsNewestSpans() {
+		final TestTracer tracer = new TestTracer(new RecordingLogger(Log.VERBOSE), 4);
+		for (int i = 0; i < 10; i++) {
+			tracer.begin("Ring", "span-" + i);
+			tracer.end();
+		}
+		final String trace = tracer.exportChromeTrace();
+		assertThat(countSpans(trace), is(4));
+		assertThat(trace, not(containsString("span-5")));
+		assertThat(trace, containsString("span-6"));
+		assertThat(trace, containsString("span-9"));
+	}
+
+	@Test
+	public void testClear() {
+		final TestTracer tracer = new TestTracer(new RecordingLogger(Log.VERBOSE), 16);
+		tracer.begin("Sync", "before");
+		tracer.end();
+		tracer.begin("Sync", "open");
+		tracer.clear();
+		tracer.end();
+		final String trace = tracer.exportChromeTrace();
+		assertThat(trace, not(containsString("before")));
+		assertThat(trace, containsString("\"name\":\"open\""));
+	}
+
+	@Test
+	public void testSpansOfMultipleThreads() throws Exception {
+		final TestTracer tracer = new TestTracer(new RecordingLogger(Log.VERBOSE), 64);
+		final Thread[] threads = new Thread[4];
+		for (int i = 0; i < threads.length; i++) {
+			threads[i] = new Thread(new Runnable() {
+
+				@Override
+				public void run() {
+					for (int j = 0; j < 100; j++) {
+						tracer.begin("Worker", "task");
+						tracer.end();
+					}
+				}
+			}, "Worker-" + i);
+			threads[i].start();
+		}
+		for (final Thread thread : threads) {
+			thread.join();
+		}
+		final String trace = tracer.exportChromeTrace();
+		assertThat(countSpans(trace), is(threads.length * 64));
+		for (final Thread thread : threads) {
+			assertThat(trace, containsString("\"args\":{\"name\":\"" + thread.getName() + "\"}"));
+		}
+		// Buffers of the finished threads are released once exported.
+		assertThat(countSpans(tracer.exportChromeTrace()), is(0));
+	}
+
+	@Test
+	public void testBuffersOfFinishedThreadsAreReleasedOnClear() throws Exception {
+		final TestTracer tracer = new TestTracer(new RecordingLogger(Log.VERBOSE), 16);
+		final Thread thread = new Thread(new Runnable() {
+
+			@Override
+			public void run() {
+				tracer.begin("Worker", "task");
+				tracer.end();
+			}
+		}, "Worker");
+		thread.start();
+		thread.join();
+		tracer.begin("Sync", "current");
+		tracer.end();
+		tracer.clear();
+		final String trace = tracer.exportChromeTrace();
+		assertThat(trace, not(containsString("\"args\":{\"name\":\"Worker\"}")));
+		assertThat(trace, containsString("\"args\":{\"name\":\"" + Thread.currentThread().getName() + "\"}"));
+	}
+
+	@Test
+	public void testNoBufferWithoutRecordedSpans() {
+		final TestTracer tracer = new TestTracer(new RecordingLogger(Log.INFO), 16);
+		tracer.begin("Sync", "ignored");
+		tracer.end();
+		assertThat(tracer.exportChromeTrace(), is("{\"traceEvents\":[],\"displayTimeUnit\":\"ms\"}"));
+	}
+
+	private static int countSpans(String trace) {
+		int count = 0;
+		for (int index = trace.indexOf("\"ph\":\"X\""); index >= 0; index = trace.indexOf("\"ph\":\"X\"", index + 1)) {
+			count++;
+		}
+		return count;
+	}
+
+	private static final class TestTracer extends Tracer {
+
+		long time;
+
+		TestTracer(Logger logger, int capacity) {
+			super(logger, capacity);
+		}
+
+		@Override
+		long nanoTime() {
+			return time;
+		}
+
+		@Override
+		int myPid() {
+			return 0;
+		}
+	}
+}
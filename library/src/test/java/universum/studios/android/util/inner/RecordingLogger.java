@@ -0,0 +1,95 @@
+/*
+ * =================================================================================================
+ *                             Copyright (C) 2017 Universum Studios
+ * =================================================================================================
+ *         Licensed under the Apache License, Version 2.0 or later (further "License" only).
+ * -------------------------------------------------------------------------------------------------
+ * You may use this file only in compliance with the License. More details and copy of this License
+ * you may obtain at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * You can redistribute, modify or publish any part of the code written within this file but as it
+ * is described in the License, the software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES or CONDITIONS OF ANY KIND.
+ *
+ * See the License for the specific language governing permissions and limitations under the License.
+ * =================================================================================================
+ */
+package universum.studios.android.util.inner;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import universum.studios.android.util.BaseLogger;
+
+/**
+ * @author Martin Albedinsky
+ */
+public class RecordingLogger extends BaseLogger {
+
+	@SuppressWarnings("unused")
+	private static final String TAG = "RecordingLogger";
+
+	private final List<String> records = new ArrayList<>();
+
+	public RecordingLogger() {
+		this(Log.VERBOSE);
+	}
+
+	public RecordingLogger(int level) {
+		super(level);
+	}
+
+	@NonNull
+	public static String levelName(int level) {
+		switch (level) {
+			case Log.VERBOSE:
+				return "V";
+			case Log.DEBUG:
+				return "D";
+			case Log.INFO:
+				return "I";
+			case Log.WARN:
+				return "W";
+			case Log.ERROR:
+				return "E";
+			case Log.ASSERT:
+				return "A";
+			default:
+				return Integer.toString(level);
+		}
+	}
+
+	@Override
+	protected void onLog(int level, @NonNull String tag, @Nullable String msg, @Nullable Throwable tr) {
+		final StringBuilder record = new StringBuilder(levelName(level)).append('/').append(tag).append(": ").append(msg);
+		if (tr != null) record.append(" [").append(tr.getClass().getSimpleName()).append(']');
+		synchronized (records) {
+			records.add(record.toString());
+		}
+	}
+
+	@NonNull
+	public List<String> records() {
+		synchronized (records) {
+			return new ArrayList<>(records);
+		}
+	}
+
+	public int size() {
+		synchronized (records) {
+			return records.size();
+		}
+	}
+
+	public void clear() {
+		synchronized (records) {
+			records.clear();
+		}
+	}
+}